@@ -0,0 +1,122 @@
+package nus.cs4222.shootingapp.benchmark;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.CompilerControl;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nus.cs4222.shootingapp.gesture.SampleBatch;
+import nus.cs4222.shootingapp.gesture.classify.DecisionTree;
+import nus.cs4222.shootingapp.gesture.classify.GestureClassifier;
+import nus.cs4222.shootingapp.gesture.classify.GestureFeatures;
+
+/**
+   Cost per aligned sample of the gesture classifier with the app's
+   model: the window features plus the tree ('classifier'), and the
+   tree alone on the feature vector of each window ('treeOnly').
+ */
+@BenchmarkMode( { Mode.AverageTime , Mode.Throughput } )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class ClassifierBenchmark 
+    extends StreamBenchmarkBase {
+
+    /** Loads the streams and the model, and computes the feature vector of each window. */
+    @Setup
+    public void setup() 
+        throws IOException {
+        accl = loadStream( false );
+        gravity = loadStream( true );
+        InputStream in = new FileInputStream( model );
+        try {
+            tree = DecisionTree.read( in );
+        }
+        finally {
+            in.close();
+        }
+        classifier = new GestureClassifier( tree , GestureClassifier.DEFAULT_REFRACTORY_PERIOD );
+        batch = new SampleBatch( batchSize );
+        gestureIndices = new int[ batchSize ];
+
+        // Feature vectors (for the tree alone)
+        GestureFeatures features = new GestureFeatures();
+        featureVectors = new float[ accl.size() ][ GestureFeatures.NUM_FEATURES ];
+        for( int i = 0 ; i < accl.size() ; ++i ) {
+            features.onAlignedSample( accl.timestamps[i] , accl.x[i] , accl.y[i] , accl.z[i] , 
+                                      gravity.x[i] , gravity.y[i] , gravity.z[i] );
+            features.getFeatureVector( featureVectors[i] );
+        }
+    }
+
+    /** Window features and tree, one block at a time (as in the app). */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public int classifier() {
+        int start = nextStart( accl );
+        int end = start + SAMPLES_PER_INVOCATION;
+        int numGestures = 0;
+        for( int batchStart = start ; batchStart < end ; batchStart += batchSize ) {
+            numGestures += processBlock( batchStart , Math.min( batchStart + batchSize , end ) );
+        }
+        return numGestures;
+    }
+
+    /** Tree alone. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public int treeOnly() {
+        int start = nextStart( accl );
+        int end = start + SAMPLES_PER_INVOCATION;
+        int sum = 0;
+        for( int i = start ; i < end ; ++i ) {
+            sum += tree.classify( featureVectors[i] );
+        }
+        return sum;
+    }
+
+    /** Processes one block (not inlined, like a ring buffer drain). */
+    @CompilerControl( CompilerControl.Mode.DONT_INLINE )
+    private int processBlock( int from , 
+                              int to ) {
+        batch.clear();
+        for( int i = from ; i < to ; ++i ) {
+            batch.onAlignedSample( accl.timestamps[i] , accl.x[i] , accl.y[i] , accl.z[i] , 
+                                   gravity.x[i] , gravity.y[i] , gravity.z[i] );
+            batch.isFaceUp[ batch.size() - 1 ] = true;
+        }
+        return classifier.onBatch( batch , gestureIndices );
+    }
+
+    /** Model file (relative to the benchmark module when run by Gradle). */
+    @Param( { "../src/main/res/raw/gesture_model.bin" } )
+    public String model;
+
+    /** Linear accl stream. */
+    private SampleStream accl;
+    /** Gravity stream (aligned sample by sample with the accl). */
+    private SampleStream gravity;
+    /** Model. */
+    private DecisionTree tree;
+    /** Classifier under test. */
+    private GestureClassifier classifier;
+    /** Feature vector of the window ending at each sample. */
+    private float[][] featureVectors;
+    /** Block of samples. */
+    private SampleBatch batch;
+    /** Indices of the gestures in a block. */
+    private int[] gestureIndices;
+}
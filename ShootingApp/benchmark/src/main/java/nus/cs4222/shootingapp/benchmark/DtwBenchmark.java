@@ -0,0 +1,94 @@
+package nus.cs4222.shootingapp.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.CompilerControl;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nus.cs4222.shootingapp.gesture.dtw.DtwGestureRecognizer;
+import nus.cs4222.shootingapp.gesture.dtw.GestureTemplates;
+
+/**
+   Cost per linear accl sample of the DTW template recognizer (with
+   the default templates), with the LB_Keogh pruning and early
+   abandoning, and with the banded DTW computed for every template at
+   every sample.
+ */
+@BenchmarkMode( { Mode.AverageTime , Mode.Throughput } )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class DtwBenchmark 
+    extends StreamBenchmarkBase {
+
+    /** Loads the stream and creates the recognizers. */
+    @Setup
+    public void setup() 
+        throws IOException {
+        accl = loadStream( false );
+        prunedRecognizer = new DtwGestureRecognizer( GestureTemplates.defaults() , 
+                                                     GestureTemplates.DEFAULT_BAND_WIDTH , 
+                                                     GestureTemplates.DEFAULT_REFRACTORY_PERIOD , 
+                                                     true );
+        fullRecognizer = new DtwGestureRecognizer( GestureTemplates.defaults() , 
+                                                   GestureTemplates.DEFAULT_BAND_WIDTH , 
+                                                   GestureTemplates.DEFAULT_REFRACTORY_PERIOD , 
+                                                   false );
+    }
+
+    /** Recognizer with the lower bound pruning. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public int prunedDtw() {
+        return processStream( prunedRecognizer );
+    }
+
+    /** Recognizer computing the DTW of every template (still abandoning early). */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public int fullDtw() {
+        return processStream( fullRecognizer );
+    }
+
+    /** Processes the samples of one invocation in batches. */
+    private int processStream( DtwGestureRecognizer recognizer ) {
+        int start = nextStart( accl );
+        int end = start + SAMPLES_PER_INVOCATION;
+        int numGestures = 0;
+        for( int batchStart = start ; batchStart < end ; batchStart += batchSize ) {
+            numGestures += processBatch( recognizer , batchStart , Math.min( batchStart + batchSize , end ) );
+        }
+        return numGestures;
+    }
+
+    /** Processes one batch (not inlined, like a ring buffer drain). */
+    @CompilerControl( CompilerControl.Mode.DONT_INLINE )
+    private int processBatch( DtwGestureRecognizer recognizer , 
+                              int from , 
+                              int to ) {
+        int numGestures = 0;
+        for( int i = from ; i < to ; ++i ) {
+            if( recognizer.onSample( accl.timestamps[i] , accl.x[i] , accl.y[i] , accl.z[i] ) ) {
+                ++numGestures;
+            }
+        }
+        return numGestures;
+    }
+
+    /** Linear accl stream. */
+    private SampleStream accl;
+    /** Recognizer with the lower bound pruning. */
+    private DtwGestureRecognizer prunedRecognizer;
+    /** Recognizer without the lower bound pruning. */
+    private DtwGestureRecognizer fullRecognizer;
+}
@@ -0,0 +1,133 @@
+package nus.cs4222.shootingapp.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nus.cs4222.shootingapp.gesture.ShootingRegions;
+import nus.cs4222.shootingapp.gesture.math.FastMath;
+import nus.cs4222.shootingapp.gesture.math.SectorClassifier;
+
+/**
+   Table-based trig and sector classification (FastMath,
+   SectorClassifier) against the exact Math versions.
+
+   <p> The direction vectors are the (x, y) components of the stream,
+   and the cos values its z component over the vector magnitude.
+   Samples are processed in one loop per invocation (the batch size
+   parameter has no effect here).
+ */
+@BenchmarkMode( { Mode.AverageTime , Mode.Throughput } )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class FastMathBenchmark 
+    extends StreamBenchmarkBase {
+
+    /** Loads the stream and calculates the cos values. */
+    @Setup
+    public void setup() 
+        throws IOException {
+        stream = loadStream( false );
+        cosValues = new float[ stream.size() ];
+        for( int i = 0 ; i < cosValues.length ; ++i ) {
+            float x = stream.x[i] , y = stream.y[i] , z = stream.z[i];
+            float magnitude = (float) Math.sqrt( x * x + y * y + z * z );
+            cosValues[i] = ( magnitude > 0.0F ) ? z / magnitude : 1.0F;
+        }
+        classifier = new SectorClassifier( NUM_SHOOTING_REGIONS );
+    }
+
+    /** Math.atan2 in degrees. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public float exactAtan2() {
+        int start = nextStart( stream );
+        float sum = 0.0F;
+        for( int i = start ; i < start + SAMPLES_PER_INVOCATION ; ++i ) {
+            sum += (float) Math.toDegrees( Math.atan2( stream.y[i] , stream.x[i] ) );
+        }
+        return sum;
+    }
+
+    /** Table-based atan2 in degrees. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public float fastAtan2() {
+        int start = nextStart( stream );
+        float sum = 0.0F;
+        for( int i = start ; i < start + SAMPLES_PER_INVOCATION ; ++i ) {
+            sum += FastMath.atan2Deg( stream.y[i] , stream.x[i] );
+        }
+        return sum;
+    }
+
+    /** Math.acos in degrees. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public float exactAcos() {
+        int start = nextStart( stream );
+        float sum = 0.0F;
+        for( int i = start ; i < start + SAMPLES_PER_INVOCATION ; ++i ) {
+            sum += (float) Math.toDegrees( Math.acos( cosValues[i] ) );
+        }
+        return sum;
+    }
+
+    /** Table-based acos in degrees. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public float fastAcos() {
+        int start = nextStart( stream );
+        float sum = 0.0F;
+        for( int i = start ; i < start + SAMPLES_PER_INVOCATION ; ++i ) {
+            sum += FastMath.acosDeg( cosValues[i] );
+        }
+        return sum;
+    }
+
+    /** Sector from the exact angle of the vector. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public int exactSector() {
+        int start = nextStart( stream );
+        int sum = 0;
+        for( int i = start ; i < start + SAMPLES_PER_INVOCATION ; ++i ) {
+            float angle = (float) Math.toDegrees( Math.atan2( stream.x[i] , stream.y[i] ) );
+            sum += ShootingRegions.fromDirection( angle , NUM_SHOOTING_REGIONS );
+        }
+        return sum;
+    }
+
+    /** Sector from the vector components by comparison. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public int comparisonSector() {
+        int start = nextStart( stream );
+        int sum = 0;
+        for( int i = start ; i < start + SAMPLES_PER_INVOCATION ; ++i ) {
+            sum += classifier.classify( stream.x[i] , stream.y[i] ) + 1;
+        }
+        return sum;
+    }
+
+    /** Number of shooting regions (as in the app). */
+    private static final int NUM_SHOOTING_REGIONS = 8;
+
+    /** Sample stream. */
+    private SampleStream stream;
+    /** Cos values. */
+    private float[] cosValues;
+    /** Sector classifier. */
+    private SectorClassifier classifier;
+}
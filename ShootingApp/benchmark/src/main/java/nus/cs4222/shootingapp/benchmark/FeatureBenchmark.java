@@ -0,0 +1,152 @@
+package nus.cs4222.shootingapp.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.CompilerControl;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nus.cs4222.shootingapp.gesture.features.SlidingWindowFeatures;
+import nus.cs4222.shootingapp.gesture.features.WindowFeatureExtractor;
+
+/**
+   Cost per aligned sample of the sliding window features of the 6
+   accl and gravity channels, with a feature vector written at every
+   sample: updated incrementally (WindowFeatureExtractor), or
+   recomputed from the last 'windowSize' samples of each channel.
+ */
+@BenchmarkMode( { Mode.AverageTime , Mode.Throughput } )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class FeatureBenchmark 
+    extends StreamBenchmarkBase {
+
+    /** Loads the streams and creates the extractor. */
+    @Setup
+    public void setup() 
+        throws IOException {
+        accl = loadStream( false );
+        gravity = loadStream( true );
+        // (samples are 20 ms apart, so the window holds 'windowSize' samples)
+        extractor = new WindowFeatureExtractor( windowSize * SAMPLE_INTERVAL - 1L , windowSize );
+        features = new float[ WindowFeatureExtractor.NUM_FEATURES ];
+        channels = new float[][] { accl.x , accl.y , accl.z , gravity.x , gravity.y , gravity.z };
+    }
+
+    /** Incremental features. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public float incremental() {
+        int start = nextStart( accl );
+        int end = start + SAMPLES_PER_INVOCATION;
+        float checksum = 0.0F;
+        for( int batchStart = start ; batchStart < end ; batchStart += batchSize ) {
+            checksum += processBatch( batchStart , Math.min( batchStart + batchSize , end ) );
+        }
+        return checksum;
+    }
+
+    /** Features recomputed over the whole window at each sample. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public float naiveRecompute() {
+        int start = nextStart( accl );
+        int end = start + SAMPLES_PER_INVOCATION;
+        float checksum = 0.0F;
+        for( int batchStart = start ; batchStart < end ; batchStart += batchSize ) {
+            checksum += recomputeBatch( batchStart , Math.min( batchStart + batchSize , end ) );
+        }
+        return checksum;
+    }
+
+    /** Processes one batch incrementally (not inlined, like a ring buffer drain). */
+    @CompilerControl( CompilerControl.Mode.DONT_INLINE )
+    private float processBatch( int from , 
+                                int to ) {
+        float checksum = 0.0F;
+        for( int i = from ; i < to ; ++i ) {
+            extractor.onAlignedSample( accl.timestamps[i] , accl.x[i] , accl.y[i] , accl.z[i] , 
+                                       gravity.x[i] , gravity.y[i] , gravity.z[i] );
+            extractor.getFeatureVector( features );
+            checksum += features[ WindowFeatureExtractor.NUM_FEATURES - 1 ];
+        }
+        return checksum;
+    }
+
+    /** Processes one batch by recomputing the window (not inlined). */
+    @CompilerControl( CompilerControl.Mode.DONT_INLINE )
+    private float recomputeBatch( int from , 
+                                  int to ) {
+        float checksum = 0.0F;
+        for( int i = from ; i < to ; ++i ) {
+            int first = Math.max( 0 , i - windowSize + 1 );
+            int offset = 0;
+            for( float[] values : channels ) {
+                offset = recompute( values , first , i , offset );
+            }
+            checksum += features[ WindowFeatureExtractor.NUM_FEATURES - 1 ];
+        }
+        return checksum;
+    }
+
+    /** Recomputes the features of the samples first..last of a channel (two passes). */
+    private int recompute( float[] values , 
+                           int first , 
+                           int last , 
+                           int offset ) {
+        double sum = 0.0;
+        float min = values[first] , max = values[first];
+        int numZeroCrossings = 0;
+        for( int j = first ; j <= last ; ++j ) {
+            sum += values[j];
+            min = Math.min( min , values[j] );
+            max = Math.max( max , values[j] );
+            if( j > first && ( values[ j - 1 ] < 0.0F ) != ( values[j] < 0.0F ) ) {
+                ++numZeroCrossings;
+            }
+        }
+        int count = last - first + 1;
+        double mean = sum / count;
+        double sumSquares = 0.0;
+        for( int j = first ; j <= last ; ++j ) {
+            sumSquares += ( values[j] - mean ) * ( values[j] - mean );
+        }
+        double variance = sumSquares / count;
+        features[ offset + SlidingWindowFeatures.FEATURE_MEAN ] = (float) mean;
+        features[ offset + SlidingWindowFeatures.FEATURE_VARIANCE ] = (float) variance;
+        features[ offset + SlidingWindowFeatures.FEATURE_MIN ] = min;
+        features[ offset + SlidingWindowFeatures.FEATURE_MAX ] = max;
+        features[ offset + SlidingWindowFeatures.FEATURE_ENERGY ] = (float) ( variance + mean * mean );
+        features[ offset + SlidingWindowFeatures.FEATURE_ZERO_CROSSINGS ] = numZeroCrossings;
+        features[ offset + SlidingWindowFeatures.FEATURE_PEAK_TO_PEAK ] = max - min;
+        return offset + SlidingWindowFeatures.NUM_FEATURES;
+    }
+
+    /** Number of samples in the window. */
+    @Param( { "16" , "64" } )
+    public int windowSize;
+
+    /** Linear accl stream. */
+    private SampleStream accl;
+    /** Gravity stream (aligned sample by sample with the accl). */
+    private SampleStream gravity;
+    /** Values of each channel. */
+    private float[][] channels;
+    /** Extractor under test. */
+    private WindowFeatureExtractor extractor;
+    /** Feature vector. */
+    private float[] features;
+    /** Interval between the synthetic samples (nanosec). */
+    private static final long SAMPLE_INTERVAL = 20000000L;
+}
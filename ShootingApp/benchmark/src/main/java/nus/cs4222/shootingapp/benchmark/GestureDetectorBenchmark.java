@@ -0,0 +1,138 @@
+package nus.cs4222.shootingapp.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.CompilerControl;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nus.cs4222.shootingapp.gesture.FaceUpDetector;
+import nus.cs4222.shootingapp.gesture.SampleBatch;
+import nus.cs4222.shootingapp.gesture.ThresholdGestureDetector;
+
+/**
+   Cost per linear accl sample of the accl peak/trough state machine,
+   called per sample or per block (SampleBatch, as in the app). The
+   'faceUpThenDetector' and 'batchedThresholdDetector' benchmarks both
+   include the face up test (per sample, or over the block after the
+   samples are copied into it).
+ */
+@BenchmarkMode( { Mode.AverageTime , Mode.Throughput } )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class GestureDetectorBenchmark 
+    extends StreamBenchmarkBase {
+
+    /** Loads the stream and creates the detector. */
+    @Setup
+    public void setup() 
+        throws IOException {
+        accl = loadStream( false );
+        detector = new ThresholdGestureDetector();
+        faceUpDetector = new FaceUpDetector();
+        batch = new SampleBatch( batchSize );
+        gestureIndices = new int[ batchSize ];
+    }
+
+    /** Threshold gesture detector. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public int thresholdDetector() {
+        int start = nextStart( accl );
+        int end = start + SAMPLES_PER_INVOCATION;
+        int numGestures = 0;
+        for( int batchStart = start ; batchStart < end ; batchStart += batchSize ) {
+            numGestures += processBatch( batchStart , Math.min( batchStart + batchSize , end ) );
+        }
+        return numGestures;
+    }
+
+    /** Face up test and threshold gesture detector, one sample at a time. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public int faceUpThenDetector() {
+        int start = nextStart( accl );
+        int end = start + SAMPLES_PER_INVOCATION;
+        int numGestures = 0;
+        for( int batchStart = start ; batchStart < end ; batchStart += batchSize ) {
+            numGestures += processBatchWithFaceUp( batchStart , Math.min( batchStart + batchSize , end ) );
+        }
+        return numGestures;
+    }
+
+    /** Processes one batch per sample with the face up test (not inlined). */
+    @CompilerControl( CompilerControl.Mode.DONT_INLINE )
+    private int processBatchWithFaceUp( int from , 
+                                        int to ) {
+        int numGestures = 0;
+        for( int i = from ; i < to ; ++i ) {
+            if( faceUpDetector.onSample( 0.0F , 0.0F , GRAVITY ) && 
+                detector.onSample( accl.timestamps[i] , accl.x[i] , accl.y[i] , accl.z[i] ) ) {
+                ++numGestures;
+            }
+        }
+        return numGestures;
+    }
+
+    /** Threshold gesture detector, one block at a time. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public int batchedThresholdDetector() {
+        int start = nextStart( accl );
+        int end = start + SAMPLES_PER_INVOCATION;
+        int numGestures = 0;
+        for( int batchStart = start ; batchStart < end ; batchStart += batchSize ) {
+            numGestures += processBlock( batchStart , Math.min( batchStart + batchSize , end ) );
+        }
+        return numGestures;
+    }
+
+    /** Processes one block (not inlined, like a ring buffer drain). */
+    @CompilerControl( CompilerControl.Mode.DONT_INLINE )
+    private int processBlock( int from , 
+                              int to ) {
+        batch.clear();
+        for( int i = from ; i < to ; ++i ) {
+            batch.onAlignedSample( accl.timestamps[i] , accl.x[i] , accl.y[i] , accl.z[i] , 
+                                   0.0F , 0.0F , GRAVITY );
+        }
+        faceUpDetector.onBatch( batch );
+        return detector.onBatch( batch , gestureIndices );
+    }
+
+    /** Processes one batch (not inlined, like a ring buffer drain). */
+    @CompilerControl( CompilerControl.Mode.DONT_INLINE )
+    private int processBatch( int from , 
+                              int to ) {
+        int numGestures = 0;
+        for( int i = from ; i < to ; ++i ) {
+            if( detector.onSample( accl.timestamps[i] , accl.x[i] , accl.y[i] , accl.z[i] ) ) {
+                ++numGestures;
+            }
+        }
+        return numGestures;
+    }
+
+    /** Linear accl stream. */
+    private SampleStream accl;
+    /** Detector under test. */
+    private ThresholdGestureDetector detector;
+    /** Face up detector of the blocks. */
+    private FaceUpDetector faceUpDetector;
+    /** Block of samples. */
+    private SampleBatch batch;
+    /** Indices of the gestures in a block. */
+    private int[] gestureIndices;
+    /** Gravity of a face up phone (m/sec^2). */
+    private static final float GRAVITY = 9.81F;
+}
@@ -0,0 +1,76 @@
+package nus.cs4222.shootingapp.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nus.cs4222.shootingapp.gesture.stats.LatencyHistogram;
+import nus.cs4222.shootingapp.gesture.stats.SensorRateStats;
+
+/**
+   Per-sample cost of the latency instrumentation (LatencyHistogram and
+   SensorRateStats), which stays enabled in the app.
+
+   <p> 'histogram' records the age of each sample (as the processing
+   thread does), and 'perSample' adds the rate stats and a clock read,
+   i.e. the full cost paid per sample. The batch size parameter has no
+   effect here.
+ */
+@BenchmarkMode( { Mode.AverageTime , Mode.Throughput } )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class InstrumentationBenchmark 
+    extends StreamBenchmarkBase {
+
+    /** Loads the stream and creates the stats. */
+    @Setup
+    public void setup() 
+        throws IOException {
+        stream = loadStream( false );
+        histogram = new LatencyHistogram();
+        rateStats = new SensorRateStats();
+    }
+
+    /** Records the latency of each sample into a histogram. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public long histogram() {
+        int start = nextStart( stream );
+        long now = stream.timestamps[ start + SAMPLES_PER_INVOCATION - 1 ];
+        for( int i = start ; i < start + SAMPLES_PER_INVOCATION ; ++i ) {
+            histogram.record( now - stream.timestamps[i] );
+        }
+        return histogram.getCount();
+    }
+
+    /** Reads the clock, and records the latency and rate stats of each sample. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public long perSample() {
+        int start = nextStart( stream );
+        for( int i = start ; i < start + SAMPLES_PER_INVOCATION ; ++i ) {
+            long timestamp = stream.timestamps[i];
+            histogram.record( System.nanoTime() - timestamp );
+            rateStats.onSample( timestamp );
+        }
+        return rateStats.getNumSamples();
+    }
+
+    /** Sample stream. */
+    private SampleStream stream;
+    /** Latency histogram. */
+    private LatencyHistogram histogram;
+    /** Sensor rate stats. */
+    private SensorRateStats rateStats;
+}
@@ -0,0 +1,105 @@
+package nus.cs4222.shootingapp.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.CompilerControl;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nus.cs4222.shootingapp.gesture.FaceUpDetector;
+
+/**
+   Cost per gravity sample of the face up (gravity angle) check.
+
+   <p> 'exactAngle' is the original per-sample calculation (copy of
+   the values, full dot product, sqrt and acos), kept here as the
+   baseline for FaceUpDetector.
+ */
+@BenchmarkMode( { Mode.AverageTime , Mode.Throughput } )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class OrientationBenchmark 
+    extends StreamBenchmarkBase {
+
+    /** Loads the stream and creates the detector. */
+    @Setup
+    public void setup() 
+        throws IOException {
+        gravity = loadStream( true );
+        detector = new FaceUpDetector();
+    }
+
+    /** Face up check with the precomputed cos threshold. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public int faceUpDetector() {
+        int start = nextStart( gravity );
+        int end = start + SAMPLES_PER_INVOCATION;
+        int numFaceUp = 0;
+        for( int batchStart = start ; batchStart < end ; batchStart += batchSize ) {
+            numFaceUp += processBatch( batchStart , Math.min( batchStart + batchSize , end ) );
+        }
+        return numFaceUp;
+    }
+
+    /** Original face up check with the exact angle. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public int exactAngle() {
+        int start = nextStart( gravity );
+        int end = start + SAMPLES_PER_INVOCATION;
+        int numFaceUp = 0;
+        for( int batchStart = start ; batchStart < end ; batchStart += batchSize ) {
+            numFaceUp += processBatchExact( batchStart , Math.min( batchStart + batchSize , end ) );
+        }
+        return numFaceUp;
+    }
+
+    /** Processes one batch with the detector (not inlined, like a ring buffer drain). */
+    @CompilerControl( CompilerControl.Mode.DONT_INLINE )
+    private int processBatch( int from , 
+                              int to ) {
+        int numFaceUp = 0;
+        for( int i = from ; i < to ; ++i ) {
+            if( detector.onSample( gravity.x[i] , gravity.y[i] , gravity.z[i] ) ) {
+                ++numFaceUp;
+            }
+        }
+        return numFaceUp;
+    }
+
+    /** Processes one batch with the exact angle (not inlined, like a ring buffer drain). */
+    @CompilerControl( CompilerControl.Mode.DONT_INLINE )
+    private int processBatchExact( int from , 
+                                   int to ) {
+        int numFaceUp = 0;
+        for( int i = from ; i < to ; ++i ) {
+            float[] v2 = new float[] { gravity.x[i] , gravity.y[i] , gravity.z[i] }.clone();
+            float[] v1 = new float[] { 0.0F , 0.0F , 1.0F };
+            float dotProduct = v1[0] * v2[0] + v1[1] * v2[1] + v1[2] * v2[2];
+            float mag1 = (float) Math.sqrt( v1[0] * v1[0] + v1[1] * v1[1] + v1[2] * v1[2] );
+            float mag2 = (float) Math.sqrt( v2[0] * v2[0] + v2[1] * v2[1] + v2[2] * v2[2] );
+            float cosValue = Math.max( -1.0F , Math.min( 1.0F , dotProduct / ( mag1 * mag2 ) ) );
+            float angle = (float) Math.toDegrees( Math.acos( cosValue ) );
+            if( angle <= FaceUpDetector.DEFAULT_MAX_FACE_UP_ANGLE_ERROR ) {
+                ++numFaceUp;
+            }
+        }
+        return numFaceUp;
+    }
+
+    /** Gravity stream. */
+    private SampleStream gravity;
+    /** Detector under test. */
+    private FaceUpDetector detector;
+}
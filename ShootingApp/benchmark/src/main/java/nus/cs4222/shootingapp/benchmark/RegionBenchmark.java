@@ -0,0 +1,75 @@
+package nus.cs4222.shootingapp.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.CompilerControl;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nus.cs4222.shootingapp.gesture.ShootingRegions;
+
+/**
+   Cost per sample of the shooting region classification.
+
+   <p> The directions are taken from the (x, y) components of the
+   stream, so that recorded streams give realistic directions.
+ */
+@BenchmarkMode( { Mode.AverageTime , Mode.Throughput } )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class RegionBenchmark 
+    extends StreamBenchmarkBase {
+
+    /** Loads the stream and calculates the directions. */
+    @Setup
+    public void setup() 
+        throws IOException {
+        stream = loadStream( false );
+        directions = new float[ stream.size() ];
+        for( int i = 0 ; i < directions.length ; ++i ) {
+            directions[i] = (float) Math.toDegrees( Math.atan2( stream.x[i] , stream.y[i] ) );
+        }
+    }
+
+    /** Region from direction, with the sector width division. */
+    @Benchmark
+    @OperationsPerInvocation( SAMPLES_PER_INVOCATION )
+    public int fromDirection() {
+        int start = nextStart( stream );
+        int end = start + SAMPLES_PER_INVOCATION;
+        int regionSum = 0;
+        for( int batchStart = start ; batchStart < end ; batchStart += batchSize ) {
+            regionSum += processBatch( batchStart , Math.min( batchStart + batchSize , end ) );
+        }
+        return regionSum;
+    }
+
+    /** Processes one batch (not inlined, like a ring buffer drain). */
+    @CompilerControl( CompilerControl.Mode.DONT_INLINE )
+    private int processBatch( int from , 
+                              int to ) {
+        int regionSum = 0;
+        for( int i = from ; i < to ; ++i ) {
+            regionSum += ShootingRegions.fromDirection( directions[i] , NUM_SHOOTING_REGIONS );
+        }
+        return regionSum;
+    }
+
+    /** Number of shooting regions (as in the app). */
+    private static final int NUM_SHOOTING_REGIONS = 8;
+
+    /** Sample stream. */
+    private SampleStream stream;
+    /** Shooting directions (deg). */
+    private float[] directions;
+}
@@ -0,0 +1,200 @@
+package nus.cs4222.shootingapp.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import nus.cs4222.shootingapp.gesture.trace.SensorTraceReader;
+
+/**
+   Stream of (timestamp, x, y, z) sensor samples stored as primitive
+   arrays, used as benchmark input.
+
+   <p> Streams are either synthetic (noise with periodic gesture
+   spikes, generated with a fixed seed so that runs are comparable) or
+   loaded from a recorded sensor trace file (see SensorTrace) or CSV
+   file with one "timestamp,x,y,z" sample per line.
+ */
+public class SampleStream {
+
+    /** Creates a stream from the given arrays (all of the same length). */
+    public SampleStream( long[] timestamps , 
+                         float[] x , 
+                         float[] y , 
+                         float[] z ) {
+        this.timestamps = timestamps;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /** Returns the number of samples in the stream. */
+    public int size() {
+        return timestamps.length;
+    }
+
+    /**
+       Generates a synthetic linear accl stream at game rate (50 Hz),
+       with a gesture-like z-axis spike about every second.
+     */
+    public static SampleStream syntheticAccl( int numSamples , 
+                                              long seed ) {
+        Random random = new Random( seed );
+        SampleStream stream = allocate( numSamples );
+        for( int i = 0 ; i < numSamples ; ++i ) {
+            stream.timestamps[i] = i * SAMPLE_INTERVAL;
+            stream.x[i] = (float) random.nextGaussian() * 0.3F;
+            stream.y[i] = (float) random.nextGaussian() * 0.3F;
+            stream.z[i] = (float) random.nextGaussian() * 0.3F;
+
+            // Gesture spike (rise and fall over a few samples)
+            int phase = i % 50;
+            if( phase < 6 ) {
+                stream.z[i] += SPIKE_SHAPE[phase] * ( 8.0F + random.nextFloat() * 4.0F );
+            }
+        }
+        return stream;
+    }
+
+    /**
+       Generates a synthetic gravity stream at game rate (50 Hz), with
+       the phone slowly tilting between face up and upright.
+     */
+    public static SampleStream syntheticGravity( int numSamples , 
+                                                 long seed ) {
+        Random random = new Random( seed );
+        SampleStream stream = allocate( numSamples );
+        for( int i = 0 ; i < numSamples ; ++i ) {
+            double tilt = Math.toRadians( 45.0 + 45.0 * Math.sin( i * 0.01 ) );
+            stream.timestamps[i] = i * SAMPLE_INTERVAL;
+            stream.x[i] = (float) ( random.nextGaussian() * 0.05 );
+            stream.y[i] = (float) ( GRAVITY * Math.sin( tilt ) );
+            stream.z[i] = (float) ( GRAVITY * Math.cos( tilt ) );
+        }
+        return stream;
+    }
+
+    /** Loads the samples of one sensor from a recorded trace file. */
+    public static SampleStream loadTrace( String fileName , 
+                                          int sensorType ) 
+        throws IOException {
+
+        SensorTraceReader reader = new SensorTraceReader( new File( fileName ) );
+        try {
+
+            // Count the samples of the sensor
+            int numSamples = 0;
+            for( int i = 0 ; i < reader.size() ; ++i ) {
+                if( reader.getSensorType( i ) == sensorType ) {
+                    ++numSamples;
+                }
+            }
+            if( numSamples == 0 ) {
+                throw new IOException( "No samples of sensor type " + sensorType + " in " + fileName );
+            }
+
+            // Copy them into the stream
+            SampleStream stream = allocate( numSamples );
+            int j = 0;
+            for( int i = 0 ; i < reader.size() ; ++i ) {
+                if( reader.getSensorType( i ) == sensorType ) {
+                    stream.timestamps[j] = reader.getTimestamp( i );
+                    stream.x[j] = reader.getX( i );
+                    stream.y[j] = reader.getY( i );
+                    stream.z[j] = reader.getZ( i );
+                    ++j;
+                }
+            }
+            return stream;
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /** Loads a recorded stream from a CSV file ("timestamp,x,y,z" per line, '#' for comments). */
+    public static SampleStream loadCsv( String fileName ) 
+        throws IOException {
+
+        SampleStream stream = allocate( 1024 );
+        int numSamples = 0;
+        BufferedReader reader = new BufferedReader( new FileReader( fileName ) );
+        try {
+            String line;
+            while( ( line = reader.readLine() ) != null ) {
+                line = line.trim();
+                if( line.isEmpty() || line.startsWith( "#" ) ) {
+                    continue;
+                }
+                if( numSamples == stream.size() ) {
+                    stream = stream.copyOf( numSamples * 2 );
+                }
+                String[] fields = line.split( "," );
+                stream.timestamps[numSamples] = Long.parseLong( fields[0].trim() );
+                stream.x[numSamples] = Float.parseFloat( fields[1].trim() );
+                stream.y[numSamples] = Float.parseFloat( fields[2].trim() );
+                stream.z[numSamples] = Float.parseFloat( fields[3].trim() );
+                ++numSamples;
+            }
+        }
+        finally {
+            reader.close();
+        }
+        if( numSamples == 0 ) {
+            throw new IOException( "No samples in " + fileName );
+        }
+        return stream.copyOf( numSamples );
+    }
+
+    /** Returns the stream repeated (with increasing timestamps) until it has at least 'minLength' samples. */
+    public SampleStream repeat( int minLength ) {
+        int length = size();
+        if( length >= minLength ) {
+            return this;
+        }
+        SampleStream repeated = copyOf( minLength );
+        long period = timestamps[ length - 1 ] - timestamps[0] + SAMPLE_INTERVAL;
+        for( int i = length ; i < minLength ; ++i ) {
+            repeated.timestamps[i] = repeated.timestamps[ i - length ] + period;
+            repeated.x[i] = x[ i % length ];
+            repeated.y[i] = y[ i % length ];
+            repeated.z[i] = z[ i % length ];
+        }
+        return repeated;
+    }
+
+    /** Returns a copy of the stream with the given length (truncated or zero padded). */
+    private SampleStream copyOf( int length ) {
+        return new SampleStream( Arrays.copyOf( timestamps , length ) , 
+                                 Arrays.copyOf( x , length ) , 
+                                 Arrays.copyOf( y , length ) , 
+                                 Arrays.copyOf( z , length ) );
+    }
+
+    /** Allocates an empty stream. */
+    private static SampleStream allocate( int numSamples ) {
+        return new SampleStream( new long[ numSamples ] , 
+                                 new float[ numSamples ] , 
+                                 new float[ numSamples ] , 
+                                 new float[ numSamples ] );
+    }
+
+    /** Sample timestamps (nanosec). */
+    public final long[] timestamps;
+    /** X values. */
+    public final float[] x;
+    /** Y values. */
+    public final float[] y;
+    /** Z values. */
+    public final float[] z;
+
+    /** Interval between samples at game rate (nanosec). */
+    private static final long SAMPLE_INTERVAL = 20000000L;
+    /** Standard gravity (m/sec^2). */
+    private static final double GRAVITY = 9.81;
+    /** Relative shape of a gesture spike. */
+    private static final float[] SPIKE_SHAPE = { 0.3F , 0.8F , 1.0F , 0.6F , 0.2F , -0.1F };
+}
@@ -0,0 +1,131 @@
+package nus.cs4222.shootingapp.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nus.cs4222.shootingapp.gesture.history.ShotHistory;
+import nus.cs4222.shootingapp.gesture.history.ShotHistoryReader;
+import nus.cs4222.shootingapp.gesture.history.ShotHistoryWriter;
+import nus.cs4222.shootingapp.gesture.stats.LatencyHistogram;
+
+/**
+   Time of the shot history queries, over a history of random shots
+   spread over 6 months (1M shots is about 5000 shots a day).
+
+   <p> The history is written to a temporary file by the setup, and
+   each query runs over the whole history, or over its last 30 days.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ShotHistoryBenchmark {
+
+    /** Number of shots in the history. */
+    @Param( { "1000000" } )
+    public int numShots;
+
+    /** Writes the history, and opens it for the queries. */
+    @Setup
+    public void setup()
+        throws IOException {
+        file = File.createTempFile( "shots" , ".history" );
+        file.delete();
+        ShotHistoryWriter writer = new ShotHistoryWriter( file );
+        Random random = new Random( 4222L );
+        long interval = HISTORY_PERIOD / numShots;
+        for( int i = 0 ; i < numShots ; ++i ) {
+            writer.append( START_TIME + i * interval ,
+                           1 + random.nextInt( 8 ) ,
+                           random.nextFloat() * 360.0F ,
+                           7.0F + random.nextFloat() * 20.0F ,
+                           ( 10L + random.nextInt( 100 ) ) * 1000000L );
+            if( i % 64 == 63 ) {
+                writer.flush();
+            }
+        }
+        writer.close();
+        reader = new ShotHistoryReader( file );
+        recentStart = START_TIME + HISTORY_PERIOD - RECENT_PERIOD;
+        regionCounts = new long[ ShotHistory.MAX_REGION + 1 ];
+        forceCounts = new long[ 6 ];
+        latencies = new LatencyHistogram();
+    }
+
+    /** Closes and deletes the history. */
+    @TearDown
+    public void tearDown()
+        throws IOException {
+        reader.close();
+        file.delete();
+    }
+
+    /** Shots per region over the whole history. */
+    @Benchmark
+    public long regionsAllTime() {
+        return reader.countByRegion( Long.MIN_VALUE , Long.MAX_VALUE , regionCounts );
+    }
+
+    /** Shots per region over the last 30 days. */
+    @Benchmark
+    public long regionsRecent() {
+        return reader.countByRegion( recentStart , Long.MAX_VALUE , regionCounts );
+    }
+
+    /** Peak force distribution over the whole history. */
+    @Benchmark
+    public long forceAllTime() {
+        return reader.forceHistogram( Long.MIN_VALUE , Long.MAX_VALUE , 5.0F , forceCounts );
+    }
+
+    /** Strong shots over the whole history (mostly settled by the block index). */
+    @Benchmark
+    public long strongShotsAllTime() {
+        return reader.count( Long.MIN_VALUE , Long.MAX_VALUE , 26.9F );
+    }
+
+    /** Latency percentiles over the whole history. */
+    @Benchmark
+    public long latencyAllTime() {
+        latencies.reset();
+        reader.latencies( Long.MIN_VALUE , Long.MAX_VALUE , latencies );
+        return latencies.getValueAtPercentile( 99.0 );
+    }
+
+    /** Time of the first shot (millisec since the epoch). */
+    private static final long START_TIME = 1460000000000L;
+    /** Time over which the shots are spread (millisec, 6 months). */
+    private static final long HISTORY_PERIOD = 180L * 24L * 60L * 60L * 1000L;
+    /** Time range of the recent queries (millisec, 30 days). */
+    private static final long RECENT_PERIOD = 30L * 24L * 60L * 60L * 1000L;
+
+    /** History file. */
+    private File file;
+    /** Reader of the history. */
+    private ShotHistoryReader reader;
+    /** Start of the recent queries (millisec since the epoch). */
+    private long recentStart;
+    /** Shots per region. */
+    private long[] regionCounts;
+    /** Shots per peak force bin. */
+    private long[] forceCounts;
+    /** Latencies of the shots. */
+    private LatencyHistogram latencies;
+}
@@ -0,0 +1,66 @@
+package nus.cs4222.shootingapp.benchmark;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import nus.cs4222.shootingapp.gesture.trace.SensorTrace;
+
+/**
+   Common state of the stream benchmarks.
+
+   <p> Each invocation processes SAMPLES_PER_INVOCATION samples, in
+   batches of 'batchSize' samples (as the processing thread drains
+   the ring buffer), so the reported ns/op is per sample. The 'trace'
+   parameter is either "synthetic", or the path of a recorded sensor
+   trace (".trace") or CSV file.
+ */
+@State( Scope.Thread )
+public abstract class StreamBenchmarkBase {
+
+    /** Loads the sample stream. */
+    protected SampleStream loadStream( boolean isGravity ) 
+        throws IOException {
+        if( "synthetic".equals( trace ) ) {
+            return isGravity ? 
+                SampleStream.syntheticGravity( STREAM_LENGTH , SEED ) : 
+                SampleStream.syntheticAccl( STREAM_LENGTH , SEED );
+        }
+        else if( trace.endsWith( ".trace" ) ) {
+            int sensorType = isGravity ? 
+                SensorTrace.TYPE_GRAVITY : 
+                SensorTrace.TYPE_LINEAR_ACCELERATION;
+            return SampleStream.loadTrace( trace , sensorType ).repeat( SAMPLES_PER_INVOCATION );
+        }
+        return SampleStream.loadCsv( trace ).repeat( SAMPLES_PER_INVOCATION );
+    }
+
+    /** Returns the stream index to start the next invocation at (wrapping around). */
+    protected int nextStart( SampleStream stream ) {
+        int start = position;
+        position += SAMPLES_PER_INVOCATION;
+        if( position + SAMPLES_PER_INVOCATION > stream.size() ) {
+            position = 0;
+        }
+        return start;
+    }
+
+    /** Number of samples processed per batch. */
+    @Param( { "1" , "16" , "256" } )
+    public int batchSize;
+
+    /** Sample stream ("synthetic" or path to a trace/CSV file). */
+    @Param( { "synthetic" } )
+    public String trace;
+
+    /** Number of samples processed per benchmark invocation. */
+    public static final int SAMPLES_PER_INVOCATION = 4096;
+    /** Number of samples in a synthetic stream. */
+    private static final int STREAM_LENGTH = 1 << 16;
+    /** Seed of the synthetic streams. */
+    private static final long SEED = 4222L;
+    /** Position in the stream. */
+    private int position;
+}
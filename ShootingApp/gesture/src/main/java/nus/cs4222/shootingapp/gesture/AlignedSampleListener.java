@@ -0,0 +1,27 @@
+package nus.cs4222.shootingapp.gesture;
+
+/**
+   Receives linear accl samples paired with the gravity at the same
+   time (see SensorStreamJoiner).
+ */
+public interface AlignedSampleListener {
+
+    /**
+       Called for each linear accl sample, in timestamp order.
+
+       @param   timestamp  Linear accl sample timestamp (nanosec)
+       @param   ax         Linear accl along the phone's x-axis (m/sec^2)
+       @param   ay         Linear accl along the phone's y-axis (m/sec^2)
+       @param   az         Linear accl along the phone's z-axis (m/sec^2)
+       @param   gx         Gravity along the phone's x-axis at the same time (m/sec^2)
+       @param   gy         Gravity along the phone's y-axis at the same time (m/sec^2)
+       @param   gz         Gravity along the phone's z-axis at the same time (m/sec^2)
+     */
+    public void onAlignedSample( long timestamp , 
+                                 float ax , 
+                                 float ay , 
+                                 float az , 
+                                 float gx , 
+                                 float gy , 
+                                 float gz );
+}
@@ -0,0 +1,127 @@
+package nus.cs4222.shootingapp.gesture;
+
+import nus.cs4222.shootingapp.gesture.math.FastMath;
+
+/**
+   Detects whether the phone is face up and (almost) parallel to the
+   ground, using the gravity sensor.
+
+   <p> When the phone is in this position, the gravity should be
+   (0 , 0 , g). Otherwise, it is at an angle to the ground, which is
+   the angle between the gravity vector and the (0 , 0 , 1) phone's
+   z-axis. Since the dot product with the z-axis is just z, the test
+   cos(angle) = z / |g| >= cos(max angle error) is done with squared
+   values against a precomputed threshold, without any sqrt or acos
+   per sample.
+ */
+public class FaceUpDetector {
+
+    /** Creates a detector with the default max angle error. */
+    public FaceUpDetector() {
+        this( DEFAULT_MAX_FACE_UP_ANGLE_ERROR );
+    }
+
+    /**
+       Creates a detector with the given max angle error.
+
+       @param   maxFaceUpAngleError  Angle error allowed in deg (in the range 0 .. 90)
+     */
+    public FaceUpDetector( float maxFaceUpAngleError ) {
+
+        // Check the angle (the squared cos test only works below 90 deg)
+        if( ! ( maxFaceUpAngleError >= 0.0F && maxFaceUpAngleError < 90.0F ) ) {
+            throw new IllegalArgumentException( "Face up angle error must be in [0, 90) deg: " + 
+                                                maxFaceUpAngleError );
+        }
+        this.maxFaceUpAngleError = maxFaceUpAngleError;
+        double minCos = Math.cos( Math.toRadians( maxFaceUpAngleError ) );
+        minFaceUpCosSquared = (float) ( minCos * minCos );
+    }
+
+    /**
+       Processes one gravity sample.
+
+       @return  true if the phone is face up
+     */
+    public boolean onSample( float x , 
+                             float y , 
+                             float z ) {
+        float magnitudeSquared = x * x + y * y + z * z;
+        isFaceUp = ( z > 0.0F && 
+                     z * z >= minFaceUpCosSquared * magnitudeSquared );
+        return isFaceUp;
+    }
+
+    /**
+       Checks whether the phone is face up at each sample of a batch,
+       using the gravity at the sample times.
+
+       <p> Same test as onSample(), but as one branch-free loop over the
+       gravity arrays (which the compiler can unroll or vectorize). The
+       results are stored in batch.isFaceUp.
+
+       @return  Number of samples at which the phone is face up
+     */
+    public int onBatch( SampleBatch batch ) {
+
+        // Copy the arrays to locals, so that the loop only touches arrays
+        int n = batch.size();
+        float[] x = batch.gx , y = batch.gy , z = batch.gz;
+        boolean[] faceUp = batch.isFaceUp;
+        float minCosSquared = minFaceUpCosSquared;
+
+        // Dot product with the z-axis against the magnitude (no branches)
+        int numFaceUp = 0;
+        for( int i = 0 ; i < n ; ++i ) {
+            float zi = z[i];
+            float magnitudeSquared = x[i] * x[i] + y[i] * y[i] + zi * zi;
+            boolean isUp = ( zi > 0.0F ) & ( zi * zi >= minCosSquared * magnitudeSquared );
+            faceUp[i] = isUp;
+            numFaceUp += isUp ? 1 : 0;
+        }
+
+        // The state is that of the last sample
+        if( n > 0 ) {
+            isFaceUp = faceUp[ n - 1 ];
+        }
+        return numFaceUp;
+    }
+
+    /** Returns true if the phone was face up at the last gravity sample. */
+    public boolean isFaceUp() {
+        return isFaceUp;
+    }
+
+    /** Resets the detector to its initial state (not face up). */
+    public void reset() {
+        isFaceUp = false;
+    }
+
+    /** Returns the max face up angle error (deg). */
+    public float getMaxFaceUpAngleError() {
+        return maxFaceUpAngleError;
+    }
+
+    /** 
+       Calculates the angle (deg) between the gravity vector and the
+       phone's z-axis (only meant for display, accurate to about
+       1e-4 deg, see FastMath).
+     */
+    public static float getAngle( float x , 
+                                  float y , 
+                                  float z ) {
+        float magnitude = (float) Math.sqrt( x * x + y * y + z * z );
+        float cosValue = ( magnitude > 0.0F ) ? z / magnitude : 1.0F;
+        return FastMath.acosDeg( cosValue );
+    }
+
+    /** Default face up angle error allowed in deg (since it is difficult for the user to place phone at perfect 90 deg). */
+    public static final float DEFAULT_MAX_FACE_UP_ANGLE_ERROR = 30.0F;
+
+    /** Face up angle error allowed (deg). */
+    private final float maxFaceUpAngleError;
+    /** Square of the min cos of the face up angle. */
+    private final float minFaceUpCosSquared;
+    /** Flag to indicate whether the phone is face up (and nearly parallel to the ground). */
+    private boolean isFaceUp;
+}
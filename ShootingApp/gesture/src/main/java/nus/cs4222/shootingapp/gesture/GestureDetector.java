@@ -0,0 +1,48 @@
+package nus.cs4222.shootingapp.gesture;
+
+/**
+   Detects 'shooting' gestures from linear accl samples.
+
+   <p> Samples are passed as primitives (timestamp and the x, y, z
+   values in the phone's co-ordinate system), so that a detector does
+   not depend on the Android sensor classes and can be run on the JVM
+   over recorded or synthetic data.
+
+   <p> Implementations are not thread-safe, and are expected to be
+   called from a single (processing) thread.
+ */
+public interface GestureDetector {
+
+    /**
+       Processes one linear accl sample.
+
+       @param   timestamp  Sample timestamp (nanosec)
+       @param   x          Linear accl along the phone's x-axis (m/sec^2)
+       @param   y          Linear accl along the phone's y-axis (m/sec^2)
+       @param   z          Linear accl along the phone's z-axis (m/sec^2)
+       @return  true if a gesture was detected at this sample
+     */
+    public boolean onSample( long timestamp , 
+                             float x , 
+                             float y , 
+                             float z );
+
+    /**
+       Processes the face up samples of a batch, in order (the samples
+       at which the phone is not face up are skipped, as if they had not
+       been passed to onSample()).
+
+       @param   batch           Samples, with batch.isFaceUp already set
+       @param   gestureIndices  Receives the index of each sample at which a 
+                                 gesture was detected (at least batch.size() long)
+       @return  Number of gestures detected in the batch
+     */
+    public int onBatch( SampleBatch batch , 
+                        int[] gestureIndices );
+
+    /** Returns the number of gestures detected since the last reset. */
+    public int getNumGestures();
+
+    /** Resets the detector to its initial state. */
+    public void reset();
+}
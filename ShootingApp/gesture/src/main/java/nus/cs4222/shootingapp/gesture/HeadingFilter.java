@@ -0,0 +1,167 @@
+package nus.cs4222.shootingapp.gesture;
+
+import nus.cs4222.shootingapp.gesture.math.FastMath;
+
+/**
+   Estimates the heading of the phone (the direction its top points
+   at, clockwise from magnetic north) with a complementary filter.
+
+   <p> The magnetometer gives an absolute, tilt-compensated heading
+   (using the gravity vector, as in SensorManager.getRotationMatrix()
+   and getOrientation()), but it is noisy and disturbed by nearby
+   metal. The gyroscope gives a smooth, low-latency heading change
+   (the rotation rate about the gravity axis), but it drifts. So the
+   gyroscope is integrated at every sample, and the estimate is
+   pulled a little towards the magnetometer heading at every
+   magnetometer sample. Without a gyroscope, this reduces to a
+   low-pass filter on the magnetometer heading.
+
+   <p> Each update is constant time and creates no objects (the angle
+   uses the table-based FastMath.atan2Deg), so it can run at the game
+   sensor rate. Not thread-safe.
+ */
+public class HeadingFilter {
+
+    /**
+       Creates a filter.
+
+       @param   magneticGain  Fraction (0 .. 1] of the difference to the magnetometer
+                               heading corrected at each magnetometer sample
+     */
+    public HeadingFilter( float magneticGain ) {
+        if( ! ( magneticGain > 0.0F && magneticGain <= 1.0F ) ) {
+            throw new IllegalArgumentException( "Magnetic gain must be in (0, 1]: " + magneticGain );
+        }
+        this.magneticGain = magneticGain;
+        reset();
+    }
+
+    /** Processes a gravity sample (m/sec^2, pointing up as reported by the gravity sensor). */
+    public void onGravitySample( float x , 
+                                 float y , 
+                                 float z ) {
+        float magnitude = (float) Math.sqrt( x * x + y * y + z * z );
+        if( magnitude > MIN_VECTOR_MAGNITUDE ) {
+            gravityX = x / magnitude;
+            gravityY = y / magnitude;
+            gravityZ = z / magnitude;
+            hasGravity = true;
+        }
+    }
+
+    /** Processes a gyroscope sample (rad/sec, counter-clockwise about each axis). */
+    public void onGyroscopeSample( long timestamp , 
+                                   float x , 
+                                   float y , 
+                                   float z ) {
+
+        // Integrate the rotation rate about the vertical (gravity) axis.
+        //  A counter-clockwise rotation (seen from above) decreases the heading.
+        long interval = timestamp - lastGyroscopeTimestamp;
+        if( hasGyroscope && hasGravity && hasHeading && 
+            interval > 0L && interval <= MAX_GYROSCOPE_INTERVAL ) {
+            float yawRate = x * gravityX + y * gravityY + z * gravityZ;
+            heading = wrap( heading - yawRate * interval * DEG_PER_RAD_NANOSEC );
+        }
+        lastGyroscopeTimestamp = timestamp;
+        hasGyroscope = true;
+    }
+
+    /** Processes a magnetometer sample (micro Tesla). */
+    public void onMagneticSample( float x , 
+                                  float y , 
+                                  float z ) {
+
+        // Need the gravity for tilt compensation
+        if( ! hasGravity ) {
+            return;
+        }
+
+        // East = magnetic field x gravity, North = gravity x East
+        //  (same as SensorManager.getRotationMatrix())
+        float eastX = y * gravityZ - z * gravityY;
+        float eastY = z * gravityX - x * gravityZ;
+        float eastZ = x * gravityY - y * gravityX;
+        float eastMagnitude = (float) Math.sqrt( eastX * eastX + eastY * eastY + eastZ * eastZ );
+        if( eastMagnitude < MIN_VECTOR_MAGNITUDE ) {
+            // Field (almost) parallel to gravity, e.g., near a magnet
+            return;
+        }
+        float northY = gravityZ * eastX - gravityX * eastZ;
+
+        // Heading of the phone's y-axis (as in SensorManager.getOrientation())
+        float magneticHeading = wrap( FastMath.atan2Deg( eastY , northY ) );
+
+        // Pull the estimate towards the magnetometer heading (the shorter way round)
+        if( ! hasHeading ) {
+            heading = magneticHeading;
+            hasHeading = true;
+        }
+        else {
+            float error = magneticHeading - heading;
+            if( error > 180.0F ) {
+                error -= 360.0F;
+            }
+            else if( error < -180.0F ) {
+                error += 360.0F;
+            }
+            heading = wrap( heading + magneticGain * error );
+        }
+    }
+
+    /** Returns true once a heading is available (after the first gravity and magnetometer samples). */
+    public boolean hasHeading() {
+        return hasHeading;
+    }
+
+    /** Returns the heading estimate (deg, in the range 0 .. 360). */
+    public float getHeading() {
+        return heading;
+    }
+
+    /** Resets the filter to its initial state (no heading). */
+    public void reset() {
+        heading = 0.0F;
+        hasHeading = false;
+        hasGravity = false;
+        hasGyroscope = false;
+        lastGyroscopeTimestamp = 0L;
+    }
+
+    /** Wraps an angle into [0, 360). */
+    private static float wrap( float angle ) {
+        angle %= 360.0F;
+        if( angle < 0.0F ) {
+            angle += 360.0F;
+        }
+        // Rounding of a tiny negative angle can give 360
+        return ( angle >= 360.0F ) ? 0.0F : angle;
+    }
+
+    /** Default magnetic gain with a gyroscope (mostly trusts the gyroscope). */
+    public static final float DEFAULT_MAGNETIC_GAIN_WITH_GYROSCOPE = 0.02F;
+    /** Default magnetic gain without a gyroscope (smooths the magnetometer). */
+    public static final float DEFAULT_MAGNETIC_GAIN_WITHOUT_GYROSCOPE = 0.2F;
+
+    /** Max gyroscope sample interval that is integrated (nanosec, longer gaps are skipped). */
+    private static final long MAX_GYROSCOPE_INTERVAL = 100000000L;
+    /** Converts a rotation rate (rad/sec) times an interval (nanosec) to deg. */
+    private static final float DEG_PER_RAD_NANOSEC = (float) ( Math.toDegrees( 1.0 ) * 1e-9 );
+    /** Min magnitude of a vector to be normalized. */
+    private static final float MIN_VECTOR_MAGNITUDE = 1e-3F;
+
+    /** Fraction of the error to the magnetometer heading corrected per sample. */
+    private final float magneticGain;
+    /** Heading estimate (deg). */
+    private float heading;
+    /** Flag to indicate whether there is a heading estimate. */
+    private boolean hasHeading;
+    /** Unit gravity vector. */
+    private float gravityX , gravityY , gravityZ;
+    /** Flag to indicate whether a gravity sample has been received. */
+    private boolean hasGravity;
+    /** Flag to indicate whether a gyroscope sample has been received. */
+    private boolean hasGyroscope;
+    /** Timestamp of the last gyroscope sample (nanosec). */
+    private long lastGyroscopeTimestamp;
+}
@@ -0,0 +1,94 @@
+package nus.cs4222.shootingapp.gesture;
+
+/**
+   Block of linear accl samples paired with the gravity at their time,
+   stored as one array per component (struct of arrays).
+
+   <p> The samples are appended one at a time (e.g. by
+   SensorStreamJoiner), and the block is then processed by tight loops
+   over the arrays (see FaceUpDetector.onBatch() and
+   GestureDetector.onBatch()), instead of a chain of calls per sample.
+   The arrays are public so that the processing loops can index them
+   directly; only the first size() entries are valid.
+ */
+public class SampleBatch 
+    implements AlignedSampleListener {
+
+    /** Creates an empty batch holding up to 'capacity' samples. */
+    public SampleBatch( int capacity ) {
+        if( capacity <= 0 ) {
+            throw new IllegalArgumentException( "Invalid batch capacity: " + capacity );
+        }
+        timestamps = new long[ capacity ];
+        ax = new float[ capacity ];
+        ay = new float[ capacity ];
+        az = new float[ capacity ];
+        gx = new float[ capacity ];
+        gy = new float[ capacity ];
+        gz = new float[ capacity ];
+        isFaceUp = new boolean[ capacity ];
+    }
+
+    /** Appends a sample (the batch must not be full). */
+    @Override
+    public void onAlignedSample( long timestamp , 
+                                 float ax , 
+                                 float ay , 
+                                 float az , 
+                                 float gx , 
+                                 float gy , 
+                                 float gz ) {
+        int i = size;
+        if( i == timestamps.length ) {
+            throw new IllegalStateException( "Sample batch is full" );
+        }
+        timestamps[i] = timestamp;
+        this.ax[i] = ax;
+        this.ay[i] = ay;
+        this.az[i] = az;
+        this.gx[i] = gx;
+        this.gy[i] = gy;
+        this.gz[i] = gz;
+        isFaceUp[i] = false;
+        size = i + 1;
+    }
+
+    /** Returns the number of samples in the batch. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns the max number of samples in the batch. */
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    /** Checks whether no more samples can be appended. */
+    public boolean isFull() {
+        return size == timestamps.length;
+    }
+
+    /** Removes all samples (keeping the arrays). */
+    public void clear() {
+        size = 0;
+    }
+
+    /** Linear accl sample timestamps (nanosec). */
+    public final long[] timestamps;
+    /** Linear accl along the phone's x-axis (m/sec^2). */
+    public final float[] ax;
+    /** Linear accl along the phone's y-axis (m/sec^2). */
+    public final float[] ay;
+    /** Linear accl along the phone's z-axis (m/sec^2). */
+    public final float[] az;
+    /** Gravity along the phone's x-axis at the sample time (m/sec^2). */
+    public final float[] gx;
+    /** Gravity along the phone's y-axis at the sample time (m/sec^2). */
+    public final float[] gy;
+    /** Gravity along the phone's z-axis at the sample time (m/sec^2). */
+    public final float[] gz;
+    /** Whether the phone was face up at each sample (set by FaceUpDetector.onBatch()). */
+    public final boolean[] isFaceUp;
+    /** Number of samples in the batch. */
+    private int size;
+}
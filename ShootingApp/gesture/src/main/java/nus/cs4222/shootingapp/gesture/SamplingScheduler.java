@@ -0,0 +1,129 @@
+package nus.cs4222.shootingapp.gesture;
+
+/**
+   Decides how fast the sensors need to be sampled, from the phone's
+   orientation.
+
+   <p> Gestures are only detected while the phone is face up, so the
+   linear accl is only needed when the phone is in (or near) the face
+   up band. The scheduler is ACTIVE (all sensors at game rate) while
+   the gravity is within a wider 'approach' band around face up, so
+   that the accl is already running when the phone reaches the face up
+   band. It becomes IDLE (accl off, gravity slow and batched) only
+   after the phone has stayed outside the approach band for a while,
+   so that a short wobble does not switch the sensors on and off.
+
+   <p> The time spent in each mode is counted (by the sensor
+   timestamps), to show how much sampling was saved.
+ */
+public class SamplingScheduler {
+
+    /** Mode with the accl off, and the gravity sampled slowly. */
+    public static final int MODE_IDLE = 0;
+    /** Mode with all sensors sampled at the full rate. */
+    public static final int MODE_ACTIVE = 1;
+
+    /**
+       Creates a scheduler (in the ACTIVE mode).
+
+       @param   approachAngle  Max angle from face up (deg) at which the sensors are kept active
+       @param   idleDelay      Time outside the approach band before becoming idle (nanosec)
+     */
+    public SamplingScheduler( float approachAngle , 
+                              long idleDelay ) {
+        if( idleDelay < 0L ) {
+            throw new IllegalArgumentException( "Negative idle delay: " + idleDelay );
+        }
+        approachDetector = new FaceUpDetector( approachAngle );
+        this.idleDelay = idleDelay;
+        reset();
+    }
+
+    /**
+       Processes one gravity sample.
+
+       @param   timestamp  Sample timestamp (nanosec)
+       @return  true if the mode changed at this sample
+     */
+    public boolean onGravitySample( long timestamp , 
+                                    float x , 
+                                    float y , 
+                                    float z ) {
+
+        // Count the time since the last sample in the current mode
+        if( hasTimestamp && timestamp > lastTimestamp ) {
+            timeInMode[ mode ] += timestamp - lastTimestamp;
+        }
+        hasTimestamp = true;
+        lastTimestamp = timestamp;
+
+        // Near face up: become active straight away
+        if( approachDetector.onSample( x , y , z ) ) {
+            isOutsideBand = false;
+            return setMode( MODE_ACTIVE );
+        }
+
+        // Away from face up: become idle after the delay
+        if( ! isOutsideBand ) {
+            isOutsideBand = true;
+            leftBandTimestamp = timestamp;
+        }
+        if( mode == MODE_ACTIVE && 
+            timestamp - leftBandTimestamp >= idleDelay ) {
+            return setMode( MODE_IDLE );
+        }
+        return false;
+    }
+
+    /** Returns the current mode (MODE_IDLE or MODE_ACTIVE). */
+    public int getMode() {
+        return mode;
+    }
+
+    /** Returns the time spent in a mode since the creation (nanosec). */
+    public long getTimeInMode( int mode ) {
+        return timeInMode[ mode ];
+    }
+
+    /** Returns the number of mode changes since the creation. */
+    public long getNumModeChanges() {
+        return numModeChanges;
+    }
+
+    /** Restarts in the ACTIVE mode (the counters are kept). */
+    public void reset() {
+        mode = MODE_ACTIVE;
+        hasTimestamp = false;
+        isOutsideBand = false;
+        approachDetector.reset();
+    }
+
+    /** Sets the mode, and returns true if it changed. */
+    private boolean setMode( int newMode ) {
+        if( newMode == mode ) {
+            return false;
+        }
+        mode = newMode;
+        ++numModeChanges;
+        return true;
+    }
+
+    /** Checks whether the gravity is within the approach band. */
+    private final FaceUpDetector approachDetector;
+    /** Time outside the approach band before becoming idle (nanosec). */
+    private final long idleDelay;
+    /** Current mode. */
+    private int mode;
+    /** Flag to indicate whether the last gravity sample was outside the approach band. */
+    private boolean isOutsideBand;
+    /** Timestamp of the first sample outside the approach band (nanosec). */
+    private long leftBandTimestamp;
+    /** Flag to indicate whether a sample has been processed since the reset. */
+    private boolean hasTimestamp;
+    /** Timestamp of the last sample (nanosec). */
+    private long lastTimestamp;
+    /** Time spent in each mode (nanosec). */
+    private final long[] timeInMode = new long[ 2 ];
+    /** Number of mode changes. */
+    private long numModeChanges;
+}
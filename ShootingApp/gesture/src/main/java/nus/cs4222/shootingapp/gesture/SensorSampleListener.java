@@ -0,0 +1,25 @@
+package nus.cs4222.shootingapp.gesture;
+
+/**
+   Receives raw sensor samples as primitives.
+
+   <p> Used to pass samples between the stages of the pipeline (ring
+   buffer, trace replay, etc) without creating sensor event objects.
+ */
+public interface SensorSampleListener {
+
+    /**
+       Called for each sensor sample.
+
+       @param   sensorType  Sensor type (same values as android.hardware.Sensor.TYPE_*)
+       @param   timestamp   Sample timestamp (nanosec)
+       @param   x           Value along the phone's x-axis
+       @param   y           Value along the phone's y-axis
+       @param   z           Value along the phone's z-axis
+     */
+    public void onSample( int sensorType , 
+                          long timestamp , 
+                          float x , 
+                          float y , 
+                          float z );
+}
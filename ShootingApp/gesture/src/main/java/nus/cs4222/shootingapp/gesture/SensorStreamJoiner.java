@@ -0,0 +1,242 @@
+package nus.cs4222.shootingapp.gesture;
+
+/**
+   Joins the gravity and linear accl streams by timestamp.
+
+   <p> The two sensors are sampled at different times (and possibly
+   rates), so the latest gravity sample can be tens of millisec older
+   than an accl sample, which matters during a fast shooting motion.
+   This joiner keeps a short history of gravity samples, and holds
+   each accl sample until a gravity sample at or after its timestamp
+   has arrived. The gravity is then linearly interpolated to the accl
+   timestamp, and the aligned pair is passed to the listener.
+
+   <p> Latency and memory are bounded: an accl sample is never held
+   longer than the max skew (measured in sensor time, by the newest
+   accl timestamp), nor once the fixed-size buffers are full. In
+   those cases the latest gravity sample is used as it is. Before
+   any gravity sample has arrived, the gravity is passed as zeros.
+
+   <p> Not thread-safe: call from a single (processing) thread, with
+   each stream in timestamp order.
+ */
+public class SensorStreamJoiner {
+
+    /**
+       Creates a joiner.
+
+       @param   maxSkew   Max time an accl sample waits for a later gravity sample (nanosec)
+       @param   capacity  Number of samples buffered per stream (rounded up to a power of 2)
+       @param   listener  Receives the aligned samples
+     */
+    public SensorStreamJoiner( long maxSkew , 
+                               int capacity , 
+                               AlignedSampleListener listener ) {
+
+        if( maxSkew < 0L ) {
+            throw new IllegalArgumentException( "Negative max skew: " + maxSkew );
+        }
+        this.maxSkew = maxSkew;
+        this.listener = listener;
+
+        // Round up to a power of 2 so that the index can be masked
+        int size = Integer.highestOneBit( Math.max( capacity , 2 ) - 1 ) << 1;
+        mask = size - 1;
+        gravityTimestamps = new long[ size ];
+        gravityX = new float[ size ];
+        gravityY = new float[ size ];
+        gravityZ = new float[ size ];
+        acclTimestamps = new long[ size ];
+        acclX = new float[ size ];
+        acclY = new float[ size ];
+        acclZ = new float[ size ];
+    }
+
+    /** Adds a gravity sample (and passes on the accl samples it completes). */
+    public void onGravitySample( long timestamp , 
+                                 float x , 
+                                 float y , 
+                                 float z ) {
+
+        // Ignore samples out of order
+        if( numGravity > 0 && 
+            timestamp <= gravityTimestamps[ newestGravity ] ) {
+            return;
+        }
+
+        // Add it to the history (overwriting the oldest if full)
+        newestGravity = ( newestGravity + 1 ) & mask;
+        gravityTimestamps[ newestGravity ] = timestamp;
+        gravityX[ newestGravity ] = x;
+        gravityY[ newestGravity ] = y;
+        gravityZ[ newestGravity ] = z;
+        if( numGravity <= mask ) {
+            ++numGravity;
+        }
+
+        // Pass on the held accl samples that are now covered
+        while( numAccl > 0 && 
+               acclTimestamps[ oldestAccl ] <= timestamp ) {
+            emitOldestAccl();
+        }
+    }
+
+    /** Adds a linear accl sample (passed on once the gravity at its time is known). */
+    public void onAcclSample( long timestamp , 
+                              float x , 
+                              float y , 
+                              float z ) {
+
+        // Make space if the buffer is full
+        if( numAccl > mask ) {
+            ++numHeld;
+            emitOldestAccl();
+        }
+
+        // Hold the sample
+        int slot = ( oldestAccl + numAccl ) & mask;
+        acclTimestamps[ slot ] = timestamp;
+        acclX[ slot ] = x;
+        acclY[ slot ] = y;
+        acclZ[ slot ] = z;
+        ++numAccl;
+
+        // Pass on the samples that are covered by the gravity, or 
+        //  have waited longer than the max skew
+        long newestGravityTimestamp = ( numGravity > 0 ) ? 
+            gravityTimestamps[ newestGravity ] : Long.MIN_VALUE;
+        while( numAccl > 0 ) {
+            long acclTimestamp = acclTimestamps[ oldestAccl ];
+            if( numGravity > 0 && acclTimestamp <= newestGravityTimestamp ) {
+                emitOldestAccl();
+            }
+            else if( timestamp - acclTimestamp >= maxSkew ) {
+                ++numHeld;
+                emitOldestAccl();
+            }
+            else {
+                break;
+            }
+        }
+    }
+
+    /** Passes on all held accl samples (with the gravity known so far). */
+    public void flush() {
+        while( numAccl > 0 ) {
+            ++numHeld;
+            emitOldestAccl();
+        }
+    }
+
+    /** Discards all buffered samples. */
+    public void reset() {
+        numGravity = 0;
+        numAccl = 0;
+        numHeld = 0L;
+    }
+
+    /** Returns the number of accl samples waiting for gravity. */
+    public int getNumPending() {
+        return numAccl;
+    }
+
+    /** Returns the number of accl samples passed on without waiting for a later gravity sample. */
+    public long getNumHeld() {
+        return numHeld;
+    }
+
+    /** Returns the max time an accl sample waits for gravity (nanosec). */
+    public long getMaxSkew() {
+        return maxSkew;
+    }
+
+    /** Passes on the oldest held accl sample with the gravity at its time. */
+    private void emitOldestAccl() {
+
+        long timestamp = acclTimestamps[ oldestAccl ];
+        float ax = acclX[ oldestAccl ] , ay = acclY[ oldestAccl ] , az = acclZ[ oldestAccl ];
+        oldestAccl = ( oldestAccl + 1 ) & mask;
+        --numAccl;
+
+        // No gravity yet
+        if( numGravity == 0 ) {
+            listener.onAlignedSample( timestamp , ax , ay , az , 0.0F , 0.0F , 0.0F );
+            return;
+        }
+
+        // Find the newest gravity sample at or before the accl sample
+        //  (usually one of the last few)
+        int after = -1;
+        int before = newestGravity;
+        int i = 0;
+        while( i < numGravity && gravityTimestamps[ before ] > timestamp ) {
+            after = before;
+            before = ( before - 1 ) & mask;
+            ++i;
+        }
+
+        // Use the nearest gravity sample if the accl sample is outside the history
+        if( i == numGravity ) {
+            emit( timestamp , ax , ay , az , after );
+        }
+        else if( after < 0 ) {
+            emit( timestamp , ax , ay , az , before );
+        }
+        // Otherwise interpolate between the two gravity samples around it
+        else {
+            float fraction = (float) ( timestamp - gravityTimestamps[ before ] ) / 
+                (float) ( gravityTimestamps[ after ] - gravityTimestamps[ before ] );
+            listener.onAlignedSample( timestamp , ax , ay , az , 
+                                      gravityX[ before ] + fraction * ( gravityX[ after ] - gravityX[ before ] ) , 
+                                      gravityY[ before ] + fraction * ( gravityY[ after ] - gravityY[ before ] ) , 
+                                      gravityZ[ before ] + fraction * ( gravityZ[ after ] - gravityZ[ before ] ) );
+        }
+    }
+
+    /** Passes on an accl sample with the given gravity sample. */
+    private void emit( long timestamp , 
+                       float ax , 
+                       float ay , 
+                       float az , 
+                       int gravitySlot ) {
+        listener.onAlignedSample( timestamp , ax , ay , az , 
+                                  gravityX[ gravitySlot ] , 
+                                  gravityY[ gravitySlot ] , 
+                                  gravityZ[ gravitySlot ] );
+    }
+
+    /** Max time an accl sample waits for gravity (nanosec). */
+    private final long maxSkew;
+    /** Receives the aligned samples. */
+    private final AlignedSampleListener listener;
+    /** Mask to convert an index to a slot number (capacity - 1). */
+    private final int mask;
+
+    /** Gravity history timestamps (nanosec). */
+    private final long[] gravityTimestamps;
+    /** Gravity history x values. */
+    private final float[] gravityX;
+    /** Gravity history y values. */
+    private final float[] gravityY;
+    /** Gravity history z values. */
+    private final float[] gravityZ;
+    /** Slot of the newest gravity sample. */
+    private int newestGravity;
+    /** Number of gravity samples in the history. */
+    private int numGravity;
+
+    /** Held accl timestamps (nanosec). */
+    private final long[] acclTimestamps;
+    /** Held accl x values. */
+    private final float[] acclX;
+    /** Held accl y values. */
+    private final float[] acclY;
+    /** Held accl z values. */
+    private final float[] acclZ;
+    /** Slot of the oldest held accl sample. */
+    private int oldestAccl;
+    /** Number of held accl samples. */
+    private int numAccl;
+    /** Number of accl samples passed on without a later gravity sample. */
+    private long numHeld;
+}
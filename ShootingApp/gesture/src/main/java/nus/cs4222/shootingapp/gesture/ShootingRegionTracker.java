@@ -0,0 +1,82 @@
+package nus.cs4222.shootingapp.gesture;
+
+/**
+   Tracks the shooting region of a changing shooting direction, with
+   hysteresis at the region edges.
+
+   <p> Without hysteresis, a direction that wobbles around a region
+   edge would flip between the two regions (and their gun sounds).
+   Here, the current region is kept until the direction has moved
+   past its edge by more than the hysteresis angle.
+ */
+public class ShootingRegionTracker {
+
+    /**
+       Creates a tracker.
+
+       @param   numRegions  Number of shooting regions (see ShootingRegions)
+       @param   hysteresis  Angle past a region edge before the region changes (deg, 
+                             less than half a region)
+     */
+    public ShootingRegionTracker( int numRegions , 
+                                  float hysteresis ) {
+        if( numRegions < 1 ) {
+            throw new IllegalArgumentException( "Need at least 1 shooting region: " + numRegions );
+        }
+        else if( ! ( hysteresis >= 0.0F && hysteresis < 180.0F / numRegions ) ) {
+            throw new IllegalArgumentException( "Hysteresis must be less than half a region: " + hysteresis );
+        }
+        this.numRegions = numRegions;
+        this.hysteresis = hysteresis;
+        regionWidth = 360.0F / numRegions;
+        reset();
+    }
+
+    /**
+       Updates the region with a new shooting direction.
+
+       @param   direction  Shooting direction (deg, in the range 0 .. 360)
+       @return  Shooting region (in the range 1 .. numRegions)
+     */
+    public int onDirection( float direction ) {
+
+        // Keep the current region while the direction is within its 
+        //  sector widened by the hysteresis on both sides
+        if( region != 0 ) {
+            float centre = ( region - 0.5F ) * regionWidth;
+            float offset = direction - centre;
+            if( offset > 180.0F ) {
+                offset -= 360.0F;
+            }
+            else if( offset < -180.0F ) {
+                offset += 360.0F;
+            }
+            if( Math.abs( offset ) <= regionWidth * 0.5F + hysteresis ) {
+                return region;
+            }
+        }
+
+        // Otherwise move to the region of the direction
+        region = ShootingRegions.fromDirection( direction , numRegions );
+        return region;
+    }
+
+    /** Returns the current region (1 if there has been no direction yet). */
+    public int getRegion() {
+        return ( region != 0 ) ? region : 1;
+    }
+
+    /** Resets the tracker (the next direction sets the region directly). */
+    public void reset() {
+        region = 0;
+    }
+
+    /** Number of shooting regions. */
+    private final int numRegions;
+    /** Angle past a region edge before the region changes (deg). */
+    private final float hysteresis;
+    /** Width of each region (deg). */
+    private final float regionWidth;
+    /** Current region (0 if there has been no direction yet). */
+    private int region;
+}
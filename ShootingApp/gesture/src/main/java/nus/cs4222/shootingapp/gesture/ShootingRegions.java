@@ -0,0 +1,39 @@
+package nus.cs4222.shootingapp.gesture;
+
+/**
+   Maps a shooting direction to a shooting region.
+
+   <p> The 360 deg around the user is divided into equal sectors, and
+   the regions are numbered from 1 starting at 0 deg (north), going
+   clockwise.
+ */
+public final class ShootingRegions {
+
+    /** Not instantiable. */
+    private ShootingRegions() {
+    }
+
+    /**
+       Returns the shooting region of a direction.
+
+       @param   direction   Shooting direction (deg, any range is wrapped to 0 .. 360)
+       @param   numRegions  Number of shooting regions
+       @return  Shooting region (in the range 1 .. numRegions)
+     */
+    public static int fromDirection( float direction , 
+                                     int numRegions ) {
+
+        // Wrap the direction into [0, 360)
+        float wrapped = direction % 360.0F;
+        if( wrapped < 0.0F ) {
+            wrapped += 360.0F;
+        }
+
+        // Find the sector (rounding can give numRegions for directions just below 360)
+        int region = (int) ( wrapped * numRegions / 360.0F );
+        if( region >= numRegions ) {
+            region = numRegions - 1;
+        }
+        return region + 1;
+    }
+}
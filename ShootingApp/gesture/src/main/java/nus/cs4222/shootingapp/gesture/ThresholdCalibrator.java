@@ -0,0 +1,345 @@
+package nus.cs4222.shootingapp.gesture;
+
+import nus.cs4222.shootingapp.gesture.stats.P2QuantileEstimator;
+import nus.cs4222.shootingapp.gesture.stats.WelfordStats;
+
+/**
+   Derives the thresholds of ThresholdGestureDetector for a phone from
+   its own z-axis linear accl, instead of hand-tuned constants.
+
+   <p> A guided calibration has two phases. At REST, the user holds
+   the phone face up and still, and the noise of the accl is measured
+   (running mean and variance, and a streaming 99th percentile). In
+   SHOTS, the user makes a few shots, and the height of each accl peak
+   rising above the noise is measured. The min force is then set
+   halfway between the noise and the weakest shots, and the peak
+   trough just above the mean noise.
+
+   <p> After the calibration (DONE phase), the peak heights and the
+   mean and deviation of the noise keep being measured, so that the
+   thresholds adapt to the user. Only the peaks reaching the current
+   min force count as shots (so walking or other bumps, which the
+   detector ignores, do not pull the min force down onto themselves),
+   and the min force never adapts below MIN_FORCE_FRACTION of the one
+   from the guided calibration. Only the samples at or below the noise
+   level count as noise, so the rising edge of a shot is left out. Both
+   are measured over windows (PEAK_WINDOW peaks, NOISE_WINDOW samples),
+   each replacing the values of the previous one once complete, so old
+   shots and noise are forgotten. The noise level itself is the one
+   measured at REST, with the phone still (re-measuring it from the
+   samples below it would make it shrink). Only running statistics are
+   kept (O(1) memory), no samples are stored.
+
+   <p> The statistics that the thresholds are derived from can be
+   stored, and restored with restore(), so that the adaptation carries
+   on across restarts.
+ */
+public class ThresholdCalibrator {
+
+    /** Phase before a calibration is started. */
+    public static final int PHASE_IDLE = 0;
+    /** Phase measuring the accl noise with the phone still. */
+    public static final int PHASE_REST = 1;
+    /** Phase measuring the accl peaks of the user's shots. */
+    public static final int PHASE_SHOTS = 2;
+    /** Phase after the calibration (the thresholds keep adapting to the user's shots). */
+    public static final int PHASE_DONE = 3;
+
+    /**
+       Creates a calibrator (in the IDLE phase).
+
+       @param   restDuration  Duration of the REST phase (nanosec)
+       @param   numShots      Number of shots in the SHOTS phase
+     */
+    public ThresholdCalibrator( long restDuration , 
+                                int numShots ) {
+        if( restDuration <= 0L || numShots <= 0 ) {
+            throw new IllegalArgumentException( "Invalid calibration: " + restDuration + 
+                                                " , " + numShots );
+        }
+        this.restDuration = restDuration;
+        this.numShots = numShots;
+    }
+
+    /** Starts a new calibration (at the REST phase), discarding the previous statistics. */
+    public void start() {
+        restStats.reset();
+        restUpper.reset();
+        peakStats.reset();
+        peakLower.reset();
+        noiseStats.reset();
+        guidedMinAcclForce = 0.0;
+        numPeaks = 0;
+        hasWeakPeak = false;
+        isInPeak = false;
+        hasRestStart = false;
+        phase = PHASE_REST;
+    }
+
+    /**
+       Restores the statistics of an earlier calibration (as given by
+       getNoiseLevel(), getNoiseMean(), getNoiseStdDev(), getWeakPeak()
+       and getGuidedMinAcclForce()), and keeps adapting from them (DONE
+       phase).
+     */
+    public void restore( float noiseLevel , 
+                         float noiseMean , 
+                         float noiseStdDev , 
+                         float weakPeak , 
+                         float guidedMinAcclForce ) {
+        start();
+        this.noiseLevel = noiseLevel;
+        this.noiseMean = noiseMean;
+        this.noiseStdDev = noiseStdDev;
+        this.weakPeak = weakPeak;
+        this.guidedMinAcclForce = guidedMinAcclForce;
+        hasWeakPeak = true;
+        phase = PHASE_DONE;
+    }
+
+    /** Stops a calibration in progress (the statistics of a finished calibration are kept). */
+    public void cancel() {
+        if( phase != PHASE_DONE ) {
+            phase = PHASE_IDLE;
+        }
+    }
+
+    /**
+       Processes one z-axis linear accl sample (pass only the samples at
+       which the phone is face up).
+
+       @param   timestamp  Sample timestamp (nanosec)
+       @param   z          Linear accl along the phone's z-axis (m/sec^2)
+       @return  true if the phase changed at this sample
+     */
+    public boolean onSample( long timestamp , 
+                             float z ) {
+
+        switch( phase ) {
+
+        case PHASE_REST:
+            // Measure the noise for the rest duration
+            if( ! hasRestStart ) {
+                hasRestStart = true;
+                restStartTimestamp = timestamp;
+            }
+            restStats.add( z );
+            restUpper.add( z );
+            if( timestamp - restStartTimestamp >= restDuration && 
+                restStats.getCount() >= MIN_REST_SAMPLES ) {
+                noiseLevel = restUpper.getQuantile();
+                noiseMean = restStats.getMean();
+                noiseStdDev = restStats.getStdDev();
+                phase = PHASE_SHOTS;
+                return true;
+            }
+            return false;
+
+        case PHASE_SHOTS:
+            // Measure the peaks until there have been enough shots
+            onMotionSample( z );
+            if( numPeaks >= numShots ) {
+                guidedMinAcclForce = getMinAcclForce();
+                phase = PHASE_DONE;
+                return true;
+            }
+            return false;
+
+        case PHASE_DONE:
+            // Keep adapting (the noise is measured outside the peaks, at or
+            //  below the noise level, and only the peaks reaching the min force count)
+            onMotionSample( z );
+            return false;
+
+        default:
+            return false;
+        }
+    }
+
+    /** Returns the current phase. */
+    public int getPhase() {
+        return phase;
+    }
+
+    /** Returns the number of shots measured. */
+    public int getNumShotsMeasured() {
+        return numPeaks;
+    }
+
+    /** Returns the number of shots in the SHOTS phase. */
+    public int getNumShots() {
+        return numShots;
+    }
+
+    /** Checks whether a calibration has finished (so the thresholds are known). */
+    public boolean hasThresholds() {
+        return phase == PHASE_DONE;
+    }
+
+    /** Returns the accl noise level: the 99th percentile of the accl at rest (m/sec^2). */
+    public float getNoiseLevel() {
+        return (float) ( ( phase == PHASE_REST ) ? restUpper.getQuantile() : noiseLevel );
+    }
+
+    /** Returns the mean accl noise (m/sec^2, of the last noise window after the calibration). */
+    public float getNoiseMean() {
+        return (float) ( ( phase == PHASE_REST ) ? restStats.getMean() : noiseMean );
+    }
+
+    /** Returns the standard deviation of the accl noise (m/sec^2, of the last noise window after the calibration). */
+    public float getNoiseStdDev() {
+        return (float) ( ( phase == PHASE_REST ) ? restStats.getStdDev() : noiseStdDev );
+    }
+
+    /**
+       Returns the height of the weakest shots (m/sec^2): the 10th
+       percentile of the peaks of the current window once it has enough
+       peaks, else the weakest of its peaks and of the height from the
+       last complete window (or the restored height).
+     */
+    public float getWeakPeak() {
+        if( peakLower.getCount() > MIN_PEAKS_FOR_QUANTILE ) {
+            return (float) peakLower.getQuantile();
+        }
+        else if( ! hasWeakPeak ) {
+            return (float) peakStats.getMin();
+        }
+        else if( peakStats.getCount() == 0L ) {
+            return (float) weakPeak;
+        }
+        return (float) Math.min( weakPeak , peakStats.getMin() );
+    }
+
+    /** Returns the calibrated min gesture force (m/sec^2, valid if hasThresholds()). */
+    public float getMinAcclForce() {
+
+        // Halfway between the noise and the weakest shots (but not far
+        //  below the guided calibration)
+        double noise = getNoiseLevel();
+        double force = noise + FORCE_FRACTION * Math.max( getWeakPeak() - noise , 0.0 );
+        return (float) Math.max( force , MIN_FORCE_FRACTION * guidedMinAcclForce );
+    }
+
+    /** Returns the min gesture force at the end of the guided calibration (m/sec^2, 0 before). */
+    public float getGuidedMinAcclForce() {
+        return (float) guidedMinAcclForce;
+    }
+
+    /** Returns the calibrated min accl peak trough (m/sec^2, valid if hasThresholds()). */
+    public float getMinAcclPeakTrough() {
+
+        // Just above the mean noise, but well below the min force
+        double trough = getNoiseMean() + getNoiseStdDev();
+        return (float) Math.min( trough , getMinAcclForce() * MAX_TROUGH_FRACTION );
+    }
+
+    /** Adds a noise sample after the calibration (replacing the noise mean and deviation once per window). */
+    private void addNoiseSample( float z ) {
+        noiseStats.add( z );
+        if( noiseStats.getCount() >= NOISE_WINDOW ) {
+            noiseMean = noiseStats.getMean();
+            noiseStdDev = noiseStats.getStdDev();
+            noiseStats.reset();
+        }
+    }
+
+    /** Adds the height of a finished peak (replacing the weak peak height once per window). */
+    private void addPeak( double height ) {
+        ++numPeaks;
+        peakStats.add( height );
+        peakLower.add( height );
+        if( peakLower.getCount() >= PEAK_WINDOW ) {
+            weakPeak = peakLower.getQuantile();
+            hasWeakPeak = true;
+            peakStats.reset();
+            peakLower.reset();
+        }
+    }
+
+    /** Tracks the peaks above the noise (and the noise outside them). */
+    private void onMotionSample( float z ) {
+
+        // A peak starts well above the noise, and ends back at the noise
+        double noise = noiseLevel;
+        double peakStart = Math.max( noise + PEAK_NOISE_MARGIN * noiseStdDev , 
+                                     noise + MIN_PEAK_HEIGHT );
+        if( ! isInPeak ) {
+            if( z >= peakStart ) {
+                isInPeak = true;
+                peakMax = z;
+            }
+            else if( phase == PHASE_DONE && z <= noise ) {
+                addNoiseSample( z );
+            }
+        }
+        else if( z > noise ) {
+            peakMax = Math.max( peakMax , z );
+        }
+        else {
+            // Record the height of the finished peak (after the calibration,
+            //  only if the detector takes it for a shot)
+            isInPeak = false;
+            if( phase != PHASE_DONE || peakMax >= getMinAcclForce() ) {
+                addPeak( peakMax );
+            }
+        }
+    }
+
+    /** Duration of the REST phase (nanosec). */
+    private final long restDuration;
+    /** Number of shots in the SHOTS phase. */
+    private final int numShots;
+    /** Current phase. */
+    private int phase = PHASE_IDLE;
+    /** Flag to indicate whether the REST phase has received a sample. */
+    private boolean hasRestStart;
+    /** Timestamp of the first sample of the REST phase (nanosec). */
+    private long restStartTimestamp;
+    /** Statistics of the accl at rest. */
+    private final WelfordStats restStats = new WelfordStats();
+    /** 99th percentile of the accl at rest. */
+    private final P2QuantileEstimator restUpper = new P2QuantileEstimator( 0.99 );
+    /** Noise level: 99th percentile of the accl at rest (m/sec^2, set at the end of REST). */
+    private double noiseLevel;
+    /** Mean accl noise (m/sec^2, at REST, then of the last noise window). */
+    private double noiseMean;
+    /** Standard deviation of the accl noise (m/sec^2, at REST, then of the last noise window). */
+    private double noiseStdDev;
+    /** Statistics of the noise samples of the current window (DONE phase). */
+    private final WelfordStats noiseStats = new WelfordStats();
+    /** Statistics of the peak heights of the current window. */
+    private final WelfordStats peakStats = new WelfordStats();
+    /** 10th percentile of the peak heights of the current window. */
+    private final P2QuantileEstimator peakLower = new P2QuantileEstimator( 0.1 );
+    /** Min gesture force at the end of the guided calibration (m/sec^2, 0 before). */
+    private double guidedMinAcclForce;
+    /** Number of peaks measured since the start. */
+    private int numPeaks;
+    /** Flag to indicate whether a weak peak height is known from a complete window (or restored). */
+    private boolean hasWeakPeak;
+    /** Weak peak height of the last complete window, or restored (m/sec^2). */
+    private double weakPeak;
+    /** Flag to indicate whether the accl is in a peak. */
+    private boolean isInPeak;
+    /** Highest accl of the current peak (m/sec^2). */
+    private double peakMax;
+
+    /** Min number of samples in the REST phase. */
+    private static final int MIN_REST_SAMPLES = 50;
+    /** Min number of peaks before the peak percentile is used (instead of the min). */
+    private static final int MIN_PEAKS_FOR_QUANTILE = 20;
+    /** Number of peaks per window of the peak heights. */
+    private static final int PEAK_WINDOW = 50;
+    /** Number of noise samples per window of the noise mean and deviation (about 1 min face up at game rate). */
+    private static final int NOISE_WINDOW = 3000;
+    /** Position of the min force between the noise and the weakest shots. */
+    private static final double FORCE_FRACTION = 0.5;
+    /** Min ratio of the adapted min force to the one of the guided calibration. */
+    private static final double MIN_FORCE_FRACTION = 0.8;
+    /** Max ratio of the peak trough to the min force. */
+    private static final double MAX_TROUGH_FRACTION = 0.5;
+    /** Number of noise standard deviations above the noise level at which a peak starts. */
+    private static final double PEAK_NOISE_MARGIN = 3.0;
+    /** Min height above the noise level at which a peak starts (m/sec^2). */
+    private static final double MIN_PEAK_HEIGHT = 2.0;
+}
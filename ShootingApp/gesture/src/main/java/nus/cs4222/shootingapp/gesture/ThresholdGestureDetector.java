@@ -0,0 +1,252 @@
+package nus.cs4222.shootingapp.gesture;
+
+/**
+   Gesture detector using two thresholds on the z-axis linear accl.
+
+   <p> A gesture is detected when the accl rises above the min force.
+   Since the accl can be noisy around the threshold, another gesture
+   is only detected after the accl has dropped back below the peak
+   trough threshold (hysteresis).
+
+   <p> Two timing rules (based on the sample timestamps) make this more
+   robust: no gesture is detected within the refractory period after
+   the last one (so a noisy peak dipping to the trough does not fire
+   twice), and if the accl stays in the peak longer than the max peak
+   duration without cleanly reaching the trough, the peak also ends
+   once the accl drops below the min force (so the detector does not
+   get stuck in the peak). A peak starting within the refractory
+   period is still tracked (without a gesture), so it cannot fire
+   partway through once the period is over.
+ */
+public class ThresholdGestureDetector 
+    implements GestureDetector {
+
+    /** Creates a detector with the default thresholds and timing. */
+    public ThresholdGestureDetector() {
+        this( DEFAULT_MIN_ACCL_FORCE , DEFAULT_MIN_ACCL_PEAK_TROUGH );
+    }
+
+    /**
+       Creates a detector with the given thresholds (and the default timing).
+
+       @param   minAcclForce       Minimum gesture force (m/sec^2)
+       @param   minAcclPeakTrough  Accl below which the peak has ended (m/sec^2)
+     */
+    public ThresholdGestureDetector( float minAcclForce , 
+                                     float minAcclPeakTrough ) {
+        this( minAcclForce , 
+              minAcclPeakTrough , 
+              DEFAULT_REFRACTORY_PERIOD , 
+              DEFAULT_MAX_PEAK_DURATION );
+    }
+
+    /**
+       Creates a detector with the given thresholds and timing.
+
+       @param   minAcclForce       Minimum gesture force (m/sec^2)
+       @param   minAcclPeakTrough  Accl below which the peak has ended (m/sec^2)
+       @param   refractoryPeriod   Min time between two gestures (nanosec)
+       @param   maxPeakDuration    Time after which the peak may also end below the 
+                                    min force (nanosec)
+     */
+    public ThresholdGestureDetector( float minAcclForce , 
+                                     float minAcclPeakTrough , 
+                                     long refractoryPeriod , 
+                                     long maxPeakDuration ) {
+
+        if( refractoryPeriod < 0L || maxPeakDuration < 0L ) {
+            throw new IllegalArgumentException( "Negative gesture timing: " + refractoryPeriod + 
+                                                ", " + maxPeakDuration );
+        }
+        setThresholds( minAcclForce , minAcclPeakTrough );
+        this.refractoryPeriod = refractoryPeriod;
+        this.maxPeakDuration = maxPeakDuration;
+    }
+
+    /**
+       Changes the thresholds, keeping the gesture count and peak state
+       (e.g. to apply adapted thresholds between two peaks).
+
+       @param   minAcclForce       Minimum gesture force (m/sec^2)
+       @param   minAcclPeakTrough  Accl below which the peak has ended (m/sec^2)
+     */
+    public void setThresholds( float minAcclForce , 
+                               float minAcclPeakTrough ) {
+
+        // Check that the thresholds form a hysteresis band
+        if( minAcclPeakTrough > minAcclForce ) {
+            throw new IllegalArgumentException( "Peak trough threshold " + minAcclPeakTrough + 
+                                                " is above the min force " + minAcclForce );
+        }
+        this.minAcclForce = minAcclForce;
+        this.minAcclPeakTrough = minAcclPeakTrough;
+    }
+
+    /** Processes one linear accl sample (only the z-axis is used). */
+    @Override
+    public boolean onSample( long timestamp , 
+                             float x , 
+                             float y , 
+                             float z ) {
+
+        // Check if the force exerted by the accl is large enough.
+        if( z >= minAcclForce ) {
+
+            // Since the accl can be noisy around the threshold (even with smoothing)
+            //  we use a state machine to check if the accl has oscillated between
+            //  two thresholds in the accl peak before we detect the gesture.
+            // Also ignore peaks too soon after the last gesture (but
+            //  still track them, so they do not fire later on).
+            if( ! isAcclInPeakZone ) {
+                isAcclInPeakZone = true;
+                peakStartTimestamp = timestamp;
+                if( ! isInRefractoryPeriod( timestamp ) ) {
+                    ++numGestures;
+                    hasDetectedGesture = true;
+                    lastGestureTimestamp = timestamp;
+                    return true;
+                }
+            }
+        }
+        // Check if the accl has finished oscillating from the
+        //  top threshold near the top of the peak to the bottom
+        //  threshold at the bottom of the peak (or, for a long peak,
+        //  just dropped below the top threshold).
+        else if( isAcclInPeakZone ) {
+            if( z <= minAcclPeakTrough || 
+                timestamp - peakStartTimestamp >= maxPeakDuration ) {
+                isAcclInPeakZone = false;
+            }
+        }
+        return false;
+    }
+
+    /**
+       Processes the face up samples of a batch.
+
+       <p> Same state machine as onSample(), but the state is kept in
+       local variables for the whole batch, and the common case (no
+       peak, accl below the min force) is a single compare per sample.
+     */
+    @Override
+    public int onBatch( SampleBatch batch , 
+                        int[] gestureIndices ) {
+
+        // Load the state and arrays into locals
+        int n = batch.size();
+        long[] timestamps = batch.timestamps;
+        float[] z = batch.az;
+        boolean[] isFaceUp = batch.isFaceUp;
+        float force = minAcclForce;
+        float trough = minAcclPeakTrough;
+        boolean inPeak = isAcclInPeakZone;
+        boolean hasGesture = hasDetectedGesture;
+        long lastGesture = lastGestureTimestamp;
+        long peakStart = peakStartTimestamp;
+        int numDetected = 0;
+
+        for( int i = 0 ; i < n ; ++i ) {
+            float zi = z[i];
+
+            // Skip quickly over samples that cannot change the state
+            if( ! isFaceUp[i] || ( ! inPeak && zi < force ) ) {
+                continue;
+            }
+            long timestamp = timestamps[i];
+
+            // Start of a peak (a gesture if outside the refractory period)
+            if( zi >= force ) {
+                if( ! inPeak ) {
+                    inPeak = true;
+                    peakStart = timestamp;
+                    if( ! ( hasGesture && 
+                            timestamp >= lastGesture && 
+                            timestamp - lastGesture < refractoryPeriod ) ) {
+                        hasGesture = true;
+                        lastGesture = timestamp;
+                        gestureIndices[ numDetected++ ] = i;
+                    }
+                }
+            }
+            // End of the peak (trough reached, or a long peak below the force)
+            else if( zi <= trough || 
+                     timestamp - peakStart >= maxPeakDuration ) {
+                inPeak = false;
+            }
+        }
+
+        // Store the state
+        isAcclInPeakZone = inPeak;
+        hasDetectedGesture = hasGesture;
+        lastGestureTimestamp = lastGesture;
+        peakStartTimestamp = peakStart;
+        numGestures += numDetected;
+        return numDetected;
+    }
+
+    /** Returns the number of gestures detected since the last reset. */
+    @Override
+    public int getNumGestures() {
+        return numGestures;
+    }
+
+    /** Resets the detector to its initial state. */
+    @Override
+    public void reset() {
+        isAcclInPeakZone = false;
+        numGestures = 0;
+        hasDetectedGesture = false;
+        lastGestureTimestamp = 0L;
+        peakStartTimestamp = 0L;
+    }
+
+    /** Returns true if the accl is currently in the peak area. */
+    public boolean isAcclInPeakZone() {
+        return isAcclInPeakZone;
+    }
+
+    /** Returns the minimum gesture force (m/sec^2). */
+    public float getMinAcclForce() {
+        return minAcclForce;
+    }
+
+    /** Returns the minimum accl peak trough value (m/sec^2). */
+    public float getMinAcclPeakTrough() {
+        return minAcclPeakTrough;
+    }
+
+    /** Returns true if the timestamp is within the refractory period of the last gesture. */
+    private boolean isInRefractoryPeriod( long timestamp ) {
+        return hasDetectedGesture && 
+            timestamp >= lastGestureTimestamp && 
+            timestamp - lastGestureTimestamp < refractoryPeriod;
+    }
+
+    /** Default minimum gesture force (m/sec^2). */
+    public static final float DEFAULT_MIN_ACCL_FORCE = 7.0F;
+    /** Default minimum accl peak trough value (m/sec^2). */
+    public static final float DEFAULT_MIN_ACCL_PEAK_TROUGH = 1.0F;
+    /** Default min time between two gestures (nanosec). */
+    public static final long DEFAULT_REFRACTORY_PERIOD = 150000000L;
+    /** Default time after which a peak may end without reaching the trough (nanosec). */
+    public static final long DEFAULT_MAX_PEAK_DURATION = 400000000L;
+
+    /** Minimum gesture force (m/sec^2). */
+    private float minAcclForce;
+    /** Minimum accl peak trough value (m/sec^2). */
+    private float minAcclPeakTrough;
+    /** Min time between two gestures (nanosec). */
+    private final long refractoryPeriod;
+    /** Time after which a peak may end without reaching the trough (nanosec). */
+    private final long maxPeakDuration;
+    /** Flag to indicate if the accl is in the peak area. */
+    private boolean isAcclInPeakZone;
+    /** Number of gestures detected. */
+    private int numGestures;
+    /** Flag to indicate whether a gesture has been detected since the reset. */
+    private boolean hasDetectedGesture;
+    /** Timestamp of the last gesture (nanosec). */
+    private long lastGestureTimestamp;
+    /** Timestamp at which the current peak started (nanosec). */
+    private long peakStartTimestamp;
+}
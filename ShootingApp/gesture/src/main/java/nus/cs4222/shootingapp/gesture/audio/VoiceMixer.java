@@ -0,0 +1,264 @@
+package nus.cs4222.shootingapp.gesture.audio;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+   Mixes preloaded mono 16-bit PCM clips into an output buffer, with a
+   fixed number of voices.
+
+   <p> Clips are triggered by one producer thread (the processing
+   thread) through a small lock-free queue, and are started at the
+   next mix() call on the audio thread. So the trigger latency is at
+   most one output buffer, and a new shot never waits for the previous
+   one to end. If all voices are busy, the voice that started first is
+   stolen for the new clip.
+
+   <p> No objects are allocated by trigger() or mix().
+ */
+public class VoiceMixer {
+
+    /**
+       Creates a mixer (with no clips loaded).
+
+       @param   numClips   Number of clip slots
+       @param   numVoices  Max number of clips playing at the same time
+     */
+    public VoiceMixer( int numClips , 
+                       int numVoices ) {
+        if( numClips <= 0 || numVoices <= 0 ) {
+            throw new IllegalArgumentException( "Invalid number of clips or voices: " + 
+                                                numClips + " , " + numVoices );
+        }
+        clips = new AtomicReferenceArray< short[] >( numClips );
+        voiceClips = new short[ numVoices ][];
+        voicePositions = new int[ numVoices ];
+        voiceStartOrders = new long[ numVoices ];
+        triggerQueue = new int[ TRIGGER_QUEUE_CAPACITY ];
+        gain = MAX_GAIN;
+    }
+
+    /** Sets the PCM samples of a clip slot (null to unload it), from any thread. */
+    public void setClip( int clipNumber , 
+                         short[] samples ) {
+        clips.set( clipNumber , samples );
+    }
+
+    /** Checks whether a clip slot has been loaded. */
+    public boolean isClipLoaded( int clipNumber ) {
+        return clips.get( clipNumber ) != null;
+    }
+
+    /** Returns the number of clip slots. */
+    public int getNumClips() {
+        return clips.length();
+    }
+
+    /** Returns the max number of clips playing at the same time. */
+    public int getNumVoices() {
+        return voiceClips.length;
+    }
+
+    /**
+       Requests a clip to be played from the next mix() call (called
+       only by the producer thread).
+
+       @return  false if the clip is not loaded or the trigger queue is full
+     */
+    public boolean trigger( int clipNumber ) {
+
+        // Ignore clips that are not (yet) loaded
+        if( clipNumber < 0 || 
+            clipNumber >= clips.length() || 
+            clips.get( clipNumber ) == null ) {
+            return false;
+        }
+
+        // Check if there is space in the queue
+        long index = triggerWriteIndex;
+        if( index - triggerReadIndex >= TRIGGER_QUEUE_CAPACITY ) {
+            ++numDroppedTriggers;
+            return false;
+        }
+
+        // Publish the trigger to the audio thread
+        triggerQueue[ (int) ( index & TRIGGER_QUEUE_MASK ) ] = clipNumber;
+        triggerWriteIndex = index + 1;
+        return true;
+    }
+
+    /**
+       Sets the gain applied to all voices (from any thread).
+
+       @param   gain  Gain in the range 0 .. 1
+     */
+    public void setGain( float gain ) {
+        float clamped = Math.max( 0.0F , Math.min( 1.0F , gain ) );
+        this.gain = Math.round( clamped * MAX_GAIN );
+    }
+
+    /**
+       Starts the triggered clips, and mixes the next frames of all
+       playing voices into the output (called only by the audio thread).
+
+       @param   output     Output buffer (overwritten)
+       @param   numFrames  Number of frames to mix
+       @return  Number of voices still playing after these frames
+     */
+    public int mix( short[] output , 
+                    int numFrames ) {
+
+        // Start the clips triggered since the last call
+        startTriggeredClips();
+
+        // Grow the accumulator if required (only on the first call)
+        if( mixBuffer == null || mixBuffer.length < numFrames ) {
+            mixBuffer = new int[ numFrames ];
+        }
+        int[] sum = mixBuffer;
+        for( int i = 0 ; i < numFrames ; ++i ) {
+            sum[i] = 0;
+        }
+
+        // Add the next samples of each playing voice
+        int numPlaying = 0;
+        for( int v = 0 ; v < voiceClips.length ; ++v ) {
+            short[] clip = voiceClips[v];
+            if( clip == null ) {
+                continue;
+            }
+            int position = voicePositions[v];
+            int n = Math.min( numFrames , clip.length - position );
+            for( int i = 0 ; i < n ; ++i ) {
+                sum[i] += clip[ position + i ];
+            }
+
+            // Free the voice at the end of the clip
+            position += n;
+            if( position >= clip.length ) {
+                voiceClips[v] = null;
+            }
+            else {
+                voicePositions[v] = position;
+                ++numPlaying;
+            }
+        }
+
+        // Apply the gain (fixed point) and saturate to 16 bits
+        int g = gain;
+        for( int i = 0 ; i < numFrames ; ++i ) {
+            int value = (int) ( ( (long) sum[i] * g ) >> GAIN_BITS );
+            if( value > Short.MAX_VALUE ) {
+                value = Short.MAX_VALUE;
+            }
+            else if( value < Short.MIN_VALUE ) {
+                value = Short.MIN_VALUE;
+            }
+            output[i] = (short) value;
+        }
+
+        numActiveVoices = numPlaying;
+        return numPlaying;
+    }
+
+    /** Stops all voices and discards pending triggers (called only by the audio thread). */
+    public void stopAll() {
+        for( int v = 0 ; v < voiceClips.length ; ++v ) {
+            voiceClips[v] = null;
+        }
+        triggerReadIndex = triggerWriteIndex;
+        numActiveVoices = 0;
+    }
+
+    /** Checks whether any triggers are waiting to be started. */
+    public boolean hasPendingTriggers() {
+        return triggerWriteIndex != triggerReadIndex;
+    }
+
+    /** Returns the number of voices playing after the last mix() call. */
+    public int getNumActiveVoices() {
+        return numActiveVoices;
+    }
+
+    /** Returns the number of voices stolen for a new clip. */
+    public long getNumStolenVoices() {
+        return numStolenVoices;
+    }
+
+    /** Returns the number of triggers dropped because the queue was full. */
+    public long getNumDroppedTriggers() {
+        return numDroppedTriggers;
+    }
+
+    /** Assigns each pending trigger a free voice (or steals the oldest). */
+    private void startTriggeredClips() {
+
+        long index = triggerReadIndex;
+        long endIndex = triggerWriteIndex;
+        for( ; index < endIndex ; ++index ) {
+            short[] clip = clips.get( triggerQueue[ (int) ( index & TRIGGER_QUEUE_MASK ) ] );
+            if( clip == null ) {
+                continue;
+            }
+
+            // Find a free voice, else the voice that started first
+            int voice = 0;
+            for( int v = 0 ; v < voiceClips.length ; ++v ) {
+                if( voiceClips[v] == null ) {
+                    voice = v;
+                    break;
+                }
+                if( voiceStartOrders[v] < voiceStartOrders[voice] ) {
+                    voice = v;
+                }
+            }
+            if( voiceClips[voice] != null ) {
+                ++numStolenVoices;
+            }
+
+            // Start the clip from the beginning
+            voiceClips[voice] = clip;
+            voicePositions[voice] = 0;
+            voiceStartOrders[voice] = ++numStarted;
+        }
+
+        // Free the queue slots for the producer
+        triggerReadIndex = index;
+    }
+
+    /** PCM samples of each clip slot (null if not loaded). */
+    private final AtomicReferenceArray< short[] > clips;
+    /** Clip played by each voice (null if the voice is free). */
+    private final short[][] voiceClips;
+    /** Position of the next sample played by each voice. */
+    private final int[] voicePositions;
+    /** Order in which each voice was started (for voice stealing). */
+    private final long[] voiceStartOrders;
+    /** Number of clips started. */
+    private long numStarted;
+    /** Accumulator for the mixed samples. */
+    private int[] mixBuffer;
+    /** Number of voices playing after the last mix. */
+    private volatile int numActiveVoices;
+    /** Number of voices stolen. */
+    private volatile long numStolenVoices;
+
+    /** Gain applied to the mix (fixed point, MAX_GAIN is 1). */
+    private volatile int gain;
+    /** Number of fractional bits of the gain. */
+    private static final int GAIN_BITS = 15;
+    /** Gain of 1 in fixed point. */
+    private static final int MAX_GAIN = 1 << GAIN_BITS;
+
+    /** Clip numbers triggered by the producer. */
+    private final int[] triggerQueue;
+    /** Index of the next trigger to be written (only modified by the producer). */
+    private volatile long triggerWriteIndex;
+    /** Index of the next trigger to be read (only modified by the audio thread). */
+    private volatile long triggerReadIndex;
+    /** Number of triggers dropped (only modified by the producer). */
+    private volatile long numDroppedTriggers;
+    /** Capacity of the trigger queue (power of 2). */
+    private static final int TRIGGER_QUEUE_CAPACITY = 16;
+    /** Mask to convert a trigger index to a queue slot. */
+    private static final int TRIGGER_QUEUE_MASK = TRIGGER_QUEUE_CAPACITY - 1;
+}
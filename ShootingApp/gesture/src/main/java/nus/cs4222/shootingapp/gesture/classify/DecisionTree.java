@@ -0,0 +1,233 @@
+package nus.cs4222.shootingapp.gesture.classify;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+   Binary decision tree stored as flat primitive arrays, so that a
+   classification is a short loop over array elements (no objects,
+   no allocation, no recursion).
+
+   <p> Node 0 is the root. An inner node compares one feature with a
+   threshold and continues at its 'less' child if the feature is not
+   greater than the threshold, else at its 'greater' child. A leaf
+   node (feature -1) gives the class. Children always come after their
+   parent, so every path ends at a leaf.
+
+   <p> Model file format (big-endian, as written by DataOutputStream):
+   <pre>
+     int    magic           ('GDTR')
+     int    version
+     int    number of features
+     int    number of classes
+     UTF    class names     (one per class)
+     int    number of nodes
+     Per node:
+       int    feature       (-1 for a leaf)
+       float  threshold
+       int    less child
+       int    greater child
+       int    class         (-1 for an inner node)
+   </pre>
+ */
+public class DecisionTree {
+
+    /**
+       Creates a tree from its node arrays (not copied).
+
+       @param   numFeatures   Length of the feature vectors
+       @param   classNames    Name of each class
+       @param   features      Feature compared by each node (-1 for a leaf)
+       @param   thresholds    Threshold of each inner node
+       @param   lessChildren  Child of each inner node if the feature is not greater
+       @param   greaterChildren  Child of each inner node if the feature is greater
+       @param   classes       Class of each leaf (-1 for an inner node)
+     */
+    public DecisionTree( int numFeatures , 
+                         String[] classNames , 
+                         int[] features , 
+                         float[] thresholds , 
+                         int[] lessChildren , 
+                         int[] greaterChildren , 
+                         int[] classes ) {
+        this.numFeatures = numFeatures;
+        this.classNames = classNames;
+        this.features = features;
+        this.thresholds = thresholds;
+        this.lessChildren = lessChildren;
+        this.greaterChildren = greaterChildren;
+        this.classes = classes;
+        validate();
+    }
+
+    /**
+       Classifies a feature vector.
+
+       @param   featureVector  Features (at least getNumFeatures() long)
+       @return  Class index
+     */
+    public int classify( float[] featureVector ) {
+        int node = 0;
+        int feature;
+        while( ( feature = features[node] ) >= 0 ) {
+            node = ( featureVector[ feature ] <= thresholds[node] ) ? 
+                lessChildren[node] : greaterChildren[node];
+        }
+        return classes[node];
+    }
+
+    /** Returns the length of the feature vectors. */
+    public int getNumFeatures() {
+        return numFeatures;
+    }
+
+    /** Returns the number of classes. */
+    public int getNumClasses() {
+        return classNames.length;
+    }
+
+    /** Returns the name of a class. */
+    public String getClassName( int classIndex ) {
+        return classNames[ classIndex ];
+    }
+
+    /** Returns the number of nodes (inner nodes and leaves). */
+    public int getNumNodes() {
+        return features.length;
+    }
+
+    /** Returns the number of comparisons on the longest path. */
+    public int getDepth() {
+        int[] depths = new int[ features.length ];
+        int maxDepth = 0;
+        for( int node = 0 ; node < features.length ; ++node ) {
+            if( features[node] >= 0 ) {
+                depths[ lessChildren[node] ] = depths[ greaterChildren[node] ] = depths[node] + 1;
+            }
+            maxDepth = Math.max( maxDepth , depths[node] );
+        }
+        return maxDepth;
+    }
+
+    /** Reads a tree from a model file (see the format above). */
+    public static DecisionTree read( InputStream inputStream ) 
+        throws IOException {
+        DataInputStream in = new DataInputStream( inputStream );
+        if( in.readInt() != MAGIC ) {
+            throw new IOException( "Not a decision tree model" );
+        }
+        int version = in.readInt();
+        if( version != VERSION ) {
+            throw new IOException( "Unsupported decision tree version " + version );
+        }
+        int numFeatures = in.readInt();
+        int numClasses = in.readInt();
+        if( numFeatures <= 0 || numClasses <= 0 || numClasses > MAX_SIZE ) {
+            throw new IOException( "Invalid decision tree size: " + numFeatures + " features , " + 
+                                   numClasses + " classes" );
+        }
+        String[] classNames = new String[ numClasses ];
+        for( int i = 0 ; i < numClasses ; ++i ) {
+            classNames[i] = in.readUTF();
+        }
+        int numNodes = in.readInt();
+        if( numNodes <= 0 || numNodes > MAX_SIZE ) {
+            throw new IOException( "Invalid number of decision tree nodes: " + numNodes );
+        }
+        int[] features = new int[ numNodes ];
+        float[] thresholds = new float[ numNodes ];
+        int[] lessChildren = new int[ numNodes ];
+        int[] greaterChildren = new int[ numNodes ];
+        int[] classes = new int[ numNodes ];
+        for( int node = 0 ; node < numNodes ; ++node ) {
+            features[node] = in.readInt();
+            thresholds[node] = in.readFloat();
+            lessChildren[node] = in.readInt();
+            greaterChildren[node] = in.readInt();
+            classes[node] = in.readInt();
+        }
+        try {
+            return new DecisionTree( numFeatures , classNames , features , thresholds , 
+                                     lessChildren , greaterChildren , classes );
+        }
+        catch( IllegalArgumentException e ) {
+            throw new IOException( "Invalid decision tree: " + e.getMessage() );
+        }
+    }
+
+    /** Writes the tree as a model file (see the format above). */
+    public void write( OutputStream outputStream ) 
+        throws IOException {
+        DataOutputStream out = new DataOutputStream( outputStream );
+        out.writeInt( MAGIC );
+        out.writeInt( VERSION );
+        out.writeInt( numFeatures );
+        out.writeInt( classNames.length );
+        for( String className : classNames ) {
+            out.writeUTF( className );
+        }
+        out.writeInt( features.length );
+        for( int node = 0 ; node < features.length ; ++node ) {
+            out.writeInt( features[node] );
+            out.writeFloat( thresholds[node] );
+            out.writeInt( lessChildren[node] );
+            out.writeInt( greaterChildren[node] );
+            out.writeInt( classes[node] );
+        }
+        out.flush();
+    }
+
+    /** Checks that the arrays form a valid tree (so that classify() cannot loop or fail). */
+    private void validate() {
+        int numNodes = features.length;
+        if( numNodes == 0 || 
+            thresholds.length != numNodes || 
+            lessChildren.length != numNodes || 
+            greaterChildren.length != numNodes || 
+            classes.length != numNodes ) {
+            throw new IllegalArgumentException( "Node arrays must have the same non-zero length" );
+        }
+        for( int node = 0 ; node < numNodes ; ++node ) {
+            if( features[node] >= numFeatures ) {
+                throw new IllegalArgumentException( "Node " + node + " uses feature " + features[node] + 
+                                                    " of " + numFeatures );
+            }
+            else if( features[node] >= 0 && 
+                     ( lessChildren[node] <= node || lessChildren[node] >= numNodes || 
+                       greaterChildren[node] <= node || greaterChildren[node] >= numNodes ) ) {
+                throw new IllegalArgumentException( "Node " + node + " has invalid children" );
+            }
+            else if( features[node] < 0 && 
+                     ( classes[node] < 0 || classes[node] >= classNames.length ) ) {
+                throw new IllegalArgumentException( "Leaf " + node + " has invalid class " + classes[node] );
+            }
+        }
+    }
+
+    /** Length of the feature vectors. */
+    private final int numFeatures;
+    /** Name of each class. */
+    private final String[] classNames;
+
+    // Nodes
+    /** Feature compared by each node (-1 for a leaf). */
+    private final int[] features;
+    /** Threshold of each inner node. */
+    private final float[] thresholds;
+    /** Child of each inner node if the feature is not greater than the threshold. */
+    private final int[] lessChildren;
+    /** Child of each inner node if the feature is greater than the threshold. */
+    private final int[] greaterChildren;
+    /** Class of each leaf (-1 for an inner node). */
+    private final int[] classes;
+
+    /** Magic number at the start of a model file. */
+    public static final int MAGIC = 0x47445452;
+    /** Version of the model file format. */
+    public static final int VERSION = 1;
+    /** Max number of nodes or classes of a model file (against corrupt files). */
+    private static final int MAX_SIZE = 1 << 16;
+}
@@ -0,0 +1,28 @@
+package nus.cs4222.shootingapp.gesture.classify;
+
+/**
+   Classes of the gesture classifier (class indices of the model).
+ */
+public final class GestureClasses {
+
+    /** Not instantiable. */
+    private GestureClasses() {
+    }
+
+    /** No gesture (phone at rest, walking, set down, etc.). */
+    public static final int NONE = 0;
+    /** Upward shot (phone pushed up, away from the ground). */
+    public static final int UP = 1;
+    /** Downward shot (phone pushed down, towards the ground). */
+    public static final int DOWN = 2;
+    /** Forward shot (phone pushed towards its top edge). */
+    public static final int FORWARD = 3;
+    /** Shake (phone shaken sideways a few times). */
+    public static final int SHAKE = 4;
+    /** Number of classes. */
+    public static final int NUM_CLASSES = 5;
+
+    /** Name of each class (as stored in the model file). */
+    public static final String[] NAMES = 
+    { "none" , "up" , "down" , "forward" , "shake" };
+}
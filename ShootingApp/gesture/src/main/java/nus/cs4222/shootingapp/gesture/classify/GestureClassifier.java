@@ -0,0 +1,166 @@
+package nus.cs4222.shootingapp.gesture.classify;
+
+import nus.cs4222.shootingapp.gesture.GestureDetector;
+import nus.cs4222.shootingapp.gesture.SampleBatch;
+
+/**
+   Gesture detector classifying the window features at each sample
+   with a decision tree (see GestureFeatures and GestureClasses).
+
+   <p> A gesture is reported at the first sample classified as a shot
+   (any class but NONE), and no gesture is reported within the
+   refractory period after it. The class of each gesture picks the
+   weapon.
+
+   <p> onBatch() uses the gravity of each sample. onSample() has no
+   gravity, so it assumes the phone is face up (as it is for every
+   sample passed to a gesture detector in the app).
+ */
+public class GestureClassifier 
+    implements GestureDetector {
+
+    /**
+       Creates a classifier.
+
+       @param   tree              Decision tree over GestureFeatures, with the 
+                                   GestureClasses classes
+       @param   refractoryPeriod  Min time between two gestures (nanosec)
+     */
+    public GestureClassifier( DecisionTree tree , 
+                              long refractoryPeriod ) {
+        if( tree.getNumFeatures() != GestureFeatures.NUM_FEATURES || 
+            tree.getNumClasses() != GestureClasses.NUM_CLASSES ) {
+            throw new IllegalArgumentException( "Model has " + tree.getNumFeatures() + " features and " + 
+                                                tree.getNumClasses() + " classes, expected " + 
+                                                GestureFeatures.NUM_FEATURES + " and " + 
+                                                GestureClasses.NUM_CLASSES );
+        }
+        else if( refractoryPeriod < 0L ) {
+            throw new IllegalArgumentException( "Negative refractory period: " + refractoryPeriod );
+        }
+        this.tree = tree;
+        this.refractoryPeriod = refractoryPeriod;
+        features = new GestureFeatures();
+        featureVector = new float[ GestureFeatures.NUM_FEATURES ];
+        matchedClasses = new int[0];
+    }
+
+    /** Processes one linear accl sample (with the phone face up). */
+    @Override
+    public boolean onSample( long timestamp , 
+                             float x , 
+                             float y , 
+                             float z ) {
+        return onSample( timestamp , x , y , z , 0.0F , 0.0F , FACE_UP_GRAVITY );
+    }
+
+    /** Processes the face up samples of a batch (see getMatchedClass() for the classes). */
+    @Override
+    public int onBatch( SampleBatch batch , 
+                        int[] gestureIndices ) {
+
+        // Room for the classes (only grows on the first batches)
+        int n = batch.size();
+        if( matchedClasses.length < n ) {
+            matchedClasses = new int[ batch.capacity() ];
+        }
+
+        int numDetected = 0;
+        for( int i = 0 ; i < n ; ++i ) {
+            if( batch.isFaceUp[i] && 
+                onSample( batch.timestamps[i] , 
+                          batch.ax[i] , batch.ay[i] , batch.az[i] , 
+                          batch.gx[i] , batch.gy[i] , batch.gz[i] ) ) {
+                matchedClasses[ numDetected ] = lastClass;
+                gestureIndices[ numDetected++ ] = i;
+            }
+        }
+        return numDetected;
+    }
+
+    /**
+       Processes one aligned sample.
+
+       @return  true if a gesture was detected at this sample
+     */
+    public boolean onSample( long timestamp , 
+                             float ax , 
+                             float ay , 
+                             float az , 
+                             float gx , 
+                             float gy , 
+                             float gz ) {
+
+        // Update the features
+        features.onAlignedSample( timestamp , ax , ay , az , gx , gy , gz );
+
+        // No gesture within the refractory period
+        if( hasDetectedGesture && 
+            timestamp >= lastGestureTimestamp && 
+            timestamp - lastGestureTimestamp < refractoryPeriod ) {
+            return false;
+        }
+
+        // Classify the window
+        features.getFeatureVector( featureVector );
+        int gestureClass = tree.classify( featureVector );
+        if( gestureClass == GestureClasses.NONE ) {
+            return false;
+        }
+        lastClass = gestureClass;
+        ++numGestures;
+        hasDetectedGesture = true;
+        lastGestureTimestamp = timestamp;
+        return true;
+    }
+
+    /** Returns the class of the k-th gesture detected by the last onBatch() call. */
+    public int getMatchedClass( int k ) {
+        return matchedClasses[k];
+    }
+
+    /** Returns the class of the last gesture (NONE if none). */
+    public int getLastClass() {
+        return lastClass;
+    }
+
+    /** Returns the number of gestures detected since the last reset. */
+    @Override
+    public int getNumGestures() {
+        return numGestures;
+    }
+
+    /** Resets the classifier to its initial state. */
+    @Override
+    public void reset() {
+        features.reset();
+        lastClass = GestureClasses.NONE;
+        numGestures = 0;
+        hasDetectedGesture = false;
+        lastGestureTimestamp = 0L;
+    }
+
+    /** Decision tree. */
+    private final DecisionTree tree;
+    /** Min time between two gestures (nanosec). */
+    private final long refractoryPeriod;
+    /** Window features. */
+    private final GestureFeatures features;
+    /** Feature vector of the current window. */
+    private final float[] featureVector;
+    /** Classes of the gestures of the last batch. */
+    private int[] matchedClasses;
+    /** Class of the last gesture. */
+    private int lastClass;
+    /** Number of gestures detected. */
+    private int numGestures;
+    /** Flag to indicate whether a gesture has been detected since the reset. */
+    private boolean hasDetectedGesture;
+    /** Timestamp of the last gesture (nanosec). */
+    private long lastGestureTimestamp;
+
+    /** Gravity of a face up phone (m/sec^2). */
+    private static final float FACE_UP_GRAVITY = 9.81F;
+    /** Default refractory period (nanosec). */
+    public static final long DEFAULT_REFRACTORY_PERIOD = 300L * 1000000L;
+}
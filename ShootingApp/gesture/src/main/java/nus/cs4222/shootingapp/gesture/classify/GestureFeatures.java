@@ -0,0 +1,90 @@
+package nus.cs4222.shootingapp.gesture.classify;
+
+import nus.cs4222.shootingapp.gesture.AlignedSampleListener;
+import nus.cs4222.shootingapp.gesture.features.WindowFeatureExtractor;
+
+/**
+   Feature vector of the gesture classifier: the window features of
+   the accl and gravity over a long window (the length of a gesture)
+   followed by the same over a short window (its end).
+
+   <p> The window features do not depend on the order of the samples,
+   so an upward shot (push up, then stop) and a downward shot (push
+   down, then stop) look the same over the long window; the short
+   window tells them apart by how the gesture ends.
+
+   <p> The trainer computes the features with this same class, so the
+   model and the app always agree on the feature vector.
+ */
+public class GestureFeatures 
+    implements AlignedSampleListener {
+
+    /** Creates empty windows. */
+    public GestureFeatures() {
+        longWindow = new WindowFeatureExtractor( LONG_WINDOW_DURATION , LONG_WINDOW_CAPACITY );
+        shortWindow = new WindowFeatureExtractor( SHORT_WINDOW_DURATION , SHORT_WINDOW_CAPACITY );
+    }
+
+    /** Adds an aligned sample to both windows. */
+    @Override
+    public void onAlignedSample( long timestamp , 
+                                 float ax , 
+                                 float ay , 
+                                 float az , 
+                                 float gx , 
+                                 float gy , 
+                                 float gz ) {
+        longWindow.onAlignedSample( timestamp , ax , ay , az , gx , gy , gz );
+        shortWindow.onAlignedSample( timestamp , ax , ay , az , gx , gy , gz );
+    }
+
+    /** Removes all samples. */
+    public void reset() {
+        longWindow.reset();
+        shortWindow.reset();
+    }
+
+    /** Writes the feature vector (NUM_FEATURES values) into an array. */
+    public void getFeatureVector( float[] features ) {
+        longWindow.getFeatureVector( features );
+        shortWindow.getFeatureVector( shortFeatures );
+        System.arraycopy( shortFeatures , 0 , features , WindowFeatureExtractor.NUM_FEATURES , 
+                          WindowFeatureExtractor.NUM_FEATURES );
+    }
+
+    /** Returns the name of a feature of the vector (for the trainer's reports). */
+    public static String getFeatureName( int feature ) {
+        int windowFeature = feature % WindowFeatureExtractor.NUM_FEATURES;
+        return ( ( feature < WindowFeatureExtractor.NUM_FEATURES ) ? "long." : "short." ) + 
+            CHANNEL_NAMES[ windowFeature / FEATURES_PER_CHANNEL ] + "." + 
+            FEATURE_NAMES[ windowFeature % FEATURES_PER_CHANNEL ];
+    }
+
+    /** Features over the long window. */
+    private final WindowFeatureExtractor longWindow;
+    /** Features over the short window. */
+    private final WindowFeatureExtractor shortWindow;
+    /** Features of the short window (copied after the long window's). */
+    private final float[] shortFeatures = new float[ WindowFeatureExtractor.NUM_FEATURES ];
+
+    /** Duration of the long window (nanosec). */
+    public static final long LONG_WINDOW_DURATION = 400L * 1000000L;
+    /** Max number of samples in the long window. */
+    private static final int LONG_WINDOW_CAPACITY = 64;
+    /** Duration of the short window (nanosec). */
+    public static final long SHORT_WINDOW_DURATION = 100L * 1000000L;
+    /** Max number of samples in the short window. */
+    private static final int SHORT_WINDOW_CAPACITY = 16;
+    /** Number of values in the feature vector. */
+    public static final int NUM_FEATURES = 2 * WindowFeatureExtractor.NUM_FEATURES;
+
+    /** Number of features per channel. */
+    private static final int FEATURES_PER_CHANNEL = 
+        WindowFeatureExtractor.NUM_FEATURES / WindowFeatureExtractor.NUM_CHANNELS;
+    /** Name of each channel (see WindowFeatureExtractor.CHANNEL_*). */
+    private static final String[] CHANNEL_NAMES = 
+    { "acclX" , "acclY" , "acclZ" , "gravityX" , "gravityY" , "gravityZ" };
+    /** Name of each feature of a channel (see SlidingWindowFeatures.FEATURE_*). */
+    private static final String[] FEATURE_NAMES = 
+    { "mean" , "variance" , "min" , "max" , "energy" , "zeroCrossings" , "peakToPeak" };
+}
@@ -0,0 +1,364 @@
+package nus.cs4222.shootingapp.gesture.dtw;
+
+import nus.cs4222.shootingapp.gesture.GestureDetector;
+import nus.cs4222.shootingapp.gesture.SampleBatch;
+
+/**
+   Gesture recognizer matching the recent 3-axis linear accl against
+   several gesture templates with dynamic time warping (DTW).
+
+   <p> The samples are kept in a primitive rolling buffer, written
+   twice (at i and i + capacity) so that the most recent samples are
+   always one contiguous slice, without copying. At each sample, each
+   template is compared with the slice of the same length ending at
+   that sample:
+   <ul>
+     <li> the LB_Keogh lower bound (distance of the slice to the
+          template's min/max envelope) is summed first, largest
+          envelope first, and the
+          template is skipped as soon as the bound exceeds the
+          template's max distance (or the best match so far)
+     <li> otherwise the DTW distance is computed within a Sakoe-Chiba
+          band, abandoning as soon as a whole row exceeds that limit
+   </ul>
+   Most samples (the phone at rest or moving normally) are rejected by
+   the lower bound after a few terms, or else within the first rows of
+   the DTW, so the cost per sample is far below that of full DTW. (The
+   lower bound is skipped for templates whose envelope does not reject
+   a phone at rest, such as the double tap, or any template within a
+   wide band.)
+
+   <p> A gesture is reported at the first sample whose best match is
+   not better than at the previous sample (i.e. one sample after the
+   closest alignment), so that a longer gesture starting like a shorter
+   one can win. No gesture is reported within the refractory period
+   after the last one.
+ */
+public class DtwGestureRecognizer 
+    implements GestureDetector {
+
+    /**
+       Creates a recognizer.
+
+       @param   templates         Gesture templates
+       @param   bandWidth         Max warping (samples) of the Sakoe-Chiba band
+       @param   refractoryPeriod  Min time between two gestures (nanosec)
+     */
+    public DtwGestureRecognizer( GestureTemplate[] templates , 
+                                 int bandWidth , 
+                                 long refractoryPeriod ) {
+        this( templates , bandWidth , refractoryPeriod , true );
+    }
+
+    /**
+       Creates a recognizer, optionally without the lower bound pruning
+       (only to measure its benefit).
+     */
+    public DtwGestureRecognizer( GestureTemplate[] templates , 
+                                 int bandWidth , 
+                                 long refractoryPeriod , 
+                                 boolean useLowerBound ) {
+        if( templates.length == 0 ) {
+            throw new IllegalArgumentException( "No gesture templates" );
+        }
+        else if( bandWidth < 0 || refractoryPeriod < 0L ) {
+            throw new IllegalArgumentException( "Invalid band width or refractory period: " + 
+                                                bandWidth + " , " + refractoryPeriod );
+        }
+        this.templates = templates.clone();
+        this.bandWidth = bandWidth;
+        this.refractoryPeriod = refractoryPeriod;
+        this.useLowerBound = useLowerBound;
+
+        // Prepare the envelopes, and size the buffers for the longest template
+        int maxLength = 0;
+        for( GestureTemplate template : this.templates ) {
+            template.prepare( bandWidth );
+            maxLength = Math.max( maxLength , template.length() );
+        }
+        capacity = maxLength;
+        bufferX = new float[ 2 * capacity ];
+        bufferY = new float[ 2 * capacity ];
+        bufferZ = new float[ 2 * capacity ];
+        previousRow = new double[ maxLength ];
+        currentRow = new double[ maxLength ];
+        matchedTemplates = new GestureTemplate[ 0 ];
+        reset();
+    }
+
+    /** Processes one linear accl sample. */
+    @Override
+    public boolean onSample( long timestamp , 
+                             float x , 
+                             float y , 
+                             float z ) {
+
+        // Append the sample (twice, so that the recent slice is contiguous)
+        position = ( position + 1 == capacity ) ? 0 : position + 1;
+        bufferX[ position ] = bufferX[ position + capacity ] = x;
+        bufferY[ position ] = bufferY[ position + capacity ] = y;
+        bufferZ[ position ] = bufferZ[ position + capacity ] = z;
+        if( numSamples < capacity ) {
+            ++numSamples;
+        }
+
+        // No gesture within the refractory period
+        if( hasDetectedGesture && 
+            timestamp >= lastGestureTimestamp && 
+            timestamp - lastGestureTimestamp < refractoryPeriod ) {
+            candidate = null;
+            return false;
+        }
+
+        // Find the best matching template at this sample
+        GestureTemplate best = null;
+        double bestRatio = 1.0;
+        for( GestureTemplate template : templates ) {
+            int length = template.length();
+            if( length > numSamples ) {
+                continue;
+            }
+            double limit = template.getMaxDistance() * length * bestRatio;
+            double distance = match( template , recentStart( length ) , limit );
+            if( distance <= limit ) {
+                best = template;
+                bestRatio = distance / ( template.getMaxDistance() * length );
+            }
+        }
+
+        // Wait while the match is still improving
+        if( best != null && 
+            ( candidate == null || bestRatio < candidateRatio ) ) {
+            candidate = best;
+            candidateRatio = bestRatio;
+            return false;
+        }
+        if( candidate == null ) {
+            return false;
+        }
+
+        // Report the closest match
+        lastTemplate = candidate;
+        candidate = null;
+        ++numGestures;
+        hasDetectedGesture = true;
+        lastGestureTimestamp = timestamp;
+        return true;
+    }
+
+    /** Processes the face up samples of a batch (see getMatchedTemplate() for the templates). */
+    @Override
+    public int onBatch( SampleBatch batch , 
+                        int[] gestureIndices ) {
+
+        // Room for the matched templates (only grows on the first batches)
+        int n = batch.size();
+        if( matchedTemplates.length < n ) {
+            matchedTemplates = new GestureTemplate[ batch.capacity() ];
+        }
+
+        int numDetected = 0;
+        for( int i = 0 ; i < n ; ++i ) {
+            if( batch.isFaceUp[i] && 
+                onSample( batch.timestamps[i] , batch.ax[i] , batch.ay[i] , batch.az[i] ) ) {
+                matchedTemplates[ numDetected ] = lastTemplate;
+                gestureIndices[ numDetected++ ] = i;
+            }
+        }
+        return numDetected;
+    }
+
+    /** Returns the template of the k-th gesture detected by the last onBatch() call. */
+    public GestureTemplate getMatchedTemplate( int k ) {
+        return matchedTemplates[k];
+    }
+
+    /** Returns the template of the last gesture (null if none). */
+    public GestureTemplate getLastTemplate() {
+        return lastTemplate;
+    }
+
+    /** Returns the number of gestures detected since the last reset. */
+    @Override
+    public int getNumGestures() {
+        return numGestures;
+    }
+
+    /** Resets the recognizer to its initial state. */
+    @Override
+    public void reset() {
+        position = capacity - 1;
+        numSamples = 0;
+        candidate = null;
+        lastTemplate = null;
+        numGestures = 0;
+        hasDetectedGesture = false;
+        lastGestureTimestamp = 0L;
+    }
+
+    /** Returns the number of DTW distances computed (i.e. not pruned by the lower bound). */
+    public long getNumDtwComputed() {
+        return numDtwComputed;
+    }
+
+    /** Returns the number of template comparisons pruned by the lower bound. */
+    public long getNumPruned() {
+        return numPruned;
+    }
+
+    /** Returns the buffer index of the oldest of the 'length' most recent samples. */
+    int recentStart( int length ) {
+        return position + capacity - length + 1;
+    }
+
+    /** 
+       Computes the distance of a template to the buffer slice starting
+       at 'start', or any value above the limit if it is above the limit.
+     */
+    double match( GestureTemplate template , 
+                  int start , 
+                  double limit ) {
+        if( useLowerBound && 
+            template.isLowerBoundUseful && 
+            lowerBound( template , start , limit ) > limit ) {
+            ++numPruned;
+            return Double.POSITIVE_INFINITY;
+        }
+        ++numDtwComputed;
+        return dtw( template , start , limit );
+    }
+
+    /** LB_Keogh lower bound of the DTW distance (stops once above the limit, in the template's order). */
+    double lowerBound( GestureTemplate template , 
+                               int start , 
+                               double limit ) {
+        float[] ux = template.upperX , lx = template.lowerX;
+        float[] uy = template.upperY , ly = template.lowerY;
+        float[] uz = template.upperZ , lz = template.lowerZ;
+        int[] order = template.lowerBoundOrder;
+        double sum = 0.0;
+        for( int k = 0 ; k < order.length ; ++k ) {
+            int i = order[k];
+            sum += envelopeDistance( bufferX[ start + i ] , ux[i] , lx[i] ) + 
+                envelopeDistance( bufferY[ start + i ] , uy[i] , ly[i] ) + 
+                envelopeDistance( bufferZ[ start + i ] , uz[i] , lz[i] );
+            if( sum > limit ) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    /** Squared distance of a value outside the envelope (0 inside). */
+    private static float envelopeDistance( float value , 
+                                           float upper , 
+                                           float lower ) {
+        float d = ( value > upper ) ? value - upper : 
+            ( value < lower ) ? lower - value : 0.0F;
+        return d * d;
+    }
+
+    /** DTW distance within the band (stops once a whole row is above the limit). */
+    double dtw( GestureTemplate template , 
+                        int start , 
+                        double limit ) {
+        float[] tx = template.x , ty = template.y , tz = template.z;
+        int length = tx.length;
+        int band = bandWidth;
+        double[] previous = previousRow , current = currentRow;
+
+        for( int i = 0 ; i < length ; ++i ) {
+            int jStart = Math.max( 0 , i - band );
+            int jEnd = Math.min( length - 1 , i + band );
+            double rowMin = Double.POSITIVE_INFINITY;
+            for( int j = jStart ; j <= jEnd ; ++j ) {
+
+                // Squared distance of the two 3-axis samples
+                float dx = tx[i] - bufferX[ start + j ];
+                float dy = ty[i] - bufferY[ start + j ];
+                float dz = tz[i] - bufferZ[ start + j ];
+                double cost = dx * dx + dy * dy + dz * dz;
+
+                // Cheapest path to this cell (cells outside the band are infinite)
+                double pathCost;
+                if( i == 0 ) {
+                    pathCost = ( j == 0 ) ? 0.0 : current[ j - 1 ];
+                }
+                else {
+                    pathCost = previous[j];
+                    if( j > jStart ) {
+                        pathCost = Math.min( pathCost , current[ j - 1 ] );
+                    }
+                    if( j > 0 ) {
+                        pathCost = Math.min( pathCost , previous[ j - 1 ] );
+                    }
+                }
+                current[j] = cost + pathCost;
+                rowMin = Math.min( rowMin , current[j] );
+            }
+
+            // Early abandon (every path goes through this row)
+            if( rowMin > limit ) {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            // The cell after the band is outside the band of this row
+            if( jEnd + 1 < length ) {
+                current[ jEnd + 1 ] = Double.POSITIVE_INFINITY;
+            }
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[ length - 1 ];
+    }
+
+    /** Gesture templates. */
+    private final GestureTemplate[] templates;
+    /** Max warping of the Sakoe-Chiba band (samples). */
+    private final int bandWidth;
+    /** Min time between two gestures (nanosec). */
+    private final long refractoryPeriod;
+    /** Flag to indicate whether the LB_Keogh lower bound is used for pruning. */
+    private final boolean useLowerBound;
+
+    // Rolling buffer
+    /** Number of samples kept (length of the longest template). */
+    private final int capacity;
+    /** X-axis samples (each written at i and i + capacity). */
+    private final float[] bufferX;
+    /** Y-axis samples (each written at i and i + capacity). */
+    private final float[] bufferY;
+    /** Z-axis samples (each written at i and i + capacity). */
+    private final float[] bufferZ;
+    /** Position of the latest sample (in the range 0 .. capacity-1). */
+    private int position;
+    /** Number of samples in the buffer. */
+    private int numSamples;
+
+    // DTW rows
+    /** Cumulative costs of the previous row. */
+    private final double[] previousRow;
+    /** Cumulative costs of the current row. */
+    private final double[] currentRow;
+
+    // Detection state
+    /** Best match waiting to be reported (null if none). */
+    private GestureTemplate candidate;
+    /** Distance of the candidate relative to its max distance. */
+    private double candidateRatio;
+    /** Template of the last gesture. */
+    private GestureTemplate lastTemplate;
+    /** Templates of the gestures of the last batch. */
+    private GestureTemplate[] matchedTemplates;
+    /** Number of gestures detected. */
+    private int numGestures;
+    /** Flag to indicate whether a gesture has been detected since the reset. */
+    private boolean hasDetectedGesture;
+    /** Timestamp of the last gesture (nanosec). */
+    private long lastGestureTimestamp;
+    /** Number of DTW distances computed. */
+    private long numDtwComputed;
+    /** Number of comparisons pruned by the lower bound. */
+    private long numPruned;
+}
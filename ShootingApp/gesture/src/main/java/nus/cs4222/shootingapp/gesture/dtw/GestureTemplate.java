@@ -0,0 +1,188 @@
+package nus.cs4222.shootingapp.gesture.dtw;
+
+/**
+   Recorded 3-axis linear accl shape of a gesture, matched by the
+   DtwGestureRecognizer.
+
+   <p> The samples are at the game sensor rate (one every 20 ms), in
+   the phone's co-ordinate system with the phone face up. The LB_Keogh
+   envelope of each axis (the min and max within the warping band) is
+   precomputed for the band width the template is prepared for, along
+   with the order in which the recognizer sums the lower bound: the
+   samples whose envelope is farthest from zero first, so that a window
+   of sensor noise is rejected after a few terms. The lower bound is
+   only worth computing if it rejects a phone at rest on its own (i.e.
+   the envelope alone is too far from zero); otherwise the early
+   abandoned DTW is cheaper.
+ */
+public class GestureTemplate {
+
+    /**
+       Creates a template.
+
+       @param   name          Name of the gesture (for display)
+       @param   soundNumber   Gun sound played for this gesture
+       @param   x             Linear accl along the phone's x-axis (m/sec^2)
+       @param   y             Linear accl along the phone's y-axis (m/sec^2)
+       @param   z             Linear accl along the phone's z-axis (m/sec^2)
+       @param   maxDistance   Max mean squared distance per sample of a match ((m/sec^2)^2)
+     */
+    public GestureTemplate( String name , 
+                            int soundNumber , 
+                            float[] x , 
+                            float[] y , 
+                            float[] z , 
+                            float maxDistance ) {
+        if( x.length == 0 || x.length != y.length || x.length != z.length ) {
+            throw new IllegalArgumentException( "Template axes must have the same non-zero length" );
+        }
+        else if( maxDistance <= 0.0F ) {
+            throw new IllegalArgumentException( "Invalid max template distance: " + maxDistance );
+        }
+        this.name = name;
+        this.soundNumber = soundNumber;
+        this.x = x.clone();
+        this.y = y.clone();
+        this.z = z.clone();
+        this.maxDistance = maxDistance;
+        int length = x.length;
+        upperX = new float[ length ];
+        lowerX = new float[ length ];
+        upperY = new float[ length ];
+        lowerY = new float[ length ];
+        upperZ = new float[ length ];
+        lowerZ = new float[ length ];
+        lowerBoundOrder = new int[ length ];
+        bandWidth = -1;
+    }
+
+    /**
+       Creates a template whose max distance is a fraction of its mean
+       energy per sample (so that stronger gestures allow larger errors).
+     */
+    public static GestureTemplate withRelativeTolerance( String name , 
+                                                         int soundNumber , 
+                                                         float[] x , 
+                                                         float[] y , 
+                                                         float[] z , 
+                                                         float tolerance ) {
+        double energy = 0.0;
+        for( int i = 0 ; i < x.length ; ++i ) {
+            energy += x[i] * x[i] + y[i] * y[i] + z[i] * z[i];
+        }
+        return new GestureTemplate( name , soundNumber , x , y , z , 
+                                    (float) ( tolerance * energy / x.length ) );
+    }
+
+    /** Returns the name of the gesture. */
+    public String getName() {
+        return name;
+    }
+
+    /** Returns the gun sound played for this gesture. */
+    public int getSoundNumber() {
+        return soundNumber;
+    }
+
+    /** Returns the number of samples. */
+    public int length() {
+        return x.length;
+    }
+
+    /** Returns the max mean squared distance per sample of a match. */
+    public float getMaxDistance() {
+        return maxDistance;
+    }
+
+    /** Computes the LB_Keogh envelopes for a warping band width (if not done already). */
+    void prepare( int bandWidth ) {
+        if( this.bandWidth == bandWidth ) {
+            return;
+        }
+        computeEnvelope( x , bandWidth , upperX , lowerX );
+        computeEnvelope( y , bandWidth , upperY , lowerY );
+        computeEnvelope( z , bandWidth , upperZ , lowerZ );
+        computeLowerBoundOrder();
+        this.bandWidth = bandWidth;
+    }
+
+    /** 
+       Orders the samples by decreasing distance of their envelope to
+       zero (insertion sort, templates are short), and checks whether
+       the lower bound rejects a window of zeros.
+     */
+    private void computeLowerBoundOrder() {
+        int length = x.length;
+        float[] distances = new float[ length ];
+        double restDistance = 0.0;
+        for( int i = 0 ; i < length ; ++i ) {
+            distances[i] = distanceToZero( upperX[i] , lowerX[i] ) + 
+                distanceToZero( upperY[i] , lowerY[i] ) + 
+                distanceToZero( upperZ[i] , lowerZ[i] );
+            int j = i;
+            for( ; j > 0 && distances[ lowerBoundOrder[ j - 1 ] ] < distances[i] ; --j ) {
+                lowerBoundOrder[j] = lowerBoundOrder[ j - 1 ];
+            }
+            lowerBoundOrder[j] = i;
+            restDistance += distances[i];
+        }
+        isLowerBoundUseful = ( restDistance > (double) maxDistance * length );
+    }
+
+    /** Squared distance of zero to the envelope (0 if inside). */
+    private static float distanceToZero( float upper , 
+                                         float lower ) {
+        float d = ( lower > 0.0F ) ? lower : ( upper < 0.0F ) ? -upper : 0.0F;
+        return d * d;
+    }
+
+    /** Computes the max and min of the values within the band around each sample. */
+    private static void computeEnvelope( float[] values , 
+                                         int bandWidth , 
+                                         float[] upper , 
+                                         float[] lower ) {
+        for( int i = 0 ; i < values.length ; ++i ) {
+            float max = values[i] , min = values[i];
+            int end = Math.min( values.length - 1 , i + bandWidth );
+            for( int j = Math.max( 0 , i - bandWidth ) ; j <= end ; ++j ) {
+                max = Math.max( max , values[j] );
+                min = Math.min( min , values[j] );
+            }
+            upper[i] = max;
+            lower[i] = min;
+        }
+    }
+
+    /** Name of the gesture. */
+    private final String name;
+    /** Gun sound played for this gesture. */
+    private final int soundNumber;
+    /** Max mean squared distance per sample of a match. */
+    private final float maxDistance;
+    /** Flag to indicate whether the lower bound rejects a phone at rest. */
+    boolean isLowerBoundUseful;
+    /** Band width the envelopes were computed for (-1 if not yet). */
+    private int bandWidth;
+
+    // Samples and envelopes (used directly by the recognizer)
+    /** X-axis samples. */
+    final float[] x;
+    /** Y-axis samples. */
+    final float[] y;
+    /** Z-axis samples. */
+    final float[] z;
+    /** Upper envelope of the x-axis. */
+    final float[] upperX;
+    /** Lower envelope of the x-axis. */
+    final float[] lowerX;
+    /** Upper envelope of the y-axis. */
+    final float[] upperY;
+    /** Lower envelope of the y-axis. */
+    final float[] lowerY;
+    /** Upper envelope of the z-axis. */
+    final float[] upperZ;
+    /** Lower envelope of the z-axis. */
+    final float[] lowerZ;
+    /** Sample indices in the order their lower bound terms are summed. */
+    final int[] lowerBoundOrder;
+}
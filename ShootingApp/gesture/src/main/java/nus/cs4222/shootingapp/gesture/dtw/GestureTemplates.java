@@ -0,0 +1,53 @@
+package nus.cs4222.shootingapp.gesture.dtw;
+
+/**
+   Default gesture templates (one sample every 20 ms, phone face up),
+   each firing a different weapon:
+   <ul>
+     <li> Upward flick: a z-axis push followed by the stop (handgun)
+     <li> Forward thrust: the same along the y-axis, towards the top 
+          of the phone (rocket)
+     <li> Double tap: two short z-axis pulses (machine gun)
+   </ul>
+ */
+public class GestureTemplates {
+
+    /** Returns new instances of the default templates. */
+    public static GestureTemplate[] defaults() {
+        float[] zeros12 = new float[ FLICK.length ];
+        float[] zeros13 = new float[ DOUBLE_TAP.length ];
+        return new GestureTemplate[] {
+            GestureTemplate.withRelativeTolerance( "Upward flick" , SOUND_FLICK , 
+                                                   zeros12 , zeros12 , FLICK , TOLERANCE ) , 
+            GestureTemplate.withRelativeTolerance( "Forward thrust" , SOUND_THRUST , 
+                                                   zeros12 , FLICK , zeros12 , TOLERANCE ) , 
+            GestureTemplate.withRelativeTolerance( "Double tap" , SOUND_DOUBLE_TAP , 
+                                                   zeros13 , zeros13 , DOUBLE_TAP , TOLERANCE ) 
+        };
+    }
+
+    /** Not instantiable. */
+    private GestureTemplates() {
+    }
+
+    /** Accl of a flick/thrust along its axis (m/sec^2): push, then stop. */
+    private static final float[] FLICK = 
+    { 0.0F , 3.0F , 8.0F , 12.0F , 10.0F , 5.0F , 0.0F , -3.0F , -6.0F , -4.0F , -2.0F , 0.0F };
+    /** Z-axis accl of a double tap (m/sec^2). */
+    private static final float[] DOUBLE_TAP = 
+    { 0.0F , 6.0F , 10.0F , 4.0F , -2.0F , 0.0F , 0.0F , 0.0F , 6.0F , 10.0F , 4.0F , -2.0F , 0.0F };
+    /** Max distance of a match, relative to the template's energy. */
+    private static final float TOLERANCE = 0.2F;
+
+    // Weapons (sound numbers in the app's sound list)
+    /** Sound of the upward flick. */
+    public static final int SOUND_FLICK = 2;
+    /** Sound of the forward thrust. */
+    public static final int SOUND_THRUST = 5;
+    /** Sound of the double tap. */
+    public static final int SOUND_DOUBLE_TAP = 3;
+    /** Band width suited to the default templates (20 ms of warping, wider bands make the envelopes too loose to prune). */
+    public static final int DEFAULT_BAND_WIDTH = 1;
+    /** Refractory period suited to the default templates (nanosec, 300 ms). */
+    public static final long DEFAULT_REFRACTORY_PERIOD = 300L * 1000000L;
+}
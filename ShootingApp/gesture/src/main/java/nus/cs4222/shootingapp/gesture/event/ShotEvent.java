@@ -0,0 +1,47 @@
+package nus.cs4222.shootingapp.gesture.event;
+
+/**
+   A detected shot, as published on a ShotEventBus.
+
+   <p> Events are reusable: the producer fills in one event and
+   publishes it (the bus copies the values into its ring), and each
+   consumer polls into its own event. The fields are public so that
+   they can be read and set without calls, like SampleBatch.
+ */
+public class ShotEvent {
+
+    /** Sets the values of the shot (the sequence number is set by the bus). */
+    public ShotEvent set( long timestamp ,
+                          long wallTime ,
+                          int region ,
+                          float direction ,
+                          float peakForce ,
+                          long latency ,
+                          int soundNumber ) {
+        this.timestamp = timestamp;
+        this.wallTime = wallTime;
+        this.region = region;
+        this.direction = direction;
+        this.peakForce = peakForce;
+        this.latency = latency;
+        this.soundNumber = soundNumber;
+        return this;
+    }
+
+    /** Number of the shot on its bus (from 0, consecutive shots have consecutive numbers). */
+    public long sequence;
+    /** Timestamp of the accl sample at which the shot was detected (nanosec). */
+    public long timestamp;
+    /** Wall clock time at which the shot was published (millisec since the epoch). */
+    public long wallTime;
+    /** Shooting region when the shot was detected (numbered from 1). */
+    public int region;
+    /** Shooting direction when the shot was detected (deg). */
+    public float direction;
+    /** Peak linear accl of the gesture (m/sec^2). */
+    public float peakForce;
+    /** Time from the accl sample to the detection of the shot (nanosec). */
+    public long latency;
+    /** Gun sound of the shot. */
+    public int soundNumber;
+}
@@ -0,0 +1,298 @@
+package nus.cs4222.shootingapp.gesture.event;
+
+/**
+   Lock-free ring of shot events, with one producer and any number of
+   consumers, each reading at its own pace through its own cursor.
+
+   <p> The producer never waits: publish() overwrites the oldest slot
+   of the ring whether or not every consumer has read it. Each
+   consumer has a max lag (at most the ring's capacity), and when it
+   falls further behind, it skips the oldest events (counted as
+   dropped), so a slow consumer (logging, the GUI) only loses its own
+   events and never holds up the producer or the other consumers. A
+   consumer that wants only the latest shot can use a max lag of 1.
+
+   <p> After each publish, the consumers' listeners are called in the
+   producer thread, in the order the consumers were added. So the
+   first consumer (the audio) can poll the shot straight away in the
+   producer thread, while the listeners of the other consumers should
+   only wake up their own thread.
+
+   <p> Each slot of the ring is written like a seqlock: its sequence
+   number is cleared before the values are overwritten and set after,
+   so a consumer that reads a slot while the producer overwrites it
+   sees the sequence number change, and drops that event instead of
+   returning torn values. Nothing is allocated by publish() or poll().
+ */
+public class ShotEventBus {
+
+    /** Called (in the producer thread) after each event published. */
+    public interface Listener {
+
+        /**
+           Called after an event has been published (should not block,
+           except for a consumer polling in the producer thread).
+
+           @param   consumer  Consumer of the listener, with the event to poll
+         */
+        public void onShotPublished( Consumer consumer );
+    }
+
+    /**
+       Creates an empty bus.
+
+       @param   capacity  Number of slots of the ring (a power of 2)
+     */
+    public ShotEventBus( int capacity ) {
+        if( capacity <= 0 || ( capacity & ( capacity - 1 ) ) != 0 ) {
+            throw new IllegalArgumentException( "Capacity must be a power of 2: " + capacity );
+        }
+        slots = new Slot[ capacity ];
+        for( int i = 0 ; i < capacity ; ++i ) {
+            slots[i] = new Slot();
+        }
+        mask = capacity - 1;
+        consumers = new Consumer[0];
+    }
+
+    /**
+       Adds a consumer (from any thread), which receives the events
+       published from now on.
+
+       @param   name      Name of the consumer (for the stats)
+       @param   maxLag    Max number of events waiting for the consumer, beyond
+                           which the oldest are dropped (1 .. capacity)
+       @param   listener  Called after each event published (null for none)
+       @return  The consumer (to poll from its own thread)
+     */
+    public synchronized Consumer addConsumer( String name ,
+                                              int maxLag ,
+                                              Listener listener ) {
+        if( maxLag <= 0 || maxLag > slots.length ) {
+            throw new IllegalArgumentException( "Max lag must be 1 .. " + slots.length + ": " + maxLag );
+        }
+        Consumer consumer = new Consumer( name , maxLag , listener , numPublished );
+        Consumer[] newConsumers = new Consumer[ consumers.length + 1 ];
+        System.arraycopy( consumers , 0 , newConsumers , 0 , consumers.length );
+        newConsumers[ consumers.length ] = consumer;
+        consumers = newConsumers;
+        return consumer;
+    }
+
+    /** Removes a consumer (from any thread), whose listener is not called anymore. */
+    public synchronized void removeConsumer( Consumer consumer ) {
+        for( int i = 0 ; i < consumers.length ; ++i ) {
+            if( consumers[i] == consumer ) {
+                Consumer[] newConsumers = new Consumer[ consumers.length - 1 ];
+                System.arraycopy( consumers , 0 , newConsumers , 0 , i );
+                System.arraycopy( consumers , i + 1 , newConsumers , i , newConsumers.length - i );
+                consumers = newConsumers;
+                return;
+            }
+        }
+    }
+
+    /** Returns the consumers, in the order they were added. */
+    public Consumer[] getConsumers() {
+        return consumers.clone();
+    }
+
+    /**
+       Publishes a shot (only from the producer thread), then calls the
+       consumers' listeners.
+
+       @param   event  Values of the shot (copied, so the event can be reused)
+       @return  Sequence number of the shot
+     */
+    public long publish( ShotEvent event ) {
+        long sequence = numPublished;
+        slots[ (int) sequence & mask ].write( sequence , event );
+        numPublished = sequence + 1L;
+
+        Consumer[] currentConsumers = consumers;
+        for( int i = 0 ; i < currentConsumers.length ; ++i ) {
+            Listener listener = currentConsumers[i].listener;
+            if( listener != null ) {
+                listener.onShotPublished( currentConsumers[i] );
+            }
+        }
+        return sequence;
+    }
+
+    /** Returns the number of events published. */
+    public long getNumPublished() {
+        return numPublished;
+    }
+
+    /** Returns the number of slots of the ring. */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+       Cursor of one consumer over the events, with its lag and drop
+       stats. poll() must only be called from one thread at a time; the
+       stats can be read from any thread.
+     */
+    public class Consumer {
+
+        /** Creates a consumer whose first event is the given sequence number. */
+        private Consumer( String name ,
+                          int maxLag ,
+                          Listener listener ,
+                          long cursor ) {
+            this.name = name;
+            this.maxLag = maxLag;
+            this.listener = listener;
+            this.cursor = cursor;
+        }
+
+        /**
+           Gets the oldest event not read yet (dropping the events beyond
+           the max lag, or overwritten while being read).
+
+           @param   event  Receives the values of the event
+           @return  false if there is no event to read
+         */
+        public boolean poll( ShotEvent event ) {
+            long sequence = cursor;
+            while( true ) {
+
+                // Nothing to read
+                long published = numPublished;
+                if( sequence >= published ) {
+                    cursor = sequence;
+                    return false;
+                }
+
+                // Drop the oldest events if too far behind
+                long lag = published - sequence;
+                if( lag > maxLagSeen ) {
+                    maxLagSeen = lag;
+                }
+                if( lag > maxLag ) {
+                    numDropped += lag - maxLag;
+                    sequence = published - maxLag;
+                }
+
+                // Read the event (dropped if the producer overwrites it meanwhile)
+                boolean isRead = slots[ (int) sequence & mask ].read( sequence , event );
+                ++sequence;
+                if( isRead ) {
+                    cursor = sequence;
+                    ++numConsumed;
+                    return true;
+                }
+                ++numDropped;
+            }
+        }
+
+        /** Returns the name of the consumer. */
+        public String getName() {
+            return name;
+        }
+
+        /** Returns the max number of events waiting before the oldest are dropped. */
+        public int getMaxLag() {
+            return maxLag;
+        }
+
+        /** Returns the number of events published but not read yet (or to be dropped). */
+        public long getLag() {
+            return numPublished - cursor;
+        }
+
+        /** Returns the largest lag seen by poll(). */
+        public long getMaxLagSeen() {
+            return maxLagSeen;
+        }
+
+        /** Returns the number of events read. */
+        public long getNumConsumed() {
+            return numConsumed;
+        }
+
+        /** Returns the number of events dropped because the consumer was too far behind. */
+        public long getNumDropped() {
+            return numDropped;
+        }
+
+        /** Name of the consumer. */
+        private final String name;
+        /** Max number of events waiting before the oldest are dropped. */
+        private final int maxLag;
+        /** Called after each event published (null if none). */
+        private final Listener listener;
+        /** Sequence number of the next event to read (only modified by poll()). */
+        private volatile long cursor;
+        /** Largest lag seen (only modified by poll()). */
+        private volatile long maxLagSeen;
+        /** Number of events read (only modified by poll()). */
+        private volatile long numConsumed;
+        /** Number of events dropped (only modified by poll()). */
+        private volatile long numDropped;
+    }
+
+    /** One slot of the ring (all fields volatile, so the seqlock check orders the reads). */
+    private static class Slot {
+
+        /** Overwrites the slot (in the producer thread). */
+        void write( long sequence ,
+                    ShotEvent event ) {
+            this.sequence = EMPTY;
+            timestamp = event.timestamp;
+            wallTime = event.wallTime;
+            region = event.region;
+            direction = event.direction;
+            peakForce = event.peakForce;
+            latency = event.latency;
+            soundNumber = event.soundNumber;
+            this.sequence = sequence;
+        }
+
+        /** Copies the slot, returns false if it does not hold the given event (anymore). */
+        boolean read( long sequence ,
+                      ShotEvent event ) {
+            if( this.sequence != sequence ) {
+                return false;
+            }
+            event.sequence = sequence;
+            event.timestamp = timestamp;
+            event.wallTime = wallTime;
+            event.region = region;
+            event.direction = direction;
+            event.peakForce = peakForce;
+            event.latency = latency;
+            event.soundNumber = soundNumber;
+            return this.sequence == sequence;
+        }
+
+        /** Sequence number of the event in the slot (EMPTY while being written). */
+        volatile long sequence = EMPTY;
+        /** Timestamp of the shot (nanosec). */
+        volatile long timestamp;
+        /** Wall clock time of the shot (millisec). */
+        volatile long wallTime;
+        /** Shooting region of the shot. */
+        volatile int region;
+        /** Shooting direction of the shot (deg). */
+        volatile float direction;
+        /** Peak linear accl of the shot (m/sec^2). */
+        volatile float peakForce;
+        /** Detection latency of the shot (nanosec). */
+        volatile long latency;
+        /** Gun sound of the shot. */
+        volatile int soundNumber;
+    }
+
+    /** Slots of the ring. */
+    private final Slot[] slots;
+    /** Mask of a sequence number to its slot index. */
+    private final int mask;
+    /** Consumers, in the order they were added (replaced as a whole when changed). */
+    private volatile Consumer[] consumers;
+    /** Number of events published (only modified by the producer thread). */
+    private volatile long numPublished;
+    /** Sequence number of a slot being written, or never written. */
+    private static final long EMPTY = -1L;
+}
@@ -0,0 +1,265 @@
+package nus.cs4222.shootingapp.gesture.features;
+
+/**
+   Features of one sensor channel over a sliding time window (the
+   samples of the last 'windowDuration' nanosec), updated in O(1)
+   per sample.
+
+   <p> The samples are kept in primitive ring buffers. The mean,
+   variance and energy come from running sums (of the values minus a
+   shift close to the mean, so that the sum of squares does not lose
+   precision with gravity-sized values), which are recomputed from the
+   buffer once per 'capacity' samples to stop rounding errors from
+   accumulating (amortized O(1)). The min and max come from two
+   monotonic deques of sample numbers, so the samples leaving the
+   window are handled in O(1) amortized time too. The zero crossings
+   are counted as samples enter and leave the window.
+
+   <p> Not thread-safe (use from the processing thread only).
+ */
+public class SlidingWindowFeatures {
+
+    /**
+       Creates an empty window.
+
+       @param   windowDuration  Duration of the window (nanosec)
+       @param   capacity        Max number of samples in the window (the oldest 
+                                 samples are dropped beyond it, rounded up to a 
+                                 power of 2)
+     */
+    public SlidingWindowFeatures( long windowDuration , 
+                                  int capacity ) {
+        if( windowDuration <= 0L || capacity <= 0 ) {
+            throw new IllegalArgumentException( "Invalid window: " + windowDuration + " , " + capacity );
+        }
+        this.windowDuration = windowDuration;
+        int size = Integer.highestOneBit( Math.max( capacity , 2 ) - 1 ) << 1;
+        mask = size - 1;
+        timestamps = new long[ size ];
+        values = new float[ size ];
+        maxDeque = new long[ size ];
+        minDeque = new long[ size ];
+    }
+
+    /** Adds a sample (in timestamp order), dropping the samples that leave the window. */
+    public void add( long timestamp , 
+                     float value ) {
+
+        // Drop the samples older than the window, and make room for the new one
+        while( tail < head && 
+               ( timestamp - timestamps[ (int) ( tail & mask ) ] >= windowDuration || 
+                 head - tail > mask ) ) {
+            removeOldest();
+        }
+
+        // Append the sample
+        long number = head;
+        int slot = (int) ( number & mask );
+        timestamps[slot] = timestamp;
+        values[slot] = value;
+        ++head;
+        if( head - tail == 1L ) {
+            shift = value;
+            sum = 0.0;
+            sumSquares = 0.0;
+        }
+        double d = value - shift;
+        sum += d;
+        sumSquares += d * d;
+        if( head - tail > 1L && 
+            isNegative( values[ (int) ( ( number - 1L ) & mask ) ] ) != isNegative( value ) ) {
+            ++numZeroCrossings;
+        }
+
+        // Keep the deques decreasing (max) and increasing (min) from front to back
+        while( maxBack > maxFront && values[ (int) ( maxDeque[ (int) ( ( maxBack - 1L ) & mask ) ] & mask ) ] <= value ) {
+            --maxBack;
+        }
+        maxDeque[ (int) ( maxBack++ & mask ) ] = number;
+        while( minBack > minFront && values[ (int) ( minDeque[ (int) ( ( minBack - 1L ) & mask ) ] & mask ) ] >= value ) {
+            --minBack;
+        }
+        minDeque[ (int) ( minBack++ & mask ) ] = number;
+
+        // Recompute the sums once in a while (so rounding errors do not build up)
+        if( ++numSinceResync > mask ) {
+            resync();
+        }
+    }
+
+    /** Removes all samples. */
+    public void reset() {
+        head = tail = 0L;
+        maxFront = maxBack = 0L;
+        minFront = minBack = 0L;
+        shift = 0.0;
+        sum = 0.0;
+        sumSquares = 0.0;
+        numZeroCrossings = 0;
+        numSinceResync = 0;
+    }
+
+    /** Returns the number of samples in the window. */
+    public int size() {
+        return (int) ( head - tail );
+    }
+
+    /** Returns the mean (0 if empty). */
+    public double getMean() {
+        int n = size();
+        return ( n > 0 ) ? shift + sum / n : 0.0;
+    }
+
+    /** Returns the (population) variance (0 if empty). */
+    public double getVariance() {
+        int n = size();
+        if( n == 0 ) {
+            return 0.0;
+        }
+        double mean = sum / n;
+        return Math.max( 0.0 , sumSquares / n - mean * mean );
+    }
+
+    /** Returns the energy, i.e. the mean of the squared values (0 if empty). */
+    public double getEnergy() {
+        double mean = getMean();
+        return getVariance() + mean * mean;
+    }
+
+    /** Returns the smallest value (0 if empty). */
+    public float getMin() {
+        return ( minBack > minFront ) ? values[ (int) ( minDeque[ (int) ( minFront & mask ) ] & mask ) ] : 0.0F;
+    }
+
+    /** Returns the largest value (0 if empty). */
+    public float getMax() {
+        return ( maxBack > maxFront ) ? values[ (int) ( maxDeque[ (int) ( maxFront & mask ) ] & mask ) ] : 0.0F;
+    }
+
+    /** Returns the difference between the largest and smallest values (0 if empty). */
+    public float getPeakToPeak() {
+        return getMax() - getMin();
+    }
+
+    /** Returns the number of sign changes between consecutive samples. */
+    public int getNumZeroCrossings() {
+        return numZeroCrossings;
+    }
+
+    /**
+       Writes the NUM_FEATURES features (in the order of the FEATURE_*
+       indices) into an array.
+
+       @return  Offset after the features
+     */
+    public int getFeatures( float[] features , 
+                            int offset ) {
+        double mean = getMean();
+        double variance = getVariance();
+        float min = getMin() , max = getMax();
+        features[ offset + FEATURE_MEAN ] = (float) mean;
+        features[ offset + FEATURE_VARIANCE ] = (float) variance;
+        features[ offset + FEATURE_MIN ] = min;
+        features[ offset + FEATURE_MAX ] = max;
+        features[ offset + FEATURE_ENERGY ] = (float) ( variance + mean * mean );
+        features[ offset + FEATURE_ZERO_CROSSINGS ] = numZeroCrossings;
+        features[ offset + FEATURE_PEAK_TO_PEAK ] = max - min;
+        return offset + NUM_FEATURES;
+    }
+
+    /** Removes the oldest sample. */
+    private void removeOldest() {
+        long number = tail++;
+        float value = values[ (int) ( number & mask ) ];
+        double d = value - shift;
+        sum -= d;
+        sumSquares -= d * d;
+        if( tail < head && 
+            isNegative( value ) != isNegative( values[ (int) ( tail & mask ) ] ) ) {
+            --numZeroCrossings;
+        }
+        if( maxDeque[ (int) ( maxFront & mask ) ] == number ) {
+            ++maxFront;
+        }
+        if( minDeque[ (int) ( minFront & mask ) ] == number ) {
+            ++minFront;
+        }
+    }
+
+    /** Recomputes the sums from the samples in the window (shifted by their mean). */
+    private void resync() {
+        numSinceResync = 0;
+        shift = getMean();
+        sum = 0.0;
+        sumSquares = 0.0;
+        for( long number = tail ; number < head ; ++number ) {
+            double d = values[ (int) ( number & mask ) ] - shift;
+            sum += d;
+            sumSquares += d * d;
+        }
+    }
+
+    /** Sign used for the zero crossings (0 counts as positive). */
+    private static boolean isNegative( float value ) {
+        return value < 0.0F;
+    }
+
+    // Feature indices (see getFeatures())
+    /** Mean. */
+    public static final int FEATURE_MEAN = 0;
+    /** Variance. */
+    public static final int FEATURE_VARIANCE = 1;
+    /** Min. */
+    public static final int FEATURE_MIN = 2;
+    /** Max. */
+    public static final int FEATURE_MAX = 3;
+    /** Energy (mean of the squares). */
+    public static final int FEATURE_ENERGY = 4;
+    /** Number of zero crossings. */
+    public static final int FEATURE_ZERO_CROSSINGS = 5;
+    /** Peak-to-peak (max - min). */
+    public static final int FEATURE_PEAK_TO_PEAK = 6;
+    /** Number of features per channel. */
+    public static final int NUM_FEATURES = 7;
+
+    /** Duration of the window (nanosec). */
+    private final long windowDuration;
+    /** Mask to convert a sample number to a slot (capacity - 1). */
+    private final int mask;
+
+    // Samples (numbered from 0 since the reset, slot = number & mask)
+    /** Timestamp of each sample (nanosec). */
+    private final long[] timestamps;
+    /** Value of each sample. */
+    private final float[] values;
+    /** Number of the next sample. */
+    private long head;
+    /** Number of the oldest sample in the window. */
+    private long tail;
+
+    // Running sums
+    /** Value subtracted before summing (close to the mean). */
+    private double shift;
+    /** Sum of the shifted values. */
+    private double sum;
+    /** Sum of the squared shifted values. */
+    private double sumSquares;
+    /** Number of samples added since the sums were recomputed. */
+    private int numSinceResync;
+    /** Number of sign changes between consecutive samples in the window. */
+    private int numZeroCrossings;
+
+    // Monotonic deques of sample numbers (front = oldest)
+    /** Samples that may become the max (decreasing values). */
+    private final long[] maxDeque;
+    /** Front position of the max deque. */
+    private long maxFront;
+    /** Back position of the max deque. */
+    private long maxBack;
+    /** Samples that may become the min (increasing values). */
+    private final long[] minDeque;
+    /** Front position of the min deque. */
+    private long minFront;
+    /** Back position of the min deque. */
+    private long minBack;
+}
@@ -0,0 +1,105 @@
+package nus.cs4222.shootingapp.gesture.features;
+
+import nus.cs4222.shootingapp.gesture.AlignedSampleListener;
+import nus.cs4222.shootingapp.gesture.SampleBatch;
+
+/**
+   Sliding window features of the linear accl and gravity (one
+   SlidingWindowFeatures per axis), updated per aligned sample and
+   written into a feature vector on demand.
+
+   <p> The feature vector holds NUM_FEATURES values: the features of
+   each channel (in the order of the CHANNEL_* indices), each in the
+   order of the SlidingWindowFeatures.FEATURE_* indices (see
+   getFeatureIndex()).
+ */
+public class WindowFeatureExtractor 
+    implements AlignedSampleListener {
+
+    /**
+       Creates an extractor.
+
+       @param   windowDuration  Duration of the window (nanosec)
+       @param   capacity        Max number of samples in the window
+     */
+    public WindowFeatureExtractor( long windowDuration , 
+                                   int capacity ) {
+        channels = new SlidingWindowFeatures[ NUM_CHANNELS ];
+        for( int i = 0 ; i < NUM_CHANNELS ; ++i ) {
+            channels[i] = new SlidingWindowFeatures( windowDuration , capacity );
+        }
+    }
+
+    /** Adds an aligned sample to the window of each channel. */
+    @Override
+    public void onAlignedSample( long timestamp , 
+                                 float ax , 
+                                 float ay , 
+                                 float az , 
+                                 float gx , 
+                                 float gy , 
+                                 float gz ) {
+        channels[ CHANNEL_ACCL_X ].add( timestamp , ax );
+        channels[ CHANNEL_ACCL_Y ].add( timestamp , ay );
+        channels[ CHANNEL_ACCL_Z ].add( timestamp , az );
+        channels[ CHANNEL_GRAVITY_X ].add( timestamp , gx );
+        channels[ CHANNEL_GRAVITY_Y ].add( timestamp , gy );
+        channels[ CHANNEL_GRAVITY_Z ].add( timestamp , gz );
+    }
+
+    /** Adds the samples of a batch (all of them, face up or not). */
+    public void onBatch( SampleBatch batch ) {
+        for( int i = 0 ; i < batch.size() ; ++i ) {
+            onAlignedSample( batch.timestamps[i] , 
+                             batch.ax[i] , batch.ay[i] , batch.az[i] , 
+                             batch.gx[i] , batch.gy[i] , batch.gz[i] );
+        }
+    }
+
+    /** Removes all samples. */
+    public void reset() {
+        for( SlidingWindowFeatures channel : channels ) {
+            channel.reset();
+        }
+    }
+
+    /** Writes the features of the current window (NUM_FEATURES values) into an array. */
+    public void getFeatureVector( float[] features ) {
+        int offset = 0;
+        for( SlidingWindowFeatures channel : channels ) {
+            offset = channel.getFeatures( features , offset );
+        }
+    }
+
+    /** Returns the features of one channel (see CHANNEL_*). */
+    public SlidingWindowFeatures getChannel( int channel ) {
+        return channels[ channel ];
+    }
+
+    /** Returns the index in the feature vector of a feature (FEATURE_*) of a channel (CHANNEL_*). */
+    public static int getFeatureIndex( int channel , 
+                                       int feature ) {
+        return channel * SlidingWindowFeatures.NUM_FEATURES + feature;
+    }
+
+    /** Window of each channel. */
+    private final SlidingWindowFeatures[] channels;
+
+    // Channels
+    /** Linear accl along the phone's x-axis. */
+    public static final int CHANNEL_ACCL_X = 0;
+    /** Linear accl along the phone's y-axis. */
+    public static final int CHANNEL_ACCL_Y = 1;
+    /** Linear accl along the phone's z-axis. */
+    public static final int CHANNEL_ACCL_Z = 2;
+    /** Gravity along the phone's x-axis. */
+    public static final int CHANNEL_GRAVITY_X = 3;
+    /** Gravity along the phone's y-axis. */
+    public static final int CHANNEL_GRAVITY_Y = 4;
+    /** Gravity along the phone's z-axis. */
+    public static final int CHANNEL_GRAVITY_Z = 5;
+    /** Number of channels. */
+    public static final int NUM_CHANNELS = 6;
+    /** Number of values in a feature vector. */
+    public static final int NUM_FEATURES = NUM_CHANNELS * SlidingWindowFeatures.NUM_FEATURES;
+}
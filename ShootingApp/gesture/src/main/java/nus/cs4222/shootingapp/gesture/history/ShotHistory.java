@@ -0,0 +1,117 @@
+package nus.cs4222.shootingapp.gesture.history;
+
+/**
+   Binary format of a shot history file: an append-only log of all the
+   shots made, kept across sessions.
+
+   <p> The shots are stored in fixed-size blocks, each holding one
+   array per value (columns), so a query only reads the columns it
+   needs. Each block header has the min and max of each value in the
+   block, so a query skips the blocks that cannot match, and counts
+   the blocks that wholly match without reading their columns. All in
+   little-endian byte order:
+
+   <pre>
+   Header (32 bytes):
+     int    magic           ('SHST')
+     int    version
+     int    block capacity  (number of shots per block)
+     (padding)
+   Block (64 + 21 * capacity bytes):
+     int    number of shots in the block (the last block may be partly filled)
+     int    region mask     (bit r set if the block has a shot in region r)
+     long   min time , max time               (millisec since the epoch)
+     float  min peak force , max peak force   (m/sec^2)
+     float  min direction , max direction     (deg)
+     int    min latency , max latency         (microsec)
+     (padding to 64 bytes)
+     long   time[ capacity ]
+     byte   region[ capacity ]
+     float  direction[ capacity ]
+     float  peak force[ capacity ]
+     int    latency[ capacity ]               (detection latency)
+   </pre>
+
+   <p> A block is always written as a whole, with its number of shots,
+   so a history whose writer was killed ends with the shots of its
+   last complete write.
+ */
+public final class ShotHistory {
+
+    /** Not instantiable. */
+    private ShotHistory() {
+    }
+
+    /** Returns the size of a block (bytes). */
+    public static int getBlockSize( int blockCapacity ) {
+        return BLOCK_HEADER_SIZE + SHOT_SIZE * blockCapacity;
+    }
+
+    /** Returns the offset of the time column in a block. */
+    static int getTimeOffset( int blockCapacity ) {
+        return BLOCK_HEADER_SIZE;
+    }
+
+    /** Returns the offset of the region column in a block. */
+    static int getRegionOffset( int blockCapacity ) {
+        return getTimeOffset( blockCapacity ) + 8 * blockCapacity;
+    }
+
+    /** Returns the offset of the direction column in a block. */
+    static int getDirectionOffset( int blockCapacity ) {
+        return getRegionOffset( blockCapacity ) + blockCapacity;
+    }
+
+    /** Returns the offset of the peak force column in a block. */
+    static int getPeakForceOffset( int blockCapacity ) {
+        return getDirectionOffset( blockCapacity ) + 4 * blockCapacity;
+    }
+
+    /** Returns the offset of the latency column in a block. */
+    static int getLatencyOffset( int blockCapacity ) {
+        return getPeakForceOffset( blockCapacity ) + 4 * blockCapacity;
+    }
+
+    /** Magic number at the start of a shot history file. */
+    public static final int MAGIC = 0x54534853;
+    /** Version of the shot history format. */
+    public static final int VERSION = 1;
+    /** Size of the file header (bytes). */
+    public static final int HEADER_SIZE = 32;
+    /** Default number of shots per block. */
+    public static final int DEFAULT_BLOCK_CAPACITY = 1024;
+    /** Largest shooting region that can be stored (the region mask has 32 bits). */
+    public static final int MAX_REGION = 31;
+
+    /** Offset of the magic number in the header. */
+    static final int HEADER_MAGIC_OFFSET = 0;
+    /** Offset of the version in the header. */
+    static final int HEADER_VERSION_OFFSET = 4;
+    /** Offset of the block capacity in the header. */
+    static final int HEADER_BLOCK_CAPACITY_OFFSET = 8;
+
+    /** Size of a block header (bytes). */
+    static final int BLOCK_HEADER_SIZE = 64;
+    /** Size of the values of one shot (bytes). */
+    static final int SHOT_SIZE = 8 + 1 + 4 + 4 + 4;
+    /** Offset of the number of shots in a block header. */
+    static final int BLOCK_COUNT_OFFSET = 0;
+    /** Offset of the region mask in a block header. */
+    static final int BLOCK_REGION_MASK_OFFSET = 4;
+    /** Offset of the min time in a block header. */
+    static final int BLOCK_MIN_TIME_OFFSET = 8;
+    /** Offset of the max time in a block header. */
+    static final int BLOCK_MAX_TIME_OFFSET = 16;
+    /** Offset of the min peak force in a block header. */
+    static final int BLOCK_MIN_FORCE_OFFSET = 24;
+    /** Offset of the max peak force in a block header. */
+    static final int BLOCK_MAX_FORCE_OFFSET = 28;
+    /** Offset of the min direction in a block header. */
+    static final int BLOCK_MIN_DIRECTION_OFFSET = 32;
+    /** Offset of the max direction in a block header. */
+    static final int BLOCK_MAX_DIRECTION_OFFSET = 36;
+    /** Offset of the min latency in a block header. */
+    static final int BLOCK_MIN_LATENCY_OFFSET = 40;
+    /** Offset of the max latency in a block header. */
+    static final int BLOCK_MAX_LATENCY_OFFSET = 44;
+}
@@ -0,0 +1,339 @@
+package nus.cs4222.shootingapp.gesture.history;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import nus.cs4222.shootingapp.gesture.stats.LatencyHistogram;
+
+/**
+   Aggregate queries over a shot history file (see ShotHistory for the
+   format), over a range of time.
+
+   <p> The file is memory-mapped read-only, so only the pages that a
+   query reads are loaded: the block headers, and the columns it needs
+   of the blocks that the min/max index cannot settle. A block outside
+   the time range is skipped, and a block inside it whose index gives
+   the answer (e.g. all its shots in one region, or above the min
+   force) is counted from its header alone.
+
+   <p> The reader sees the shots written before it was opened. Queries
+   create no objects.
+ */
+public class ShotHistoryReader
+    implements Closeable {
+
+    /** Opens a history file. */
+    public ShotHistoryReader( File file )
+        throws IOException {
+
+        randomAccessFile = new RandomAccessFile( file , "r" );
+        try {
+
+            // Map the whole file
+            FileChannel channel = randomAccessFile.getChannel();
+            long fileSize = channel.size();
+            if( fileSize < ShotHistory.HEADER_SIZE ) {
+                throw new IOException( "Shot history file is too short: " + file );
+            }
+            else if( fileSize > Integer.MAX_VALUE ) {
+                throw new IOException( "Shot history file is too large to map: " + file );
+            }
+            buffer = channel.map( FileChannel.MapMode.READ_ONLY , 0L , fileSize );
+            buffer.order( ByteOrder.LITTLE_ENDIAN );
+
+            // Check the header
+            if( buffer.getInt( ShotHistory.HEADER_MAGIC_OFFSET ) != ShotHistory.MAGIC ) {
+                throw new IOException( "Not a shot history file: " + file );
+            }
+            int version = buffer.getInt( ShotHistory.HEADER_VERSION_OFFSET );
+            if( version != ShotHistory.VERSION ) {
+                throw new IOException( "Unsupported shot history version " + version + ": " + file );
+            }
+            blockCapacity = buffer.getInt( ShotHistory.HEADER_BLOCK_CAPACITY_OFFSET );
+            if( blockCapacity <= 0 ) {
+                throw new IOException( "Invalid block capacity " + blockCapacity + ": " + file );
+            }
+            blockSize = ShotHistory.getBlockSize( blockCapacity );
+
+            // Count the shots (of the complete blocks)
+            numBlocks = (int) ( ( fileSize - ShotHistory.HEADER_SIZE ) / blockSize );
+            long count = 0L;
+            for( int b = 0 ; b < numBlocks ; ++b ) {
+                count += getCount( b );
+            }
+            numShots = count;
+        }
+        catch( IOException e ) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /** Returns the number of shots in the history. */
+    public long size() {
+        return numShots;
+    }
+
+    /** Returns the number of blocks in the history. */
+    public int getNumBlocks() {
+        return numBlocks;
+    }
+
+    /** Returns the number of blocks whose columns were read by the last query. */
+    public int getNumBlocksScanned() {
+        return numBlocksScanned;
+    }
+
+    /** Returns the time of the first shot (millisec since the epoch, Long.MAX_VALUE if none). */
+    public long getMinTime() {
+        long minTime = Long.MAX_VALUE;
+        for( int b = 0 ; b < numBlocks ; ++b ) {
+            if( getCount( b ) > 0 ) {
+                minTime = Math.min( minTime , buffer.getLong( blockOffset( b ) + ShotHistory.BLOCK_MIN_TIME_OFFSET ) );
+            }
+        }
+        return minTime;
+    }
+
+    /**
+       Counts the shots in a time range with at least a min peak force.
+
+       @param   fromTime  Start of the time range (millisec since the epoch, inclusive)
+       @param   toTime    End of the time range (exclusive)
+       @param   minForce  Min peak force (m/sec^2)
+       @return  Number of shots
+     */
+    public long count( long fromTime ,
+                       long toTime ,
+                       float minForce ) {
+        numBlocksScanned = 0;
+        long total = 0L;
+        for( int b = 0 ; b < numBlocks ; ++b ) {
+            int match = matchTime( b , fromTime , toTime );
+            int offset = blockOffset( b );
+            if( match == MATCH_NONE ||
+                buffer.getFloat( offset + ShotHistory.BLOCK_MAX_FORCE_OFFSET ) < minForce ) {
+                continue;
+            }
+            int count = getCount( b );
+            if( match == MATCH_ALL &&
+                buffer.getFloat( offset + ShotHistory.BLOCK_MIN_FORCE_OFFSET ) >= minForce ) {
+                total += count;
+                continue;
+            }
+            ++numBlocksScanned;
+            int timeOffset = offset + ShotHistory.getTimeOffset( blockCapacity );
+            int forceOffset = offset + ShotHistory.getPeakForceOffset( blockCapacity );
+            for( int i = 0 ; i < count ; ++i ) {
+                if( buffer.getFloat( forceOffset + 4 * i ) >= minForce &&
+                    ( match == MATCH_ALL || isInRange( buffer.getLong( timeOffset + 8 * i ) , fromTime , toTime ) ) ) {
+                    ++total;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+       Counts the shots in each shooting region over a time range.
+
+       @param   fromTime  Start of the time range (millisec since the epoch, inclusive)
+       @param   toTime    End of the time range (exclusive)
+       @param   counts    Receives the number of shots of each region (added to,
+                           at least ShotHistory.MAX_REGION + 1 long)
+       @return  Number of shots in the time range
+     */
+    public long countByRegion( long fromTime ,
+                               long toTime ,
+                               long[] counts ) {
+        numBlocksScanned = 0;
+        long total = 0L;
+        for( int b = 0 ; b < numBlocks ; ++b ) {
+            int match = matchTime( b , fromTime , toTime );
+            if( match == MATCH_NONE ) {
+                continue;
+            }
+            int offset = blockOffset( b );
+            int count = getCount( b );
+
+            // All the shots of the block in one region
+            int regionMask = buffer.getInt( offset + ShotHistory.BLOCK_REGION_MASK_OFFSET );
+            if( match == MATCH_ALL && Integer.bitCount( regionMask ) == 1 ) {
+                counts[ Integer.numberOfTrailingZeros( regionMask ) ] += count;
+                total += count;
+                continue;
+            }
+            ++numBlocksScanned;
+            int timeOffset = offset + ShotHistory.getTimeOffset( blockCapacity );
+            int regionOffset = offset + ShotHistory.getRegionOffset( blockCapacity );
+            for( int i = 0 ; i < count ; ++i ) {
+                if( match == MATCH_ALL || isInRange( buffer.getLong( timeOffset + 8 * i ) , fromTime , toTime ) ) {
+                    ++counts[ buffer.get( regionOffset + i ) ];
+                    ++total;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+       Counts the shots in each bin of peak force over a time range.
+
+       @param   fromTime  Start of the time range (millisec since the epoch, inclusive)
+       @param   toTime    End of the time range (exclusive)
+       @param   binWidth  Width of each bin (m/sec^2, bin k is k*binWidth .. (k+1)*binWidth,
+                           the last bin also has the higher forces)
+       @param   counts    Receives the number of shots of each bin (added to)
+       @return  Number of shots in the time range
+     */
+    public long forceHistogram( long fromTime ,
+                                long toTime ,
+                                float binWidth ,
+                                long[] counts ) {
+        if( ! ( binWidth > 0.0F ) ) {
+            throw new IllegalArgumentException( "Bin width must be above 0: " + binWidth );
+        }
+        numBlocksScanned = 0;
+        long total = 0L;
+        for( int b = 0 ; b < numBlocks ; ++b ) {
+            int match = matchTime( b , fromTime , toTime );
+            if( match == MATCH_NONE ) {
+                continue;
+            }
+            int offset = blockOffset( b );
+            int count = getCount( b );
+
+            // All the shots of the block in one bin
+            int minBin = getBin( buffer.getFloat( offset + ShotHistory.BLOCK_MIN_FORCE_OFFSET ) , binWidth , counts.length );
+            int maxBin = getBin( buffer.getFloat( offset + ShotHistory.BLOCK_MAX_FORCE_OFFSET ) , binWidth , counts.length );
+            if( match == MATCH_ALL && minBin == maxBin ) {
+                counts[ minBin ] += count;
+                total += count;
+                continue;
+            }
+            ++numBlocksScanned;
+            int timeOffset = offset + ShotHistory.getTimeOffset( blockCapacity );
+            int forceOffset = offset + ShotHistory.getPeakForceOffset( blockCapacity );
+            for( int i = 0 ; i < count ; ++i ) {
+                if( match == MATCH_ALL || isInRange( buffer.getLong( timeOffset + 8 * i ) , fromTime , toTime ) ) {
+                    ++counts[ getBin( buffer.getFloat( forceOffset + 4 * i ) , binWidth , counts.length ) ];
+                    ++total;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+       Records the detection latencies of the shots over a time range
+       (for their percentiles).
+
+       @param   fromTime   Start of the time range (millisec since the epoch, inclusive)
+       @param   toTime     End of the time range (exclusive)
+       @param   histogram  Receives the latencies (nanosec, to the stored microsec)
+       @return  Number of shots in the time range
+     */
+    public long latencies( long fromTime ,
+                           long toTime ,
+                           LatencyHistogram histogram ) {
+        numBlocksScanned = 0;
+        long total = 0L;
+        for( int b = 0 ; b < numBlocks ; ++b ) {
+            int match = matchTime( b , fromTime , toTime );
+            if( match == MATCH_NONE ) {
+                continue;
+            }
+            ++numBlocksScanned;
+            int offset = blockOffset( b );
+            int count = getCount( b );
+            int timeOffset = offset + ShotHistory.getTimeOffset( blockCapacity );
+            int latencyOffset = offset + ShotHistory.getLatencyOffset( blockCapacity );
+            for( int i = 0 ; i < count ; ++i ) {
+                if( match == MATCH_ALL || isInRange( buffer.getLong( timeOffset + 8 * i ) , fromTime , toTime ) ) {
+                    histogram.record( buffer.getInt( latencyOffset + 4 * i ) * 1000L );
+                    ++total;
+                }
+            }
+        }
+        return total;
+    }
+
+    /** Closes the history file. */
+    @Override
+    public void close()
+        throws IOException {
+        randomAccessFile.close();
+    }
+
+    /** Checks how the shots of a block fall in a time range (MATCH_*, from the block's min/max). */
+    private int matchTime( int block ,
+                           long fromTime ,
+                           long toTime ) {
+        int offset = blockOffset( block );
+        if( getCount( block ) == 0 ) {
+            return MATCH_NONE;
+        }
+        long minTime = buffer.getLong( offset + ShotHistory.BLOCK_MIN_TIME_OFFSET );
+        long maxTime = buffer.getLong( offset + ShotHistory.BLOCK_MAX_TIME_OFFSET );
+        if( maxTime < fromTime || minTime >= toTime ) {
+            return MATCH_NONE;
+        }
+        else if( minTime >= fromTime && maxTime < toTime ) {
+            return MATCH_ALL;
+        }
+        return MATCH_SOME;
+    }
+
+    /** Returns the number of shots in a block. */
+    private int getCount( int block ) {
+        int count = buffer.getInt( blockOffset( block ) + ShotHistory.BLOCK_COUNT_OFFSET );
+        return Math.max( 0 , Math.min( count , blockCapacity ) );
+    }
+
+    /** Returns the file offset of a block. */
+    private int blockOffset( int block ) {
+        return ShotHistory.HEADER_SIZE + block * blockSize;
+    }
+
+    /** Checks whether a time is in a range. */
+    private static boolean isInRange( long time ,
+                                      long fromTime ,
+                                      long toTime ) {
+        return time >= fromTime && time < toTime;
+    }
+
+    /** Returns the bin of a force (0 .. numBins-1). */
+    private static int getBin( float force ,
+                               float binWidth ,
+                               int numBins ) {
+        int bin = (int) ( force / binWidth );
+        return ( bin < 0 ) ? 0 : ( bin >= numBins ) ? numBins - 1 : bin;
+    }
+
+    /** No shot of the block is in the time range. */
+    private static final int MATCH_NONE = 0;
+    /** Some shots of the block may be in the time range. */
+    private static final int MATCH_SOME = 1;
+    /** All the shots of the block are in the time range. */
+    private static final int MATCH_ALL = 2;
+
+    /** History file. */
+    private final RandomAccessFile randomAccessFile;
+    /** Mapping of the whole file. */
+    private final MappedByteBuffer buffer;
+    /** Number of shots per block. */
+    private final int blockCapacity;
+    /** Size of a block (bytes). */
+    private final int blockSize;
+    /** Number of complete blocks. */
+    private final int numBlocks;
+    /** Number of shots in the history. */
+    private final long numShots;
+    /** Number of blocks whose columns were read by the last query. */
+    private int numBlocksScanned;
+}
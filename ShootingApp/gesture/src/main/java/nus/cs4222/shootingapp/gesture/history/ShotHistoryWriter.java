@@ -0,0 +1,268 @@
+package nus.cs4222.shootingapp.gesture.history;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+   Appends shots to a shot history file (see ShotHistory for the
+   format), after the shots of the previous sessions.
+
+   <p> The block being filled is kept in memory, with its min/max
+   index updated on each append, and is only written to the file by
+   flush() (or when it is full). So appending a shot creates no
+   objects and does no system call, and the caller decides how the
+   writes are batched.
+
+   <p> Not thread-safe: all methods must be called from the same
+   (background) thread.
+ */
+public class ShotHistoryWriter
+    implements Closeable {
+
+    /** Opens a history file with the default block capacity, creating it if required. */
+    public ShotHistoryWriter( File file )
+        throws IOException {
+        this( file , ShotHistory.DEFAULT_BLOCK_CAPACITY );
+    }
+
+    /**
+       Opens a history file, creating it if required.
+
+       @param   file           History file (appended to if it exists)
+       @param   blockCapacity  Number of shots per block of a new file (an
+                                existing file keeps its own)
+     */
+    public ShotHistoryWriter( File file ,
+                              int blockCapacity )
+        throws IOException {
+
+        randomAccessFile = new RandomAccessFile( file , "rw" );
+        try {
+            channel = randomAccessFile.getChannel();
+            ByteBuffer header = ByteBuffer.allocate( ShotHistory.HEADER_SIZE );
+            header.order( ByteOrder.LITTLE_ENDIAN );
+            long fileSize = channel.size();
+            if( fileSize == 0L ) {
+
+                // New file: write the header
+                if( blockCapacity <= 0 ) {
+                    throw new IllegalArgumentException( "Invalid block capacity: " + blockCapacity );
+                }
+                header.putInt( ShotHistory.HEADER_MAGIC_OFFSET , ShotHistory.MAGIC );
+                header.putInt( ShotHistory.HEADER_VERSION_OFFSET , ShotHistory.VERSION );
+                header.putInt( ShotHistory.HEADER_BLOCK_CAPACITY_OFFSET , blockCapacity );
+                writeFully( header , 0L );
+            }
+            else {
+
+                // Existing file: check the header
+                readFully( header , 0L );
+                if( header.getInt( ShotHistory.HEADER_MAGIC_OFFSET ) != ShotHistory.MAGIC ) {
+                    throw new IOException( "Not a shot history file: " + file );
+                }
+                int version = header.getInt( ShotHistory.HEADER_VERSION_OFFSET );
+                if( version != ShotHistory.VERSION ) {
+                    throw new IOException( "Unsupported shot history version " + version + ": " + file );
+                }
+                blockCapacity = header.getInt( ShotHistory.HEADER_BLOCK_CAPACITY_OFFSET );
+            }
+            this.blockCapacity = blockCapacity;
+            blockSize = ShotHistory.getBlockSize( blockCapacity );
+            block = ByteBuffer.allocate( blockSize );
+            block.order( ByteOrder.LITTLE_ENDIAN );
+
+            // Continue the last block if it is not full (a partly written
+            //  block at the end is dropped)
+            long numBlocks = ( fileSize - ShotHistory.HEADER_SIZE ) / blockSize;
+            if( fileSize == 0L || numBlocks == 0L ) {
+                blockIndex = 0L;
+                clearBlock();
+            }
+            else {
+                blockIndex = numBlocks - 1L;
+                readFully( block , blockOffset() );
+                numInBlock = Math.min( block.getInt( ShotHistory.BLOCK_COUNT_OFFSET ) , blockCapacity );
+                numShots = blockIndex * blockCapacity + numInBlock;
+                if( numInBlock == blockCapacity ) {
+                    ++blockIndex;
+                    clearBlock();
+                }
+            }
+        }
+        catch( IOException e ) {
+            randomAccessFile.close();
+            throw e;
+        }
+        catch( RuntimeException e ) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+       Appends a shot (written by the next flush, or when its block is
+       full).
+
+       @param   time       Time of the shot (millisec since the epoch)
+       @param   region     Shooting region (0 .. ShotHistory.MAX_REGION)
+       @param   direction  Shooting direction (deg)
+       @param   peakForce  Peak linear accl of the gesture (m/sec^2)
+       @param   latency    Detection latency (nanosec)
+     */
+    public void append( long time ,
+                        int region ,
+                        float direction ,
+                        float peakForce ,
+                        long latency )
+        throws IOException {
+
+        if( region < 0 || region > ShotHistory.MAX_REGION ) {
+            throw new IllegalArgumentException( "Invalid shooting region: " + region );
+        }
+        int latencyMicrosec = (int) Math.min( Integer.MAX_VALUE , Math.max( 0L , latency / 1000L ) );
+
+        // Values into the columns
+        int i = numInBlock;
+        block.putLong( ShotHistory.getTimeOffset( blockCapacity ) + 8 * i , time );
+        block.put( ShotHistory.getRegionOffset( blockCapacity ) + i , (byte) region );
+        block.putFloat( ShotHistory.getDirectionOffset( blockCapacity ) + 4 * i , direction );
+        block.putFloat( ShotHistory.getPeakForceOffset( blockCapacity ) + 4 * i , peakForce );
+        block.putInt( ShotHistory.getLatencyOffset( blockCapacity ) + 4 * i , latencyMicrosec );
+
+        // Min/max index of the block
+        if( i == 0 ) {
+            block.putLong( ShotHistory.BLOCK_MIN_TIME_OFFSET , time );
+            block.putLong( ShotHistory.BLOCK_MAX_TIME_OFFSET , time );
+            block.putFloat( ShotHistory.BLOCK_MIN_FORCE_OFFSET , peakForce );
+            block.putFloat( ShotHistory.BLOCK_MAX_FORCE_OFFSET , peakForce );
+            block.putFloat( ShotHistory.BLOCK_MIN_DIRECTION_OFFSET , direction );
+            block.putFloat( ShotHistory.BLOCK_MAX_DIRECTION_OFFSET , direction );
+            block.putInt( ShotHistory.BLOCK_MIN_LATENCY_OFFSET , latencyMicrosec );
+            block.putInt( ShotHistory.BLOCK_MAX_LATENCY_OFFSET , latencyMicrosec );
+        }
+        else {
+            block.putLong( ShotHistory.BLOCK_MIN_TIME_OFFSET , Math.min( time , block.getLong( ShotHistory.BLOCK_MIN_TIME_OFFSET ) ) );
+            block.putLong( ShotHistory.BLOCK_MAX_TIME_OFFSET , Math.max( time , block.getLong( ShotHistory.BLOCK_MAX_TIME_OFFSET ) ) );
+            block.putFloat( ShotHistory.BLOCK_MIN_FORCE_OFFSET , Math.min( peakForce , block.getFloat( ShotHistory.BLOCK_MIN_FORCE_OFFSET ) ) );
+            block.putFloat( ShotHistory.BLOCK_MAX_FORCE_OFFSET , Math.max( peakForce , block.getFloat( ShotHistory.BLOCK_MAX_FORCE_OFFSET ) ) );
+            block.putFloat( ShotHistory.BLOCK_MIN_DIRECTION_OFFSET , Math.min( direction , block.getFloat( ShotHistory.BLOCK_MIN_DIRECTION_OFFSET ) ) );
+            block.putFloat( ShotHistory.BLOCK_MAX_DIRECTION_OFFSET , Math.max( direction , block.getFloat( ShotHistory.BLOCK_MAX_DIRECTION_OFFSET ) ) );
+            block.putInt( ShotHistory.BLOCK_MIN_LATENCY_OFFSET , Math.min( latencyMicrosec , block.getInt( ShotHistory.BLOCK_MIN_LATENCY_OFFSET ) ) );
+            block.putInt( ShotHistory.BLOCK_MAX_LATENCY_OFFSET , Math.max( latencyMicrosec , block.getInt( ShotHistory.BLOCK_MAX_LATENCY_OFFSET ) ) );
+        }
+        block.putInt( ShotHistory.BLOCK_REGION_MASK_OFFSET ,
+                      block.getInt( ShotHistory.BLOCK_REGION_MASK_OFFSET ) | ( 1 << region ) );
+        ++numInBlock;
+        block.putInt( ShotHistory.BLOCK_COUNT_OFFSET , numInBlock );
+        ++numShots;
+        ++numPending;
+
+        // Write the block when full, and start the next one
+        if( numInBlock == blockCapacity ) {
+            flush();
+            ++blockIndex;
+            clearBlock();
+        }
+    }
+
+    /** Writes the shots appended since the last flush (one write of the block being filled). */
+    public void flush()
+        throws IOException {
+        if( numPending == 0 ) {
+            return;
+        }
+        writeFully( block , blockOffset() );
+        numPending = 0;
+        ++numWrites;
+    }
+
+    /** Returns the number of shots in the history (written or not). */
+    public long size() {
+        return numShots;
+    }
+
+    /** Returns the number of shots appended since the last flush. */
+    public int getNumPending() {
+        return numPending;
+    }
+
+    /** Returns the number of block writes done. */
+    public long getNumWrites() {
+        return numWrites;
+    }
+
+    /** Writes the pending shots to the storage, and closes the file. */
+    @Override
+    public void close()
+        throws IOException {
+        try {
+            flush();
+            channel.force( true );
+        }
+        finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /** Clears the block being filled. */
+    private void clearBlock() {
+        Arrays.fill( block.array() , (byte) 0 );
+        numInBlock = 0;
+    }
+
+    /** Returns the file offset of the block being filled. */
+    private long blockOffset() {
+        return ShotHistory.HEADER_SIZE + blockIndex * blockSize;
+    }
+
+    /** Writes the whole buffer at a file position. */
+    private void writeFully( ByteBuffer buffer ,
+                             long position )
+        throws IOException {
+        buffer.clear();
+        while( buffer.hasRemaining() ) {
+            position += channel.write( buffer , position );
+        }
+    }
+
+    /** Reads the whole buffer from a file position. */
+    private void readFully( ByteBuffer buffer ,
+                            long position )
+        throws IOException {
+        buffer.clear();
+        while( buffer.hasRemaining() ) {
+            int numRead = channel.read( buffer , position );
+            if( numRead < 0 ) {
+                throw new IOException( "Unexpected end of the shot history file" );
+            }
+            position += numRead;
+        }
+    }
+
+    /** History file. */
+    private final RandomAccessFile randomAccessFile;
+    /** Channel of the history file. */
+    private final FileChannel channel;
+    /** Number of shots per block. */
+    private final int blockCapacity;
+    /** Size of a block (bytes). */
+    private final int blockSize;
+    /** Block being filled. */
+    private final ByteBuffer block;
+    /** Index of the block being filled. */
+    private long blockIndex;
+    /** Number of shots in the block being filled. */
+    private int numInBlock;
+    /** Number of shots in the history. */
+    private long numShots;
+    /** Number of shots appended since the last flush. */
+    private int numPending;
+    /** Number of block writes done. */
+    private long numWrites;
+}
@@ -0,0 +1,95 @@
+package nus.cs4222.shootingapp.gesture.math;
+
+/**
+   Table-based inverse trig functions, in degrees.
+
+   <p> The sensor code only needs angles to about 0.01 deg (for the
+   display and for the shooting direction), so full-precision
+   Math.atan2 / Math.acos / Math.toDegrees calls are wasted effort.
+   Here atan is read from a small table (with linear interpolation)
+   after reducing the argument to [0, 1], and the other functions are
+   derived from it.
+
+   <p> Max absolute error (checked by FastMathTest): 1e-4 deg for
+   atan2Deg and acosDeg (for float inputs). The table has
+   ATAN_TABLE_SIZE + 1 floats, and the functions create no objects.
+ */
+public final class FastMath {
+
+    /** Not instantiable. */
+    private FastMath() {
+    }
+
+    /**
+       Returns the angle of the point (x, y) from the x-axis, as
+       Math.toDegrees( Math.atan2( y , x ) ).
+
+       @return  Angle (deg, in the range -180 .. 180), 0 for (0, 0)
+     */
+    public static float atan2Deg( float y , 
+                                  float x ) {
+
+        // Reduce to the first octant (ratio in [0, 1])
+        float absX = Math.abs( x ) , absY = Math.abs( y );
+        float angle;
+        if( absX >= absY ) {
+            if( absX == 0.0F ) {
+                return 0.0F;
+            }
+            angle = atanDeg01( absY / absX );
+        }
+        else {
+            angle = 90.0F - atanDeg01( absX / absY );
+        }
+
+        // Restore the quadrant
+        if( x < 0.0F ) {
+            angle = 180.0F - angle;
+        }
+        return ( y < 0.0F ) ? -angle : angle;
+    }
+
+    /**
+       Returns the angle whose cosine is the value, as
+       Math.toDegrees( Math.acos( value ) ).
+
+       @param   value  Cosine (clamped to -1 .. 1)
+       @return  Angle (deg, in the range 0 .. 180)
+     */
+    public static float acosDeg( float value ) {
+
+        // Clamp the cos value to [-1,1]
+        if( value > 1.0F ) {
+            value = 1.0F;
+        }
+        else if( value < -1.0F ) {
+            value = -1.0F;
+        }
+
+        // acos(c) = atan2(sin, c), which avoids the steep slope of acos near +-1
+        float sine = (float) Math.sqrt( ( 1.0F - value ) * ( 1.0F + value ) );
+        return atan2Deg( sine , value );
+    }
+
+    /** Returns atan(ratio) in deg, for a ratio in [0, 1]. */
+    private static float atanDeg01( float ratio ) {
+        float position = ratio * ATAN_TABLE_SIZE;
+        int index = (int) position;
+        if( index >= ATAN_TABLE_SIZE ) {
+            return ATAN_TABLE[ ATAN_TABLE_SIZE ];
+        }
+        float fraction = position - index;
+        return ATAN_TABLE[ index ] + fraction * ( ATAN_TABLE[ index + 1 ] - ATAN_TABLE[ index ] );
+    }
+
+    /** Number of intervals in the atan table over [0, 1]. */
+    public static final int ATAN_TABLE_SIZE = 1024;
+
+    /** atan (deg) at ATAN_TABLE_SIZE + 1 equally spaced ratios in [0, 1]. */
+    private static final float[] ATAN_TABLE = new float[ ATAN_TABLE_SIZE + 1 ];
+    static {
+        for( int i = 0 ; i <= ATAN_TABLE_SIZE ; ++i ) {
+            ATAN_TABLE[i] = (float) Math.toDegrees( Math.atan( (double) i / ATAN_TABLE_SIZE ) );
+        }
+    }
+}
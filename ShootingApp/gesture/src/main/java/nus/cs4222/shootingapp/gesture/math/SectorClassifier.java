@@ -0,0 +1,100 @@
+package nus.cs4222.shootingapp.gesture.math;
+
+/**
+   Classifies a 2D direction vector into one of N equal sectors
+   without calculating its angle.
+
+   <p> The directions are headings: the vector is (east, north) and
+   the angle is measured clockwise from north, so sector 0 starts at
+   north (as in ShootingRegions). The quadrant is found from the
+   signs of the components, and the sector within it by the sign of
+   the cross product with the (precomputed) sector boundary vectors,
+   so it takes a few multiplications and comparisons instead of an
+   atan2. Away from the boundaries, the result is the same as
+   classifying the exact angle; within float rounding of a boundary,
+   either neighbouring sector may be returned.
+ */
+public class SectorClassifier {
+
+    /** Creates a classifier with the given number of sectors. */
+    public SectorClassifier( int numSectors ) {
+        if( numSectors < 1 ) {
+            throw new IllegalArgumentException( "Need at least 1 sector: " + numSectors );
+        }
+        this.numSectors = numSectors;
+
+        // Unit vectors of the sector boundaries (sector i starts at boundary i)
+        boundaryEast = new float[ numSectors + 1 ];
+        boundaryNorth = new float[ numSectors + 1 ];
+        double[] boundaryAngle = new double[ numSectors + 1 ];
+        for( int i = 0 ; i <= numSectors ; ++i ) {
+            boundaryAngle[i] = 360.0 * i / numSectors;
+            double radians = Math.toRadians( boundaryAngle[i] );
+            boundaryEast[i] = (float) Math.sin( radians );
+            boundaryNorth[i] = (float) Math.cos( radians );
+        }
+
+        // First sector of each quadrant, and the last boundary inside it
+        quadrantFirstSector = new int[4];
+        quadrantLastBoundary = new int[4];
+        for( int quadrant = 0 ; quadrant < 4 ; ++quadrant ) {
+            quadrantFirstSector[ quadrant ] = (int) Math.floor( quadrant * numSectors / 4.0 );
+            int lastBoundary = quadrantFirstSector[ quadrant ];
+            while( lastBoundary + 1 < numSectors && 
+                   boundaryAngle[ lastBoundary + 1 ] < 90.0 * ( quadrant + 1 ) ) {
+                ++lastBoundary;
+            }
+            quadrantLastBoundary[ quadrant ] = lastBoundary;
+        }
+    }
+
+    /**
+       Returns the sector of a direction vector.
+
+       @param   east   East component
+       @param   north  North component
+       @return  Sector (in the range 0 .. numSectors-1), 0 for the zero vector
+     */
+    public int classify( float east , 
+                         float north ) {
+
+        // Quadrant from the signs (angles [0,90), [90,180), [180,270), [270,360))
+        int quadrant;
+        if( east >= 0.0F ) {
+            quadrant = ( north > 0.0F ) ? 0 : ( ( east > 0.0F ) ? 1 : 2 );
+        }
+        else {
+            quadrant = ( north < 0.0F ) ? 2 : 3;
+        }
+        if( east == 0.0F && north == 0.0F ) {
+            return 0;
+        }
+
+        // Move past each boundary in the quadrant that the vector is
+        //  clockwise of (cross product >= 0; within a quadrant the angle
+        //  to each boundary is below 90 deg, so the sign is enough)
+        int sector = quadrantFirstSector[ quadrant ];
+        int lastBoundary = quadrantLastBoundary[ quadrant ];
+        while( sector < lastBoundary && 
+               boundaryNorth[ sector + 1 ] * east - boundaryEast[ sector + 1 ] * north >= 0.0F ) {
+            ++sector;
+        }
+        return sector;
+    }
+
+    /** Returns the number of sectors. */
+    public int getNumSectors() {
+        return numSectors;
+    }
+
+    /** Number of sectors. */
+    private final int numSectors;
+    /** East components of the boundary unit vectors. */
+    private final float[] boundaryEast;
+    /** North components of the boundary unit vectors. */
+    private final float[] boundaryNorth;
+    /** First sector overlapping each quadrant. */
+    private final int[] quadrantFirstSector;
+    /** Last sector starting inside each quadrant. */
+    private final int[] quadrantLastBoundary;
+}
@@ -0,0 +1,149 @@
+package nus.cs4222.shootingapp.gesture.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+   Preallocated histogram of latencies (or any non-negative values),
+   with log-linear buckets.
+
+   <p> Each power of 2 is split into 8 buckets, so a percentile is
+   within 12.5% of the exact value (values below 8 are exact). The
+   buckets cover the whole long range, so no value is ever clipped.
+
+   <p> Each histogram must be recorded by only one thread. Recording
+   is then a few shifts and an ordered store (no locks, no CAS, no
+   allocation), and any other thread can read the statistics at any
+   time (they may be a few values behind).
+ */
+public class LatencyHistogram {
+
+    /** Creates an empty histogram. */
+    public LatencyHistogram() {
+        counts = new AtomicLongArray( NUM_BUCKETS );
+    }
+
+    /** Records a value (negative values are recorded as 0). */
+    public void record( long value ) {
+        if( value < 0L ) {
+            value = 0L;
+        }
+        int bucket = getBucket( value );
+        counts.lazySet( bucket , counts.get( bucket ) + 1L );
+        if( value > max ) {
+            max = value;
+        }
+        sum += value;
+        ++count;
+    }
+
+    /** Clears the histogram (only call from the recording thread). */
+    public void reset() {
+        for( int i = 0 ; i < NUM_BUCKETS ; ++i ) {
+            counts.lazySet( i , 0L );
+        }
+        max = 0L;
+        sum = 0L;
+        count = 0L;
+    }
+
+    /**
+       Adds the values recorded by another histogram (only call from the
+       recording thread, once the other histogram is no longer recorded).
+     */
+    public void add( LatencyHistogram other ) {
+        for( int i = 0 ; i < NUM_BUCKETS ; ++i ) {
+            long otherCount = other.counts.get( i );
+            if( otherCount != 0L ) {
+                counts.lazySet( i , counts.get( i ) + otherCount );
+            }
+        }
+        if( other.max > max ) {
+            max = other.max;
+        }
+        sum += other.sum;
+        count += other.count;
+    }
+
+    /** Returns the number of values recorded. */
+    public long getCount() {
+        return count;
+    }
+
+    /** Returns the largest value recorded (0 if none). */
+    public long getMax() {
+        return max;
+    }
+
+    /** Returns the mean of the values recorded (0 if none). */
+    public double getMean() {
+        long n = count;
+        return ( n > 0L ) ? (double) sum / n : 0.0;
+    }
+
+    /**
+       Returns (an upper bound of) the value below which the given
+       percentage of the recorded values fall.
+
+       @param   percentile  Percentage in the range 0 .. 100
+       @return  Value at the percentile (0 if no values were recorded)
+     */
+    public long getValueAtPercentile( double percentile ) {
+
+        // Sum the bucket counts (instead of using 'count', so that the
+        //  result is consistent with the buckets being read)
+        long total = 0L;
+        for( int i = 0 ; i < NUM_BUCKETS ; ++i ) {
+            total += counts.get( i );
+        }
+        if( total == 0L ) {
+            return 0L;
+        }
+
+        // Find the bucket containing the value at the percentile
+        long rank = Math.max( 1L , (long) Math.ceil( total * percentile / 100.0 ) );
+        long cumulative = 0L;
+        for( int i = 0 ; i < NUM_BUCKETS ; ++i ) {
+            cumulative += counts.get( i );
+            if( cumulative >= rank ) {
+                return Math.min( getBucketUpperBound( i ) , max );
+            }
+        }
+        return max;
+    }
+
+    /** Returns the bucket of a non-negative value. */
+    static int getBucket( long value ) {
+        if( value < SUB_BUCKETS ) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros( value );
+        int subBucket = (int) ( value >>> ( exponent - SUB_BUCKET_BITS ) ) & ( SUB_BUCKETS - 1 );
+        return ( exponent - SUB_BUCKET_BITS + 1 ) * SUB_BUCKETS + subBucket;
+    }
+
+    /** Returns the largest value in a bucket. */
+    static long getBucketUpperBound( int bucket ) {
+        if( bucket < SUB_BUCKETS ) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) ( SUB_BUCKETS + bucket % SUB_BUCKETS ) << shift;
+        return lower + ( ( 1L << shift ) - 1L );
+    }
+
+    /** Count of each bucket. */
+    private final AtomicLongArray counts;
+    /** Largest value recorded. */
+    private volatile long max;
+    /** Sum of the values recorded. */
+    private volatile long sum;
+    /** Number of values recorded. */
+    private volatile long count;
+
+    /** Number of bits of each power of 2 used to select the bucket. */
+    private static final int SUB_BUCKET_BITS = 3;
+    /** Number of buckets per power of 2. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Number of buckets (to cover all positive longs). */
+    private static final int NUM_BUCKETS = ( 64 - SUB_BUCKET_BITS ) * SUB_BUCKETS;
+}
@@ -0,0 +1,152 @@
+package nus.cs4222.shootingapp.gesture.stats;
+
+/**
+   Streaming estimate of one quantile of a stream of values, in O(1)
+   memory (the P-square algorithm of Jain and Chlamtac, 1985).
+
+   <p> Five markers track the min, the max, the quantile, and the two
+   quantiles halfway to it. Each value moves the marker positions, and
+   the marker heights are adjusted with a piecewise-parabolic fit, so
+   no values are stored. The estimate is exact for the first 5 values.
+ */
+public class P2QuantileEstimator {
+
+    /**
+       Creates an estimator.
+
+       @param   quantile  Quantile to estimate (in the range 0 .. 1)
+     */
+    public P2QuantileEstimator( double quantile ) {
+        if( ! ( quantile >= 0.0 && quantile <= 1.0 ) ) {
+            throw new IllegalArgumentException( "Quantile must be in [0, 1]: " + quantile );
+        }
+        this.quantile = quantile;
+        increments = new double[] { 0.0 , quantile / 2.0 , quantile , ( 1.0 + quantile ) / 2.0 , 1.0 };
+        reset();
+    }
+
+    /** Adds a value. */
+    public void add( double value ) {
+
+        // The first values are just kept (sorted)
+        if( count < NUM_MARKERS ) {
+            int i = (int) count;
+            while( i > 0 && heights[ i - 1 ] > value ) {
+                heights[i] = heights[ i - 1 ];
+                --i;
+            }
+            heights[i] = value;
+            ++count;
+            return;
+        }
+        ++count;
+
+        // Find the cell of the value (extending the min/max markers)
+        int cell;
+        if( value < heights[0] ) {
+            heights[0] = value;
+            cell = 0;
+        }
+        else if( value >= heights[4] ) {
+            heights[4] = Math.max( heights[4] , value );
+            cell = 3;
+        }
+        else {
+            cell = 0;
+            while( value >= heights[ cell + 1 ] ) {
+                ++cell;
+            }
+        }
+
+        // Shift the markers above the cell, and the desired positions
+        for( int i = cell + 1 ; i < NUM_MARKERS ; ++i ) {
+            ++positions[i];
+        }
+        for( int i = 0 ; i < NUM_MARKERS ; ++i ) {
+            desiredPositions[i] += increments[i];
+        }
+
+        // Move the middle markers towards their desired positions
+        for( int i = 1 ; i < NUM_MARKERS - 1 ; ++i ) {
+            double offset = desiredPositions[i] - positions[i];
+            if( ( offset >= 1.0 && positions[ i + 1 ] - positions[i] > 1 ) || 
+                ( offset <= -1.0 && positions[ i - 1 ] - positions[i] < -1 ) ) {
+                int step = ( offset > 0.0 ) ? 1 : -1;
+                double height = parabolic( i , step );
+                if( height <= heights[ i - 1 ] || height >= heights[ i + 1 ] ) {
+                    height = linear( i , step );
+                }
+                heights[i] = height;
+                positions[i] += step;
+            }
+        }
+    }
+
+    /** Returns the estimated quantile (0 if no values). */
+    public double getQuantile() {
+        if( count == 0L ) {
+            return 0.0;
+        }
+        if( count <= NUM_MARKERS ) {
+            // Exact quantile of the sorted values
+            int index = (int) Math.round( quantile * ( count - 1L ) );
+            return heights[ index ];
+        }
+        return heights[2];
+    }
+
+    /** Returns the number of values added. */
+    public long getCount() {
+        return count;
+    }
+
+    /** Returns the quantile estimated (in the range 0 .. 1). */
+    public double getQuantileLevel() {
+        return quantile;
+    }
+
+    /** Removes all values. */
+    public void reset() {
+        count = 0L;
+        for( int i = 0 ; i < NUM_MARKERS ; ++i ) {
+            heights[i] = 0.0;
+            positions[i] = i + 1;
+        }
+        desiredPositions[0] = 1.0;
+        desiredPositions[1] = 1.0 + 2.0 * quantile;
+        desiredPositions[2] = 1.0 + 4.0 * quantile;
+        desiredPositions[3] = 3.0 + 2.0 * quantile;
+        desiredPositions[4] = 5.0;
+    }
+
+    /** Piecewise-parabolic prediction of a marker height moved by 'step'. */
+    private double parabolic( int i , 
+                              int step ) {
+        double n = positions[i] , nPrev = positions[ i - 1 ] , nNext = positions[ i + 1 ];
+        return heights[i] + step / ( nNext - nPrev ) * 
+            ( ( n - nPrev + step ) * ( heights[ i + 1 ] - heights[i] ) / ( nNext - n ) + 
+              ( nNext - n - step ) * ( heights[i] - heights[ i - 1 ] ) / ( n - nPrev ) );
+    }
+
+    /** Linear prediction of a marker height moved by 'step'. */
+    private double linear( int i , 
+                           int step ) {
+        return heights[i] + step * ( heights[ i + step ] - heights[i] ) / 
+            ( positions[ i + step ] - positions[i] );
+    }
+
+    /** Quantile estimated. */
+    private final double quantile;
+    /** Increments of the desired marker positions per value. */
+    private final double[] increments;
+    /** Marker heights (the sorted first values until there are 5). */
+    private final double[] heights = new double[ NUM_MARKERS ];
+    /** Marker positions (1-based ranks). */
+    private final int[] positions = new int[ NUM_MARKERS ];
+    /** Desired marker positions. */
+    private final double[] desiredPositions = new double[ NUM_MARKERS ];
+    /** Number of values. */
+    private long count;
+    /** Number of markers. */
+    private static final int NUM_MARKERS = 5;
+}
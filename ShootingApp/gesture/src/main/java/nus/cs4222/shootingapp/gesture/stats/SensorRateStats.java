@@ -0,0 +1,89 @@
+package nus.cs4222.shootingapp.gesture.stats;
+
+/**
+   Event rate and inter-arrival jitter of one sensor, from its sample
+   timestamps.
+
+   <p> The intervals between consecutive samples are recorded into a
+   LatencyHistogram, and the jitter is their standard deviation. Like
+   the histogram, the stats must be recorded by only one thread, but
+   can be read from any thread.
+ */
+public class SensorRateStats {
+
+    /** Creates empty stats. */
+    public SensorRateStats() {
+        intervals = new LatencyHistogram();
+    }
+
+    /** Records a sample timestamp (nanosec). */
+    public void onSample( long timestamp ) {
+
+        // The first sample (or a restarted sensor) starts a new span
+        if( numSamples == 0L || timestamp < lastTimestamp ) {
+            firstTimestamp = timestamp;
+            lastTimestamp = timestamp;
+            numSamples = 1L;
+            return;
+        }
+
+        // Record the interval (the squares in microsec, to not overflow)
+        long interval = timestamp - lastTimestamp;
+        intervals.record( interval );
+        long intervalMicros = interval / NANOSEC_PER_MICROSEC;
+        sumSquaredIntervalMicros += intervalMicros * intervalMicros;
+        lastTimestamp = timestamp;
+        ++numSamples;
+    }
+
+    /** Clears the stats (only call from the recording thread). */
+    public void reset() {
+        intervals.reset();
+        sumSquaredIntervalMicros = 0L;
+        numSamples = 0L;
+    }
+
+    /** Returns the number of samples recorded. */
+    public long getNumSamples() {
+        return numSamples;
+    }
+
+    /** Returns the mean event rate (Hz, 0 if less than 2 samples). */
+    public double getRate() {
+        long n = numSamples;
+        long span = lastTimestamp - firstTimestamp;
+        return ( n > 1L && span > 0L ) ? ( n - 1L ) * NANOSEC_PER_SEC / span : 0.0;
+    }
+
+    /** Returns the standard deviation of the inter-arrival intervals (nanosec). */
+    public double getJitter() {
+        long n = intervals.getCount();
+        if( n == 0L ) {
+            return 0.0;
+        }
+        double meanMicros = intervals.getMean() / NANOSEC_PER_MICROSEC;
+        double variance = (double) sumSquaredIntervalMicros / n - meanMicros * meanMicros;
+        return Math.sqrt( Math.max( variance , 0.0 ) ) * NANOSEC_PER_MICROSEC;
+    }
+
+    /** Returns the histogram of the inter-arrival intervals (nanosec). */
+    public LatencyHistogram getIntervals() {
+        return intervals;
+    }
+
+    /** Histogram of the intervals between samples. */
+    private final LatencyHistogram intervals;
+    /** Sum of the squared intervals (microsec^2). */
+    private volatile long sumSquaredIntervalMicros;
+    /** Number of samples recorded. */
+    private volatile long numSamples;
+    /** Timestamp of the first sample (nanosec). */
+    private volatile long firstTimestamp;
+    /** Timestamp of the last sample (nanosec). */
+    private volatile long lastTimestamp;
+
+    /** Nanosec in a microsec. */
+    private static final long NANOSEC_PER_MICROSEC = 1000L;
+    /** Nanosec in a sec. */
+    private static final double NANOSEC_PER_SEC = 1.0E9;
+}
@@ -0,0 +1,73 @@
+package nus.cs4222.shootingapp.gesture.stats;
+
+/**
+   Running mean, variance, min and max of a stream of values, in O(1)
+   memory (Welford's algorithm, which does not lose precision like a
+   sum of squares does).
+ */
+public class WelfordStats {
+
+    /** Adds a value. */
+    public void add( double value ) {
+        ++count;
+        double delta = value - mean;
+        mean += delta / count;
+        sumSquaredDeviations += delta * ( value - mean );
+        if( count == 1L || value < min ) {
+            min = value;
+        }
+        if( count == 1L || value > max ) {
+            max = value;
+        }
+    }
+
+    /** Removes all values. */
+    public void reset() {
+        count = 0L;
+        mean = 0.0;
+        sumSquaredDeviations = 0.0;
+        min = 0.0;
+        max = 0.0;
+    }
+
+    /** Returns the number of values added. */
+    public long getCount() {
+        return count;
+    }
+
+    /** Returns the mean (0 if no values). */
+    public double getMean() {
+        return mean;
+    }
+
+    /** Returns the sample variance (0 if less than 2 values). */
+    public double getVariance() {
+        return ( count > 1L ) ? sumSquaredDeviations / ( count - 1L ) : 0.0;
+    }
+
+    /** Returns the sample standard deviation (0 if less than 2 values). */
+    public double getStdDev() {
+        return Math.sqrt( getVariance() );
+    }
+
+    /** Returns the smallest value (0 if no values). */
+    public double getMin() {
+        return min;
+    }
+
+    /** Returns the largest value (0 if no values). */
+    public double getMax() {
+        return max;
+    }
+
+    /** Number of values. */
+    private long count;
+    /** Mean of the values. */
+    private double mean;
+    /** Sum of the squared deviations from the mean. */
+    private double sumSquaredDeviations;
+    /** Smallest value. */
+    private double min;
+    /** Largest value. */
+    private double max;
+}
@@ -0,0 +1,70 @@
+package nus.cs4222.shootingapp.gesture.trace;
+
+/**
+   Binary format of a recorded sensor trace.
+
+   <p> A trace file has a fixed-size header followed by fixed-width
+   sample records, all in little-endian byte order:
+
+   <pre>
+   Header (32 bytes):
+     int    magic           ('STRC')
+     int    version
+     long   number of records (0 if the recording was not closed)
+     (padding)
+   Record (32 bytes):
+     long   timestamp       (nanosec, as in SensorEvent.timestamp)
+     int    sensor type     (as in Sensor.TYPE_*, never 0)
+     int    accuracy        (as in SensorEvent.accuracy)
+     float  x , y , z
+     (padding)
+   </pre>
+
+   <p> Since the file is written through a memory-mapped region, an
+   unclosed recording ends with zero-filled records, which readers
+   detect by the zero sensor type.
+ */
+public final class SensorTrace {
+
+    /** Not instantiable. */
+    private SensorTrace() {
+    }
+
+    /** Sensor type of the magnetometer (Sensor.TYPE_MAGNETIC_FIELD). */
+    public static final int TYPE_MAGNETIC_FIELD = 2;
+    /** Sensor type of the gyroscope (Sensor.TYPE_GYROSCOPE). */
+    public static final int TYPE_GYROSCOPE = 4;
+    /** Sensor type of the gravity sensor (Sensor.TYPE_GRAVITY). */
+    public static final int TYPE_GRAVITY = 9;
+    /** Sensor type of the linear accl sensor (Sensor.TYPE_LINEAR_ACCELERATION). */
+    public static final int TYPE_LINEAR_ACCELERATION = 10;
+
+    /** Magic number at the start of a trace file. */
+    public static final int MAGIC = 0x43525453;
+    /** Version of the trace format. */
+    public static final int VERSION = 1;
+    /** Size of the file header (bytes). */
+    public static final int HEADER_SIZE = 32;
+    /** Size of each record (bytes). */
+    public static final int RECORD_SIZE = 32;
+
+    /** Offset of the magic number in the header. */
+    static final int HEADER_MAGIC_OFFSET = 0;
+    /** Offset of the version in the header. */
+    static final int HEADER_VERSION_OFFSET = 4;
+    /** Offset of the number of records in the header. */
+    static final int HEADER_NUM_RECORDS_OFFSET = 8;
+
+    /** Offset of the timestamp in a record. */
+    static final int RECORD_TIMESTAMP_OFFSET = 0;
+    /** Offset of the sensor type in a record. */
+    static final int RECORD_SENSOR_TYPE_OFFSET = 8;
+    /** Offset of the accuracy in a record. */
+    static final int RECORD_ACCURACY_OFFSET = 12;
+    /** Offset of the x value in a record. */
+    static final int RECORD_X_OFFSET = 16;
+    /** Offset of the y value in a record. */
+    static final int RECORD_Y_OFFSET = 20;
+    /** Offset of the z value in a record. */
+    static final int RECORD_Z_OFFSET = 24;
+}
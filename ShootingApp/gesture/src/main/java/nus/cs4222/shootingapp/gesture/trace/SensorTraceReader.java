@@ -0,0 +1,171 @@
+package nus.cs4222.shootingapp.gesture.trace;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+import nus.cs4222.shootingapp.gesture.SensorSampleListener;
+
+/**
+   Reads a trace file (see SensorTrace for the format) and replays it.
+
+   <p> The whole file is memory-mapped read-only, and the samples are
+   read directly from the mapping, so reading and replaying create no
+   objects per sample. Records can be accessed randomly by index.
+ */
+public class SensorTraceReader 
+    implements Closeable {
+
+    /** Opens a trace file. */
+    public SensorTraceReader( File file ) 
+        throws IOException {
+
+        randomAccessFile = new RandomAccessFile( file , "r" );
+        try {
+
+            // Map the whole file
+            FileChannel channel = randomAccessFile.getChannel();
+            long fileSize = channel.size();
+            if( fileSize < SensorTrace.HEADER_SIZE ) {
+                throw new IOException( "Trace file is too short: " + file );
+            }
+            else if( fileSize > Integer.MAX_VALUE ) {
+                throw new IOException( "Trace file is too large to map: " + file );
+            }
+            buffer = channel.map( FileChannel.MapMode.READ_ONLY , 0L , fileSize );
+            buffer.order( ByteOrder.LITTLE_ENDIAN );
+
+            // Check the header
+            if( buffer.getInt( SensorTrace.HEADER_MAGIC_OFFSET ) != SensorTrace.MAGIC ) {
+                throw new IOException( "Not a sensor trace file: " + file );
+            }
+            int version = buffer.getInt( SensorTrace.HEADER_VERSION_OFFSET );
+            if( version != SensorTrace.VERSION ) {
+                throw new IOException( "Unsupported trace version " + version + ": " + file );
+            }
+
+            // Find the number of records (if the recording was not closed, 
+            //  the records end at the first zero-filled record)
+            int maxRecords = (int) ( ( fileSize - SensorTrace.HEADER_SIZE ) / SensorTrace.RECORD_SIZE );
+            long headerRecords = buffer.getLong( SensorTrace.HEADER_NUM_RECORDS_OFFSET );
+            if( headerRecords > 0L ) {
+                numRecords = (int) Math.min( headerRecords , maxRecords );
+            }
+            else {
+                int i = 0;
+                while( i < maxRecords && getSensorType( i ) != 0 ) {
+                    ++i;
+                }
+                numRecords = i;
+            }
+        }
+        catch( IOException e ) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /** Returns the number of records in the trace. */
+    public int size() {
+        return numRecords;
+    }
+
+    /** Returns the timestamp (nanosec) of a record. */
+    public long getTimestamp( int index ) {
+        return buffer.getLong( offset( index ) + SensorTrace.RECORD_TIMESTAMP_OFFSET );
+    }
+
+    /** Returns the sensor type of a record. */
+    public int getSensorType( int index ) {
+        return buffer.getInt( offset( index ) + SensorTrace.RECORD_SENSOR_TYPE_OFFSET );
+    }
+
+    /** Returns the accuracy of a record. */
+    public int getAccuracy( int index ) {
+        return buffer.getInt( offset( index ) + SensorTrace.RECORD_ACCURACY_OFFSET );
+    }
+
+    /** Returns the x value of a record. */
+    public float getX( int index ) {
+        return buffer.getFloat( offset( index ) + SensorTrace.RECORD_X_OFFSET );
+    }
+
+    /** Returns the y value of a record. */
+    public float getY( int index ) {
+        return buffer.getFloat( offset( index ) + SensorTrace.RECORD_Y_OFFSET );
+    }
+
+    /** Returns the z value of a record. */
+    public float getZ( int index ) {
+        return buffer.getFloat( offset( index ) + SensorTrace.RECORD_Z_OFFSET );
+    }
+
+    /** Replays all the records to the listener as fast as possible. */
+    public void replay( SensorSampleListener listener ) {
+        for( int i = 0 ; i < numRecords ; ++i ) {
+            replayRecord( i , listener );
+        }
+    }
+
+    /**
+       Replays all the records to the listener at the rate they were
+       recorded (using the record timestamps).
+     */
+    public void replayAtNativeRate( SensorSampleListener listener ) 
+        throws InterruptedException {
+
+        if( numRecords == 0 ) {
+            return;
+        }
+        long firstTimestamp = getTimestamp( 0 );
+        long startTime = System.nanoTime();
+        for( int i = 0 ; i < numRecords ; ++i ) {
+
+            // Wait until the sample is due
+            long dueTime = startTime + ( getTimestamp( i ) - firstTimestamp );
+            long waitTime;
+            while( ( waitTime = dueTime - System.nanoTime() ) > 0L ) {
+                LockSupport.parkNanos( waitTime );
+                if( Thread.interrupted() ) {
+                    throw new InterruptedException( "Trace replay interrupted" );
+                }
+            }
+            replayRecord( i , listener );
+        }
+    }
+
+    /** Closes the trace file. */
+    @Override
+    public void close() 
+        throws IOException {
+        randomAccessFile.close();
+    }
+
+    /** Passes one record to the listener. */
+    private void replayRecord( int index , 
+                               SensorSampleListener listener ) {
+        int offset = offset( index );
+        listener.onSample( buffer.getInt( offset + SensorTrace.RECORD_SENSOR_TYPE_OFFSET ) , 
+                           buffer.getLong( offset + SensorTrace.RECORD_TIMESTAMP_OFFSET ) , 
+                           buffer.getFloat( offset + SensorTrace.RECORD_X_OFFSET ) , 
+                           buffer.getFloat( offset + SensorTrace.RECORD_Y_OFFSET ) , 
+                           buffer.getFloat( offset + SensorTrace.RECORD_Z_OFFSET ) );
+    }
+
+    /** Returns the file offset of a record. */
+    private static int offset( int index ) {
+        return SensorTrace.HEADER_SIZE + index * SensorTrace.RECORD_SIZE;
+    }
+
+    /** Trace file. */
+    private final RandomAccessFile randomAccessFile;
+    /** Mapping of the whole file. */
+    private final MappedByteBuffer buffer;
+    /** Number of records in the trace. */
+    private final int numRecords;
+}
@@ -0,0 +1,134 @@
+package nus.cs4222.shootingapp.gesture.trace;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+   Records sensor samples into a trace file (see SensorTrace for the
+   format).
+
+   <p> Records are written straight into a memory-mapped region of the
+   file, so writing a sample creates no objects and does no system
+   call. When the region is full, the next region of the file is
+   mapped.
+
+   <p> Not thread-safe: all methods must be called from the same
+   (sensor) thread.
+ */
+public class SensorTraceWriter 
+    implements Closeable {
+
+    /** Creates (or overwrites) a trace file. */
+    public SensorTraceWriter( File file ) 
+        throws IOException {
+
+        // Open the file and discard any previous contents
+        randomAccessFile = new RandomAccessFile( file , "rw" );
+        randomAccessFile.setLength( 0L );
+        channel = randomAccessFile.getChannel();
+
+        // Map the first region and write the header
+        mapRegion( 0L );
+        region.putInt( SensorTrace.HEADER_MAGIC_OFFSET , SensorTrace.MAGIC );
+        region.putInt( SensorTrace.HEADER_VERSION_OFFSET , SensorTrace.VERSION );
+        region.putLong( SensorTrace.HEADER_NUM_RECORDS_OFFSET , 0L );
+        region.position( SensorTrace.HEADER_SIZE );
+    }
+
+    /**
+       Writes one sample.
+
+       @param   sensorType  Sensor type (must not be 0)
+       @param   accuracy    Sensor accuracy
+       @param   timestamp   Sample timestamp (nanosec)
+       @param   values      Sample values (only the first 3 are recorded)
+     */
+    public void write( int sensorType , 
+                       int accuracy , 
+                       long timestamp , 
+                       float[] values ) 
+        throws IOException {
+        write( sensorType , accuracy , timestamp , values[0] , values[1] , values[2] );
+    }
+
+    /** Writes one sample (see above). */
+    public void write( int sensorType , 
+                       int accuracy , 
+                       long timestamp , 
+                       float x , 
+                       float y , 
+                       float z ) 
+        throws IOException {
+
+        // Map the next region if the current one is full
+        if( region.remaining() < SensorTrace.RECORD_SIZE ) {
+            mapRegion( regionStart + region.position() );
+        }
+
+        // Write the record
+        int offset = region.position();
+        region.putLong( offset + SensorTrace.RECORD_TIMESTAMP_OFFSET , timestamp );
+        region.putInt( offset + SensorTrace.RECORD_SENSOR_TYPE_OFFSET , sensorType );
+        region.putInt( offset + SensorTrace.RECORD_ACCURACY_OFFSET , accuracy );
+        region.putFloat( offset + SensorTrace.RECORD_X_OFFSET , x );
+        region.putFloat( offset + SensorTrace.RECORD_Y_OFFSET , y );
+        region.putFloat( offset + SensorTrace.RECORD_Z_OFFSET , z );
+        region.position( offset + SensorTrace.RECORD_SIZE );
+        ++numRecords;
+    }
+
+    /** Returns the number of samples written so far. */
+    public long getNumRecords() {
+        return numRecords;
+    }
+
+    /** Writes the number of records into the header, and trims and closes the file. */
+    @Override
+    public void close() 
+        throws IOException {
+
+        try {
+
+            // Write the number of records into the header
+            if( regionStart != 0L ) {
+                mapRegion( 0L );
+            }
+            region.putLong( SensorTrace.HEADER_NUM_RECORDS_OFFSET , numRecords );
+            region.force();
+            region = null;
+
+            // Drop the unused part of the last mapped region
+            channel.truncate( SensorTrace.HEADER_SIZE + numRecords * SensorTrace.RECORD_SIZE );
+        }
+        finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /** Maps the region of the file starting at the given position. */
+    private void mapRegion( long start ) 
+        throws IOException {
+        region = channel.map( FileChannel.MapMode.READ_WRITE , start , MAP_REGION_SIZE );
+        region.order( ByteOrder.LITTLE_ENDIAN );
+        regionStart = start;
+    }
+
+    /** Size of each mapped region (bytes, a multiple of the record size). */
+    private static final int MAP_REGION_SIZE = 1024 * SensorTrace.RECORD_SIZE * 32;
+
+    /** Trace file. */
+    private final RandomAccessFile randomAccessFile;
+    /** Channel of the trace file. */
+    private final FileChannel channel;
+    /** Currently mapped region (its position is the next record). */
+    private MappedByteBuffer region;
+    /** File position of the currently mapped region. */
+    private long regionStart;
+    /** Number of records written. */
+    private long numRecords;
+}
@@ -0,0 +1,77 @@
+package nus.cs4222.shootingapp.gesture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the face up check against the exact angle calculation.
+ */
+public class FaceUpDetectorTest {
+
+    @Test
+    public void flatPhoneIsFaceUp() {
+        FaceUpDetector detector = new FaceUpDetector(30.0F);
+
+        assertTrue(detector.onSample(0.0F, 0.0F, 9.81F));
+        assertFalse(detector.onSample(0.0F, 0.0F, -9.81F));
+        assertFalse(detector.onSample(9.81F, 0.0F, 0.0F));
+    }
+
+    @Test
+    public void matchesExactAngleAroundTheCircle() {
+        FaceUpDetector detector = new FaceUpDetector(30.0F);
+
+        // Tilt the gravity vector in steps of 0.25 deg (skipping the boundary itself)
+        for (int i = 0; i < 360 * 4; ++i) {
+            double tilt = Math.toRadians(i / 4.0);
+            float x = (float) (9.81 * Math.sin(tilt) * 0.6);
+            float y = (float) (9.81 * Math.sin(tilt) * 0.8);
+            float z = (float) (9.81 * Math.cos(tilt));
+            float angle = FaceUpDetector.getAngle(x, y, z);
+            if (Math.abs(angle - 30.0F) < 0.01F) {
+                continue;
+            }
+            assertEquals("Tilt " + (i / 4.0) + " deg", angle <= 30.0F, detector.onSample(x, y, z));
+        }
+    }
+
+    @Test
+    public void batchMatchesPerSample() {
+        FaceUpDetector perSample = new FaceUpDetector(30.0F);
+        FaceUpDetector batched = new FaceUpDetector(30.0F);
+        SampleBatch batch = new SampleBatch(64);
+        Random random = new Random(4222L);
+
+        for (int i = 0; i < 64; ++i) {
+            float gx = random.nextFloat() * 10.0F - 5.0F;
+            float gy = random.nextFloat() * 10.0F - 5.0F;
+            float gz = random.nextFloat() * 20.0F - 10.0F;
+            batch.onAlignedSample(i, 0.0F, 0.0F, 0.0F, gx, gy, gz);
+        }
+        int numFaceUp = batched.onBatch(batch);
+
+        int expectedFaceUp = 0;
+        for (int i = 0; i < batch.size(); ++i) {
+            boolean isFaceUp = perSample.onSample(batch.gx[i], batch.gy[i], batch.gz[i]);
+            assertEquals("Sample " + i, isFaceUp, batch.isFaceUp[i]);
+            expectedFaceUp += isFaceUp ? 1 : 0;
+        }
+        assertEquals(expectedFaceUp, numFaceUp);
+        assertEquals(perSample.isFaceUp(), batched.isFaceUp());
+    }
+
+    @Test
+    public void zeroVectorIsNotFaceUp() {
+        assertFalse(new FaceUpDetector().onSample(0.0F, 0.0F, 0.0F));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAngleOf90Degrees() {
+        new FaceUpDetector(90.0F);
+    }
+}
@@ -0,0 +1,102 @@
+package nus.cs4222.shootingapp.gesture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the complementary heading filter with synthetic sensor data.
+ */
+public class HeadingFilterTest {
+
+    /** Horizontal and vertical (downwards) components of the earth's magnetic field (micro Tesla). */
+    private static final float FIELD_HORIZONTAL = 30.0F, FIELD_DOWN = 40.0F;
+
+    @Test
+    public void magnetometerHeadingMatchesPhoneDirection() {
+        for (int heading = 0; heading < 360; heading += 15) {
+            HeadingFilter filter = new HeadingFilter(1.0F);
+            filter.onGravitySample(0.0F, 0.0F, 9.81F);
+            magneticSample(filter, heading, 0.0);
+
+            assertTrue(filter.hasHeading());
+            assertEquals(0.0F, angleDifference(heading, filter.getHeading()), 0.01F);
+        }
+    }
+
+    @Test
+    public void magnetometerHeadingIsTiltCompensated() {
+        HeadingFilter filter = new HeadingFilter(1.0F);
+        // Phone pointing east, tilted 30 deg about its x-axis (top raised)
+        double tilt = Math.toRadians(30.0);
+        filter.onGravitySample(0.0F, (float) (9.81 * Math.sin(tilt)), (float) (9.81 * Math.cos(tilt)));
+        magneticSample(filter, 90.0, tilt);
+
+        assertEquals(0.0F, angleDifference(90.0F, filter.getHeading()), 0.01F);
+    }
+
+    @Test
+    public void gyroscopeRotatesHeading() {
+        HeadingFilter filter = new HeadingFilter(0.01F);
+        filter.onGravitySample(0.0F, 0.0F, 9.81F);
+        magneticSample(filter, 0.0, 0.0);
+
+        // Turn clockwise (seen from above) at 90 deg/sec for 1 sec
+        float rate = (float) -Math.toRadians(90.0);
+        for (long t = 0L; t <= 1000000000L; t += 10000000L) {
+            filter.onGyroscopeSample(t, 0.0F, 0.0F, rate);
+        }
+
+        assertEquals(0.0F, angleDifference(90.0F, filter.getHeading()), 0.1F);
+    }
+
+    @Test
+    public void magnetometerCorrectsGyroscopeDriftTheShortWay() {
+        HeadingFilter filter = new HeadingFilter(0.1F);
+        filter.onGravitySample(0.0F, 0.0F, 9.81F);
+        magneticSample(filter, 350.0, 0.0);
+
+        // The magnetometer says 10 deg: the estimate should move up through 0, not down
+        magneticSample(filter, 10.0, 0.0);
+        assertEquals(0.0F, angleDifference(352.0F, filter.getHeading()), 0.01F);
+        for (int i = 0; i < 100; ++i) {
+            magneticSample(filter, 10.0, 0.0);
+        }
+        assertEquals(0.0F, angleDifference(10.0F, filter.getHeading()), 0.01F);
+    }
+
+    @Test
+    public void needsGravityBeforeHeading() {
+        HeadingFilter filter = new HeadingFilter(0.5F);
+        magneticSample(filter, 45.0, 0.0);
+
+        assertFalse(filter.hasHeading());
+    }
+
+    /** Feeds the magnetic field seen by a phone pointing at the heading, tilted about its x-axis. */
+    private static void magneticSample(HeadingFilter filter, double heading, double tilt) {
+        double h = Math.toRadians(heading);
+        // Field in the flat phone's frame (x right, y top, z up)
+        double x = -FIELD_HORIZONTAL * Math.sin(h);
+        double y = FIELD_HORIZONTAL * Math.cos(h);
+        double z = -FIELD_DOWN;
+        // Raising the top rotates the world by -tilt about the phone's x-axis
+        double yTilted = y * Math.cos(tilt) + z * Math.sin(tilt);
+        double zTilted = -y * Math.sin(tilt) + z * Math.cos(tilt);
+        filter.onMagneticSample((float) x, (float) yTilted, (float) zTilted);
+    }
+
+    /** Returns the signed difference between two angles (deg, in the range -180 .. 180). */
+    private static float angleDifference(float expected, float actual) {
+        float difference = (actual - expected) % 360.0F;
+        if (difference > 180.0F) {
+            difference -= 360.0F;
+        }
+        else if (difference < -180.0F) {
+            difference += 360.0F;
+        }
+        return difference;
+    }
+}
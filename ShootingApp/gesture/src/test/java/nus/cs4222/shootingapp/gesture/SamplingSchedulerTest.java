@@ -0,0 +1,87 @@
+package nus.cs4222.shootingapp.gesture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the face up driven sampling scheduler.
+ */
+public class SamplingSchedulerTest {
+
+    /** Gravity of a phone held upright (far from face up). */
+    private static final float[] UPRIGHT = {0.0F, 9.81F, 0.0F};
+    /** Gravity of a phone tilted 40 deg from face up. */
+    private static final float[] TILTED = {0.0F, 6.31F, 7.51F};
+
+    @Test
+    public void startsActive() {
+        SamplingScheduler scheduler = new SamplingScheduler(50.0F, 1000L);
+
+        assertEquals(SamplingScheduler.MODE_ACTIVE, scheduler.getMode());
+    }
+
+    @Test
+    public void becomesIdleOnlyAfterDelayOutsideBand() {
+        SamplingScheduler scheduler = new SamplingScheduler(50.0F, 1000L);
+
+        assertFalse(sample(scheduler, 0L, UPRIGHT));
+        assertFalse(sample(scheduler, 500L, UPRIGHT));
+        assertFalse(sample(scheduler, 999L, UPRIGHT));
+        assertTrue(sample(scheduler, 1000L, UPRIGHT));
+        assertEquals(SamplingScheduler.MODE_IDLE, scheduler.getMode());
+    }
+
+    @Test
+    public void shortWobbleOutsideBandStaysActive() {
+        SamplingScheduler scheduler = new SamplingScheduler(50.0F, 1000L);
+
+        sample(scheduler, 0L, UPRIGHT);
+        sample(scheduler, 800L, TILTED);
+        assertFalse(sample(scheduler, 1500L, UPRIGHT));
+        assertEquals(SamplingScheduler.MODE_ACTIVE, scheduler.getMode());
+    }
+
+    @Test
+    public void approachingFaceUpBecomesActiveAtOnce() {
+        SamplingScheduler scheduler = new SamplingScheduler(50.0F, 1000L);
+        sample(scheduler, 0L, UPRIGHT);
+        sample(scheduler, 1000L, UPRIGHT);
+
+        // Tilted by 40 deg is not face up yet (30 deg), but within the approach band
+        assertTrue(sample(scheduler, 1100L, TILTED));
+        assertEquals(SamplingScheduler.MODE_ACTIVE, scheduler.getMode());
+        assertEquals(2L, scheduler.getNumModeChanges());
+    }
+
+    @Test
+    public void countsTimeInEachMode() {
+        SamplingScheduler scheduler = new SamplingScheduler(50.0F, 1000L);
+        sample(scheduler, 0L, UPRIGHT);
+        sample(scheduler, 1000L, UPRIGHT);
+        sample(scheduler, 4000L, UPRIGHT);
+        sample(scheduler, 4500L, TILTED);
+
+        assertEquals(1000L, scheduler.getTimeInMode(SamplingScheduler.MODE_ACTIVE));
+        assertEquals(3500L, scheduler.getTimeInMode(SamplingScheduler.MODE_IDLE));
+    }
+
+    @Test
+    public void resetRestartsActive() {
+        SamplingScheduler scheduler = new SamplingScheduler(50.0F, 1000L);
+        sample(scheduler, 0L, UPRIGHT);
+        sample(scheduler, 1000L, UPRIGHT);
+
+        scheduler.reset();
+
+        assertEquals(SamplingScheduler.MODE_ACTIVE, scheduler.getMode());
+        assertFalse(sample(scheduler, 5000L, UPRIGHT));
+    }
+
+    /** Passes a gravity sample to the scheduler. */
+    private static boolean sample(SamplingScheduler scheduler, long timestamp, float[] gravity) {
+        return scheduler.onGravitySample(timestamp, gravity[0], gravity[1], gravity[2]);
+    }
+}
@@ -0,0 +1,119 @@
+package nus.cs4222.shootingapp.gesture;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the timestamp join of the gravity and linear accl streams.
+ */
+public class SensorStreamJoinerTest {
+
+    /** Collects the aligned samples as {timestamp, az, gx, gy, gz}. */
+    private final List<float[]> samples = new ArrayList<float[]>();
+
+    private final AlignedSampleListener listener = new AlignedSampleListener() {
+        @Override
+        public void onAlignedSample(long timestamp, float ax, float ay, float az, float gx, float gy, float gz) {
+            samples.add(new float[] { timestamp, az, gx, gy, gz });
+        }
+    };
+
+    @Test
+    public void interpolatesGravityToAcclTimestamp() {
+        SensorStreamJoiner joiner = new SensorStreamJoiner(50L, 16, listener);
+
+        joiner.onGravitySample(100L, 0.0F, 0.0F, 10.0F);
+        joiner.onAcclSample(125L, 0.0F, 0.0F, 1.0F);
+        assertEquals(0, samples.size());
+        joiner.onGravitySample(200L, 4.0F, 0.0F, 6.0F);
+
+        assertEquals(1, samples.size());
+        float[] sample = samples.get(0);
+        assertEquals(125.0F, sample[0], 0.0F);
+        assertEquals(1.0F, sample[2], 1e-6F);
+        assertEquals(9.0F, sample[4], 1e-6F);
+        assertEquals(0, joiner.getNumPending());
+        assertEquals(0L, joiner.getNumHeld());
+    }
+
+    @Test
+    public void passesAcclCoveredByGravityImmediately() {
+        SensorStreamJoiner joiner = new SensorStreamJoiner(50L, 16, listener);
+
+        joiner.onGravitySample(100L, 0.0F, 0.0F, 10.0F);
+        joiner.onGravitySample(200L, 0.0F, 10.0F, 0.0F);
+        joiner.onAcclSample(150L, 0.0F, 0.0F, 1.0F);
+
+        assertEquals(1, samples.size());
+        assertEquals(5.0F, samples.get(0)[3], 1e-6F);
+        assertEquals(5.0F, samples.get(0)[4], 1e-6F);
+    }
+
+    @Test
+    public void keepsAcclOrderAcrossSeveralGravitySamples() {
+        SensorStreamJoiner joiner = new SensorStreamJoiner(1000L, 16, listener);
+
+        joiner.onGravitySample(0L, 0.0F, 0.0F, 0.0F);
+        for (long t = 10L; t <= 90L; t += 20L) {
+            joiner.onAcclSample(t, 0.0F, 0.0F, t);
+        }
+        joiner.onGravitySample(50L, 5.0F, 0.0F, 0.0F);
+        joiner.onGravitySample(100L, 10.0F, 0.0F, 0.0F);
+
+        assertEquals(5, samples.size());
+        for (int i = 0; i < 5; ++i) {
+            float t = 10.0F + 20.0F * i;
+            assertEquals(t, samples.get(i)[0], 0.0F);
+            assertEquals(t / 10.0F, samples.get(i)[2], 1e-5F);
+        }
+    }
+
+    @Test
+    public void holdsLatestGravityAfterMaxSkew() {
+        SensorStreamJoiner joiner = new SensorStreamJoiner(50L, 16, listener);
+
+        joiner.onGravitySample(100L, 0.0F, 0.0F, 9.0F);
+        joiner.onAcclSample(110L, 0.0F, 0.0F, 1.0F);
+        joiner.onAcclSample(140L, 0.0F, 0.0F, 2.0F);
+        assertEquals(0, samples.size());
+        // The gravity sensor is late by more than the max skew
+        joiner.onAcclSample(160L, 0.0F, 0.0F, 3.0F);
+
+        assertEquals(1, samples.size());
+        assertEquals(110.0F, samples.get(0)[0], 0.0F);
+        assertEquals(9.0F, samples.get(0)[4], 0.0F);
+        assertEquals(1L, joiner.getNumHeld());
+        assertEquals(2, joiner.getNumPending());
+    }
+
+    @Test
+    public void boundsPendingSamplesByCapacity() {
+        SensorStreamJoiner joiner = new SensorStreamJoiner(Long.MAX_VALUE, 4, listener);
+
+        for (long t = 0L; t < 10L; ++t) {
+            joiner.onAcclSample(t, 0.0F, 0.0F, t);
+        }
+
+        assertEquals(4, joiner.getNumPending());
+        assertEquals(6, samples.size());
+        // No gravity yet, so it is passed as zeros
+        assertEquals(0.0F, samples.get(0)[4], 0.0F);
+    }
+
+    @Test
+    public void flushPassesAllPendingSamples() {
+        SensorStreamJoiner joiner = new SensorStreamJoiner(1000L, 16, listener);
+
+        joiner.onGravitySample(0L, 0.0F, 0.0F, 9.0F);
+        joiner.onAcclSample(10L, 0.0F, 0.0F, 1.0F);
+        joiner.onAcclSample(20L, 0.0F, 0.0F, 1.0F);
+        joiner.flush();
+
+        assertEquals(2, samples.size());
+        assertEquals(0, joiner.getNumPending());
+    }
+}
@@ -0,0 +1,51 @@
+package nus.cs4222.shootingapp.gesture;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the shooting regions and the hysteresis at their edges.
+ */
+public class ShootingRegionTrackerTest {
+
+    @Test
+    public void regionsAreNumberedClockwiseFromNorth() {
+        assertEquals(1, ShootingRegions.fromDirection(0.0F, 8));
+        assertEquals(1, ShootingRegions.fromDirection(44.9F, 8));
+        assertEquals(2, ShootingRegions.fromDirection(45.0F, 8));
+        assertEquals(8, ShootingRegions.fromDirection(359.99F, 8));
+        assertEquals(8, ShootingRegions.fromDirection(-10.0F, 8));
+        assertEquals(1, ShootingRegions.fromDirection(360.0F, 8));
+    }
+
+    @Test
+    public void keepsRegionWithinHysteresis() {
+        ShootingRegionTracker tracker = new ShootingRegionTracker(8, 5.0F);
+
+        assertEquals(1, tracker.onDirection(40.0F));
+        // Wobbling just past the edge at 45 deg keeps region 1
+        assertEquals(1, tracker.onDirection(46.0F));
+        assertEquals(1, tracker.onDirection(49.9F));
+        assertEquals(1, tracker.onDirection(44.0F));
+        // Moving clearly past the edge changes the region
+        assertEquals(2, tracker.onDirection(50.5F));
+        assertEquals(2, tracker.onDirection(41.0F));
+        assertEquals(1, tracker.onDirection(39.0F));
+    }
+
+    @Test
+    public void hysteresisWrapsAroundNorth() {
+        ShootingRegionTracker tracker = new ShootingRegionTracker(8, 5.0F);
+
+        assertEquals(1, tracker.onDirection(2.0F));
+        assertEquals(1, tracker.onDirection(357.0F));
+        assertEquals(8, tracker.onDirection(354.0F));
+        assertEquals(8, tracker.onDirection(3.0F));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsHysteresisOfHalfARegion() {
+        new ShootingRegionTracker(8, 22.5F);
+    }
+}
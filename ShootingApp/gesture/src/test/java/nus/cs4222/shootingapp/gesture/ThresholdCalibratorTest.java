@@ -0,0 +1,227 @@
+package nus.cs4222.shootingapp.gesture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the threshold calibration on synthetic noise and shots.
+ */
+public class ThresholdCalibratorTest {
+
+    /** Millisec in nanosec. */
+    private static final long MS = 1000000L;
+
+    @Test
+    public void calibratesBetweenNoiseAndShots() {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(2000 * MS, 5);
+        Random random = new Random(4222L);
+        calibrator.start();
+        assertEquals(ThresholdCalibrator.PHASE_REST, calibrator.getPhase());
+
+        // 3 sec at rest (noise of about 0.3 m/sec^2)
+        long timestamp = feedNoise(calibrator, random, 0L, 150);
+        assertEquals(ThresholdCalibrator.PHASE_SHOTS, calibrator.getPhase());
+
+        // 5 shots with peaks of 10 .. 14 m/sec^2
+        for (int shot = 0; shot < 5; ++shot) {
+            timestamp = feedShot(calibrator, timestamp, 10.0F + shot);
+            timestamp = feedNoise(calibrator, random, timestamp, 20);
+        }
+        assertEquals(ThresholdCalibrator.PHASE_DONE, calibrator.getPhase());
+        assertTrue(calibrator.hasThresholds());
+        assertEquals(5, calibrator.getNumShotsMeasured());
+
+        // The force is halfway from the noise to the weakest shot
+        float noise = calibrator.getNoiseLevel();
+        float force = calibrator.getMinAcclForce();
+        float trough = calibrator.getMinAcclPeakTrough();
+        assertTrue("Noise " + noise, noise > 0.3F && noise < 1.5F);
+        assertEquals(noise + 0.5F * (10.0F - noise), force, 1e-3F);
+        assertTrue("Trough " + trough, trough > 0.0F && trough < force * 0.5F);
+    }
+
+    @Test
+    public void calibratedThresholdsDetectTheShots() {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(1000 * MS, 3);
+        Random random = new Random(1L);
+        calibrator.start();
+        long timestamp = feedNoise(calibrator, random, 0L, 100);
+        for (int shot = 0; shot < 3; ++shot) {
+            timestamp = feedShot(calibrator, timestamp, 8.0F);
+            timestamp = feedNoise(calibrator, random, timestamp, 20);
+        }
+
+        ThresholdGestureDetector detector = new ThresholdGestureDetector(calibrator.getMinAcclForce(),
+                                                                         calibrator.getMinAcclPeakTrough());
+        assertFalse(detector.onSample(0L, 0.0F, 0.0F, 1.0F));
+        assertTrue(detector.onSample(20 * MS, 0.0F, 0.0F, 7.0F));
+    }
+
+    @Test
+    public void keepsAdaptingAfterCalibration() {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(1000 * MS, 1);
+        Random random = new Random(2L);
+        calibrator.start();
+        long timestamp = feedNoise(calibrator, random, 0L, 100);
+        timestamp = feedShot(calibrator, timestamp, 20.0F);
+        timestamp = feedNoise(calibrator, random, timestamp, 5);
+        float force = calibrator.getMinAcclForce();
+
+        // Weaker shots (still above the force) pull the force down
+        timestamp = feedShot(calibrator, timestamp, 12.0F);
+        feedNoise(calibrator, random, timestamp, 5);
+
+        assertEquals(2, calibrator.getNumShotsMeasured());
+        assertTrue(calibrator.getMinAcclForce() < force);
+    }
+
+    @Test
+    public void bumpsBelowTheForceDoNotAdapt() {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(1000 * MS, 5);
+        Random random = new Random(7L);
+        calibrator.start();
+        long timestamp = feedNoise(calibrator, random, 0L, 100);
+        for (int shot = 0; shot < 5; ++shot) {
+            timestamp = feedShot(calibrator, timestamp, 11.0F + shot);
+            timestamp = feedNoise(calibrator, random, timestamp, 20);
+        }
+        float force = calibrator.getMinAcclForce();
+        float trough = calibrator.getMinAcclPeakTrough();
+
+        // 2 min of walking bumps (face up, well above the noise, but below the force)
+        for (int bump = 0; bump < 200; ++bump) {
+            timestamp = feedShot(calibrator, timestamp, 3.0F);
+            timestamp = feedNoise(calibrator, random, timestamp, 24);
+        }
+
+        assertEquals(5, calibrator.getNumShotsMeasured());
+        assertEquals(force, calibrator.getMinAcclForce(), 0.0F);
+        assertTrue("Trough " + calibrator.getMinAcclPeakTrough(),
+                   calibrator.getMinAcclPeakTrough() < trough * 1.2F);
+    }
+
+    @Test
+    public void forceNeverAdaptsFarBelowTheGuidedCalibration() {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(1000 * MS, 3);
+        Random random = new Random(8L);
+        calibrator.start();
+        long timestamp = feedNoise(calibrator, random, 0L, 100);
+        for (int shot = 0; shot < 3; ++shot) {
+            timestamp = feedShot(calibrator, timestamp, 12.0F);
+            timestamp = feedNoise(calibrator, random, timestamp, 5);
+        }
+        float guidedForce = calibrator.getGuidedMinAcclForce();
+        assertEquals(calibrator.getMinAcclForce(), guidedForce, 0.0F);
+
+        // Shots always just reaching the current force
+        for (int shot = 0; shot < 200; ++shot) {
+            timestamp = feedShot(calibrator, timestamp, calibrator.getMinAcclForce() + 0.1F);
+            timestamp = feedNoise(calibrator, random, timestamp, 5);
+        }
+
+        assertTrue("Force " + calibrator.getMinAcclForce(), calibrator.getMinAcclForce() < guidedForce);
+        assertEquals(0.8F * guidedForce, calibrator.getMinAcclForce(), 1e-3F);
+    }
+
+    @Test
+    public void shotEdgesDoNotRaiseTheNoise() {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(1000 * MS, 1);
+        Random random = new Random(3L);
+        calibrator.start();
+        long timestamp = feedNoise(calibrator, random, 0L, 100);
+        timestamp = feedShot(calibrator, timestamp, 10.0F);
+        float noise = calibrator.getNoiseLevel();
+        float trough = calibrator.getMinAcclPeakTrough();
+
+        // Many shots (whose rising edges are between the noise and the peak start)
+        for (int shot = 0; shot < 500; ++shot) {
+            timestamp = feedShot(calibrator, timestamp, 10.0F);
+            timestamp = feedNoise(calibrator, random, timestamp, 10);
+        }
+
+        assertEquals(noise, calibrator.getNoiseLevel(), 0.0F);
+        assertTrue("Trough " + calibrator.getMinAcclPeakTrough(),
+                   calibrator.getMinAcclPeakTrough() < trough * 1.2F);
+    }
+
+    @Test
+    public void forgetsOldShots() {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(1000 * MS, 1);
+        Random random = new Random(5L);
+        calibrator.start();
+        long timestamp = feedNoise(calibrator, random, 0L, 100);
+        for (int shot = 0; shot < 100; ++shot) {
+            timestamp = feedShot(calibrator, timestamp, 8.0F);
+            timestamp = feedNoise(calibrator, random, timestamp, 5);
+        }
+        float weakForce = calibrator.getMinAcclForce();
+
+        // Two windows of stronger shots replace the weak ones
+        for (int shot = 0; shot < 100; ++shot) {
+            timestamp = feedShot(calibrator, timestamp, 16.0F);
+            timestamp = feedNoise(calibrator, random, timestamp, 5);
+        }
+
+        assertEquals(16.0F, calibrator.getWeakPeak(), 0.5F);
+        assertTrue(calibrator.getMinAcclForce() > weakForce + 3.0F);
+    }
+
+    @Test
+    public void restoreKeepsAdapting() {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(1000 * MS, 3);
+        Random random = new Random(6L);
+        calibrator.start();
+        long timestamp = feedNoise(calibrator, random, 0L, 100);
+        for (int shot = 0; shot < 3; ++shot) {
+            timestamp = feedShot(calibrator, timestamp, 12.0F);
+            timestamp = feedNoise(calibrator, random, timestamp, 5);
+        }
+
+        ThresholdCalibrator restored = new ThresholdCalibrator(1000 * MS, 3);
+        restored.restore(calibrator.getNoiseLevel(), calibrator.getNoiseMean(),
+                         calibrator.getNoiseStdDev(), calibrator.getWeakPeak(),
+                         calibrator.getGuidedMinAcclForce());
+
+        assertEquals(ThresholdCalibrator.PHASE_DONE, restored.getPhase());
+        assertEquals(calibrator.getMinAcclForce(), restored.getMinAcclForce(), 1e-6F);
+        assertEquals(calibrator.getMinAcclPeakTrough(), restored.getMinAcclPeakTrough(), 1e-6F);
+        timestamp = feedShot(restored, timestamp, 8.0F);
+        feedNoise(restored, random, timestamp, 5);
+        assertTrue(restored.getMinAcclForce() < calibrator.getMinAcclForce());
+    }
+
+    @Test
+    public void cancelReturnsToIdle() {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(1000 * MS, 1);
+        calibrator.start();
+
+        calibrator.cancel();
+
+        assertEquals(ThresholdCalibrator.PHASE_IDLE, calibrator.getPhase());
+        assertFalse(calibrator.onSample(0L, 20.0F));
+    }
+
+    /** Feeds samples of accl noise (20 ms apart), and returns the next timestamp. */
+    private static long feedNoise(ThresholdCalibrator calibrator, Random random, long timestamp, int numSamples) {
+        for (int i = 0; i < numSamples; ++i) {
+            calibrator.onSample(timestamp, (float) (random.nextGaussian() * 0.3));
+            timestamp += 20 * MS;
+        }
+        return timestamp;
+    }
+
+    /** Feeds a shot peaking at the given accl, and returns the next timestamp. */
+    private static long feedShot(ThresholdCalibrator calibrator, long timestamp, float peak) {
+        float[] shape = {0.3F, 0.8F, 1.0F, 0.6F, 0.2F, -0.1F};
+        for (float fraction : shape) {
+            calibrator.onSample(timestamp, peak * fraction);
+            timestamp += 20 * MS;
+        }
+        return timestamp;
+    }
+}
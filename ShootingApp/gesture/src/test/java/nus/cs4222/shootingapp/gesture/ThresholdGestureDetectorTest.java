@@ -0,0 +1,178 @@
+package nus.cs4222.shootingapp.gesture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the two-threshold gesture state machine and its timing rules.
+ */
+public class ThresholdGestureDetectorTest {
+
+    /** One sample interval at game rate (nanosec). */
+    private static final long MS = 1000000L;
+
+    @Test
+    public void detectsGestureWhenForceCrossesThreshold() {
+        ThresholdGestureDetector detector = new ThresholdGestureDetector(7.0F, 1.0F);
+
+        assertFalse(detector.onSample(0L, 0.0F, 0.0F, 6.9F));
+        assertTrue(detector.onSample(20 * MS, 0.0F, 0.0F, 7.0F));
+        assertTrue(detector.isAcclInPeakZone());
+        assertEquals(1, detector.getNumGestures());
+    }
+
+    @Test
+    public void ignoresOscillationUntilTroughIsReached() {
+        ThresholdGestureDetector detector = new ThresholdGestureDetector(7.0F, 1.0F);
+
+        assertTrue(detector.onSample(0L, 0.0F, 0.0F, 8.0F));
+        // Noise around the top threshold does not fire again
+        assertFalse(detector.onSample(20 * MS, 0.0F, 0.0F, 6.0F));
+        assertFalse(detector.onSample(40 * MS, 0.0F, 0.0F, 8.0F));
+        assertFalse(detector.onSample(60 * MS, 0.0F, 0.0F, 1.5F));
+        assertFalse(detector.onSample(80 * MS, 0.0F, 0.0F, 9.0F));
+        // Once the trough is crossed, the next peak is a new gesture
+        assertFalse(detector.onSample(200 * MS, 0.0F, 0.0F, 1.0F));
+        assertFalse(detector.isAcclInPeakZone());
+        assertTrue(detector.onSample(220 * MS, 0.0F, 0.0F, 7.5F));
+        assertEquals(2, detector.getNumGestures());
+    }
+
+    @Test
+    public void ignoresPeaksWithinRefractoryPeriod() {
+        ThresholdGestureDetector detector = new ThresholdGestureDetector(7.0F, 1.0F, 150 * MS, 400 * MS);
+
+        assertTrue(detector.onSample(0L, 0.0F, 0.0F, 8.0F));
+        // A dip to the trough and back within the refractory period is the same gesture
+        assertFalse(detector.onSample(20 * MS, 0.0F, 0.0F, 0.5F));
+        assertFalse(detector.onSample(40 * MS, 0.0F, 0.0F, 8.0F));
+        assertFalse(detector.onSample(60 * MS, 0.0F, 0.0F, 0.5F));
+        // After the refractory period, a new peak is a new gesture
+        assertTrue(detector.onSample(160 * MS, 0.0F, 0.0F, 8.0F));
+        assertEquals(2, detector.getNumGestures());
+    }
+
+    @Test
+    public void peakStartedWithinRefractoryPeriodNeverFires() {
+        ThresholdGestureDetector perSample = new ThresholdGestureDetector(7.0F, 1.0F, 150 * MS, 400 * MS);
+        ThresholdGestureDetector batched = new ThresholdGestureDetector(7.0F, 1.0F, 150 * MS, 400 * MS);
+        SampleBatch batch = new SampleBatch(16);
+        batch.onAlignedSample(0L, 0.0F, 0.0F, 8.0F, 0.0F, 0.0F, 9.81F);
+        batch.onAlignedSample(20 * MS, 0.0F, 0.0F, 0.5F, 0.0F, 0.0F, 9.81F);
+        // (a new peak within the refractory period, still above the force after it)
+        for (long t = 40; t <= 160; t += 20) {
+            batch.onAlignedSample(t * MS, 0.0F, 0.0F, 8.0F, 0.0F, 0.0F, 9.81F);
+        }
+        for (int i = 0; i < batch.size(); ++i) {
+            batch.isFaceUp[i] = true;
+        }
+
+        int numFired = 0;
+        for (int i = 0; i < batch.size(); ++i) {
+            if (perSample.onSample(batch.timestamps[i], 0.0F, 0.0F, batch.az[i])) {
+                ++numFired;
+            }
+        }
+        int[] gestureIndices = new int[16];
+        assertEquals(1, batched.onBatch(batch, gestureIndices));
+        assertEquals(0, gestureIndices[0]);
+        assertEquals(1, numFired);
+        assertEquals(1, perSample.getNumGestures());
+        assertTrue(perSample.isAcclInPeakZone());
+        assertTrue(batched.isAcclInPeakZone());
+
+        // The peak ends at the trough, and the next peak is a new gesture
+        assertFalse(perSample.onSample(180 * MS, 0.0F, 0.0F, 0.5F));
+        assertTrue(perSample.onSample(200 * MS, 0.0F, 0.0F, 8.0F));
+    }
+
+    @Test
+    public void longPeakEndsBelowForceWithoutTrough() {
+        ThresholdGestureDetector detector = new ThresholdGestureDetector(7.0F, 1.0F, 150 * MS, 400 * MS);
+
+        assertTrue(detector.onSample(0L, 0.0F, 0.0F, 8.0F));
+        // Sustained force never fires twice
+        for (long t = 20; t <= 600; t += 20) {
+            assertFalse(detector.onSample(t * MS, 0.0F, 0.0F, 8.0F));
+        }
+        // The accl never reaches the trough, but the peak is long enough to end below the force
+        assertFalse(detector.onSample(620 * MS, 0.0F, 0.0F, 3.0F));
+        assertFalse(detector.isAcclInPeakZone());
+        assertTrue(detector.onSample(640 * MS, 0.0F, 0.0F, 8.0F));
+    }
+
+    @Test
+    public void shortPeakNeedsTrough() {
+        ThresholdGestureDetector detector = new ThresholdGestureDetector(7.0F, 1.0F, 150 * MS, 400 * MS);
+
+        assertTrue(detector.onSample(0L, 0.0F, 0.0F, 8.0F));
+        assertFalse(detector.onSample(200 * MS, 0.0F, 0.0F, 3.0F));
+        assertTrue(detector.isAcclInPeakZone());
+        assertFalse(detector.onSample(220 * MS, 0.0F, 0.0F, 8.0F));
+    }
+
+    @Test
+    public void usesOnlyTheZAxis() {
+        ThresholdGestureDetector detector = new ThresholdGestureDetector();
+
+        assertFalse(detector.onSample(0L, 20.0F, -20.0F, 0.0F));
+        assertEquals(0, detector.getNumGestures());
+    }
+
+    @Test
+    public void resetClearsState() {
+        ThresholdGestureDetector detector = new ThresholdGestureDetector();
+        detector.onSample(0L, 0.0F, 0.0F, 10.0F);
+
+        detector.reset();
+
+        assertFalse(detector.isAcclInPeakZone());
+        assertEquals(0, detector.getNumGestures());
+        assertTrue(detector.onSample(20 * MS, 0.0F, 0.0F, 10.0F));
+    }
+
+    @Test
+    public void batchMatchesPerSampleOnFaceUpSamples() {
+        ThresholdGestureDetector perSample = new ThresholdGestureDetector(7.0F, 1.0F, 150 * MS, 400 * MS);
+        ThresholdGestureDetector batched = new ThresholdGestureDetector(7.0F, 1.0F, 150 * MS, 400 * MS);
+        SampleBatch batch = new SampleBatch(50);
+        int[] gestureIndices = new int[50];
+        Random random = new Random(4222L);
+
+        // Noisy accl with peaks, split into batches, with some samples not face up
+        long timestamp = 0L;
+        for (int b = 0; b < 100; ++b) {
+            batch.clear();
+            for (int i = 0; i < batch.capacity(); ++i) {
+                timestamp += 20 * MS;
+                float z = (random.nextInt(10) == 0) ? 6.0F + random.nextFloat() * 6.0F
+                                                     : random.nextFloat() * 8.0F - 2.0F;
+                batch.onAlignedSample(timestamp, 0.0F, 0.0F, z, 0.0F, 0.0F, 9.81F);
+                batch.isFaceUp[i] = random.nextInt(5) != 0;
+            }
+            int numDetected = batched.onBatch(batch, gestureIndices);
+
+            int expectedDetected = 0;
+            for (int i = 0; i < batch.size(); ++i) {
+                if (batch.isFaceUp[i] &&
+                    perSample.onSample(batch.timestamps[i], 0.0F, 0.0F, batch.az[i])) {
+                    assertEquals("Batch " + b, i, gestureIndices[expectedDetected++]);
+                }
+            }
+            assertEquals("Batch " + b, expectedDetected, numDetected);
+            assertEquals(perSample.isAcclInPeakZone(), batched.isAcclInPeakZone());
+        }
+        assertEquals(perSample.getNumGestures(), batched.getNumGestures());
+        assertTrue(batched.getNumGestures() > 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTroughAboveForce() {
+        new ThresholdGestureDetector(1.0F, 7.0F);
+    }
+}
@@ -0,0 +1,115 @@
+package nus.cs4222.shootingapp.gesture.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the voice mixing and stealing of the shot audio mixer.
+ */
+public class VoiceMixerTest {
+
+    @Test
+    public void outputsSilenceWithoutTriggers() {
+        VoiceMixer mixer = new VoiceMixer(1, 2);
+        mixer.setClip(0, new short[] {1, 2, 3});
+        short[] output = {9, 9, 9, 9};
+
+        assertEquals(0, mixer.mix(output, 4));
+        assertArrayEquals(new short[] {0, 0, 0, 0}, output);
+    }
+
+    @Test
+    public void playsTriggeredClipAcrossBuffers() {
+        VoiceMixer mixer = new VoiceMixer(1, 2);
+        mixer.setClip(0, new short[] {1, 2, 3, 4, 5});
+        short[] output = new short[3];
+
+        assertTrue(mixer.trigger(0));
+        assertEquals(1, mixer.mix(output, 3));
+        assertArrayEquals(new short[] {1, 2, 3}, output);
+        assertEquals(0, mixer.mix(output, 3));
+        assertArrayEquals(new short[] {4, 5, 0}, output);
+    }
+
+    @Test
+    public void ignoresUnloadedClips() {
+        VoiceMixer mixer = new VoiceMixer(2, 2);
+        mixer.setClip(0, new short[] {1});
+
+        assertFalse(mixer.trigger(1));
+        assertFalse(mixer.trigger(2));
+        assertTrue(mixer.isClipLoaded(0));
+        assertFalse(mixer.isClipLoaded(1));
+    }
+
+    @Test
+    public void overlappingShotsAreSummed() {
+        VoiceMixer mixer = new VoiceMixer(1, 2);
+        mixer.setClip(0, new short[] {100, 100, 100, 100});
+        short[] output = new short[2];
+
+        mixer.trigger(0);
+        mixer.mix(output, 2);
+        mixer.trigger(0);
+        assertEquals(1, mixer.mix(output, 2));
+        assertArrayEquals(new short[] {200, 200}, output);
+    }
+
+    @Test
+    public void stealsOldestVoiceWhenAllBusy() {
+        VoiceMixer mixer = new VoiceMixer(3, 2);
+        mixer.setClip(0, new short[] {1, 1, 1, 1});
+        mixer.setClip(1, new short[] {10, 10, 10, 10});
+        mixer.setClip(2, new short[] {100, 100, 100, 100});
+        short[] output = new short[1];
+
+        mixer.trigger(0);
+        mixer.mix(output, 1);
+        mixer.trigger(1);
+        mixer.mix(output, 1);
+        mixer.trigger(2);
+
+        assertEquals(2, mixer.mix(output, 1));
+        assertArrayEquals(new short[] {110}, output);
+        assertEquals(1L, mixer.getNumStolenVoices());
+    }
+
+    @Test
+    public void appliesGainAndSaturates() {
+        VoiceMixer mixer = new VoiceMixer(1, 2);
+        mixer.setClip(0, new short[] {30000, -30000, 1000});
+        short[] output = new short[3];
+
+        mixer.trigger(0);
+        mixer.trigger(0);
+        mixer.mix(output, 3);
+        assertArrayEquals(new short[] {Short.MAX_VALUE, Short.MIN_VALUE, 2000}, output);
+
+        mixer.setGain(0.5F);
+        mixer.trigger(0);
+        mixer.mix(output, 3);
+        assertArrayEquals(new short[] {15000, -15000, 500}, output);
+    }
+
+    @Test
+    public void dropsTriggersWhenQueueFull() {
+        VoiceMixer mixer = new VoiceMixer(1, 1);
+        mixer.setClip(0, new short[] {1});
+
+        int numAccepted = 0;
+        for (int i = 0; i < 100; ++i) {
+            if (mixer.trigger(0)) {
+                ++numAccepted;
+            }
+        }
+
+        assertEquals(100L - numAccepted, mixer.getNumDroppedTriggers());
+        assertTrue(mixer.hasPendingTriggers());
+        mixer.stopAll();
+        assertFalse(mixer.hasPendingTriggers());
+    }
+}
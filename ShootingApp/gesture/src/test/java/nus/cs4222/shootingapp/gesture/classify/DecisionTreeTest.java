@@ -0,0 +1,59 @@
+package nus.cs4222.shootingapp.gesture.classify;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Tests the flat-array decision tree and its model file.
+ */
+public class DecisionTreeTest {
+
+    /** Tree: f0 <= 1 ? class 0 : (f1 <= 5 ? class 1 : class 2). */
+    private static DecisionTree newTree() {
+        return new DecisionTree(2, new String[] {"a", "b", "c"},
+                                new int[] {0, -1, 1, -1, -1},
+                                new float[] {1.0F, 0.0F, 5.0F, 0.0F, 0.0F},
+                                new int[] {1, -1, 3, -1, -1},
+                                new int[] {2, -1, 4, -1, -1},
+                                new int[] {-1, 0, -1, 1, 2});
+    }
+
+    @Test
+    public void followsThresholdsToLeaves() {
+        DecisionTree tree = newTree();
+
+        assertEquals(0, tree.classify(new float[] {1.0F, 100.0F}));
+        assertEquals(1, tree.classify(new float[] {1.5F, 5.0F}));
+        assertEquals(2, tree.classify(new float[] {1.5F, 5.5F}));
+        assertEquals(2, tree.getDepth());
+        assertEquals(5, tree.getNumNodes());
+    }
+
+    @Test
+    public void modelFileRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        newTree().write(out);
+        DecisionTree tree = DecisionTree.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(2, tree.getNumFeatures());
+        assertEquals(3, tree.getNumClasses());
+        assertEquals("c", tree.getClassName(2));
+        assertEquals(1, tree.classify(new float[] {2.0F, 0.0F}));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        DecisionTree.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCycles() {
+        new DecisionTree(1, new String[] {"a"},
+                         new int[] {0, 0}, new float[2], new int[] {1, 0}, new int[] {1, 0}, new int[] {-1, -1});
+    }
+}
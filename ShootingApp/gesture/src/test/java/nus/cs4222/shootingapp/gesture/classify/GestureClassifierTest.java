@@ -0,0 +1,115 @@
+package nus.cs4222.shootingapp.gesture.classify;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import nus.cs4222.shootingapp.gesture.SampleBatch;
+import nus.cs4222.shootingapp.gesture.features.SlidingWindowFeatures;
+import nus.cs4222.shootingapp.gesture.features.WindowFeatureExtractor;
+
+import org.junit.Test;
+
+/**
+ * Tests the classifier's reporting (with a hand-made tree) and its feature vector.
+ */
+public class GestureClassifierTest {
+
+    /** Sample interval at game rate (nanosec). */
+    private static final long INTERVAL = 20000000L;
+
+    /** Z-axis accl of an upward shot, a pause, and a downward shot. */
+    private static final float[] UP_THEN_DOWN = {
+        0.0F, 8.0F, -6.0F, -6.0F, -6.0F, -6.0F,
+        0.0F, 0.0F, 0.0F, 0.0F, 0.0F, 0.0F, 0.0F, 0.0F, 0.0F, 0.0F,
+        0.0F, 0.0F, 0.0F, 0.0F, 0.0F, 0.0F, 0.0F, 0.0F, 0.0F, 0.0F,
+        -8.0F, 6.0F, 6.0F, 6.0F, 6.0F, 6.0F};
+
+    /**
+     * Tree: short z mean <= -2 ? (long z max > 5 ? UP : NONE) 
+     *       : short z mean > 2 ? (long z min <= -5 ? DOWN : NONE) : NONE.
+     */
+    private static DecisionTree newTree() {
+        int shortMeanZ = WindowFeatureExtractor.NUM_FEATURES + WindowFeatureExtractor.getFeatureIndex(
+            WindowFeatureExtractor.CHANNEL_ACCL_Z, SlidingWindowFeatures.FEATURE_MEAN);
+        int longMaxZ = WindowFeatureExtractor.getFeatureIndex(
+            WindowFeatureExtractor.CHANNEL_ACCL_Z, SlidingWindowFeatures.FEATURE_MAX);
+        int longMinZ = WindowFeatureExtractor.getFeatureIndex(
+            WindowFeatureExtractor.CHANNEL_ACCL_Z, SlidingWindowFeatures.FEATURE_MIN);
+        int none = GestureClasses.NONE;
+        return new DecisionTree(GestureFeatures.NUM_FEATURES, GestureClasses.NAMES,
+                                new int[] {shortMeanZ, longMaxZ, -1, -1, shortMeanZ, -1, longMinZ, -1, -1},
+                                new float[] {-2.0F, 5.0F, 0.0F, 0.0F, 2.0F, 0.0F, -5.0F, 0.0F, 0.0F},
+                                new int[] {1, 2, -1, -1, 5, -1, 8, -1, -1},
+                                new int[] {4, 3, -1, -1, 6, -1, 7, -1, -1},
+                                new int[] {-1, -1, none, GestureClasses.UP, -1, none, -1, none,
+                                           GestureClasses.DOWN});
+    }
+
+    @Test
+    public void reportsClassOncePerGesture() {
+        GestureClassifier classifier = new GestureClassifier(newTree(), 300 * 1000000L);
+
+        for (int i = 0; i < UP_THEN_DOWN.length; ++i) {
+            boolean isDetected = classifier.onSample((i + 1) * INTERVAL, 0.0F, 0.0F, UP_THEN_DOWN[i]);
+            // Once the short window is mostly the stop of the upward push
+            assertEquals("Sample " + i, i == 4 || i == 30, isDetected);
+            if (isDetected) {
+                assertEquals(i == 4 ? GestureClasses.UP : GestureClasses.DOWN, classifier.getLastClass());
+            }
+        }
+        assertEquals(2, classifier.getNumGestures());
+    }
+
+    @Test
+    public void ignoresSamplesWithinRefractoryPeriod() {
+        GestureClassifier classifier = new GestureClassifier(newTree(), 2000 * 1000000L);
+
+        for (int i = 0; i < UP_THEN_DOWN.length; ++i) {
+            classifier.onSample((i + 1) * INTERVAL, 0.0F, 0.0F, UP_THEN_DOWN[i]);
+        }
+        assertEquals(1, classifier.getNumGestures());
+        assertEquals(GestureClasses.UP, classifier.getLastClass());
+    }
+
+    @Test
+    public void batchReportsClassOfEachGesture() {
+        GestureClassifier classifier = new GestureClassifier(newTree(), 300 * 1000000L);
+        SampleBatch batch = new SampleBatch(64);
+        for (int i = 0; i < UP_THEN_DOWN.length; ++i) {
+            batch.onAlignedSample((i + 1) * INTERVAL, 0.0F, 0.0F, UP_THEN_DOWN[i], 0.0F, 0.0F, 9.8F);
+            batch.isFaceUp[i] = true;
+        }
+        int[] gestureIndices = new int[64];
+
+        assertEquals(2, classifier.onBatch(batch, gestureIndices));
+        assertEquals(4, gestureIndices[0]);
+        assertEquals(GestureClasses.UP, classifier.getMatchedClass(0));
+        assertEquals(30, gestureIndices[1]);
+        assertEquals(GestureClasses.DOWN, classifier.getMatchedClass(1));
+    }
+
+    @Test
+    public void resetForgetsWindows() {
+        GestureClassifier classifier = new GestureClassifier(newTree(), 0L);
+        for (int i = 0; i < 4; ++i) {
+            classifier.onSample((i + 1) * INTERVAL, 0.0F, 0.0F, UP_THEN_DOWN[i]);
+        }
+        classifier.reset();
+
+        assertFalse(classifier.onSample(5 * INTERVAL, 0.0F, 0.0F, -6.0F));
+        assertEquals(GestureClasses.NONE, classifier.getLastClass());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsModelWithOtherFeatures() {
+        new GestureClassifier(new DecisionTree(3, GestureClasses.NAMES, new int[] {-1}, new float[1],
+                                               new int[] {-1}, new int[] {-1}, new int[] {0}), 0L);
+    }
+
+    @Test
+    public void namesFeaturesOfBothWindows() {
+        assertEquals("long.acclZ.max", GestureFeatures.getFeatureName(WindowFeatureExtractor.getFeatureIndex(
+            WindowFeatureExtractor.CHANNEL_ACCL_Z, SlidingWindowFeatures.FEATURE_MAX)));
+        assertEquals("short.gravityZ.peakToPeak", GestureFeatures.getFeatureName(GestureFeatures.NUM_FEATURES - 1));
+    }
+}
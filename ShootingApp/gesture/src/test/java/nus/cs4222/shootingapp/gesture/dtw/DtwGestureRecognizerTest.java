@@ -0,0 +1,171 @@
+package nus.cs4222.shootingapp.gesture.dtw;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import nus.cs4222.shootingapp.gesture.SampleBatch;
+
+import org.junit.Test;
+
+/**
+ * Tests the DTW distance, its lower bound, and the recognition of the default templates.
+ */
+public class DtwGestureRecognizerTest {
+
+    /** Sample interval at game rate (nanosec). */
+    private static final long INTERVAL = 20000000L;
+
+    @Test
+    public void distanceOfIdenticalSequenceIsZero() {
+        GestureTemplate[] templates = GestureTemplates.defaults();
+        DtwGestureRecognizer recognizer = newRecognizer(templates);
+        GestureTemplate template = templates[2];
+        for (int i = 0; i < template.length(); ++i) {
+            recognizer.onSample(i * INTERVAL, template.x[i], template.y[i], template.z[i]);
+        }
+
+        int start = recognizer.recentStart(template.length());
+        assertEquals(0.0, recognizer.dtw(template, start, Double.POSITIVE_INFINITY), 0.0);
+        assertEquals(0.0, recognizer.lowerBound(template, start, Double.POSITIVE_INFINITY), 0.0);
+    }
+
+    @Test
+    public void lowerBoundNeverExceedsDistance() {
+        GestureTemplate[] templates = GestureTemplates.defaults();
+        DtwGestureRecognizer recognizer = newRecognizer(templates);
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; ++i) {
+            recognizer.onSample(i * INTERVAL, 
+                                (float) random.nextGaussian() * 4.0F, 
+                                (float) random.nextGaussian() * 4.0F, 
+                                (float) random.nextGaussian() * 4.0F);
+            for (GestureTemplate template : templates) {
+                if (i + 1 < template.length()) {
+                    continue;
+                }
+                int start = recognizer.recentStart(template.length());
+                double lowerBound = recognizer.lowerBound(template, start, Double.POSITIVE_INFINITY);
+                double distance = recognizer.dtw(template, start, Double.POSITIVE_INFINITY);
+                assertTrue(lowerBound + " > " + distance, lowerBound <= distance + 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void recognizesEachTemplateInNoise() {
+        GestureTemplate[] templates = GestureTemplates.defaults();
+        for (GestureTemplate template : templates) {
+            DtwGestureRecognizer recognizer = newRecognizer(GestureTemplates.defaults());
+            Random random = new Random(7);
+            long timestamp = feedNoise(recognizer, random, 0L, 50);
+            // The gesture, slightly stretched and scaled, with noise
+            for (int i = 0; i < template.length(); ++i) {
+                for (int k = 0; k < ((i == 3) ? 2 : 1); ++k) {
+                    timestamp += INTERVAL;
+                    recognizer.onSample(timestamp, 
+                                        template.x[i] * 1.1F + noise(random), 
+                                        template.y[i] * 1.1F + noise(random), 
+                                        template.z[i] * 1.1F + noise(random));
+                }
+            }
+            feedNoise(recognizer, random, timestamp, 50);
+
+            assertEquals(template.getName(), 1, recognizer.getNumGestures());
+            assertNotNull(recognizer.getLastTemplate());
+            assertEquals(template.getName(), recognizer.getLastTemplate().getName());
+        }
+    }
+
+    @Test
+    public void ignoresNoise() {
+        DtwGestureRecognizer recognizer = newRecognizer(GestureTemplates.defaults());
+        feedNoise(recognizer, new Random(1), 0L, 10000);
+
+        assertEquals(0, recognizer.getNumGestures());
+        assertTrue(recognizer.getNumPruned() > recognizer.getNumDtwComputed());
+    }
+
+    @Test
+    public void pruningDoesNotChangeDetections() {
+        DtwGestureRecognizer pruned = newRecognizer(GestureTemplates.defaults());
+        DtwGestureRecognizer full = new DtwGestureRecognizer(GestureTemplates.defaults(), 
+            GestureTemplates.DEFAULT_BAND_WIDTH, GestureTemplates.DEFAULT_REFRACTORY_PERIOD, false);
+        GestureTemplate[] templates = GestureTemplates.defaults();
+        Random random = new Random(3);
+        long timestamp = 0L;
+        for (int n = 0; n < 30; ++n) {
+            GestureTemplate template = templates[n % templates.length];
+            for (int i = -20; i < template.length(); ++i) {
+                timestamp += INTERVAL;
+                float x = (i >= 0 ? template.x[i] : 0.0F) + noise(random);
+                float y = (i >= 0 ? template.y[i] : 0.0F) + noise(random);
+                float z = (i >= 0 ? template.z[i] : 0.0F) + noise(random);
+                assertEquals(full.onSample(timestamp, x, y, z), pruned.onSample(timestamp, x, y, z));
+            }
+        }
+        assertTrue(pruned.getNumGestures() > 0);
+        assertEquals(full.getNumGestures(), pruned.getNumGestures());
+    }
+
+    @Test
+    public void batchMatchesSampleBySample() {
+        GestureTemplate[] templates = GestureTemplates.defaults();
+        DtwGestureRecognizer single = newRecognizer(GestureTemplates.defaults());
+        DtwGestureRecognizer batched = newRecognizer(GestureTemplates.defaults());
+        SampleBatch batch = new SampleBatch(64);
+        int[] gestureIndices = new int[64];
+        Random random = new Random(5);
+        long timestamp = 0L;
+        int numSingle = 0, numBatched = 0;
+        for (int n = 0; n < 2000; ++n) {
+            timestamp += INTERVAL;
+            GestureTemplate template = templates[(n / 40) % templates.length];
+            int i = n % 40;
+            float x = (i < template.length() ? template.x[i] : 0.0F) + noise(random);
+            float y = (i < template.length() ? template.y[i] : 0.0F) + noise(random);
+            float z = (i < template.length() ? template.z[i] : 0.0F) + noise(random);
+            boolean isFaceUp = (n % 97) != 0;
+            batch.onAlignedSample(timestamp, x, y, z, 0.0F, 0.0F, 9.8F);
+            batch.isFaceUp[batch.size() - 1] = isFaceUp;
+            if (isFaceUp && single.onSample(timestamp, x, y, z)) {
+                ++numSingle;
+            }
+            if (batch.isFull()) {
+                int numDetected = batched.onBatch(batch, gestureIndices);
+                for (int k = 0; k < numDetected; ++k) {
+                    assertTrue(batch.isFaceUp[gestureIndices[k]]);
+                    assertNotNull(batched.getMatchedTemplate(k));
+                }
+                numBatched += numDetected;
+                batch.clear();
+            }
+        }
+        assertTrue(numSingle > 0);
+        assertEquals(numSingle, numBatched);
+        assertEquals(single.getNumGestures(), batched.getNumGestures());
+    }
+
+    /** Creates a recognizer with the default band and refractory period. */
+    private static DtwGestureRecognizer newRecognizer(GestureTemplate[] templates) {
+        return new DtwGestureRecognizer(templates, 
+            GestureTemplates.DEFAULT_BAND_WIDTH, GestureTemplates.DEFAULT_REFRACTORY_PERIOD);
+    }
+
+    /** Feeds samples of sensor noise (phone held still), returning the last timestamp. */
+    private static long feedNoise(DtwGestureRecognizer recognizer, Random random, 
+                                  long timestamp, int numSamples) {
+        for (int i = 0; i < numSamples; ++i) {
+            timestamp += INTERVAL;
+            recognizer.onSample(timestamp, noise(random), noise(random), noise(random));
+        }
+        return timestamp;
+    }
+
+    /** Returns sensor noise (m/sec^2). */
+    private static float noise(Random random) {
+        return (float) random.nextGaussian() * 0.3F;
+    }
+}
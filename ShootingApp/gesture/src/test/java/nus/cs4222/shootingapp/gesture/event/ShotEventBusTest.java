@@ -0,0 +1,149 @@
+package nus.cs4222.shootingapp.gesture.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the cursors, drops and listeners of the shot event bus.
+ */
+public class ShotEventBusTest {
+
+    @Test
+    public void eachConsumerReadsAllEventsInOrder() {
+        ShotEventBus bus = new ShotEventBus(8);
+        ShotEventBus.Consumer first = bus.addConsumer("first", 8, null);
+        ShotEventBus.Consumer second = bus.addConsumer("second", 8, null);
+        ShotEvent shot = new ShotEvent();
+        for (int i = 0; i < 5; ++i) {
+            assertEquals(i, bus.publish(shot.set(100L + i, 5000L + i, i + 1, 10.0F * i, 8.0F, 5L * i, i % 3)));
+        }
+
+        ShotEvent event = new ShotEvent();
+        for (int i = 0; i < 5; ++i) {
+            assertTrue(first.poll(event));
+            assertEquals(i, event.sequence);
+            assertEquals(100L + i, event.timestamp);
+            assertEquals(5000L + i, event.wallTime);
+            assertEquals(i + 1, event.region);
+            assertEquals(10.0F * i, event.direction, 0.0F);
+            assertEquals(5L * i, event.latency);
+            assertEquals(i % 3, event.soundNumber);
+        }
+        assertFalse(first.poll(event));
+        assertEquals(0L, first.getLag());
+        assertEquals(5L, second.getLag());
+        assertTrue(second.poll(event));
+        assertEquals(0L, event.sequence);
+    }
+
+    @Test
+    public void slowConsumerDropsOldestEventsOnly() {
+        ShotEventBus bus = new ShotEventBus(8);
+        ShotEventBus.Consumer fast = bus.addConsumer("fast", 8, null);
+        ShotEventBus.Consumer latest = bus.addConsumer("latest", 1, null);
+        ShotEventBus.Consumer slow = bus.addConsumer("slow", 8, null);
+        ShotEvent shot = new ShotEvent();
+        ShotEvent event = new ShotEvent();
+        for (int i = 0; i < 20; ++i) {
+            bus.publish(shot.set(i, 0L, 1, 0.0F, 8.0F, 0L, 0));
+            assertTrue(fast.poll(event));
+            assertEquals(i, event.timestamp);
+        }
+
+        // (the ring overwrote the slow consumer's first 12 events)
+        assertEquals(20L, slow.getLag());
+        assertTrue(slow.poll(event));
+        assertEquals(12L, event.sequence);
+        assertEquals(12L, slow.getNumDropped());
+        assertEquals(20L, slow.getMaxLagSeen());
+        assertEquals(7L, slow.getLag());
+
+        assertTrue(latest.poll(event));
+        assertEquals(19L, event.sequence);
+        assertEquals(19L, latest.getNumDropped());
+        assertFalse(latest.poll(event));
+
+        assertEquals(20L, fast.getNumConsumed());
+        assertEquals(0L, fast.getNumDropped());
+        assertEquals(1L, fast.getMaxLagSeen());
+    }
+
+    @Test
+    public void listenersAreCalledInOrderAfterPublish() {
+        ShotEventBus bus = new ShotEventBus(4);
+        final List<String> calls = new ArrayList<String>();
+        ShotEventBus.Listener listener = new ShotEventBus.Listener() {
+            @Override
+            public void onShotPublished(ShotEventBus.Consumer consumer) {
+                ShotEvent event = new ShotEvent();
+                calls.add(consumer.getName() + " " + (consumer.poll(event) ? event.sequence : -1L));
+            }
+        };
+        ShotEventBus.Consumer audio = bus.addConsumer("audio", 4, listener);
+        bus.addConsumer("log", 4, listener);
+        bus.publish(new ShotEvent());
+        bus.removeConsumer(audio);
+        bus.publish(new ShotEvent());
+
+        assertEquals("[audio 0, log 0, log 1]", calls.toString());
+        assertEquals(1, bus.getConsumers().length);
+    }
+
+    @Test
+    public void newConsumerOnlyReadsLaterEvents() {
+        ShotEventBus bus = new ShotEventBus(4);
+        bus.publish(new ShotEvent());
+        ShotEventBus.Consumer consumer = bus.addConsumer("late", 4, null);
+        ShotEvent event = new ShotEvent();
+
+        assertFalse(consumer.poll(event));
+        bus.publish(new ShotEvent());
+        assertTrue(consumer.poll(event));
+        assertEquals(1L, event.sequence);
+    }
+
+    @Test
+    public void concurrentConsumerNeverReadsTornEvents() throws InterruptedException {
+        final ShotEventBus bus = new ShotEventBus(16);
+        final ShotEventBus.Consumer consumer = bus.addConsumer("reader", 16, null);
+        final int numEvents = 500000;
+        final String[] error = new String[1];
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                ShotEvent event = new ShotEvent();
+                long last = -1L;
+                while (last < numEvents - 1) {
+                    if (!consumer.poll(event)) {
+                        continue;
+                    }
+                    // (all the values of an event are derived from its sequence number)
+                    if (event.sequence <= last ||
+                        event.timestamp != event.sequence * 7L ||
+                        event.region != (int) event.sequence ||
+                        event.soundNumber != -(int) event.sequence) {
+                        error[0] = "Bad event " + event.sequence + " after " + last;
+                        return;
+                    }
+                    last = event.sequence;
+                }
+            }
+        };
+        reader.start();
+        ShotEvent shot = new ShotEvent();
+        for (int i = 0; i < numEvents; ++i) {
+            bus.publish(shot.set(i * 7L, 0L, i, 0.0F, 0.0F, 0L, -i));
+        }
+        reader.join(30000L);
+
+        assertEquals(null, error[0]);
+        assertFalse(reader.isAlive());
+        assertEquals(numEvents, consumer.getNumConsumed() + consumer.getNumDropped());
+    }
+}
@@ -0,0 +1,122 @@
+package nus.cs4222.shootingapp.gesture.features;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the incremental window features against a naive recompute over the window.
+ */
+public class SlidingWindowFeaturesTest {
+
+    /** One millisecond (nanosec). */
+    private static final long MS = 1000000L;
+
+    @Test
+    public void emptyWindowHasZeroFeatures() {
+        SlidingWindowFeatures window = new SlidingWindowFeatures(200 * MS, 16);
+        float[] features = new float[SlidingWindowFeatures.NUM_FEATURES];
+
+        assertEquals(SlidingWindowFeatures.NUM_FEATURES, window.getFeatures(features, 0));
+        for (float feature : features) {
+            assertEquals(0.0F, feature, 0.0F);
+        }
+    }
+
+    @Test
+    public void dropsSamplesOlderThanWindow() {
+        SlidingWindowFeatures window = new SlidingWindowFeatures(100 * MS, 64);
+        window.add(0L, 5.0F);
+        window.add(50 * MS, -1.0F);
+        window.add(99 * MS, 2.0F);
+        assertEquals(3, window.size());
+        assertEquals(5.0F, window.getMax(), 0.0F);
+        assertEquals(2, window.getNumZeroCrossings());
+
+        // The first sample is now 100 ms old
+        window.add(100 * MS, 1.0F);
+        assertEquals(3, window.size());
+        assertEquals(2.0F, window.getMax(), 0.0F);
+        assertEquals(-1.0F, window.getMin(), 0.0F);
+        assertEquals(1, window.getNumZeroCrossings());
+        assertEquals(2.0 / 3.0, window.getMean(), 1e-9);
+    }
+
+    @Test
+    public void dropsOldestSamplesBeyondCapacity() {
+        SlidingWindowFeatures window = new SlidingWindowFeatures(1000 * MS, 4);
+        for (int i = 0; i < 10; ++i) {
+            window.add(i * MS, 10 - i);
+        }
+        assertEquals(4, window.size());
+        assertEquals(4.0F, window.getMax(), 0.0F);
+        assertEquals(1.0F, window.getMin(), 0.0F);
+    }
+
+    @Test
+    public void matchesNaiveRecomputeOnNoisyGravity() {
+        checkAgainstNaive(new Random(1), 9.81F, 0.05F, 200 * MS, 64);
+    }
+
+    @Test
+    public void matchesNaiveRecomputeOnAcclSpikes() {
+        checkAgainstNaive(new Random(2), 0.0F, 3.0F, 300 * MS, 32);
+    }
+
+    /** Feeds random samples (with jittered intervals) and compares every feature at every sample. */
+    private static void checkAgainstNaive(Random random, float offset, float scale, 
+                                          long windowDuration, int capacity) {
+        SlidingWindowFeatures window = new SlidingWindowFeatures(windowDuration, capacity);
+        int n = 20000;
+        long[] timestamps = new long[n];
+        float[] values = new float[n];
+        float[] features = new float[SlidingWindowFeatures.NUM_FEATURES];
+        long timestamp = 0L;
+        for (int i = 0; i < n; ++i) {
+            timestamp += (5 + random.nextInt(30)) * MS;
+            timestamps[i] = timestamp;
+            values[i] = offset + (float) random.nextGaussian() * scale;
+            if (i % 500 == 0) {
+                values[i] += 20.0F;
+            }
+            window.add(timestamp, values[i]);
+
+            // Naive recompute over the same window
+            int first = i;
+            while (first > 0 && i - first + 1 < capacity 
+                   && timestamp - timestamps[first - 1] < windowDuration) {
+                --first;
+            }
+            double sum = 0.0, sumSquares = 0.0;
+            float min = values[i], max = values[i];
+            int numZeroCrossings = 0;
+            for (int j = first; j <= i; ++j) {
+                sum += values[j];
+                min = Math.min(min, values[j]);
+                max = Math.max(max, values[j]);
+                if (j > first && (values[j - 1] < 0.0F) != (values[j] < 0.0F)) {
+                    ++numZeroCrossings;
+                }
+            }
+            int count = i - first + 1;
+            double mean = sum / count;
+            for (int j = first; j <= i; ++j) {
+                sumSquares += (values[j] - mean) * (values[j] - mean);
+            }
+            double variance = sumSquares / count;
+
+            window.getFeatures(features, 0);
+            assertEquals(count, window.size());
+            assertEquals(mean, features[SlidingWindowFeatures.FEATURE_MEAN], 1e-4 * (1.0 + Math.abs(mean)));
+            assertEquals(variance, features[SlidingWindowFeatures.FEATURE_VARIANCE], 1e-4 * (1.0 + variance));
+            assertEquals(min, features[SlidingWindowFeatures.FEATURE_MIN], 0.0F);
+            assertEquals(max, features[SlidingWindowFeatures.FEATURE_MAX], 0.0F);
+            assertEquals(variance + mean * mean, features[SlidingWindowFeatures.FEATURE_ENERGY], 
+                         1e-4 * (1.0 + variance + mean * mean));
+            assertEquals(numZeroCrossings, features[SlidingWindowFeatures.FEATURE_ZERO_CROSSINGS], 0.0F);
+            assertEquals(max - min, features[SlidingWindowFeatures.FEATURE_PEAK_TO_PEAK], 0.0F);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package nus.cs4222.shootingapp.gesture.features;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import nus.cs4222.shootingapp.gesture.SampleBatch;
+
+import org.junit.Test;
+
+/**
+ * Tests the layout of the feature vector and the batch path of the extractor.
+ */
+public class WindowFeatureExtractorTest {
+
+    /** Sample interval at game rate (nanosec). */
+    private static final long INTERVAL = 20000000L;
+
+    @Test
+    public void featureVectorHoldsEachChannel() {
+        WindowFeatureExtractor extractor = new WindowFeatureExtractor(100 * INTERVAL, 128);
+        extractor.onAlignedSample(INTERVAL, 1.0F, 2.0F, 3.0F, 0.0F, 0.0F, 9.8F);
+        extractor.onAlignedSample(2 * INTERVAL, 3.0F, 2.0F, -3.0F, 0.0F, 0.0F, 9.8F);
+        float[] features = new float[WindowFeatureExtractor.NUM_FEATURES];
+        extractor.getFeatureVector(features);
+
+        assertEquals(2.0F, features[WindowFeatureExtractor.getFeatureIndex(
+            WindowFeatureExtractor.CHANNEL_ACCL_X, SlidingWindowFeatures.FEATURE_MEAN)], 1e-6F);
+        assertEquals(6.0F, features[WindowFeatureExtractor.getFeatureIndex(
+            WindowFeatureExtractor.CHANNEL_ACCL_Z, SlidingWindowFeatures.FEATURE_PEAK_TO_PEAK)], 0.0F);
+        assertEquals(1.0F, features[WindowFeatureExtractor.getFeatureIndex(
+            WindowFeatureExtractor.CHANNEL_ACCL_Z, SlidingWindowFeatures.FEATURE_ZERO_CROSSINGS)], 0.0F);
+        assertEquals(9.8F, features[WindowFeatureExtractor.getFeatureIndex(
+            WindowFeatureExtractor.CHANNEL_GRAVITY_Z, SlidingWindowFeatures.FEATURE_MAX)], 0.0F);
+    }
+
+    @Test
+    public void batchMatchesSampleBySample() {
+        WindowFeatureExtractor single = new WindowFeatureExtractor(10 * INTERVAL, 16);
+        WindowFeatureExtractor batched = new WindowFeatureExtractor(10 * INTERVAL, 16);
+        SampleBatch batch = new SampleBatch(8);
+        Random random = new Random(4);
+        for (int i = 0; i < 96; ++i) {
+            float ax = (float) random.nextGaussian(), gz = 9.8F + (float) random.nextGaussian();
+            single.onAlignedSample(i * INTERVAL, ax, 0.0F, 0.0F, 0.0F, 0.0F, gz);
+            batch.onAlignedSample(i * INTERVAL, ax, 0.0F, 0.0F, 0.0F, 0.0F, gz);
+            if (batch.isFull()) {
+                batched.onBatch(batch);
+                batch.clear();
+            }
+        }
+        float[] expected = new float[WindowFeatureExtractor.NUM_FEATURES];
+        float[] actual = new float[WindowFeatureExtractor.NUM_FEATURES];
+        single.getFeatureVector(expected);
+        batched.getFeatureVector(actual);
+        assertArrayEquals(expected, actual, 0.0F);
+    }
+}
@@ -0,0 +1,134 @@
+package nus.cs4222.shootingapp.gesture.history;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nus.cs4222.shootingapp.gesture.stats.LatencyHistogram;
+
+/**
+ * Tests appending to a shot history and querying it.
+ */
+public class ShotHistoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendsAcrossSessionsAndBlocks() throws IOException {
+        File file = folder.newFile("shots.history");
+        file.delete();
+
+        // Two sessions, the second continuing the partly filled last block
+        ShotHistoryWriter writer = new ShotHistoryWriter(file, 100);
+        for (int i = 0; i < 250; ++i) {
+            writer.append(1000L * i, 1 + i % 8, i % 360, 5.0F + i % 10, 20000000L);
+        }
+        writer.close();
+        assertEquals(3, writer.getNumWrites());
+        writer = new ShotHistoryWriter(file, 999);
+        assertEquals(250L, writer.size());
+        for (int i = 250; i < 320; ++i) {
+            writer.append(1000L * i, 1 + i % 8, i % 360, 5.0F + i % 10, 20000000L);
+        }
+        writer.close();
+
+        assertEquals(ShotHistory.HEADER_SIZE + 4L * ShotHistory.getBlockSize(100), file.length());
+        ShotHistoryReader reader = new ShotHistoryReader(file);
+        try {
+            assertEquals(320L, reader.size());
+            assertEquals(4, reader.getNumBlocks());
+            assertEquals(0L, reader.getMinTime());
+            long[] counts = new long[ShotHistory.MAX_REGION + 1];
+            assertEquals(320L, reader.countByRegion(0L, Long.MAX_VALUE, counts));
+            for (int r = 1; r <= 8; ++r) {
+                assertEquals(40L, counts[r]);
+            }
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void flushWritesOnlyThePendingBlock() throws IOException {
+        File file = new File(folder.getRoot(), "flush.history");
+        ShotHistoryWriter writer = new ShotHistoryWriter(file, 64);
+        for (int i = 0; i < 10; ++i) {
+            writer.append(i, 1, 0.0F, 8.0F, 0L);
+        }
+        assertEquals(10, writer.getNumPending());
+        assertEquals(ShotHistory.HEADER_SIZE, file.length());
+        writer.flush();
+        writer.flush();
+
+        assertEquals(0, writer.getNumPending());
+        assertEquals(1L, writer.getNumWrites());
+        ShotHistoryReader reader = new ShotHistoryReader(file);
+        try {
+            assertEquals(10L, reader.size());
+        }
+        finally {
+            reader.close();
+            writer.close();
+        }
+    }
+
+    @Test
+    public void queriesSkipBlocksSettledByTheirIndex() throws IOException {
+        File file = new File(folder.getRoot(), "query.history");
+        ShotHistoryWriter writer = new ShotHistoryWriter(file, 100);
+        for (int i = 0; i < 1000; ++i) {
+            // (each block of 100 shots is in one region, with forces 0 .. 19.8)
+            writer.append(1000L * i, 1 + i / 100, i % 10, (i % 100) * 0.2F, (1 + i % 10) * 1000000L);
+        }
+        writer.close();
+
+        ShotHistoryReader reader = new ShotHistoryReader(file);
+        try {
+            // Whole blocks in one region are counted from their headers
+            long[] counts = new long[ShotHistory.MAX_REGION + 1];
+            assertEquals(1000L, reader.countByRegion(0L, Long.MAX_VALUE, counts));
+            assertEquals(0, reader.getNumBlocksScanned());
+            assertEquals(100L, counts[10]);
+
+            // Only the blocks at the ends of the time range are scanned
+            counts = new long[ShotHistory.MAX_REGION + 1];
+            assertEquals(300L, reader.countByRegion(150000L, 450000L, counts));
+            assertEquals(2, reader.getNumBlocksScanned());
+            assertEquals(50L, counts[2]);
+            assertEquals(100L, counts[3]);
+            assertEquals(50L, counts[5]);
+
+            // Force bins (and blocks below the min force are skipped)
+            long[] bins = new long[4];
+            assertEquals(1000L, reader.forceHistogram(0L, Long.MAX_VALUE, 5.0F, bins));
+            assertArrayEquals(new long[] {250L, 250L, 250L, 250L}, bins);
+            assertEquals(500L, reader.count(0L, Long.MAX_VALUE, 9.9F));
+            assertEquals(0L, reader.count(0L, Long.MAX_VALUE, 20.0F));
+            assertEquals(0, reader.getNumBlocksScanned());
+
+            // Latency percentiles (1 .. 10 ms)
+            LatencyHistogram latencies = new LatencyHistogram();
+            assertEquals(1000L, reader.latencies(0L, Long.MAX_VALUE, latencies));
+            assertEquals(10000000L, latencies.getMax());
+            assertEquals(5000000.0, latencies.getValueAtPercentile(50.0), 5000000.0 * 0.125);
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile("other.history");
+        java.nio.file.Files.write(file.toPath(), new byte[64]);
+        new ShotHistoryReader(file);
+    }
+}
@@ -0,0 +1,53 @@
+package nus.cs4222.shootingapp.gesture.math;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the documented error bounds of the table-based trig functions.
+ */
+public class FastMathTest {
+
+    /** Documented max error (deg). */
+    private static final double MAX_ERROR = 1e-4;
+
+    @Test
+    public void atan2IsWithinErrorBound() {
+        Random random = new Random(1L);
+        double maxError = 0.0;
+        for (int i = 0; i < 1000000; ++i) {
+            float y = (float) random.nextGaussian() * 10.0F;
+            float x = (float) random.nextGaussian() * 10.0F;
+            double exact = Math.toDegrees(Math.atan2(y, x));
+            maxError = Math.max(maxError, Math.abs(FastMath.atan2Deg(y, x) - exact));
+        }
+        assertTrue("Max error " + maxError, maxError <= MAX_ERROR);
+    }
+
+    @Test
+    public void atan2HandlesAxesAndZero() {
+        assertEquals(0.0F, FastMath.atan2Deg(0.0F, 0.0F), 0.0F);
+        assertEquals(0.0F, FastMath.atan2Deg(0.0F, 5.0F), 0.0F);
+        assertEquals(90.0F, FastMath.atan2Deg(5.0F, 0.0F), 0.0F);
+        assertEquals(180.0F, FastMath.atan2Deg(0.0F, -5.0F), 0.0F);
+        assertEquals(-90.0F, FastMath.atan2Deg(-5.0F, 0.0F), 0.0F);
+        assertEquals(-135.0F, FastMath.atan2Deg(-1.0F, -1.0F), 1e-4F);
+    }
+
+    @Test
+    public void acosIsWithinErrorBound() {
+        double maxError = 0.0;
+        for (int i = -100000; i <= 100000; ++i) {
+            float value = i / 100000.0F;
+            double exact = Math.toDegrees(Math.acos(value));
+            maxError = Math.max(maxError, Math.abs(FastMath.acosDeg(value) - exact));
+        }
+        assertTrue("Max error " + maxError, maxError <= MAX_ERROR);
+        assertEquals(0.0F, FastMath.acosDeg(1.5F), 0.0F);
+        assertEquals(180.0F, FastMath.acosDeg(-1.5F), 0.0F);
+    }
+}
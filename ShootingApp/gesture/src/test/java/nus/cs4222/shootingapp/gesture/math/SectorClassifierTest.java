@@ -0,0 +1,50 @@
+package nus.cs4222.shootingapp.gesture.math;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the sector classification by comparison matches the
+ * classification of the exact angle away from the sector boundaries.
+ */
+public class SectorClassifierTest {
+
+    @Test
+    public void matchesExactAngleAwayFromBoundaries() {
+        Random random = new Random(2L);
+        for (int numSectors : new int[] { 1, 2, 3, 4, 5, 6, 7, 8, 12, 16, 36 }) {
+            SectorClassifier classifier = new SectorClassifier(numSectors);
+            double width = 360.0 / numSectors;
+            for (int i = 0; i < 100000; ++i) {
+                float east = (float) random.nextGaussian();
+                float north = (float) random.nextGaussian();
+                double angle = Math.toDegrees(Math.atan2(east, north));
+                if (angle < 0.0) {
+                    angle += 360.0;
+                }
+
+                // Skip directions within rounding of a boundary
+                double offset = angle % width;
+                if (offset < 1e-3 || width - offset < 1e-3) {
+                    continue;
+                }
+                assertEquals(numSectors + " sectors, angle " + angle,
+                        (int) (angle / width), classifier.classify(east, north));
+            }
+        }
+    }
+
+    @Test
+    public void classifiesAxisDirections() {
+        SectorClassifier classifier = new SectorClassifier(8);
+
+        assertEquals(0, classifier.classify(0.0F, 1.0F));
+        assertEquals(2, classifier.classify(1.0F, 0.0F));
+        assertEquals(4, classifier.classify(0.0F, -1.0F));
+        assertEquals(6, classifier.classify(-1.0F, 0.0F));
+        assertEquals(0, classifier.classify(0.0F, 0.0F));
+    }
+}
@@ -0,0 +1,103 @@
+package nus.cs4222.shootingapp.gesture.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the log-linear latency histogram.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReturnsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getValueAtPercentile(50.0));
+        assertEquals(0.0, histogram.getMean(), 0.0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1L; value <= 4L; ++value) {
+            histogram.record(value);
+        }
+
+        assertEquals(2L, histogram.getValueAtPercentile(50.0));
+        assertEquals(4L, histogram.getValueAtPercentile(100.0));
+        assertEquals(4L, histogram.getMax());
+        assertEquals(2.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void bucketsCoverValuesWithBoundedError() {
+        for (long value = 0L; value < 100000L; value += 7L) {
+            checkBucket(value);
+        }
+        checkBucket(Long.MAX_VALUE);
+        checkBucket(123456789012L);
+    }
+
+    @Test
+    public void percentilesOfUniformValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1L; value <= 1000L; ++value) {
+            histogram.record(value * 1000L);
+        }
+
+        long p50 = histogram.getValueAtPercentile(50.0);
+        long p99 = histogram.getValueAtPercentile(99.0);
+        assertTrue("p50 " + p50, p50 >= 500000L && p50 <= 500000L * 1.125);
+        assertTrue("p99 " + p99, p99 >= 990000L && p99 <= 1000000L);
+        assertEquals(1000000L, histogram.getValueAtPercentile(100.0));
+    }
+
+    @Test
+    public void negativeValuesAreRecordedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5L);
+
+        assertEquals(1L, histogram.getCount());
+        assertEquals(0L, histogram.getValueAtPercentile(100.0));
+    }
+
+    @Test
+    public void resetClearsValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000L);
+
+        histogram.reset();
+
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getMax());
+        assertEquals(0L, histogram.getValueAtPercentile(99.0));
+    }
+
+    @Test
+    public void addMergesValues() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (long value = 1L; value <= 100L; ++value) {
+            (value % 2L == 0L ? first : second).record(value);
+        }
+
+        first.add(second);
+
+        assertEquals(100L, first.getCount());
+        assertEquals(100L, first.getMax());
+        assertEquals(50.5, first.getMean(), 1e-9);
+        assertEquals(50L, second.getCount());
+    }
+
+    /** Checks that the value's bucket contains it, and is at most 12.5% wide. */
+    private static void checkBucket(long value) {
+        int bucket = LatencyHistogram.getBucket(value);
+        long upper = LatencyHistogram.getBucketUpperBound(bucket);
+        long lower = (bucket == 0) ? 0L : LatencyHistogram.getBucketUpperBound(bucket - 1) + 1L;
+        assertTrue("Value " + value, lower <= value && value <= upper);
+        assertTrue("Value " + value, upper - lower <= lower / 8L);
+    }
+}
@@ -0,0 +1,66 @@
+package nus.cs4222.shootingapp.gesture.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the streaming quantile estimate against the exact quantiles.
+ */
+public class P2QuantileEstimatorTest {
+
+    @Test
+    public void exactForFewValues() {
+        P2QuantileEstimator median = new P2QuantileEstimator(0.5);
+        median.add(3.0);
+        median.add(1.0);
+        median.add(2.0);
+
+        assertEquals(2.0, median.getQuantile(), 0.0);
+        assertEquals(3L, median.getCount());
+    }
+
+    @Test
+    public void estimatesQuantilesOfNormalValues() {
+        checkQuantiles(new Random(4222L), false);
+    }
+
+    @Test
+    public void estimatesQuantilesOfSkewedValues() {
+        checkQuantiles(new Random(4222L), true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidQuantile() {
+        new P2QuantileEstimator(1.5);
+    }
+
+    /** Compares the estimates of several quantiles with the exact ones (within 2% of the range). */
+    private static void checkQuantiles(Random random, boolean isSkewed) {
+        double[] levels = {0.1, 0.5, 0.9, 0.99};
+        P2QuantileEstimator[] estimators = new P2QuantileEstimator[levels.length];
+        for (int i = 0; i < levels.length; ++i) {
+            estimators[i] = new P2QuantileEstimator(levels[i]);
+        }
+
+        double[] values = new double[20000];
+        for (int i = 0; i < values.length; ++i) {
+            double value = random.nextGaussian();
+            values[i] = isSkewed ? Math.exp(value) : value;
+            for (P2QuantileEstimator estimator : estimators) {
+                estimator.add(values[i]);
+            }
+        }
+
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        double range = sorted[sorted.length - 1] - sorted[0];
+        for (int i = 0; i < levels.length; ++i) {
+            double exact = sorted[(int) (levels[i] * (sorted.length - 1))];
+            assertEquals("Quantile " + levels[i], exact, estimators[i].getQuantile(), 0.02 * range);
+        }
+    }
+}
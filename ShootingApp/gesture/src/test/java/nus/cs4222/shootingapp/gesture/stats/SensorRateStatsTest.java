@@ -0,0 +1,48 @@
+package nus.cs4222.shootingapp.gesture.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the sensor event rate and jitter stats.
+ */
+public class SensorRateStatsTest {
+
+    @Test
+    public void regularSamplesHaveNoJitter() {
+        SensorRateStats stats = new SensorRateStats();
+        for (int i = 0; i <= 100; ++i) {
+            stats.onSample(1000000000L + i * 20000000L);
+        }
+
+        assertEquals(101L, stats.getNumSamples());
+        assertEquals(50.0, stats.getRate(), 1e-9);
+        assertEquals(0.0, stats.getJitter(), 1.0);
+    }
+
+    @Test
+    public void alternatingIntervalsHaveJitter() {
+        SensorRateStats stats = new SensorRateStats();
+        long timestamp = 0L;
+        for (int i = 0; i < 100; ++i) {
+            timestamp += (i % 2 == 0) ? 15000000L : 25000000L;
+            stats.onSample(timestamp);
+        }
+
+        assertEquals(50.0, stats.getRate(), 0.5);
+        assertEquals(5000000.0, stats.getJitter(), 1000.0);
+    }
+
+    @Test
+    public void timeGoingBackwardsStartsNewSpan() {
+        SensorRateStats stats = new SensorRateStats();
+        stats.onSample(5000000000L);
+        stats.onSample(5010000000L);
+
+        stats.onSample(0L);
+        stats.onSample(10000000L);
+
+        assertEquals(100.0, stats.getRate(), 1e-9);
+    }
+}
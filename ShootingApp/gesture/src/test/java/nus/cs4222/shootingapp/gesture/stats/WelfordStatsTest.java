@@ -0,0 +1,49 @@
+package nus.cs4222.shootingapp.gesture.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the running mean and variance.
+ */
+public class WelfordStatsTest {
+
+    @Test
+    public void matchesTwoPassStatistics() {
+        double[] values = {2.0, 4.0, 4.0, 4.0, 5.0, 5.0, 7.0, 9.0};
+        WelfordStats stats = new WelfordStats();
+        for (double value : values) {
+            stats.add(value);
+        }
+
+        assertEquals(8L, stats.getCount());
+        assertEquals(5.0, stats.getMean(), 1e-12);
+        assertEquals(32.0 / 7.0, stats.getVariance(), 1e-12);
+        assertEquals(2.0, stats.getMin(), 0.0);
+        assertEquals(9.0, stats.getMax(), 0.0);
+    }
+
+    @Test
+    public void staysPreciseWithLargeOffset() {
+        WelfordStats stats = new WelfordStats();
+        for (int i = 0; i < 1000; ++i) {
+            stats.add(1.0e9 + (i % 2));
+        }
+
+        assertEquals(0.25 * 1000.0 / 999.0, stats.getVariance(), 1e-6);
+    }
+
+    @Test
+    public void emptyAndSingleValue() {
+        WelfordStats stats = new WelfordStats();
+        assertEquals(0.0, stats.getVariance(), 0.0);
+
+        stats.add(-3.0);
+
+        assertEquals(-3.0, stats.getMean(), 0.0);
+        assertEquals(0.0, stats.getStdDev(), 0.0);
+        assertEquals(-3.0, stats.getMin(), 0.0);
+        assertEquals(-3.0, stats.getMax(), 0.0);
+    }
+}
@@ -0,0 +1,116 @@
+package nus.cs4222.shootingapp.gesture.trace;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nus.cs4222.shootingapp.gesture.SensorSampleListener;
+
+/**
+ * Tests writing and reading back sensor traces.
+ */
+public class SensorTraceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsRecordsAcrossMappedRegions() throws IOException {
+        File file = folder.newFile("test.trace");
+        int numRecords = 100000;
+
+        SensorTraceWriter writer = new SensorTraceWriter(file);
+        float[] values = new float[3];
+        for (int i = 0; i < numRecords; ++i) {
+            values[0] = i;
+            values[1] = -i;
+            values[2] = i * 0.5F;
+            writer.write(sensorType(i), i % 4, 1000L * i, values);
+        }
+        writer.close();
+
+        assertEquals(SensorTrace.HEADER_SIZE + (long) numRecords * SensorTrace.RECORD_SIZE, file.length());
+        SensorTraceReader reader = new SensorTraceReader(file);
+        try {
+            assertEquals(numRecords, reader.size());
+            for (int i = 0; i < numRecords; i += 997) {
+                assertEquals(1000L * i, reader.getTimestamp(i));
+                assertEquals(sensorType(i), reader.getSensorType(i));
+                assertEquals(i % 4, reader.getAccuracy(i));
+                assertEquals(i, reader.getX(i), 0.0F);
+                assertEquals(-i, reader.getY(i), 0.0F);
+                assertEquals(i * 0.5F, reader.getZ(i), 0.0F);
+            }
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void readsUnclosedRecordingUpToLastRecord() throws IOException {
+        File file = folder.newFile("unclosed.trace");
+
+        // Not closed: the header has no record count, and the rest of the mapped region is zeros
+        SensorTraceWriter writer = new SensorTraceWriter(file);
+        for (int i = 0; i < 10; ++i) {
+            writer.write(SensorTrace.TYPE_GRAVITY, 3, i, 0.0F, 0.0F, 9.81F);
+        }
+
+        SensorTraceReader reader = new SensorTraceReader(file);
+        try {
+            assertEquals(10, reader.size());
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void replaysRecordsInOrder() throws Exception {
+        File file = folder.newFile("replay.trace");
+        SensorTraceWriter writer = new SensorTraceWriter(file);
+        for (int i = 0; i < 5; ++i) {
+            writer.write(sensorType(i), 0, 1000000L * i, i, 0.0F, 0.0F);
+        }
+        writer.close();
+
+        final List<Long> timestamps = new ArrayList<Long>();
+        SensorSampleListener listener = new SensorSampleListener() {
+            @Override
+            public void onSample(int sensorType, long timestamp, float x, float y, float z) {
+                assertEquals(sensorType((int) x), sensorType);
+                timestamps.add(timestamp);
+            }
+        };
+        SensorTraceReader reader = new SensorTraceReader(file);
+        try {
+            reader.replay(listener);
+            reader.replayAtNativeRate(listener);
+        }
+        finally {
+            reader.close();
+        }
+        assertEquals(10, timestamps.size());
+        assertEquals(4000000L, (long) timestamps.get(9));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile("other.bin");
+        Files.write(file.toPath(), new byte[64]);
+        new SensorTraceReader(file);
+    }
+
+    private static int sensorType(int i) {
+        return (i % 2 == 0) ? SensorTrace.TYPE_GRAVITY : SensorTrace.TYPE_LINEAR_ACCELERATION;
+    }
+}
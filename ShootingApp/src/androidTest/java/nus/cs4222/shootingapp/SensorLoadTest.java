@@ -0,0 +1,178 @@
+package nus.cs4222.shootingapp;
+
+import android.content.Intent;
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+
+/**
+ * Load test of the whole sample pipeline (ring buffer, processing thread,
+ * detection, GUI updates and gunshot sounds), driven by simulated sensors,
+ * so it runs on an emulator without sensor hardware.
+ * <p/>
+ * To run this test, you can type:
+ * adb shell am instrument -w \
+ * -e class nus.cs4222.shootingapp.SensorLoadTest \
+ * nus.cs4222.shootingapp.tests/android.test.InstrumentationTestRunner
+ */
+public class SensorLoadTest extends ActivityInstrumentationTestCase2<ShootingAppActivity> {
+
+    private static final String TAG = "SensorLoadTest";
+
+    public SensorLoadTest() {
+        super("nus.cs4222.shootingapp", ShootingAppActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Intent intent = new Intent();
+        intent.putExtra(ShootingService.EXTRA_SENSOR_SOURCE, ShootingService.SENSOR_SOURCE_SYNTHETIC);
+        intent.putExtra(ShootingService.EXTRA_SENSOR_RATE, 1.0F);
+        intent.putExtra(ShootingService.EXTRA_SHOT_INTERVAL, 500L);
+        setActivityIntent(intent);
+    }
+
+    /** Starts the activity, and returns the service it is bound to (once bound). */
+    private ShootingService getService() {
+        ShootingAppActivity activity = getActivity();
+        getInstrumentation().waitForIdleSync();
+        assertNotNull("Pipeline bound", activity.getService());
+        return activity.getService();
+    }
+
+    /** Checks that synthetic shots at the hardware rate are all detected and played, without drops. */
+    public void testSyntheticShotsAreDetected() throws InterruptedException {
+        ShootingService service = getService();
+        assertTrue(service.getSensorSource() instanceof SyntheticSensorSource);
+
+        // (about 8 shots in 4 sec, the first ones may be missed while the pipeline starts)
+        Thread.sleep(4000L);
+
+        assertTrue("Samples processed", service.getNumProcessedSamples() > 500L);
+        assertTrue("Shots " + service.getNumShots(), service.getNumShots() >= 5L);
+        assertEquals(0L, service.getNumDroppedSamples());
+    }
+
+    /**
+     * Checks that pausing and resuming the activity keeps the same pipeline,
+     * which keeps detecting shots while paused, and that re-attaching the
+     * display takes less than a frame.
+     */
+    public void testPipelineSurvivesPauseAndResume() throws InterruptedException {
+        final ShootingAppActivity activity = getActivity();
+        ShootingService service = getService();
+        Thread.sleep(1000L);
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                getInstrumentation().callActivityOnPause(activity);
+            }
+        });
+        long pausedSamples = service.getNumProcessedSamples();
+        long pausedShots = service.getNumShots();
+        // (about 4 shots while paused)
+        Thread.sleep(2000L);
+        assertTrue("Samples processed while paused", service.getNumProcessedSamples() > pausedSamples + 100L);
+        assertTrue("Shots while paused", service.getNumShots() >= pausedShots + 2L);
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                getInstrumentation().callActivityOnResume(activity);
+            }
+        });
+        assertSame(service, activity.getService());
+        assertEquals(0L, service.getNumDroppedSamples());
+        Log.i(TAG, "Display re-attached in " + activity.getLastAttachTime() / 1000L + " microsec");
+        assertTrue("Attach time " + activity.getLastAttachTime(), activity.getLastAttachTime() < 16000000L);
+    }
+
+    /**
+     * Checks that stopping the activity suspends the sensing (nothing is
+     * processed or shot in the background), and starting it again resumes
+     * the same pipeline.
+     */
+    public void testSensingSuspendedWhileStopped() throws InterruptedException {
+        final ShootingAppActivity activity = getActivity();
+        ShootingService service = getService();
+        Thread.sleep(1000L);
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                getInstrumentation().callActivityOnPause(activity);
+                getInstrumentation().callActivityOnStop(activity);
+            }
+        });
+        // (the samples already delivered are still processed)
+        Thread.sleep(500L);
+        long stoppedSamples = service.getNumProcessedSamples();
+        long stoppedShots = service.getNumShots();
+        Thread.sleep(2000L);
+        assertEquals("Samples processed while stopped", stoppedSamples, service.getNumProcessedSamples());
+        assertEquals("Shots while stopped", stoppedShots, service.getNumShots());
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                getInstrumentation().callActivityOnRestart(activity);
+                getInstrumentation().callActivityOnStart(activity);
+                getInstrumentation().callActivityOnResume(activity);
+            }
+        });
+        Thread.sleep(2000L);
+        assertSame(service, activity.getService());
+        assertTrue("Samples processed after restart", service.getNumProcessedSamples() > stoppedSamples + 100L);
+        assertTrue("Shots after restart", service.getNumShots() >= stoppedShots + 2L);
+    }
+
+    /**
+     * Raises the sensor rate until the pipeline falls behind (samples dropped
+     * by the ring buffer, or skipped by the source), and logs the throughput
+     * at each rate.
+     */
+    public void testThroughputLimit() throws InterruptedException {
+        ShootingService service = getService();
+        SimulatedSensorSource source = (SimulatedSensorSource) service.getSensorSource();
+        Thread.sleep(1000L);
+
+        float sustainedMultiplier = 0.0F;
+        double sustainedRate = 0.0;
+        for (float multiplier : new float[] {1.0F, 10.0F, 50.0F, 200.0F, 1000.0F}) {
+            source.setRateMultiplier(multiplier);
+            Thread.sleep(500L);
+
+            // Measure over 2 sec at this rate
+            long startTime = SystemClock.elapsedRealtimeNanos();
+            long startDelivered = source.getNumDelivered();
+            long startSkipped = source.getNumSkipped();
+            long startProcessed = service.getNumProcessedSamples();
+            long startDropped = service.getNumDroppedSamples();
+            long startShots = service.getNumShots();
+            Thread.sleep(2000L);
+            double seconds = (SystemClock.elapsedRealtimeNanos() - startTime) / 1e9;
+            long delivered = source.getNumDelivered() - startDelivered;
+            long skipped = source.getNumSkipped() - startSkipped;
+            long processed = service.getNumProcessedSamples() - startProcessed;
+            long dropped = service.getNumDroppedSamples() - startDropped;
+            long shots = service.getNumShots() - startShots;
+            Log.i(TAG, String.format("x%.0f: delivered %.0f /sec , processed %.0f /sec , " +
+                                     "dropped %d , skipped %d , shots %d",
+                                     multiplier, delivered / seconds, processed / seconds,
+                                     dropped, skipped, shots));
+
+            if (dropped > 0L || skipped > 0L) {
+                break;
+            }
+            sustainedMultiplier = multiplier;
+            sustainedRate = processed / seconds;
+        }
+        Log.i(TAG, String.format("Throughput limit: above x%.0f of the hardware rates (%.0f samples/sec sustained)",
+                                 sustainedMultiplier, sustainedRate));
+
+        // The hardware rate must be sustained with a wide margin
+        assertTrue("Sustained multiplier " + sustainedMultiplier, sustainedMultiplier >= 10.0F);
+    }
+}
@@ -1,7 +1,22 @@
 package nus.cs4222.shootingapp;
 
+import android.hardware.Sensor;
+import android.os.Debug;
+import android.os.SystemClock;
 import android.test.ActivityInstrumentationTestCase2;
 
+import nus.cs4222.shootingapp.gesture.AlignedSampleListener;
+import nus.cs4222.shootingapp.gesture.FaceUpDetector;
+import nus.cs4222.shootingapp.gesture.HeadingFilter;
+import nus.cs4222.shootingapp.gesture.SampleBatch;
+import nus.cs4222.shootingapp.gesture.SamplingScheduler;
+import nus.cs4222.shootingapp.gesture.SensorSampleListener;
+import nus.cs4222.shootingapp.gesture.SensorStreamJoiner;
+import nus.cs4222.shootingapp.gesture.ThresholdCalibrator;
+import nus.cs4222.shootingapp.gesture.ThresholdGestureDetector;
+import nus.cs4222.shootingapp.gesture.event.ShotEvent;
+import nus.cs4222.shootingapp.gesture.event.ShotEventBus;
+
 /**
  * This is a simple framework for a test of an Application.  See
  * {@link android.test.ApplicationTestCase ApplicationTestCase} for more information on
@@ -14,8 +29,147 @@ import android.test.ActivityInstrumentationTestCase2;
  */
 public class ShootingAppActivityTest extends ActivityInstrumentationTestCase2<ShootingAppActivity> {
 
+    /** Millisec in nanosec. */
+    private static final long MS = 1000000L;
+
     public ShootingAppActivityTest() {
         super("nus.cs4222.shootingapp", ShootingAppActivity.class);
     }
 
+    /**
+     * Checks that processing gravity and linear accl samples (including
+     * detected gestures) does not allocate any objects.
+     * <p/>
+     * The samples go through a pipeline of its own (see IsolatedPipeline),
+     * in this thread, so the test neither races the processing thread of
+     * the app's service, nor plays, records or adapts to its shots.
+     */
+    public void testSampleProcessingDoesNotAllocate() {
+        IsolatedPipeline pipeline = new IsolatedPipeline();
+
+        // Warm up (class loading, the calibration's rest phase, etc.)
+        pipeline.feedSamples(1000);
+
+        // Count the allocations on this thread while processing the samples
+        final int numSamples = 10000;
+        long numShots = pipeline.numShots;
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        pipeline.feedSamples(numSamples);
+        int numAllocations = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+
+        assertEquals("Allocations per " + numSamples + " samples", 0, numAllocations);
+        assertTrue("Shots " + (pipeline.numShots - numShots), pipeline.numShots - numShots >= 100L);
+    }
+
+    /**
+     * The sample processing path of ShootingService (ring buffer, stats,
+     * stream joiner, heading, sampling scheduler, face up, calibration,
+     * gesture detection, display model and shot bus), on objects of its
+     * own.
+     */
+    private static class IsolatedPipeline implements SensorSampleListener, AlignedSampleListener {
+
+        IsolatedPipeline() {
+            calibrator.start();
+            consumer = shotBus.addConsumer("test", 64, null);
+            timestamp = SystemClock.elapsedRealtimeNanos();
+        }
+
+        /**
+         * Feeds alternating face up gravity and linear accl samples (with a
+         * gesture every 50 samples), with timestamps carrying on from the
+         * previous call.
+         */
+        void feedSamples(int numSamples) {
+            for (int i = 0; i < numSamples; ++i) {
+                timestamp += 10 * MS;
+                if (i % 2 == 0) {
+                    values[0] = 0.5F;
+                    values[1] = 0.3F;
+                    values[2] = 9.7F;
+                    sampleBuffer.put(Sensor.TYPE_GRAVITY, timestamp, values);
+                }
+                else {
+                    values[0] = 0.1F;
+                    values[1] = 0.2F;
+                    values[2] = (i % 50 < 4) ? 9.0F : 0.0F;
+                    sampleBuffer.put(Sensor.TYPE_LINEAR_ACCELERATION, timestamp, values);
+                }
+                if (i % 16 == 15) {
+                    while (sampleBuffer.drain(this, 32) > 0) {
+                        processAcclBatch();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onSample(int sensorType, long timestamp, float x, float y, float z) {
+            stats.recordLatency(PipelineStats.STAGE_PROCESS, SystemClock.elapsedRealtimeNanos() - timestamp);
+            stats.onSensorSample(sensorType, timestamp);
+            if (sensorType == Sensor.TYPE_GRAVITY) {
+                displayModel.setGravity(x, y, z, faceUpDetector.isFaceUp());
+                streamJoiner.onGravitySample(timestamp, x, y, z);
+                headingFilter.onGravitySample(x, y, z);
+                samplingScheduler.onGravitySample(timestamp, x, y, z);
+            }
+            else {
+                streamJoiner.onAcclSample(timestamp, x, y, z);
+            }
+        }
+
+        @Override
+        public void onAlignedSample(long timestamp, float ax, float ay, float az, float gx, float gy, float gz) {
+            batch.onAlignedSample(timestamp, ax, ay, az, gx, gy, gz);
+            if (batch.isFull()) {
+                processAcclBatch();
+            }
+        }
+
+        private void processAcclBatch() {
+            if (batch.size() == 0) {
+                return;
+            }
+            faceUpDetector.onBatch(batch);
+            for (int i = 0; i < batch.size(); ++i) {
+                if (batch.isFaceUp[i]) {
+                    calibrator.onSample(batch.timestamps[i], batch.az[i]);
+                }
+            }
+            int numDetected = gestureDetector.onBatch(batch, gestureIndices);
+            for (int i = 0; i < numDetected; ++i) {
+                long timestamp = batch.timestamps[gestureIndices[i]];
+                shotBus.publish(shotEvent.set(timestamp, System.currentTimeMillis(), 1, 0.0F, 9.0F, 0L, 0));
+                while (consumer.poll(polledEvent)) {
+                    ++numShots;
+                }
+            }
+            int last = batch.size() - 1;
+            displayModel.setAccl(batch.ax[last], batch.ay[last], batch.az[last], gestureDetector.getNumGestures());
+            batch.clear();
+        }
+
+        private final SensorSampleBuffer sampleBuffer = new SensorSampleBuffer(512);
+        private final PipelineStats stats = new PipelineStats();
+        private final SensorStreamJoiner streamJoiner = new SensorStreamJoiner(40 * MS, 32, this);
+        private final HeadingFilter headingFilter =
+            new HeadingFilter(HeadingFilter.DEFAULT_MAGNETIC_GAIN_WITHOUT_GYROSCOPE);
+        private final SamplingScheduler samplingScheduler = new SamplingScheduler(50.0F, 1000 * MS);
+        private final FaceUpDetector faceUpDetector = new FaceUpDetector(30.0F);
+        private final ThresholdCalibrator calibrator = new ThresholdCalibrator(3000 * MS, 5);
+        private final ThresholdGestureDetector gestureDetector =
+            new ThresholdGestureDetector(7.0F, 1.0F, 150 * MS, 400 * MS);
+        private final SampleBatch batch = new SampleBatch(64);
+        private final int[] gestureIndices = new int[64];
+        private final DisplayModel displayModel = new DisplayModel();
+        private final ShotEventBus shotBus = new ShotEventBus(64);
+        private final ShotEvent shotEvent = new ShotEvent();
+        private final ShotEvent polledEvent = new ShotEvent();
+        private final ShotEventBus.Consumer consumer;
+        private final float[] values = new float[3];
+        private long timestamp;
+        private long numShots;
+    }
 }
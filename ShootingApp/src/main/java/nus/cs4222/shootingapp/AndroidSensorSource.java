@@ -0,0 +1,90 @@
+package nus.cs4222.shootingapp;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+
+/**
+   Sensor source using the phone's sensors (the default sensor of each
+   type, through the SensorManager).
+ */
+public class AndroidSensorSource 
+    implements SensorSource , 
+               SensorEventListener {
+
+    /** Creates a source using the sensor manager. */
+    public AndroidSensorSource( SensorManager sensorManager ) {
+        this.sensorManager = sensorManager;
+    }
+
+    /** Checks whether the phone has a sensor of the given type. */
+    @Override
+    public boolean hasSensor( int sensorType ) {
+        return sensorManager.getDefaultSensor( sensorType ) != null;
+    }
+
+    /** Registers for the default sensor of the type. */
+    @Override
+    public boolean register( int sensorType , 
+                             int samplingPeriod , 
+                             int maxReportLatency , 
+                             Listener listener , 
+                             Handler handler ) {
+        Sensor sensor = sensorManager.getDefaultSensor( sensorType );
+        if( sensor == null ) {
+            return false;
+        }
+        this.listener = listener;
+
+        // Re-register the sensor (its rate cannot be changed otherwise)
+        sensorManager.unregisterListener( this , sensor );
+        if( maxReportLatency > 0 ) {
+            return sensorManager.registerListener( this , sensor , samplingPeriod , maxReportLatency , handler );
+        }
+        return sensorManager.registerListener( this , sensor , samplingPeriod , handler );
+    }
+
+    /** Unregisters the default sensor of the type. */
+    @Override
+    public void unregister( int sensorType ) {
+        Sensor sensor = sensorManager.getDefaultSensor( sensorType );
+        if( sensor != null ) {
+            sensorManager.unregisterListener( this , sensor );
+        }
+    }
+
+    /** Unregisters all the sensors. */
+    @Override
+    public void unregisterAll() {
+        sensorManager.unregisterListener( this );
+    }
+
+    /** Returns the name of the source. */
+    @Override
+    public String getName() {
+        return "phone sensors";
+    }
+
+    /** Called when the sensor value has changed (not necessarily periodically). */
+    @Override
+    public void onSensorChanged( SensorEvent event ) {
+        listener.onSensorSample( event.sensor.getType() , 
+                                 event.accuracy , 
+                                 event.timestamp , 
+                                 event.values );
+    }
+
+    /** Called when the accuracy changes. */
+    @Override
+    public void onAccuracyChanged( Sensor sensor , 
+                                   int accuracy ) {
+        // Ignore (except for magnetic sensor for figure 8 calibration)
+    }
+
+    /** Sensor manager. */
+    private final SensorManager sensorManager;
+    /** Receives the samples (volatile since it is set in the Main UI thread and used in the sensor thread). */
+    private volatile Listener listener;
+}
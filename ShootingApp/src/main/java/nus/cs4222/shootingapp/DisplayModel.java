@@ -0,0 +1,169 @@
+package nus.cs4222.shootingapp;
+
+/**
+   Latest values shown on screen, updated by the processing thread with
+   primitive fields only (no Strings, no posts to the main UI thread).
+
+   <p> The values come in three groups (gravity, linear accl, shooting
+   region), each with a version number that is bumped after each update
+   of the group, so the renderer (see DisplayRenderer) only looks at the
+   groups that changed since its last frame. After each update the
+   change listener is called, to get the renderer to draw at its next
+   frame. The values are written by one thread only, and each one is
+   volatile, so a frame may see an update half written, but then the
+   version has changed again and the next frame shows the whole
+   update.
+ */
+public class DisplayModel {
+
+    /** Called (in the writer thread) after each update of the model. */
+    public interface ChangeListener {
+
+        /** Called after the model has been updated. */
+        public void onDisplayModelChanged();
+    }
+
+    /** Sets the listener called after each update (null for none). */
+    public void setChangeListener( ChangeListener listener ) {
+        this.listener = listener;
+    }
+
+    /** Updates the gravity values, and whether the phone is face up. */
+    public void setGravity( float x ,
+                            float y ,
+                            float z ,
+                            boolean isFaceUp ) {
+        gravityX = x;
+        gravityY = y;
+        gravityZ = z;
+        this.isFaceUp = isFaceUp;
+        gravityVersion = gravityVersion + 1;
+        changed();
+    }
+
+    /** Updates the linear accl values, and the number of gestures. */
+    public void setAccl( float x ,
+                         float y ,
+                         float z ,
+                         int numGestures ) {
+        acclX = x;
+        acclY = y;
+        acclZ = z;
+        this.numGestures = numGestures;
+        acclVersion = acclVersion + 1;
+        changed();
+    }
+
+    /** Updates the shooting direction (deg) and region. */
+    public void setShootingRegion( float direction ,
+                                   int region ) {
+        shootingDirection = direction;
+        shootingRegion = region;
+        regionVersion = regionVersion + 1;
+        changed();
+    }
+
+    /** Returns the version of the gravity values (changes on each update, 0 before the first). */
+    public int getGravityVersion() {
+        return gravityVersion;
+    }
+
+    /** Returns the version of the linear accl values (changes on each update, 0 before the first). */
+    public int getAcclVersion() {
+        return acclVersion;
+    }
+
+    /** Returns the version of the shooting region values (changes on each update, 0 before the first). */
+    public int getRegionVersion() {
+        return regionVersion;
+    }
+
+    /** Returns the gravity X value. */
+    public float getGravityX() {
+        return gravityX;
+    }
+
+    /** Returns the gravity Y value. */
+    public float getGravityY() {
+        return gravityY;
+    }
+
+    /** Returns the gravity Z value. */
+    public float getGravityZ() {
+        return gravityZ;
+    }
+
+    /** Returns whether the phone is face up. */
+    public boolean isFaceUp() {
+        return isFaceUp;
+    }
+
+    /** Returns the linear accl X value. */
+    public float getAcclX() {
+        return acclX;
+    }
+
+    /** Returns the linear accl Y value. */
+    public float getAcclY() {
+        return acclY;
+    }
+
+    /** Returns the linear accl Z value. */
+    public float getAcclZ() {
+        return acclZ;
+    }
+
+    /** Returns the number of gestures. */
+    public int getNumGestures() {
+        return numGestures;
+    }
+
+    /** Returns the shooting direction (deg). */
+    public float getShootingDirection() {
+        return shootingDirection;
+    }
+
+    /** Returns the shooting region. */
+    public int getShootingRegion() {
+        return shootingRegion;
+    }
+
+    /** Tells the listener about an update. */
+    private void changed() {
+        ChangeListener currentListener = listener;
+        if( currentListener != null ) {
+            currentListener.onDisplayModelChanged();
+        }
+    }
+
+    /** Called after each update (null if none). */
+    private volatile ChangeListener listener;
+    /** Version of the gravity values (only modified in the writer thread). */
+    private volatile int gravityVersion;
+    /** Version of the linear accl values (only modified in the writer thread). */
+    private volatile int acclVersion;
+    /** Version of the shooting region values (only modified in the writer thread). */
+    private volatile int regionVersion;
+
+    // Latest values (written by the processing thread, read by the Main UI thread)
+    /** Gravity X value. */
+    private volatile float gravityX;
+    /** Gravity Y value. */
+    private volatile float gravityY;
+    /** Gravity Z value. */
+    private volatile float gravityZ;
+    /** Face up flag. */
+    private volatile boolean isFaceUp;
+    /** Linear accl X value. */
+    private volatile float acclX;
+    /** Linear accl Y value. */
+    private volatile float acclY;
+    /** Linear accl Z value. */
+    private volatile float acclZ;
+    /** Number of gestures. */
+    private volatile int numGestures;
+    /** Shooting direction (deg). */
+    private volatile float shootingDirection;
+    /** Shooting region. */
+    private volatile int shootingRegion;
+}
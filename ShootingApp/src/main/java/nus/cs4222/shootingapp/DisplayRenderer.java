@@ -0,0 +1,346 @@
+package nus.cs4222.shootingapp;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.os.Handler;
+import android.util.Log;
+import android.view.Choreographer;
+import android.widget.TextView;
+
+import nus.cs4222.shootingapp.gesture.FaceUpDetector;
+
+/**
+   Draws the DisplayModel into the text views, at most once per
+   display frame (vsync), or at a lower rate if a min frame period is
+   given.
+
+   <p> An update of the model only schedules a frame (once, until the
+   frame is drawn), so however fast the samples come, the GUI costs at
+   most one pass over the text views per frame, and nothing while the
+   values do not change. At each frame, only the groups of values that
+   changed are looked at, and a text view is only set (causing a
+   layout) if a value it shows changed at the displayed precision.
+
+   <p> Create, start and stop the renderer in the main UI thread. The
+   model can be updated from any thread.
+ */
+public class DisplayRenderer
+    implements DisplayModel.ChangeListener ,
+               Choreographer.FrameCallback {
+
+    /**
+       Creates a renderer (in the main UI thread).
+
+       @param   model                       Values to display
+       @param   minFramePeriod              Min time between two frames drawn (nanosec, 0 for each vsync)
+       @param   textView_Accl               Text view displaying the linear accl processing
+       @param   textView_Gravity            Text view displaying the gravity processing
+       @param   textView_PhoneGesture       Text view displaying the number of gestures
+       @param   textView_PhoneFaceUp        Text view displaying whether the phone is facing up
+       @param   textView_PhoneShootingRegion  Text view displaying the shooting region
+     */
+    public DisplayRenderer( DisplayModel model ,
+                            long minFramePeriod ,
+                            TextView textView_Accl ,
+                            TextView textView_Gravity ,
+                            TextView textView_PhoneGesture ,
+                            TextView textView_PhoneFaceUp ,
+                            TextView textView_PhoneShootingRegion ) {
+        if( minFramePeriod < 0L ) {
+            throw new IllegalArgumentException( "Negative min frame period: " + minFramePeriod );
+        }
+        this.model = model;
+        this.minFramePeriod = minFramePeriod;
+        this.textView_Accl = textView_Accl;
+        this.textView_Gravity = textView_Gravity;
+        this.textView_PhoneGesture = textView_PhoneGesture;
+        this.textView_PhoneFaceUp = textView_PhoneFaceUp;
+        this.textView_PhoneShootingRegion = textView_PhoneShootingRegion;
+        handler = new Handler();
+        choreographer = Choreographer.getInstance();
+        isFramePending = new AtomicBoolean( false );
+
+        // Reusable text buffers for the text views
+        text_Accl = new ReusableText();
+        text_Gravity = new ReusableText();
+        text_PhoneGesture = new ReusableText();
+        text_PhoneFaceUp = new ReusableText();
+        text_PhoneShootingRegion = new ReusableText();
+    }
+
+    /** Starts drawing the model (and draws the changes made while stopped). */
+    public void start() {
+        isStarted = true;
+        model.setChangeListener( this );
+        onDisplayModelChanged();
+    }
+
+    /** Stops drawing the model (the text views keep the last values drawn). */
+    public void stop() {
+        model.setChangeListener( null );
+        isStarted = false;
+        handler.removeCallbacks( scheduleFrameTask );
+        choreographer.removeFrameCallback( this );
+        isFramePending.set( false );
+    }
+
+    /** Schedules a frame, unless one is already scheduled (called in any thread). */
+    @Override
+    public void onDisplayModelChanged() {
+        if( isFramePending.compareAndSet( false , true ) ) {
+            handler.post( scheduleFrameTask );
+        }
+    }
+
+    /** Task (run in the Main UI thread) that schedules the next frame. */
+    private final Runnable scheduleFrameTask = new Runnable() {
+            @Override
+            public void run() {
+
+                // Drop the request if stopped in the meantime
+                if( ! isStarted ) {
+                    isFramePending.set( false );
+                    return;
+                }
+
+                // Next vsync, or the first vsync after the min frame period
+                long delay = lastFrameTime + minFramePeriod - System.nanoTime();
+                if( ! hasDrawn || delay <= 0L ) {
+                    choreographer.postFrameCallback( DisplayRenderer.this );
+                }
+                else {
+                    choreographer.postFrameCallbackDelayed( DisplayRenderer.this ,
+                                                            ( delay + NANOSEC_PER_MILLISEC - 1L ) / NANOSEC_PER_MILLISEC );
+                }
+            }
+        };
+
+    /** Draws the latest values (called by the choreographer in the Main UI thread). */
+    @Override
+    public void doFrame( long frameTimeNanos ) {
+        if( ! isStarted ) {
+            return;
+        }
+
+        // Updates from now on schedule another frame
+        isFramePending.set( false );
+        hasDrawn = true;
+        lastFrameTime = frameTimeNanos;
+        ++numFrames;
+
+        // Only look at the groups of values that changed
+        int version = model.getGravityVersion();
+        if( version != gravityVersion ) {
+            gravityVersion = version;
+            drawGravity();
+        }
+        version = model.getAcclVersion();
+        if( version != acclVersion ) {
+            acclVersion = version;
+            drawAccl();
+        }
+        version = model.getRegionVersion();
+        if( version != regionVersion ) {
+            regionVersion = version;
+            drawShootingRegion();
+        }
+    }
+
+    /** Writes the number of frames and text view updates to the log. */
+    public void log( String tag ) {
+        Log.i( tag , String.format( "Display frames=%d text updates=%d unchanged skipped=%d" ,
+                                    numFrames ,
+                                    numTextUpdates ,
+                                    numUnchanged ) );
+    }
+
+    /** Draws the gravity values (if they changed at the displayed precision). */
+    private void drawGravity() {
+
+        float x = model.getGravityX() , y = model.getGravityY() , z = model.getGravityZ();
+        boolean isFaceUp = model.isFaceUp();
+        long displayX = toDisplayUnits( x ) , displayY = toDisplayUnits( y ) , displayZ = toDisplayUnits( z );
+        boolean isFaceUpChanged = ! hasGravity || isFaceUp != shownIsFaceUp;
+        if( isFaceUpChanged ||
+            displayX != shownGravityX || displayY != shownGravityY || displayZ != shownGravityZ ) {
+            hasGravity = true;
+            shownGravityX = displayX;
+            shownGravityY = displayY;
+            shownGravityZ = displayZ;
+            shownIsFaceUp = isFaceUp;
+
+            // Angle of phone with the horizontal plane (only calculated for display)
+            float angle = FaceUpDetector.getAngle( x , y , z );
+
+            text_Gravity.clear()
+                .append( "\nGravity Sensor" )
+                .append( "\nX: " ).append( x , NUM_DISPLAY_DECIMALS )
+                .append( "\nY: " ).append( y , NUM_DISPLAY_DECIMALS )
+                .append( "\nZ: " ).append( z , NUM_DISPLAY_DECIMALS )
+                .append( "\nAngle of phone with horizontal plane: " ).append( angle , NUM_DISPLAY_DECIMALS ).append( " degrees" )
+                .append( "\nIs phone face up?: " ).append( isFaceUp )
+                .applyTo( textView_Gravity );
+            ++numTextUpdates;
+        }
+        else {
+            ++numUnchanged;
+        }
+        if( isFaceUpChanged ) {
+            text_PhoneFaceUp.clear()
+                .append( "\nIs phone face up?: " ).append( isFaceUp )
+                .applyTo( textView_PhoneFaceUp );
+            ++numTextUpdates;
+        }
+    }
+
+    /** Draws the linear accl values (if they changed at the displayed precision). */
+    private void drawAccl() {
+
+        float x = model.getAcclX() , y = model.getAcclY() , z = model.getAcclZ();
+        int numGestures = model.getNumGestures();
+        long displayX = toDisplayUnits( x ) , displayY = toDisplayUnits( y ) , displayZ = toDisplayUnits( z );
+        boolean isNumGesturesChanged = ! hasAccl || numGestures != shownNumGestures;
+        if( isNumGesturesChanged ||
+            displayX != shownAcclX || displayY != shownAcclY || displayZ != shownAcclZ ) {
+            hasAccl = true;
+            shownAcclX = displayX;
+            shownAcclY = displayY;
+            shownAcclZ = displayZ;
+            shownNumGestures = numGestures;
+
+            text_Accl.clear()
+                .append( "\nLinear Accelerometer Sensor" )
+                .append( "\nX: " ).append( x , NUM_DISPLAY_DECIMALS )
+                .append( "\nY: " ).append( y , NUM_DISPLAY_DECIMALS )
+                .append( "\nZ: " ).append( z , NUM_DISPLAY_DECIMALS )
+                .append( "\nNumber of gestures: " ).append( numGestures )
+                .applyTo( textView_Accl );
+            ++numTextUpdates;
+        }
+        else {
+            ++numUnchanged;
+        }
+        if( isNumGesturesChanged ) {
+            text_PhoneGesture.clear()
+                .append( "\nNumber of gestures: " ).append( numGestures )
+                .applyTo( textView_PhoneGesture );
+            ++numTextUpdates;
+        }
+    }
+
+    /** Draws the shooting direction and region (if they changed at the displayed precision). */
+    private void drawShootingRegion() {
+
+        float direction = model.getShootingDirection();
+        int region = model.getShootingRegion();
+        long displayDirection = toDisplayUnits( direction );
+        if( hasShootingRegion &&
+            displayDirection == shownShootingDirection && region == shownShootingRegion ) {
+            ++numUnchanged;
+            return;
+        }
+        hasShootingRegion = true;
+        shownShootingDirection = displayDirection;
+        shownShootingRegion = region;
+
+        text_PhoneShootingRegion.clear()
+            .append( "\nShooting direction: " ).append( direction , NUM_DISPLAY_DECIMALS ).append( " degrees" )
+            .append( "\nShooting region: " ).append( region )
+            .applyTo( textView_PhoneShootingRegion );
+        ++numTextUpdates;
+    }
+
+    /** Returns a value in units of the last displayed decimal place (equal if displayed the same). */
+    private static long toDisplayUnits( float value ) {
+        return Math.round( value * DISPLAY_SCALE );
+    }
+
+    /** Values to display. */
+    private final DisplayModel model;
+    /** Min time between two frames drawn (nanosec). */
+    private final long minFramePeriod;
+    /** Handler to the main thread. */
+    private final Handler handler;
+    /** Choreographer of the main thread. */
+    private final Choreographer choreographer;
+    /** Flag to indicate whether a frame has been requested but not drawn yet. */
+    private final AtomicBoolean isFramePending;
+    /** Flag to indicate whether the renderer is started (only used in the Main UI thread). */
+    private boolean isStarted;
+    /** Flag to indicate whether a frame has been drawn. */
+    private boolean hasDrawn;
+    /** Time of the last frame drawn (nanosec, System.nanoTime() clock). */
+    private long lastFrameTime;
+    /** Number of decimal places of the values displayed. */
+    private static final int NUM_DISPLAY_DECIMALS = 3;
+    /** Scale of the values to the last displayed decimal place. */
+    private static final double DISPLAY_SCALE = 1000.0;
+    /** Nanosec in a millisec. */
+    private static final long NANOSEC_PER_MILLISEC = 1000000L;
+
+    // Stats (only used in the Main UI thread)
+    /** Number of frames drawn. */
+    private long numFrames;
+    /** Number of text views set. */
+    private long numTextUpdates;
+    /** Number of groups of values that changed, but not at the displayed precision. */
+    private long numUnchanged;
+
+    // Versions of the model drawn
+    /** Version of the gravity values drawn. */
+    private int gravityVersion;
+    /** Version of the linear accl values drawn. */
+    private int acclVersion;
+    /** Version of the shooting region values drawn. */
+    private int regionVersion;
+
+    // Values shown (in display units)
+    /** Flag to indicate whether the gravity values have been shown. */
+    private boolean hasGravity;
+    /** Gravity X value shown. */
+    private long shownGravityX;
+    /** Gravity Y value shown. */
+    private long shownGravityY;
+    /** Gravity Z value shown. */
+    private long shownGravityZ;
+    /** Face up flag shown. */
+    private boolean shownIsFaceUp;
+    /** Flag to indicate whether the linear accl values have been shown. */
+    private boolean hasAccl;
+    /** Linear accl X value shown. */
+    private long shownAcclX;
+    /** Linear accl Y value shown. */
+    private long shownAcclY;
+    /** Linear accl Z value shown. */
+    private long shownAcclZ;
+    /** Number of gestures shown. */
+    private int shownNumGestures;
+    /** Flag to indicate whether the shooting region has been shown. */
+    private boolean hasShootingRegion;
+    /** Shooting direction shown. */
+    private long shownShootingDirection;
+    /** Shooting region shown. */
+    private int shownShootingRegion;
+
+    // GUI widgets
+    /** Text view displaying the linear accl processing. */
+    private final TextView textView_Accl;
+    /** Text view displaying the gravity processing. */
+    private final TextView textView_Gravity;
+    /** Text view displaying the number of gestures. */
+    private final TextView textView_PhoneGesture;
+    /** Text view displaying whether the phone is facing up. */
+    private final TextView textView_PhoneFaceUp;
+    /** Text view displaying the shooting region. */
+    private final TextView textView_PhoneShootingRegion;
+    /** Reusable text for the linear accl processing. */
+    private final ReusableText text_Accl;
+    /** Reusable text for the gravity processing. */
+    private final ReusableText text_Gravity;
+    /** Reusable text for the number of gestures. */
+    private final ReusableText text_PhoneGesture;
+    /** Reusable text for whether the phone is facing up. */
+    private final ReusableText text_PhoneFaceUp;
+    /** Reusable text for the shooting region. */
+    private final ReusableText text_PhoneShootingRegion;
+}
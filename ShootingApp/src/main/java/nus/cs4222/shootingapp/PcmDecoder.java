@@ -0,0 +1,189 @@
+package nus.cs4222.shootingapp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+
+/**
+   Decodes a sound file in the /res/raw resource folder (mp3, wav,
+   etc.) into mono 16-bit PCM samples at a given sample rate.
+
+   <p> This is slow (the whole file goes through MediaCodec), so it is
+   done once when the sounds are loaded, and the shots then only copy
+   the decoded samples.
+ */
+public class PcmDecoder {
+
+    /**
+       Decodes a raw sound resource.
+
+       @param   context      Context to open the resource
+       @param   resourceId   Sound file resource ID
+       @param   sampleRate   Sample rate of the decoded samples (Hz)
+       @return  Mono PCM samples
+     */
+    public static short[] decode( Context context , 
+                                  int resourceId , 
+                                  int sampleRate ) 
+        throws IOException {
+
+        // Open the resource (raw resources are stored uncompressed)
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        AssetFileDescriptor fd = context.getResources().openRawResourceFd( resourceId );
+        try {
+            extractor.setDataSource( fd.getFileDescriptor() , 
+                                     fd.getStartOffset() , 
+                                     fd.getLength() );
+
+            // Find the audio track
+            MediaFormat format = null;
+            for( int i = 0 ; i < extractor.getTrackCount() ; ++i ) {
+                MediaFormat trackFormat = extractor.getTrackFormat( i );
+                if( trackFormat.getString( MediaFormat.KEY_MIME ).startsWith( "audio/" ) ) {
+                    extractor.selectTrack( i );
+                    format = trackFormat;
+                    break;
+                }
+            }
+            if( format == null ) {
+                throw new IOException( "No audio track in sound resource " + resourceId );
+            }
+
+            // Decode the whole track
+            codec = MediaCodec.createDecoderByType( format.getString( MediaFormat.KEY_MIME ) );
+            codec.configure( format , null , null , 0 );
+            codec.start();
+            int numChannels = format.getInteger( MediaFormat.KEY_CHANNEL_COUNT );
+            int sourceRate = format.getInteger( MediaFormat.KEY_SAMPLE_RATE );
+            ShortArray samples = new ShortArray();
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean isInputDone = false;
+            boolean isOutputDone = false;
+            while( ! isOutputDone ) {
+
+                // Feed the next compressed chunk
+                if( ! isInputDone ) {
+                    int inputIndex = codec.dequeueInputBuffer( CODEC_TIMEOUT );
+                    if( inputIndex >= 0 ) {
+                        ByteBuffer input = codec.getInputBuffer( inputIndex );
+                        int size = extractor.readSampleData( input , 0 );
+                        if( size < 0 ) {
+                            codec.queueInputBuffer( inputIndex , 0 , 0 , 0L , 
+                                                    MediaCodec.BUFFER_FLAG_END_OF_STREAM );
+                            isInputDone = true;
+                        }
+                        else {
+                            codec.queueInputBuffer( inputIndex , 0 , size , 
+                                                    extractor.getSampleTime() , 0 );
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                // Collect the decoded samples
+                int outputIndex = codec.dequeueOutputBuffer( info , CODEC_TIMEOUT );
+                if( outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED ) {
+                    MediaFormat outputFormat = codec.getOutputFormat();
+                    numChannels = outputFormat.getInteger( MediaFormat.KEY_CHANNEL_COUNT );
+                    sourceRate = outputFormat.getInteger( MediaFormat.KEY_SAMPLE_RATE );
+                }
+                else if( outputIndex >= 0 ) {
+                    ByteBuffer output = codec.getOutputBuffer( outputIndex );
+                    output.position( info.offset );
+                    output.limit( info.offset + info.size );
+                    samples.appendMono( output.order( ByteOrder.nativeOrder() ).asShortBuffer() , 
+                                        numChannels );
+                    codec.releaseOutputBuffer( outputIndex , false );
+                    isOutputDone = ( info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM ) != 0;
+                }
+            }
+
+            // Convert to the output sample rate
+            return resample( samples.toArray() , sourceRate , sampleRate );
+        }
+        finally {
+
+            // Release all resources
+            if( codec != null ) {
+                codec.release();
+            }
+            extractor.release();
+            fd.close();
+        }
+    }
+
+    /** Resamples mono PCM samples (linear interpolation, enough for gunshots). */
+    public static short[] resample( short[] samples , 
+                                    int sourceRate , 
+                                    int targetRate ) {
+
+        // Nothing to do if the rates match
+        if( sourceRate == targetRate || samples.length == 0 ) {
+            return samples;
+        }
+
+        // Interpolate between the two nearest source samples
+        int length = (int) ( (long) samples.length * targetRate / sourceRate );
+        short[] resampled = new short[ length ];
+        double step = (double) sourceRate / targetRate;
+        for( int i = 0 ; i < length ; ++i ) {
+            double position = i * step;
+            int index = (int) position;
+            double fraction = position - index;
+            int next = Math.min( index + 1 , samples.length - 1 );
+            resampled[i] = (short) Math.round( samples[index] * ( 1.0 - fraction ) + 
+                                               samples[next] * fraction );
+        }
+        return resampled;
+    }
+
+    /** Growable array of mono samples. */
+    private static class ShortArray {
+
+        /** Appends interleaved samples, averaging the channels of each frame. */
+        public void appendMono( ShortBuffer interleaved , 
+                                int numChannels ) {
+            int numFrames = interleaved.remaining() / numChannels;
+            ensureCapacity( size + numFrames );
+            for( int i = 0 ; i < numFrames ; ++i ) {
+                int sum = 0;
+                for( int c = 0 ; c < numChannels ; ++c ) {
+                    sum += interleaved.get();
+                }
+                values[ size++ ] = (short) ( sum / numChannels );
+            }
+        }
+
+        /** Returns a copy of the samples. */
+        public short[] toArray() {
+            short[] array = new short[ size ];
+            System.arraycopy( values , 0 , array , 0 , size );
+            return array;
+        }
+
+        /** Grows the array to hold at least 'capacity' samples. */
+        private void ensureCapacity( int capacity ) {
+            if( capacity > values.length ) {
+                short[] newValues = new short[ Math.max( capacity , values.length * 2 ) ];
+                System.arraycopy( values , 0 , newValues , 0 , size );
+                values = newValues;
+            }
+        }
+
+        /** Samples. */
+        private short[] values = new short[ 4096 ];
+        /** Number of samples. */
+        private int size;
+    }
+
+    /** Timeout when waiting for a codec buffer (microsec). */
+    private static final long CODEC_TIMEOUT = 10000L;
+}
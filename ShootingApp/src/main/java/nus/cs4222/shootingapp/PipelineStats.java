@@ -0,0 +1,113 @@
+package nus.cs4222.shootingapp;
+
+import android.hardware.Sensor;
+import android.util.Log;
+
+import nus.cs4222.shootingapp.gesture.stats.LatencyHistogram;
+import nus.cs4222.shootingapp.gesture.stats.SensorRateStats;
+
+/**
+   Latency of each stage from a sensor sample to the gunshot sound,
+   and the event rate and jitter of each sensor.
+
+   <p> All latencies are measured from the hardware timestamp of the
+   sample (SensorEvent.timestamp, which is in the elapsed realtime
+   clock on current phones):
+   <ul>
+     <li> dispatch: until onSensorChanged() is called (sensor thread)
+     <li> process: until the processing thread processes the sample
+     <li> detect: until a gesture is detected in the accl sample
+     <li> play: until the gunshot sound has been handed to the audio engine
+   </ul>
+
+   <p> Each stage is recorded by only one thread (see LatencyHistogram),
+   costs well under a microsecond per sample, and can be dumped to the
+   log at any time.
+ */
+public class PipelineStats {
+
+    /** Stage from the sample time to the onSensorChanged() call. */
+    public static final int STAGE_DISPATCH = 0;
+    /** Stage from the sample time to the processing of the sample. */
+    public static final int STAGE_PROCESS = 1;
+    /** Stage from the accl sample time to the gesture detection. */
+    public static final int STAGE_DETECT = 2;
+    /** Stage from the accl sample time to the play() call. */
+    public static final int STAGE_PLAY = 3;
+
+    /** Creates empty stats. */
+    public PipelineStats() {
+        stageLatencies = new LatencyHistogram[ STAGE_NAMES.length ];
+        for( int i = 0 ; i < stageLatencies.length ; ++i ) {
+            stageLatencies[i] = new LatencyHistogram();
+        }
+        sensorRates = new SensorRateStats[ SENSOR_TYPES.length ];
+        for( int i = 0 ; i < sensorRates.length ; ++i ) {
+            sensorRates[i] = new SensorRateStats();
+        }
+    }
+
+    /** Records the latency of a stage (nanosec). */
+    public void recordLatency( int stage , 
+                               long latency ) {
+        stageLatencies[ stage ].record( latency );
+    }
+
+    /** Records the timestamp of a processed sensor sample (nanosec, only from the processing thread). */
+    public void onSensorSample( int sensorType , 
+                                long timestamp ) {
+        for( int i = 0 ; i < SENSOR_TYPES.length ; ++i ) {
+            if( SENSOR_TYPES[i] == sensorType ) {
+                sensorRates[i].onSample( timestamp );
+                return;
+            }
+        }
+    }
+
+    /** Writes the stats to the log (from any thread). */
+    public void log( String tag ) {
+
+        // Latency percentiles of each stage
+        for( int i = 0 ; i < stageLatencies.length ; ++i ) {
+            LatencyHistogram histogram = stageLatencies[i];
+            Log.i( tag , String.format( "Latency %-8s n=%d p50=%.2f ms p99=%.2f ms max=%.2f ms" , 
+                                        STAGE_NAMES[i] , 
+                                        histogram.getCount() , 
+                                        toMillisec( histogram.getValueAtPercentile( 50.0 ) ) , 
+                                        toMillisec( histogram.getValueAtPercentile( 99.0 ) ) , 
+                                        toMillisec( histogram.getMax() ) ) );
+        }
+
+        // Rate and jitter of each sensor
+        for( int i = 0 ; i < sensorRates.length ; ++i ) {
+            SensorRateStats rate = sensorRates[i];
+            Log.i( tag , String.format( "Sensor %-8s n=%d rate=%.1f Hz jitter=%.2f ms max interval=%.2f ms" , 
+                                        SENSOR_NAMES[i] , 
+                                        rate.getNumSamples() , 
+                                        rate.getRate() , 
+                                        rate.getJitter() / NANOSEC_PER_MILLISEC , 
+                                        toMillisec( rate.getIntervals().getMax() ) ) );
+        }
+    }
+
+    /** Converts nanosec to millisec. */
+    private static double toMillisec( long nanosec ) {
+        return nanosec / NANOSEC_PER_MILLISEC;
+    }
+
+    /** Latency histogram of each stage. */
+    private final LatencyHistogram[] stageLatencies;
+    /** Rate stats of each sensor. */
+    private final SensorRateStats[] sensorRates;
+    /** Names of the stages (in the log). */
+    private static final String[] STAGE_NAMES = { "dispatch" , "process" , "detect" , "play" };
+    /** Sensors whose rates are recorded. */
+    private static final int[] SENSOR_TYPES = { Sensor.TYPE_LINEAR_ACCELERATION , 
+                                                Sensor.TYPE_GRAVITY , 
+                                                Sensor.TYPE_MAGNETIC_FIELD , 
+                                                Sensor.TYPE_GYROSCOPE };
+    /** Names of the sensors (in the log). */
+    private static final String[] SENSOR_NAMES = { "accl" , "gravity" , "magnetic" , "gyro" };
+    /** Nanosec in a millisec. */
+    private static final double NANOSEC_PER_MILLISEC = 1.0E6;
+}
@@ -0,0 +1,105 @@
+package nus.cs4222.shootingapp;
+
+import android.widget.TextView;
+
+/**
+   Reusable text buffer for updating a text view without creating
+   Strings.
+
+   <p> The text is appended into a StringBuilder that is cleared and
+   reused on each update, and then copied into a char array that is
+   passed directly to the text view. Floats are appended in fixed-point
+   notation, since StringBuilder.append(float) creates temporary
+   objects.
+
+   <p> Each text view keeps a reference to the char array, so use
+   one instance per text view, and only from the main UI thread.
+ */
+public class ReusableText {
+
+    /** Creates an empty text buffer. */
+    public ReusableText() {
+        builder = new StringBuilder( INITIAL_CAPACITY );
+        chars = new char[ INITIAL_CAPACITY ];
+    }
+
+    /** Clears the text (keeping the buffers). */
+    public ReusableText clear() {
+        builder.setLength( 0 );
+        return this;
+    }
+
+    /** Appends a string constant. */
+    public ReusableText append( String text ) {
+        builder.append( text );
+        return this;
+    }
+
+    /** Appends an integer. */
+    public ReusableText append( long value ) {
+        builder.append( value );
+        return this;
+    }
+
+    /** Appends a boolean. */
+    public ReusableText append( boolean value ) {
+        builder.append( value );
+        return this;
+    }
+
+    /** Appends a float with the given number of decimal places (at most 9). */
+    public ReusableText append( float value ,
+                                int numDecimals ) {
+
+        // Special values
+        if( Float.isNaN( value ) || Float.isInfinite( value ) ) {
+            builder.append( value );
+            return this;
+        }
+
+        // Round to the required number of decimals
+        long scale = 1L;
+        for( int i = 0 ; i < numDecimals ; ++i ) {
+            scale *= 10L;
+        }
+        long scaledValue = Math.round( Math.abs( (double) value ) * scale );
+
+        // Integer part (with the sign)
+        if( value < 0.0F && scaledValue != 0L ) {
+            builder.append( '-' );
+        }
+        builder.append( scaledValue / scale );
+
+        // Fractional part (zero padded)
+        if( numDecimals > 0 ) {
+            builder.append( '.' );
+            long fraction = scaledValue % scale;
+            for( long digit = scale / 10L ; digit > 1L && fraction < digit ; digit /= 10L ) {
+                builder.append( '0' );
+            }
+            builder.append( fraction );
+        }
+        return this;
+    }
+
+    /** Sets the text of the text view to the current text. */
+    public void applyTo( TextView textView ) {
+
+        // Grow the char array if required (only happens for the first few updates)
+        int length = builder.length();
+        if( length > chars.length ) {
+            chars = new char[ Math.max( length , chars.length * 2 ) ];
+        }
+
+        // Copy the text and give the char array to the text view
+        builder.getChars( 0 , length , chars , 0 );
+        textView.setText( chars , 0 , length );
+    }
+
+    /** Builder containing the current text. */
+    private final StringBuilder builder;
+    /** Char array given to the text view. */
+    private char[] chars;
+    /** Initial capacity of the buffers (enough for the longest text in the GUI). */
+    private static final int INITIAL_CAPACITY = 256;
+}
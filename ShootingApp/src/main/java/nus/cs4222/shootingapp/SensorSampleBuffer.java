@@ -0,0 +1,117 @@
+package nus.cs4222.shootingapp;
+
+import nus.cs4222.shootingapp.gesture.SensorSampleListener;
+
+/**
+   Fixed-size ring buffer of raw sensor samples.
+
+   <p> The sensor thread copies each sample into preallocated primitive
+   arrays, and the processing thread drains them in batches. There is
+   exactly one writer and one reader, so the two volatile indices are
+   enough to hand the samples over without locks or allocation.
+
+   <p> If the reader falls behind by more than the capacity, new
+   samples are dropped (and counted) instead of overwriting samples
+   that have not been read yet.
+ */
+public class SensorSampleBuffer {
+
+    /** Creates a buffer holding at least 'capacity' samples (rounded up to a power of 2). */
+    public SensorSampleBuffer( int capacity ) {
+
+        // Round up to a power of 2 so that the index can be masked
+        int size = Integer.highestOneBit( Math.max( capacity , 2 ) - 1 ) << 1;
+        mask = size - 1;
+        sensorTypes = new int[ size ];
+        timestamps = new long[ size ];
+        xValues = new float[ size ];
+        yValues = new float[ size ];
+        zValues = new float[ size ];
+    }
+
+    /**
+       Copies a sample into the buffer (called only by the writer thread).
+
+       @return  false if the buffer is full and the sample was dropped
+     */
+    public boolean put( int sensorType ,
+                        long timestamp ,
+                        float[] values ) {
+
+        // Check if there is space left
+        long index = writeIndex;
+        if( index - readIndex > mask ) {
+            ++numDropped;
+            return false;
+        }
+
+        // Copy the sample into the slot
+        int slot = (int) ( index & mask );
+        sensorTypes[slot] = sensorType;
+        timestamps[slot] = timestamp;
+        xValues[slot] = values[0];
+        yValues[slot] = values[1];
+        zValues[slot] = values[2];
+
+        // Publish the sample to the reader
+        writeIndex = index + 1;
+        return true;
+    }
+
+    /**
+       Passes up to 'maxSamples' buffered samples to the listener, in
+       the order they were put (called only by the reader thread).
+
+       @return  Number of samples drained
+     */
+    public int drain( SensorSampleListener listener ,
+                      int maxSamples ) {
+
+        // Find how many samples are available
+        long index = readIndex;
+        int numSamples = (int) Math.min( writeIndex - index , maxSamples );
+
+        // Pass them to the listener
+        for( int i = 0 ; i < numSamples ; ++i ) {
+            int slot = (int) ( ( index + i ) & mask );
+            listener.onSample( sensorTypes[slot] ,
+                               timestamps[slot] ,
+                               xValues[slot] ,
+                               yValues[slot] ,
+                               zValues[slot] );
+        }
+
+        // Free the slots for the writer
+        readIndex = index + numSamples;
+        return numSamples;
+    }
+
+    /** Returns the number of samples waiting to be drained. */
+    public int size() {
+        return (int) ( writeIndex - readIndex );
+    }
+
+    /** Returns the number of samples dropped because the buffer was full. */
+    public long getNumDropped() {
+        return numDropped;
+    }
+
+    /** Mask to convert an index to a slot number (capacity - 1). */
+    private final int mask;
+    /** Sensor type of each sample. */
+    private final int[] sensorTypes;
+    /** Timestamp of each sample (nanosec). */
+    private final long[] timestamps;
+    /** X values of each sample. */
+    private final float[] xValues;
+    /** Y values of each sample. */
+    private final float[] yValues;
+    /** Z values of each sample. */
+    private final float[] zValues;
+    /** Index of the next sample to be written (only modified by the writer). */
+    private volatile long writeIndex;
+    /** Index of the next sample to be read (only modified by the reader). */
+    private volatile long readIndex;
+    /** Number of samples dropped (only modified by the writer). */
+    private volatile long numDropped;
+}
@@ -0,0 +1,62 @@
+package nus.cs4222.shootingapp;
+
+import android.os.Handler;
+
+/**
+   Source of sensor samples: the phone's sensors (AndroidSensorSource),
+   or simulated sensors that need no hardware (SyntheticSensorSource
+   and TraceSensorSource).
+
+   <p> The methods mirror the SensorManager calls the activity uses, so
+   that the rest of the pipeline (ring buffer, processing thread,
+   detectors, GUI and sounds) runs the same whatever the source. The
+   register methods may be called from any thread; the samples are
+   delivered on the handler's thread.
+ */
+public interface SensorSource {
+
+    /** Receives the samples of the registered sensors. */
+    public interface Listener {
+
+        /**
+           Called for each sensor sample (on the handler's thread).
+
+           @param   sensorType  Sensor type (Sensor.TYPE_*)
+           @param   accuracy    Sensor accuracy (SensorManager.SENSOR_STATUS_*)
+           @param   timestamp   Sample timestamp (nanosec, elapsed realtime clock)
+           @param   values      Sample values (only valid during the call)
+         */
+        public void onSensorSample( int sensorType , 
+                                    int accuracy , 
+                                    long timestamp , 
+                                    float[] values );
+    }
+
+    /** Checks whether the source has a sensor of the given type (Sensor.TYPE_*). */
+    public boolean hasSensor( int sensorType );
+
+    /**
+       Starts sampling a sensor (or changes its rate, if already sampled).
+
+       @param   sensorType        Sensor type (Sensor.TYPE_*)
+       @param   samplingPeriod    Sampling interval (microsec, or SensorManager.SENSOR_DELAY_*)
+       @param   maxReportLatency  Max batching delay (microsec, 0 for no batching)
+       @param   listener          Receives the samples
+       @param   handler           Handler to the thread on which the samples are delivered
+       @return  false if the sensor could not be sampled
+     */
+    public boolean register( int sensorType , 
+                             int samplingPeriod , 
+                             int maxReportLatency , 
+                             Listener listener , 
+                             Handler handler );
+
+    /** Stops sampling a sensor. */
+    public void unregister( int sensorType );
+
+    /** Stops sampling all the sensors. */
+    public void unregisterAll();
+
+    /** Returns the name of the source (for the log). */
+    public String getName();
+}
@@ -1,41 +1,60 @@
 package nus.cs4222.shootingapp;
 
-import java.util.ArrayList;
-
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.IBinder;
+import android.os.SystemClock;
 import android.app.Activity;
+import android.content.ComponentName;
 import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.widget.TextView;
 import android.widget.Toast;
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
-import android.hardware.SensorManager;
-import android.media.SoundPool;
-import android.media.AudioManager;
 import android.util.Log;
 
 /**
-   Activity that detects a simple gesture by the user.
-
-   <p> This activity currently uses 2 sensors: the linear accl and the
-   gravity sensors. First, it uses the linear accl sensor to detect a
-   'shooting' gesture. Second, it uses the gravity sensor to make sure
-   the phone is face up and (almost) parallel to the ground while the
-   gesture is performed. You can use any other sensors (except the
-   deprecated TYPE_ORIENTATION) to detect the shooting direction and
-   region.
-
-   <p> Modify the MIN_ACCL_FORCE value to a value suitable for your
-   phone.
+   Activity that displays the simple gesture detection by the user.
+
+   <p> The sensing, detection and audio pipeline itself runs in a bound
+   service (see ShootingService), which this activity binds to when it
+   is created and unbinds from when it is destroyed. The binding is
+   kept across configuration changes (the new activity takes over the
+   connection of the old one), so the pipeline lives as long as the
+   user is in the app, and keeps its warm state (registered sensors,
+   loaded sounds, filter and detector state) across onPause/onResume.
+
+   <p> While the activity is stopped (home screen, another app, screen
+   off), it asks the service to suspend the sensing, so the pipeline
+   does not keep sampling and shooting in the background, and to resume
+   it when started again (but not across a configuration change).
+
+   <p> On resume the activity only re-attaches its DisplayRenderer to
+   the service's DisplayModel, which draws the latest values at the
+   next display frame, and on pause it only detaches it (and asks the
+   service to store the pending shots and thresholds). Shots made
+   while the activity is paused are still detected and heard. The
+   time taken to re-attach is logged.
+
+   <p> The samples come from the phone's sensors by default, or from
+   simulated sensors selected by the intent extras (see
+   ShootingService.EXTRA_SENSOR_SOURCE), which are passed on to the
+   service. The whole pipeline can then be load-tested on an
+   emulator, e.g.
+   adb shell am start -n nus.cs4222.shootingapp/.ShootingAppActivity
+   --es nus.cs4222.shootingapp.SENSOR_SOURCE synthetic
+   --ef nus.cs4222.shootingapp.SENSOR_RATE 20
+
+   <p> The options menu records a raw sensor trace, writes the latency
+   and shot history stats to the log, calibrates the gesture
+   thresholds, and switches the gesture detection mode.
 
    @author     Kartik Sankaran
  */
-public class ShootingAppActivity 
-    extends Activity 
-    implements SensorEventListener , 
-               SoundPool.OnLoadCompleteListener {
+public class ShootingAppActivity
+    extends Activity {
 
     /** Called when the activity is first created. */
     @Override
@@ -50,8 +69,9 @@ public class ShootingAppActivity
             // Initialise the GUI
             initGui();
 
-            // Initialise sensor manager and sensors
-            initSensors();
+            // Bind to the detection pipeline (or take over the binding
+            //  of the previous activity, if re-created)
+            bindPipeline();
         }
         catch( Exception e ) {
             // Log the exception
@@ -67,7 +87,10 @@ public class ShootingAppActivity
         super.onDestroy();
 
         try {
-            // Nothing to do here yet...
+
+            // Unbind from the detection pipeline (which stops it), unless
+            //  the binding is handed over to the re-created activity
+            unbindPipeline();
         }
         catch( Exception e ) {
             // Log the exception
@@ -77,6 +100,31 @@ public class ShootingAppActivity
         }
     }
 
+    /** Called when the activity becomes visible. */
+    @Override
+    public void onStart() {
+        super.onStart();
+
+        // Sample the sensors again (if suspended while stopped)
+        isStopped = false;
+        if( service != null ) {
+            service.resumeSensing();
+        }
+    }
+
+    /** Called when the activity is no longer visible. */
+    @Override
+    public void onStop() {
+        super.onStop();
+
+        // Stop sampling the sensors in the background (unless the activity
+        //  is only being re-created, and hands over the binding)
+        isStopped = true;
+        if( service != null && ! isChangingConfigurations() ) {
+            service.suspendSensing();
+        }
+    }
+
     /** Called when the activity is resumed. */
     @Override
     public void onResume() {
@@ -84,11 +132,9 @@ public class ShootingAppActivity
 
         try {
 
-            // Start sensing the sensors
-            startSensing();
-
-            // Initialise the sound pool for sound effects
-            initSound();
+            // Start drawing the GUI (once the pipeline is bound)
+            isResumed = true;
+            attachDisplay();
         }
         catch( Exception e ) {
             // Log the exception
@@ -105,11 +151,16 @@ public class ShootingAppActivity
 
         try {
 
-            // De-initialise sound pool
-            deinitSound();
+            // Stop drawing the GUI (the pipeline keeps running)
+            isResumed = false;
+            if( displayRenderer != null ) {
+                displayRenderer.stop();
+            }
 
-            // Stop all sensing
-            stopSensing();
+            // Store the pending shots and the adapted thresholds (in the background)
+            if( service != null ) {
+                service.saveState();
+            }
         }
         catch( Exception e ) {
             // Log the exception
@@ -119,6 +170,24 @@ public class ShootingAppActivity
         }
     }
 
+    /**
+       Called before the activity is re-created for a configuration change:
+       hands over the binding.
+
+       <p> (Deprecated, but the non-deprecated ways to retain an object
+       need Fragments or a support library.)
+     */
+    @SuppressWarnings( "deprecation" )
+    @Override
+    public Object onRetainNonConfigurationInstance() {
+        if( connection == null ) {
+            return null;
+        }
+        isBindingRetained = true;
+        connection.setActivity( null );
+        return connection;
+    }
+
     /** Initialises the GUI. */
     private void initGui() {
 
@@ -133,350 +202,155 @@ public class ShootingAppActivity
         textView_PhoneShootingRegion = (TextView) findViewById( R.id.TextView_PhoneShootingRegion );
     }
 
-    /** Initialises the linear accl and gravity sensors. */
-    private void initSensors() 
-        throws Exception {
+    /** Binds to the detection pipeline, or takes over the binding of the previous activity. */
+    @SuppressWarnings( "deprecation" )
+    private void bindPipeline() {
 
-        // Get an instance of the SensorManager
-        sensorManager = (SensorManager) getSystemService( SENSOR_SERVICE );
+        // Binding handed over by the previous activity (configuration change)
+        connection = (PipelineConnection) getLastNonConfigurationInstance();
+        if( connection != null ) {
+            connection.setActivity( this );
+            return;
+        }
 
-        // Get references to the linear accl and gravity sensors
-        acclSensor = sensorManager.getDefaultSensor( Sensor.TYPE_LINEAR_ACCELERATION );
-        gravitySensor = sensorManager.getDefaultSensor( Sensor.TYPE_GRAVITY );
-        if( acclSensor == null ) {
-            throw new Exception( "Oops, there is no linear accelerometer sensor on this device :(" );
+        // Bind with the application context, so that the binding can
+        //  outlive this activity, and pass on the sensor source extras
+        connection = new PipelineConnection();
+        connection.setActivity( this );
+        Intent intent = new Intent( this , ShootingService.class );
+        if( getIntent().getExtras() != null ) {
+            intent.putExtras( getIntent().getExtras() );
         }
-        else if( gravitySensor == null ) {
-            throw new Exception( "Oops, there is no gravity sensor on this device :(" );
+        bindStartTime = SystemClock.elapsedRealtimeNanos();
+        if( ! getApplicationContext().bindService( intent , connection , Context.BIND_AUTO_CREATE ) ) {
+            createToast( "Unable to start the detection pipeline" );
         }
     }
 
-    /** Starts sampling the sensors. */
-    private void startSensing() {
-
-        // Initialise the sensor-related variables
-        isFaceUp = false;
-        numGestures = 0;
-        shootingRegion = 1;
-        shootingDirection = 0.0F;
-        isAcclInPeakZone = false;
-
-        // Start sampling the sensors
-        sensorManager.registerListener( this ,                              // Listener
-                                        acclSensor ,                        // Sensor to measure 
-                                        SensorManager.SENSOR_DELAY_GAME );  // Measurement interval (microsec)
-        sensorManager.registerListener( this ,                              // Listener
-                                        gravitySensor ,                     // Sensor to measure 
-                                        SensorManager.SENSOR_DELAY_GAME );  // Measurement interval (microsec)
-    }
-
-    /** Stops all sensing. */
-    private void stopSensing() {
-
-        // Stop sampling all sensors
-        sensorManager.unregisterListener( this );
-    }
-
-    /** Called when the sensor value has changed (not necessarily periodically). */
-    public void onSensorChanged( SensorEvent event ) {
-
-        // NOTE: Sensor callbacks are in the main UI thread, so do not
-        //  do very long calculations here. A better approach would be
-        //  to just store the values, and use a periodic timer to
-        //  process them in another thread.
-
-        // Case 1: Gravity sensor
-        if( event.sensor.getType() == Sensor.TYPE_GRAVITY ) {
-            processGravityValues( event );
-        }
-        // Case 2: Linear accl sensor
-        else if( event.sensor.getType() == Sensor.TYPE_LINEAR_ACCELERATION ) {
-            processAcclValues( event );
+    /** Unbinds from the detection pipeline, unless the binding was handed over. */
+    private void unbindPipeline() {
+        if( isBindingRetained || connection == null ) {
+            return;
         }
-
-        // PA3: Detect the shooting direction and region.
-        //  Think about what sensor or sensors on the phone can 
-        //  help you do this.
-        detectShootingDirectionAndRegion( event );
+        connection.setActivity( null );
+        getApplicationContext().unbindService( connection );
+        service = null;
     }
 
-    /** Process the gravity sensor. */
-    private void processGravityValues( SensorEvent event ) {
-
-        // Use the gravity sensor to detect whether the phone is 
-        //  face up and nearly parallel to the ground.
-        // When the phone is in this position, the gravity should be
-        //  (0 , 0 , g). Otherwise, it is at an angle to the ground,
-        //  which can be calculated as the angle between the sampled 
-        //  gravity vector and the (0 , 0 , 1) phone's z-axis.
-
-        // Store the gravity readings
-        float[] gravityValues = event.values.clone();
-
-        // Positive z-axis (0, 0, 1)
-        float[] zaxis = new float[] { 0.0F , 0.0F , 1.0F };
-
-        // Calculate the angle between z-axis and gravity sensor vector.
-        // NOTE: This calculation can be easily optimized since there 
-        //       are 0s and 1s, but is shown here in full for clarity.
-        // Use Dot product formula to find angle between two vectors.
-        float[] v1 = zaxis , v2 = gravityValues;
-        float dotProduct = 
-            v1[0] * v2[0] + 
-            v1[1] * v2[1] + 
-            v1[2] * v2[2];
-        float mag1 = (float) Math.sqrt( v1[0] * v1[0] + 
-                                        v1[1] * v1[1] + 
-                                        v1[2] * v1[2] );
-        float mag2 = (float) Math.sqrt( v2[0] * v2[0] + 
-                                        v2[1] * v2[1] + 
-                                        v2[2] * v2[2] );
-        float cosValue = dotProduct / ( mag1 * mag2 );
-        // Clamp the cos value to [-1,1]
-        if ( cosValue > 1.0F ) {
-            cosValue = 1.0F;
+    /** Called when the detection pipeline is bound (in the Main UI thread). */
+    private void onPipelineBound( ShootingService boundService ) {
+        service = boundService;
+        if( bindStartTime != 0L ) {
+            Log.i( TAG , "Detection pipeline bound in " +
+                   ( ( SystemClock.elapsedRealtimeNanos() - bindStartTime ) / NANOSEC_PER_MILLISEC ) + " ms" );
+            bindStartTime = 0L;
         }
-        else if ( cosValue < -1.0F ) {
-            cosValue = -1.0F;
-        }
-        float radianAngle = (float) Math.acos( cosValue );
-        // Convert to degrees
-        float angle = (float) Math.toDegrees( radianAngle );
 
-        // Check if the phone is face up
-        if( angle <= MAX_FACE_UP_ANGLE_ERROR ) {
-            isFaceUp = true;
-        }
-        else {
-            isFaceUp = false;
+        // Draws the display model into the text views, once per frame at most
+        displayRenderer = new DisplayRenderer( service.getDisplayModel() ,
+                                               DISPLAY_FRAME_PERIOD * NANOSEC_PER_MILLISEC ,
+                                               textView_Accl ,
+                                               textView_Gravity ,
+                                               textView_PhoneGesture ,
+                                               textView_PhoneFaceUp ,
+                                               textView_PhoneShootingRegion );
+        if( isResumed ) {
+            attachDisplay();
         }
 
-        // Update the GUI (at a slower rate easy for the user to see on screen)
-        long currentTime = System.currentTimeMillis();
-        if( currentTime - lastPhoneAngleTime > MAX_UPDATE_INTERVAL_PHONE_ANGLE ) {
-
-            // Update the text view
-            textView_Gravity.setText ( "\nGravity Sensor" + 
-                                       "\nX: " + gravityValues[0] + 
-                                       "\nY: " + gravityValues[1] + 
-                                       "\nZ: " + gravityValues[2] + 
-                                       "\nAngle of phone with horizontal plane: " + angle + " degrees" + 
-                                       "\nIs phone face up?: " + isFaceUp );
-            textView_PhoneFaceUp.setText( "\nIs phone face up?: " + isFaceUp );
-
-            // Set the last GUI update time
-            lastPhoneAngleTime = currentTime;
+        // (the activity may have been stopped before the pipeline was bound)
+        if( isStopped ) {
+            service.suspendSensing();
         }
     }
 
-    /** Detect the shooting direction and region. */
-    private void detectShootingDirectionAndRegion( SensorEvent event ) {
-
-        // PA3: Detect the shooting direction and region.
-        //  Think about what sensor or sensors on the phone can 
-        //  help you do this.
-
-        // PA3: After you have detected the shooting region, assign the
-        //  region number (in the range 1 to 8) to the member variable 
-        //  'shootingRegion', and the shooting direction (in the range
-        //  0 to 360 deg) to the member variable 'shootingDirection', 
-        //  both variables are defined at the end of the Java code.
-        // The processAcclValues() method produces the gunshot sound 
-        //  based on the value of 'shootingRegion' (which is set to 1
-        //  by default).
-        // Also, display the shooting direction and the shooting region 
-        //  in the text view below.
-
-        // Update the GUI (at a slower rate easy for the user to see on screen)
-        long currentTime = System.currentTimeMillis();
-        if( currentTime - lastPhoneDirectionTime > MAX_UPDATE_INTERVAL_PHONE_DIRECTION ) {
-
-            // Update the text view
-            textView_PhoneShootingRegion.setText( "\nShooting direction: " + shootingDirection + " degrees" + 
-                                                  "\nShooting region: " + shootingRegion );
-
-            // Set the last GUI update time
-            lastPhoneDirectionTime = currentTime;
+    /** Starts drawing the display model of the pipeline, if bound (timed). */
+    private void attachDisplay() {
+        if( displayRenderer == null ) {
+            return;
         }
+        long startTime = SystemClock.elapsedRealtimeNanos();
+        displayRenderer.start();
+        lastAttachTime = SystemClock.elapsedRealtimeNanos() - startTime;
+        Log.d( TAG , "Display attached in " + ( lastAttachTime / 1000L ) + " microsec" );
     }
 
-    /** Process the linear accl sensor. */
-    private void processAcclValues( SensorEvent event ) {
-
-        // This uses the accl to detect if a 'shooting' gesture has been made
-        //  (by moving the phone sharply upwards/downwards/forwards with large force
-        //   while face up)
+    /** Called to create the options menu. */
+    @Override
+    public boolean onCreateOptionsMenu( Menu menu ) {
+        menu.add( Menu.NONE , MENU_ITEM_RECORD_TRACE , Menu.NONE , "Start recording sensor trace" );
+        menu.add( Menu.NONE , MENU_ITEM_LOG_LATENCY , Menu.NONE , "Write latency stats to log" );
+        menu.add( Menu.NONE , MENU_ITEM_CALIBRATE , Menu.NONE , "Calibrate gesture thresholds" );
+        menu.add( Menu.NONE , MENU_ITEM_DETECTION_MODE , Menu.NONE , "Switch gesture detection" );
+        menu.add( Menu.NONE , MENU_ITEM_LOG_SHOT_HISTORY , Menu.NONE , "Write shot history to log" );
+        return true;
+    }
 
-        // If the phone is not face up, then skip the calculation
-        if( ! isFaceUp ) {
-            return;
+    /** 
+       Called before the options menu is shown (not shown until the
+       pipeline is bound, and disabled if it could not start).
+     */
+    @Override
+    public boolean onPrepareOptionsMenu( Menu menu ) {
+        if( service == null ) {
+            return false;
+        }
+        boolean isRunning = service.isRunning();
+        for( int i = 0 ; i < menu.size() ; ++i ) {
+            menu.getItem( i ).setEnabled( isRunning );
         }
+        menu.findItem( MENU_ITEM_RECORD_TRACE )
+            .setTitle( service.isRecording() ? "Stop recording sensor trace" : "Start recording sensor trace" );
+        menu.findItem( MENU_ITEM_DETECTION_MODE )
+            .setTitle( "Switch to gesture " + service.getNextDetectionModeName() );
+        return true;
+    }
 
-        // We use only the accl's z-axis (of the phone's co-ordinate system).
-        // You can visualize accl data using the Sensor Kinetics app in 
-        //  the Google play store.
-        float zAccl = event.values[2];
-
-        // NOTE: Smoothing may not be required for linear accl since it
-        //  is typically a processed sensor. If not, then a bit of smoothing
-        //  will be required to remove erroneous accl peaks. Note that smoothing
-        //  would increase the latency, so too much smoothing is also not 
-        //  advisable.
-
-        // Here we are using a simple ad-hoc technique utilizing two thresholds
-        //  for gesture detection.
-        //  More advanced approaches include machine learning and dynamic time 
-        //  warping for gesture recognition.
-
-        // Check if the force exerted by the accl is large enough.
-        // The thresholds used below should normally be based on data collected 
-        //  from different users performing the gesture, but for this assignment, 
-        //  you can manually set thresholds that work reasonably ok for your 
-        //  phone.
-        if( zAccl >= MIN_ACCL_FORCE ) {
-
-            // Since the accl can be noisy around the threshold (even with smoothing)
-            //  we use a state machine to check if the accl has oscillated between
-            //  two thresholds in the accl peak before we detect the gesture.
-            if( ! isAcclInPeakZone ) {
-                ++numGestures;
-                isAcclInPeakZone = true;
-
-                // Play gunshot sound according to 
-                //  the user's shooting direction (region).
-                // If there are more shooting regions than gun types, then
-                //  repeat gun types in more than one shooting region. Note
-                //  that the shootingRegions are numbered from 1, and sound
-                //  numbers are numbered from 0.
-                int soundNumber = ( ( shootingRegion - 1 ) % soundResourceList.length );
-                playSound( soundNumber );
-            }
+    /** Called when an options menu item is selected. */
+    @Override
+    public boolean onOptionsItemSelected( MenuItem item ) {
+        if( service == null || ! service.isRunning() ) {
+            return super.onOptionsItemSelected( item );
         }
-        // Check if the accl has finished oscillating from the
-        //  top threshold near the top of the peak to the bottom
-        //  threshold at the bottom of the peak.
-        else if( isAcclInPeakZone ) {
-            if( zAccl <= MIN_ACCL_PEAK_TROUGH ) {
-                isAcclInPeakZone = false;
+        else if( item.getItemId() == MENU_ITEM_RECORD_TRACE ) {
+            if( service.isRecording() ) {
+                service.stopRecording();
+            }
+            else {
+                service.startRecording();
             }
+            return true;
         }
-
-        // Store the linear accl readings
-        float[] acclValues = event.values.clone();
-
-        // Update the GUI (at a slower rate easy for the user to see on screen)
-        long currentTime = System.currentTimeMillis();
-        if( currentTime - lastPhoneGestureTime > MAX_UPDATE_INTERVAL_PHONE_GESTURE ) {
-
-            // Update the text view
-            textView_Accl.setText ( "\nLinear Accelerometer Sensor" + 
-                                    "\nX: " + acclValues[0] + 
-                                    "\nY: " + acclValues[1] + 
-                                    "\nZ: " + acclValues[2] + 
-                                    "\nNumber of gestures: " + numGestures );
-            textView_PhoneGesture.setText( "\nNumber of gestures: " + numGestures );
-
-            // Set the last GUI update time
-            lastPhoneGestureTime = currentTime;
+        else if( item.getItemId() == MENU_ITEM_LOG_LATENCY ) {
+            service.logStats();
+            displayRenderer.log( TAG );
+            createToast( "Latency stats written to the log (tag " + TAG + ")" );
+            return true;
         }
-
-    }
-
-    /** Called when the accuracy changes. */
-    public void onAccuracyChanged ( Sensor sensor , int accuracy ) {
-        // Ignore (except for magnetic sensor for figure 8 calibration)
-    }
-
-    /** Initialises the sound pool for sound effects. */
-    private void initSound() {
-
-        // Initialise sound-related variables
-        areSoundsLoaded = false;
-        numSoundsLoaded = 0;
-        soundStreamIdList = new ArrayList< Integer >();
-
-        // Create a sound pool (to play max 1 sound stream at a give time)
-        soundPool = new SoundPool( 1 ,                           // Max number of streams playing at same time
-                                   AudioManager.STREAM_MUSIC ,   // Stream type
-                                   0 );                          // Source quality (unused, need to just pass 0)
-
-        // After loading each sound file, this callback is invoked
-        soundPool.setOnLoadCompleteListener( this );
-
-        // Load the sound files one by one
-        for( int soundResource : soundResourceList ) {
-            int streamID = soundPool.load( this ,            // GUI Context
-                                           soundResource ,   // Sound file resource ID (in res/raw/ folder)
-                                           1 );              // Priority (unused, need to just pass 1)
-            soundStreamIdList.add( streamID );
+        else if( item.getItemId() == MENU_ITEM_CALIBRATE ) {
+            service.startCalibration();
+            return true;
         }
-    }
-
-    /** De-initialises the sound pool. */
-    private void deinitSound() {
-
-        try {
-
-            // Release all resources
-            soundPool.release();
+        else if( item.getItemId() == MENU_ITEM_DETECTION_MODE ) {
+            service.switchDetectionMode();
+            return true;
         }
-        finally {
-
-            // Set the objects to null
-            soundPool = null;
-            soundStreamIdList = null;
+        else if( item.getItemId() == MENU_ITEM_LOG_SHOT_HISTORY ) {
+            service.logShotHistory();
+            createToast( "Shot history written to the log (tag " + TAG + ")" );
+            return true;
         }
+        return super.onOptionsItemSelected( item );
     }
 
-    /** Called when a sound file has been loaded. */
-    @Override
-    public void onLoadComplete( SoundPool pool , 
-                                int sampleID , 
-                                int status ) {
-
-        // Check if the load was OK
-        if( status != 0 ) {
-            createToast( "Sorry, the sound effects could not be loaded" );
-            return;
-        }
-
-        // Check if all sound files have been loaded
-        ++numSoundsLoaded;
-        if( numSoundsLoaded == soundResourceList.length ) {
-            areSoundsLoaded = true;
-        }
+    /** Returns the service hosting the detection pipeline (null until bound, for tests). */
+    ShootingService getService() {
+        return service;
     }
 
-    /** Plays a sound stream (sound number is in the range 0 .. soundResourceList.length-1). */
-    private void playSound( int soundNumber ) {
-
-        // Check if all the sound files are loaded
-        if( ! areSoundsLoaded ) {
-            return;
-        }
-        // Check if the sound number is valid
-        else if( soundNumber >= soundResourceList.length ||
-                 soundNumber < 0 ) {
-            createToast( "Invalid sound number passed to playSound()" );
-            return;
-        }
-
-        // Play the sound (according to the media volume settings set by the user)
-        int streamID = soundStreamIdList.get( soundNumber );
-        AudioManager audioManager = (AudioManager) getSystemService( Context.AUDIO_SERVICE );
-        float curVolume = audioManager.getStreamVolume( AudioManager.STREAM_MUSIC );
-        float maxVolume = audioManager.getStreamMaxVolume( AudioManager.STREAM_MUSIC );
-        float leftVolume = curVolume / maxVolume;
-        float rightVolume = curVolume / maxVolume;
-        int priority = 1;
-        int noLoop = 0;
-        float normalPlaybackRate = 1.0F;
-        soundPool.play( streamID , 
-                        leftVolume , 
-                        rightVolume , 
-                        priority , 
-                        noLoop , 
-                        normalPlaybackRate );
+    /** Returns the time taken by the last attach of the display (nanosec, for tests). */
+    long getLastAttachTime() {
+        return lastAttachTime;
     }
 
     /** Helper method to create toasts. */
@@ -486,94 +360,100 @@ public class ShootingAppActivity
         handler.post( new Runnable() {
                 @Override
                 public void run() {
-                    Toast.makeText ( getApplicationContext() , 
-                                     toastMessage , 
+                    Toast.makeText ( getApplicationContext() ,
+                                     toastMessage ,
                                      Toast.LENGTH_SHORT ).show();
                 }
             } );
     }
 
-    // Sampled Sensors
-    /** Sensor manager. */
-    private SensorManager sensorManager;
-    /** (Linear) Accl sensor. */
-    private Sensor acclSensor;
-    /** Gravity sensor. */
-    private Sensor gravitySensor;
-
-    // Gravity sensor
-    /** Last time the GUI was updated about phone angle (UNIX millisec). */
-    private long lastPhoneAngleTime = 0L;
-    /** Max delay before GUI is updated about phone angle (millisec). */
-    private static final long MAX_UPDATE_INTERVAL_PHONE_ANGLE = 250L;
-    /** Face up angle error allowed in deg (since it is difficult for the user to place phone at perfect 90 deg). */
-    private static final float MAX_FACE_UP_ANGLE_ERROR = 30.0F;
-    /** Flag to indicate whether the phone is face up (and nearly parallel to the ground). */
-    private boolean isFaceUp;
-
-    // Linear accl sensor
-    /** Last time the GUI was updated about number of gestures (UNIX millisec). */
-    private long lastPhoneGestureTime = 0L;
-    /** Max delay before GUI is updated about the gestures (millisec). */
-    private static final long MAX_UPDATE_INTERVAL_PHONE_GESTURE = 250L;
-    /** Minimum gesture force (m/sec^2). */
-    private static final float MIN_ACCL_FORCE = 7.0F;
-    /** Minimum accl peak trough value (m/sec^2). */
-    private static final float MIN_ACCL_PEAK_TROUGH = 1.0F;
-    /** Flag to indicate if the accl is in the peak area. */
-    private boolean isAcclInPeakZone;
-    /** Number of gestures performed by the user. */
-    private int numGestures;
-
-    // Shooting direction and region
-    /** Last time the GUI was updated about phone direction (UNIX millisec). */
-    private long lastPhoneDirectionTime = 0L;
-    /** Max delay before GUI is updated about phone direction (millisec). */
-    private static final long MAX_UPDATE_INTERVAL_PHONE_DIRECTION = 250L;
-    /** Number of shooting regions (in the 360 deg shooting region around the user). */
-    private static final int NUM_SHOOTING_REGIONS = 8;
-    /** Shooting direction the user is pointing at (in the range 0 .. 360 degrees). */
-    private float shootingDirection;
-    /** Shooting region the user is pointing at (numbered from 1 .. NUM_SHOOTING_REGIONS). */
-    private int shootingRegion;
-
-    // GUI widgets
-    /** Text view displaying the linear accl processing. */
+    /**
+       Connection to the detection pipeline, handed over from an activity
+       to the next when it is re-created (so it must not keep the old
+       activity).
+     */
+    private static class PipelineConnection
+        implements ServiceConnection {
+
+        /** Sets the activity to notify (null while being handed over). */
+        void setActivity( ShootingAppActivity activity ) {
+            this.activity = activity;
+            if( activity != null && service != null ) {
+                activity.onPipelineBound( service );
+            }
+        }
+
+        /** Called when the service is bound (in the Main UI thread). */
+        @Override
+        public void onServiceConnected( ComponentName name ,
+                                        IBinder binder ) {
+            service = ( (ShootingService.LocalBinder) binder ).getService();
+            if( activity != null ) {
+                activity.onPipelineBound( service );
+            }
+        }
+
+        /** Called if the service's process is gone (not for a local service). */
+        @Override
+        public void onServiceDisconnected( ComponentName name ) {
+            service = null;
+        }
+
+        /** Activity notified of the binding (only used in the Main UI thread). */
+        private ShootingAppActivity activity;
+        /** Service hosting the pipeline (null until bound). */
+        private ShootingService service;
+    }
+
+    // Detection pipeline
+    /** Connection to the service hosting the pipeline. */
+    private PipelineConnection connection;
+    /** Service hosting the pipeline (null until bound). */
+    private ShootingService service;
+    /** Flag to indicate whether the binding was handed over to the re-created activity. */
+    private boolean isBindingRetained;
+    /** Time the binding was requested (elapsed realtime nanosec, 0 once bound). */
+    private long bindStartTime;
+
+    // GUI
+    /** Text view displaying the linear accl values. */
     private TextView textView_Accl;
-    /** Text view displaying the gravity processing. */
+    /** Text view displaying the gravity values. */
     private TextView textView_Gravity;
     /** Text view displaying the number of gestures. */
     private TextView textView_PhoneGesture;
-    /** Text view displaying whether the phone is facing up. */
+    /** Text view displaying whether the phone is face up. */
     private TextView textView_PhoneFaceUp;
-    /** Text view displaying the shooting region. */
+    /** Text view displaying the shooting direction and region. */
     private TextView textView_PhoneShootingRegion;
-
-    // For sound effects (gunshots)
-    // http://soundscrate.com/gun-related.html
-    // http://www.findsounds.com/ISAPI/search.dll
-    /** Sound pool for fast sound playback. */
-    private SoundPool soundPool;
-    /** List of sound stream IDs. */
-    private ArrayList< Integer > soundStreamIdList;
-    /** List of sound files resource IDs in the /res/raw resource folder. */
-    private static final int[] soundResourceList = 
-        new int[] { R.raw.rifle , 
-                    R.raw.missile1 , 
-                    R.raw.handgun , 
-                    R.raw.machinegun , 
-                    R.raw.torpedo , 
-                    R.raw.rocket1 , 
-                    R.raw.rifle2 , 
-                    R.raw.weirdmachinegun };
-    /** Flag to indicate whether all the sound files are loaded. */
-    private boolean areSoundsLoaded;
-    /** Number of sound files loaded. */
-    private int numSoundsLoaded;
+    /** Draws the pipeline's display model into the text views (null until bound). */
+    private DisplayRenderer displayRenderer;
+    /** Flag to indicate whether the activity has been stopped (and not started again). */
+    private boolean isStopped;
+    /** Flag to indicate whether the activity is resumed. */
+    private boolean isResumed;
+    /** Time taken by the last attach of the display (nanosec). */
+    private volatile long lastAttachTime;
+    /** Min time between two frames of the GUI (millisec, slow enough for the user to read the values). */
+    private static final long DISPLAY_FRAME_PERIOD = 250L;
+
+    // Options menu
+    /** ID of the options menu item to start/stop recording. */
+    private static final int MENU_ITEM_RECORD_TRACE = 1;
+    /** ID of the options menu item to write the latency stats to the log. */
+    private static final int MENU_ITEM_LOG_LATENCY = 2;
+    /** ID of the options menu item to calibrate the gesture thresholds. */
+    private static final int MENU_ITEM_CALIBRATE = 3;
+    /** ID of the options menu item to switch the gesture detection mode. */
+    private static final int MENU_ITEM_DETECTION_MODE = 4;
+    /** ID of the options menu item to write the shot history summary to the log. */
+    private static final int MENU_ITEM_LOG_SHOT_HISTORY = 5;
 
     // For DDMS Logging and Toasts
     /** Handler to the main thread. */
     private Handler handler;
+    /** Nanosec in a millisec. */
+    private static final long NANOSEC_PER_MILLISEC = 1000000L;
     /** TAG used for ddms logging. */
     private static final String TAG = "ShootingApp";
 }
@@ -0,0 +1,1520 @@
+package nus.cs4222.shootingapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Process;
+import android.os.SystemClock;
+import android.app.Service;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.widget.Toast;
+import android.hardware.Sensor;
+import android.hardware.SensorManager;
+import android.util.Log;
+
+import nus.cs4222.shootingapp.gesture.AlignedSampleListener;
+import nus.cs4222.shootingapp.gesture.FaceUpDetector;
+import nus.cs4222.shootingapp.gesture.GestureDetector;
+import nus.cs4222.shootingapp.gesture.HeadingFilter;
+import nus.cs4222.shootingapp.gesture.SampleBatch;
+import nus.cs4222.shootingapp.gesture.SamplingScheduler;
+import nus.cs4222.shootingapp.gesture.SensorSampleListener;
+import nus.cs4222.shootingapp.gesture.SensorStreamJoiner;
+import nus.cs4222.shootingapp.gesture.ShootingRegionTracker;
+import nus.cs4222.shootingapp.gesture.ThresholdCalibrator;
+import nus.cs4222.shootingapp.gesture.ThresholdGestureDetector;
+import nus.cs4222.shootingapp.gesture.classify.DecisionTree;
+import nus.cs4222.shootingapp.gesture.classify.GestureClassifier;
+import nus.cs4222.shootingapp.gesture.dtw.DtwGestureRecognizer;
+import nus.cs4222.shootingapp.gesture.dtw.GestureTemplates;
+import nus.cs4222.shootingapp.gesture.event.ShotEvent;
+import nus.cs4222.shootingapp.gesture.event.ShotEventBus;
+import nus.cs4222.shootingapp.gesture.trace.SensorTraceWriter;
+
+/**
+   Bound service hosting the whole detection pipeline: the sensors, the
+   sensor and processing threads, the detectors, the shot bus and its
+   consumers, and the audio engine. ShootingAppActivity only binds to
+   it, and draws its DisplayModel.
+
+   <p> The pipeline is started when the first client binds, and torn
+   down when the last one unbinds (the activity keeps its binding
+   across configuration changes). So an onPause/onResume of the
+   activity (a dialog on top) neither re-registers the sensors nor
+   reloads the sounds, and the filters, the face up and peak states of
+   the detectors, the gesture count and a calibration in progress all
+   carry on: shots keep being detected and heard while the activity is
+   paused. Re-attaching the GUI only restarts its renderer.
+
+   <p> While the activity is stopped (home screen, another app, screen
+   off), the sensors are unregistered (see suspendSensing()), so the
+   service does not keep sampling and shooting in the background. The
+   threads, the loaded sounds and the detector state are kept, and the
+   audio track stays stopped as no shot is played (see
+   ShotAudioEngine), so resumeSensing() only registers the sensors
+   again.
+
+   <p> The pipeline uses 2 sensors: the linear accl and the gravity
+   sensors. First, it uses the linear accl sensor to detect a
+   'shooting' gesture. Second, it uses the gravity sensor to make sure
+   the phone is face up and (almost) parallel to the ground while the
+   gesture is performed. The shooting direction is estimated from the
+   magnetometer and gyroscope (if the phone has them, see
+   HeadingFilter), and selects the shooting region and gun sound.
+
+   <p> While the phone is away from face up, the linear accl and the
+   direction sensors are switched off and the gravity is sampled slowly
+   with hardware batching (see SamplingScheduler), to save wakeups and
+   CPU time. All are back at game rate before the phone reaches the
+   face up band (the direction is only needed for a face up shot, and
+   is then re-estimated from the first magnetometer sample).
+
+   <p> Sensor callbacks are received on a dedicated sensor thread,
+   which only copies the samples into a ring buffer. The samples are
+   then drained and processed in batches on a separate processing
+   thread, which writes the values to display into a DisplayModel
+   (primitive fields only, no Strings). The aligned linear accl
+   samples of each drained block are collected into a SampleBatch, and
+   the face up test and gesture detection run as tight loops over the
+   whole block, so a burst of samples from the sensor FIFO is processed
+   in one go.
+
+   <p> The face up and gesture detection logic itself is in the
+   'gesture' module (plain Java), so that it can be tested and tuned
+   on the JVM. Each linear accl sample is paired with the gravity
+   interpolated to its timestamp (see SensorStreamJoiner), so that
+   the face up check during a fast gesture uses the orientation at
+   the time of the accl sample, not that of the last gravity sample.
+
+   <p> The samples come from a SensorSource: the phone's sensors by
+   default, or simulated sensors (synthetic shots, or a replayed
+   trace) selected by the extras of the binding intent (the activity
+   passes on its own, see EXTRA_SENSOR_SOURCE), at any multiple of the
+   hardware rates.
+
+   <p> Each detected shot (with its time, region, direction and peak
+   force) is published on a ShotEventBus, whose consumers each read
+   the shots at their own pace: the audio first, in the processing
+   thread, then the shot log in the main UI thread, and the shot
+   history (see ShotHistoryRecorder) in its own thread.
+
+   <p> The gun sounds are decoded once and played by a low latency
+   audio engine (see ShotAudioEngine), so that rapid shots overlap
+   instead of cutting each other off.
+
+   <p> The gesture thresholds can be calibrated for the phone (see
+   ThresholdCalibrator): the user holds the phone still, then makes a
+   few shots. The thresholds are stored per phone model, and keep
+   adapting to the user's shots afterwards. MIN_ACCL_FORCE and
+   MIN_ACCL_PEAK_TROUGH are only used until then.
+ */
+public class ShootingService 
+    extends Service 
+    implements SensorSource.Listener , 
+               SensorSampleListener , 
+               AlignedSampleListener , 
+               ShotAudioEngine.OnSoundLoadedListener {
+
+    /** Binder returned to the clients (in the same process). */
+    public class LocalBinder 
+        extends Binder {
+
+        /** Returns the service hosting the pipeline. */
+        public ShootingService getService() {
+            return ShootingService.this;
+        }
+    }
+
+    /** Called when the service is created. */
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Get a handler to the main thread (for posting toast messages)
+        handler = new Handler();
+    }
+
+    /** 
+       Called when the first client binds: starts the pipeline, with the
+       sensor source asked for by the intent extras.
+     */
+    @Override
+    public IBinder onBind( Intent intent ) {
+
+        try {
+
+            // Initialise sensor manager and sensors
+            initSensors( intent );
+
+            // Start sensing the sensors
+            startSensing();
+
+            // Initialise the audio engine for sound effects
+            initSound();
+            isRunning = true;
+        }
+        catch( Exception e ) {
+            // Log the exception (the binder is still returned, but the
+            //  pipeline is not running, see isRunning())
+            Log.e( TAG , "Unable to start the detection pipeline" , e );
+            // Tell the user
+            createToast( "Unable to start the detection pipeline, check error log" );
+        }
+        return binder;
+    }
+
+    /** Called when the last client has unbound: the service is then destroyed. */
+    @Override
+    public boolean onUnbind( Intent intent ) {
+        return false;
+    }
+
+    /** Called when the service is destroyed (all clients have unbound). */
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        isRunning = false;
+
+        try {
+
+            // De-initialise the audio engine
+            if( audioEngine != null ) {
+                deinitSound();
+            }
+
+            // Stop all sensing
+            if( isSensing ) {
+                stopSensing();
+            }
+
+            // Stop the sensor and processing threads
+            deinitSensors();
+        }
+        catch( Exception e ) {
+            // Log the exception
+            Log.e( TAG , "Unable to stop the detection pipeline" , e );
+            // Tell the user
+            createToast( "Unable to stop the detection pipeline, check error log" );
+        }
+    }
+
+    /** 
+       Stores what must not be lost if the process is killed while the
+       GUI is away (called when the activity is paused): the pending
+       shots, and the thresholds adapted so far. The pipeline itself
+       keeps running.
+     */
+    public void saveState() {
+
+        // Write the pending shots (in the background)
+        if( shotHistory != null ) {
+            shotHistory.flush();
+        }
+
+        // Store the adapted thresholds (in the processing thread)
+        if( processingHandler != null ) {
+            processingHandler.post( storeCalibrationTask );
+        }
+    }
+
+    /** 
+       Returns whether the pipeline has started (it does not if, e.g.,
+       the phone has no linear accl or gravity sensor). The other public
+       methods do nothing until then.
+     */
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /** 
+       Stops sampling the sensors while the GUI is hidden (called when
+       the activity is stopped). Everything else is kept, see
+       resumeSensing().
+     */
+    public void suspendSensing() {
+        if( ! isRunning || isSuspended ) {
+            return;
+        }
+        isSuspended = true;
+        sensorSource.unregisterAll();
+        Log.i( TAG , "Sensing suspended" );
+    }
+
+    /** 
+       Samples the sensors again after suspendSensing() (called when the
+       activity is started), from the ACTIVE mode, and with the detectors
+       carrying on where they left off.
+     */
+    public void resumeSensing() {
+        if( ! isRunning || ! isSuspended ) {
+            return;
+        }
+        isSuspended = false;
+
+        // Forget the samples and heading from before the gap (in the
+        //  processing thread, before the new samples arrive)
+        processingHandler.post( resumeSensingTask );
+        registerSensors( SamplingScheduler.MODE_ACTIVE );
+        Log.i( TAG , "Sensing resumed" );
+    }
+
+    /** Task (run in the processing thread) that restarts the sampling state after a suspension. */
+    private final Runnable resumeSensingTask = new Runnable() {
+            @Override
+            public void run() {
+                streamJoiner.reset();
+                headingFilter.reset();
+                samplingScheduler.reset();
+                samplingMode = samplingScheduler.getMode();
+            }
+        };
+
+    /** Returns the latest values to display (drawn by the activity). */
+    public DisplayModel getDisplayModel() {
+        return displayModel;
+    }
+
+    /** Initialises the sensors (linear accl, gravity, and the optional direction sensors). */
+    private void initSensors( Intent intent ) 
+        throws Exception {
+
+        // Get the source of the sensor samples (the phone's sensors, 
+        //  unless the intent asks for simulated ones)
+        sensorSource = createSensorSource( intent );
+        Log.i( TAG , "Sensor source: " + sensorSource.getName() );
+
+        // Check for the linear accl and gravity sensors
+        if( ! sensorSource.hasSensor( Sensor.TYPE_LINEAR_ACCELERATION ) ) {
+            throw new Exception( "Oops, there is no linear accelerometer sensor on this device :(" );
+        }
+        else if( ! sensorSource.hasSensor( Sensor.TYPE_GRAVITY ) ) {
+            throw new Exception( "Oops, there is no gravity sensor on this device :(" );
+        }
+
+        // Sensors for the shooting direction (optional, the direction 
+        //  stays at 0 deg without a magnetometer)
+        hasMagneticSensor = sensorSource.hasSensor( Sensor.TYPE_MAGNETIC_FIELD );
+        hasGyroscope = sensorSource.hasSensor( Sensor.TYPE_GYROSCOPE );
+        if( ! hasMagneticSensor ) {
+            Log.w( TAG , "No magnetometer, the shooting direction cannot be detected" );
+        }
+
+        // Shooting direction and region estimators
+        headingFilter = new HeadingFilter( hasGyroscope ? 
+                                           HeadingFilter.DEFAULT_MAGNETIC_GAIN_WITH_GYROSCOPE : 
+                                           HeadingFilter.DEFAULT_MAGNETIC_GAIN_WITHOUT_GYROSCOPE );
+        regionTracker = new ShootingRegionTracker( NUM_SHOOTING_REGIONS , 
+                                                   SHOOTING_REGION_HYSTERESIS );
+
+        // Switches the sensors to a low rate while the phone is away from face up
+        samplingScheduler = new SamplingScheduler( SAMPLING_APPROACH_ANGLE , 
+                                                   SAMPLING_IDLE_DELAY * NANOSEC_PER_MILLISEC );
+
+        // Face up and gesture detectors
+        faceUpDetector = new FaceUpDetector( MAX_FACE_UP_ANGLE_ERROR );
+        // (with the thresholds calibrated for this phone model, if any)
+        SharedPreferences calibration = getSharedPreferences( PREFS_CALIBRATION , MODE_PRIVATE );
+        thresholdDetector = createGestureDetector( calibration.getFloat( Build.MODEL + KEY_MIN_ACCL_FORCE , 
+                                                                         MIN_ACCL_FORCE ) , 
+                                                   calibration.getFloat( Build.MODEL + KEY_MIN_ACCL_PEAK_TROUGH , 
+                                                                         MIN_ACCL_PEAK_TROUGH ) );
+        // (and the template recognizer, which picks the weapon from the gesture's shape)
+        templateRecognizer = new DtwGestureRecognizer( GestureTemplates.defaults() , 
+                                                       GestureTemplates.DEFAULT_BAND_WIDTH , 
+                                                       GestureTemplates.DEFAULT_REFRACTORY_PERIOD );
+        // (and the classifier, which picks the weapon from the gesture's class)
+        gestureClassifier = loadGestureClassifier();
+        gestureDetector = getGestureDetector( detectionMode );
+        calibrator = new ThresholdCalibrator( CALIBRATION_REST_DURATION * NANOSEC_PER_MILLISEC , 
+                                              CALIBRATION_NUM_SHOTS );
+        // (which carries on adapting from the stored calibration, if any)
+        if( calibration.contains( Build.MODEL + KEY_WEAK_PEAK ) ) {
+            calibrator.restore( calibration.getFloat( Build.MODEL + KEY_NOISE_LEVEL , 0.0F ) , 
+                                calibration.getFloat( Build.MODEL + KEY_NOISE_MEAN , 0.0F ) , 
+                                calibration.getFloat( Build.MODEL + KEY_NOISE_STD_DEV , 0.0F ) , 
+                                calibration.getFloat( Build.MODEL + KEY_WEAK_PEAK , 0.0F ) , 
+                                calibration.getFloat( Build.MODEL + KEY_GUIDED_MIN_ACCL_FORCE , 
+                                                      calibration.getFloat( Build.MODEL + KEY_MIN_ACCL_FORCE , 
+                                                                            MIN_ACCL_FORCE ) ) );
+        }
+
+        // Time-aligns the accl samples with the gravity samples
+        streamJoiner = new SensorStreamJoiner( MAX_SENSOR_SKEW * NANOSEC_PER_MILLISEC , 
+                                               STREAM_JOIN_CAPACITY , 
+                                               this );
+
+        // Ring buffer to pass the samples from the sensor thread to the processing thread
+        sampleBuffer = new SensorSampleBuffer( SAMPLE_BUFFER_CAPACITY );
+        isDrainPending = new AtomicBoolean( false );
+
+        // Consumers of the detected shots (the audio first in line, then
+        //  the logging, which only ever sees the latest few shots)
+        shotBus.addConsumer( "audio" , SHOT_BUS_CAPACITY , audioShotListener );
+        logShotConsumer = shotBus.addConsumer( "log" , SHOT_LOG_MAX_LAG , logShotListener );
+        // (and the shot history, kept across sessions, of the user's own
+        //  shots only, not those of simulated sensors)
+        if( sensorSource instanceof AndroidSensorSource ) {
+            shotHistory = new ShotHistoryRecorder( new File( getFilesDir() , SHOT_HISTORY_FILE_NAME ) , 
+                                                   shotBus );
+        }
+
+        // Thread on which the sensor callbacks are received
+        sensorThread = new HandlerThread( "SensorThread" , 
+                                          Process.THREAD_PRIORITY_URGENT_DISPLAY );
+        sensorThread.start();
+        sensorHandler = new Handler( sensorThread.getLooper() );
+
+        // Thread on which the samples are processed
+        processingThread = new HandlerThread( "ProcessingThread" , 
+                                              Process.THREAD_PRIORITY_DISPLAY );
+        processingThread.start();
+        processingHandler = new Handler( processingThread.getLooper() );
+    }
+
+    /**
+       Creates the sensor source asked for by the intent extras (see
+       EXTRA_SENSOR_SOURCE), the phone's sensors by default.
+     */
+    private SensorSource createSensorSource( Intent intent ) 
+        throws IOException {
+
+        String source = intent.getStringExtra( EXTRA_SENSOR_SOURCE );
+        float rateMultiplier = intent.getFloatExtra( EXTRA_SENSOR_RATE , 1.0F );
+        if( SENSOR_SOURCE_SYNTHETIC.equals( source ) ) {
+            long shotInterval = intent.getLongExtra( EXTRA_SHOT_INTERVAL , DEFAULT_SYNTHETIC_SHOT_INTERVAL );
+            return new SyntheticSensorSource( rateMultiplier , shotInterval * NANOSEC_PER_MILLISEC );
+        }
+        else if( SENSOR_SOURCE_TRACE.equals( source ) ) {
+            return new TraceSensorSource( new File( intent.getStringExtra( EXTRA_TRACE_FILE ) ) , 
+                                          rateMultiplier );
+        }
+        return new AndroidSensorSource( (SensorManager) getSystemService( SENSOR_SERVICE ) );
+    }
+
+    /** Stops the sensor and processing threads. */
+    private void deinitSensors() {
+
+        // Let the threads finish their pending work and exit
+        if( sensorThread != null ) {
+            sensorThread.quitSafely();
+        }
+        if( processingThread != null ) {
+            processingThread.quitSafely();
+        }
+
+        // Write the pending shots and close the shot history
+        if( shotHistory != null ) {
+            shotHistory.close();
+        }
+
+        // Close the replayed trace (if any)
+        if( sensorSource instanceof TraceSensorSource ) {
+            try {
+                ( (TraceSensorSource) sensorSource ).close();
+            }
+            catch( IOException e ) {
+                // Log the exception
+                Log.e( TAG , "Unable to close the replayed sensor trace" , e );
+            }
+        }
+    }
+
+    /** Starts sampling the sensors. */
+    private void startSensing() {
+
+        // Initialise the sensor-related variables
+        faceUpDetector.reset();
+        gestureDetector.reset();
+        streamJoiner.reset();
+        headingFilter.reset();
+        regionTracker.reset();
+        samplingScheduler.reset();
+        samplingMode = samplingScheduler.getMode();
+        shotPeakForceSquared = 0.0F;
+        shootingRegion = 1;
+        shootingDirection = 0.0F;
+
+        // Start sampling the sensors (callbacks arrive on the sensor thread),
+        //  at the full rate until the phone is known to be away from face up
+        isSensing = true;
+        registerSensors( SamplingScheduler.MODE_ACTIVE );
+    }
+
+    /** Stops all sensing. */
+    private void stopSensing() {
+
+        // Stop sampling all sensors
+        isSensing = false;
+        sensorSource.unregisterAll();
+
+        // Finish any trace recording
+        stopRecording();
+
+        // Store the thresholds adapted since the start (in the processing thread)
+        processingHandler.post( saveCalibrationTask );
+
+        // Report any samples lost due to the processing thread falling behind,
+        //  and the latencies so far
+        Log.i( TAG , "Sensor samples dropped so far: " + sampleBuffer.getNumDropped() );
+        pipelineStats.log( TAG );
+        logSamplingSavings();
+    }
+
+    /** 
+       Registers the sensors for a sampling mode (in the Main UI thread).
+
+       <p> ACTIVE samples all sensors at game rate. IDLE switches off the
+       accl, the magnetometer and the gyroscope, and samples the gravity
+       slowly with hardware batching (so the CPU is woken up only once
+       per batch).
+     */
+    private void registerSensors( int mode ) {
+
+        // (the source re-registers the gravity sensor, since its rate cannot be changed otherwise)
+        if( mode == SamplingScheduler.MODE_ACTIVE ) {
+            sensorSource.register( Sensor.TYPE_LINEAR_ACCELERATION ,    // Sensor to measure 
+                                   SensorManager.SENSOR_DELAY_GAME ,    // Measurement interval (microsec)
+                                   0 ,                                  // No batching
+                                   this ,                               // Listener
+                                   sensorHandler );                     // Thread to receive callbacks
+            sensorSource.register( Sensor.TYPE_GRAVITY ,                // Sensor to measure 
+                                   SensorManager.SENSOR_DELAY_GAME ,    // Measurement interval (microsec)
+                                   0 ,                                  // No batching
+                                   this ,                               // Listener
+                                   sensorHandler );                     // Thread to receive callbacks
+            if( hasMagneticSensor ) {
+                sensorSource.register( Sensor.TYPE_MAGNETIC_FIELD , 
+                                       SensorManager.SENSOR_DELAY_GAME , 
+                                       0 , 
+                                       this , 
+                                       sensorHandler );
+            }
+            if( hasGyroscope ) {
+                sensorSource.register( Sensor.TYPE_GYROSCOPE , 
+                                       SensorManager.SENSOR_DELAY_GAME , 
+                                       0 , 
+                                       this , 
+                                       sensorHandler );
+            }
+        }
+        else {
+            sensorSource.unregister( Sensor.TYPE_LINEAR_ACCELERATION );
+            sensorSource.unregister( Sensor.TYPE_MAGNETIC_FIELD );
+            sensorSource.unregister( Sensor.TYPE_GYROSCOPE );
+            sensorSource.register( Sensor.TYPE_GRAVITY ,                // Sensor to measure 
+                                   IDLE_GRAVITY_INTERVAL ,              // Measurement interval (microsec)
+                                   IDLE_GRAVITY_MAX_REPORT_LATENCY ,    // Max batching delay (microsec)
+                                   this ,                               // Listener
+                                   sensorHandler );                     // Thread to receive callbacks
+        }
+    }
+
+    /** Task (run in the Main UI thread) that applies the sampling mode chosen by the processing thread. */
+    private final Runnable applySamplingModeTask = new Runnable() {
+            @Override
+            public void run() {
+
+                // The sensors may have been stopped meanwhile (service
+                //  destroyed, or sensing suspended)
+                if( ! isSensing || isSuspended ) {
+                    return;
+                }
+                registerSensors( samplingMode );
+            }
+        };
+
+    /** Logs the time spent in each sampling mode, and the samples saved by the idle mode. */
+    private void logSamplingSavings() {
+        long idleTime = samplingScheduler.getTimeInMode( SamplingScheduler.MODE_IDLE );
+        long activeTime = samplingScheduler.getTimeInMode( SamplingScheduler.MODE_ACTIVE );
+
+        // In the idle mode, the accl, magnetometer and gyroscope are off,
+        //  and the gravity is slower than at game rate (and delivered in batches)
+        int numSensors = 2 + ( hasMagneticSensor ? 1 : 0 ) + ( hasGyroscope ? 1 : 0 );
+        double idleSec = idleTime / 1.0E9;
+        long numSavedSamples = Math.round( idleSec * 1.0E6 / GAME_RATE_INTERVAL * numSensors - 
+                                           idleSec * 1.0E6 / IDLE_GRAVITY_INTERVAL );
+        Log.i( TAG , "Sampling: active " + ( activeTime / NANOSEC_PER_MILLISEC ) + " ms , idle " + 
+               ( idleTime / NANOSEC_PER_MILLISEC ) + " ms , " + 
+               samplingScheduler.getNumModeChanges() + " mode changes , about " + 
+               numSavedSamples + " samples saved (of " + numSensors + " sensors)" );
+    }
+
+    /** Called with each sensor sample from the sensor source (in the sensor thread). */
+    @Override
+    public void onSensorSample( int sensorType , 
+                                int accuracy , 
+                                long timestamp , 
+                                float[] values ) {
+
+        // NOTE: Sensor callbacks are in the sensor thread, so only
+        //  store the values here, and process them in the processing 
+        //  thread. This way, a slow GUI or processing does not delay
+        //  the sampling.
+        pipelineStats.recordLatency( PipelineStats.STAGE_DISPATCH , 
+                                     SystemClock.elapsedRealtimeNanos() - timestamp );
+        sampleBuffer.put( sensorType , 
+                          timestamp , 
+                          values );
+
+        // Record the raw sample (if recording)
+        if( traceWriter != null ) {
+            recordSample( sensorType , accuracy , timestamp , values );
+        }
+
+        // Wake up the processing thread (unless it is already going to run)
+        if( isDrainPending.compareAndSet( false , true ) ) {
+            processingHandler.post( drainSamplesTask );
+        }
+    }
+
+    /** Records a raw sensor sample into the trace file (in the sensor thread). */
+    private void recordSample( int sensorType , 
+                               int accuracy , 
+                               long timestamp , 
+                               float[] values ) {
+
+        try {
+            traceWriter.write( sensorType , 
+                               accuracy , 
+                               timestamp , 
+                               values );
+        }
+        catch( IOException e ) {
+            // Log the exception
+            Log.e( TAG , "Unable to record sensor sample" , e );
+            // Tell the user
+            createToast( "Sensor trace recording stopped, check error log" );
+            closeTraceWriter();
+        }
+    }
+
+    /** Writes the latency stats and the stats of each shot consumer to the log. */
+    public void logStats() {
+        if( ! isRunning ) {
+            return;
+        }
+        pipelineStats.log( TAG );
+        logShotBusStats();
+    }
+
+    /** Starts a guided threshold calibration (in the processing thread). */
+    public void startCalibration() {
+        if( ! isRunning ) {
+            return;
+        }
+        processingHandler.post( startCalibrationTask );
+    }
+
+    /** Switches to the next gesture detection mode (in the processing thread). */
+    public void switchDetectionMode() {
+        if( ! isRunning ) {
+            return;
+        }
+        processingHandler.post( switchDetectionModeTask );
+    }
+
+    /** Returns the name of the detection mode after the current one. */
+    public String getNextDetectionModeName() {
+        return DETECTION_MODE_NAMES[ getNextDetectionMode() ];
+    }
+
+    /** Writes a summary of the shot history to the log (in the background). */
+    public void logShotHistory() {
+        if( ! isRunning ) {
+            return;
+        }
+        else if( shotHistory == null ) {
+            createToast( "No shot history is recorded from simulated sensors" );
+            return;
+        }
+        shotHistory.logSummary( TAG );
+    }
+
+    /** Returns whether the raw sensor samples are being recorded (only called in the Main UI thread). */
+    public boolean isRecording() {
+        return isRecording;
+    }
+
+    /** Creates the gesture detector with the given thresholds. */
+    private static ThresholdGestureDetector createGestureDetector( float minAcclForce , 
+                                                          float minAcclPeakTrough ) {
+        return new ThresholdGestureDetector( minAcclForce , 
+                                             minAcclPeakTrough , 
+                                             MIN_GESTURE_INTERVAL * NANOSEC_PER_MILLISEC , 
+                                             MAX_ACCL_PEAK_DURATION * NANOSEC_PER_MILLISEC );
+    }
+
+    /** Loads the gesture classifier's model from the app resources (null if it cannot be loaded). */
+    private GestureClassifier loadGestureClassifier() {
+
+        InputStream in = getResources().openRawResource( R.raw.gesture_model );
+        try {
+            return new GestureClassifier( DecisionTree.read( in ) , 
+                                          GestureClassifier.DEFAULT_REFRACTORY_PERIOD );
+        }
+        catch( IOException | IllegalArgumentException e ) {
+            // Log the exception (the classifier is left out of the detection modes)
+            Log.e( TAG , "Unable to load gesture model" , e );
+            return null;
+        }
+        finally {
+            try {
+                in.close();
+            }
+            catch( IOException e ) {
+                Log.e( TAG , "Unable to close gesture model" , e );
+            }
+        }
+    }
+
+    /** Returns the gesture detector of a detection mode. */
+    private GestureDetector getGestureDetector( int mode ) {
+        switch( mode ) {
+        case DETECTION_TEMPLATES:
+            return templateRecognizer;
+        case DETECTION_CLASSIFIER:
+            return gestureClassifier;
+        default:
+            return thresholdDetector;
+        }
+    }
+
+    /** Returns the detection mode after the current one (skipping the classifier if its model could not be loaded). */
+    private int getNextDetectionMode() {
+        int mode = ( detectionMode + 1 ) % NUM_DETECTION_MODES;
+        if( mode == DETECTION_CLASSIFIER && gestureClassifier == null ) {
+            mode = ( mode + 1 ) % NUM_DETECTION_MODES;
+        }
+        return mode;
+    }
+
+    /** Task (run in the processing thread) that switches to the next gesture detection mode. */
+    private final Runnable switchDetectionModeTask = new Runnable() {
+            @Override
+            public void run() {
+                detectionMode = getNextDetectionMode();
+                gestureDetector = getGestureDetector( detectionMode );
+                gestureDetector.reset();
+                createToast( DETECTION_MODE_HINTS[ detectionMode ] );
+            }
+        };
+
+    /** Task (run in the processing thread) that starts a guided threshold calibration. */
+    private final Runnable startCalibrationTask = new Runnable() {
+            @Override
+            public void run() {
+                calibrator.start();
+                createToast( "Calibrating: hold the phone face up and still" );
+            }
+        };
+
+    /** Task (run in the processing thread) that stops any calibration and stores the adapted thresholds. */
+    private final Runnable saveCalibrationTask = new Runnable() {
+            @Override
+            public void run() {
+                calibrator.cancel();
+                if( calibrator.hasThresholds() ) {
+                    applyCalibratedThresholds();
+                }
+            }
+        };
+
+    /** 
+       Task (run in the processing thread) that stores the thresholds
+       adapted so far (which are applied separately, between two peaks,
+       see calibrateThresholds()).
+     */
+    private final Runnable storeCalibrationTask = new Runnable() {
+            @Override
+            public void run() {
+                if( calibrator.getPhase() == ThresholdCalibrator.PHASE_DONE ) {
+                    storeCalibratedThresholds();
+                }
+            }
+        };
+
+    /** Passes the face up accl samples of a block to the calibrator (in the processing thread). */
+    private void calibrateThresholds( SampleBatch batch ) {
+
+        // Nothing to do unless calibrating (or adapting after a calibration)
+        if( calibrator.getPhase() == ThresholdCalibrator.PHASE_IDLE ) {
+            return;
+        }
+
+        for( int i = 0 ; i < batch.size() ; ++i ) {
+            if( ! batch.isFaceUp[i] || 
+                ! calibrator.onSample( batch.timestamps[i] , batch.az[i] ) ) {
+                continue;
+            }
+
+            // Guide the user through the phases
+            if( calibrator.getPhase() == ThresholdCalibrator.PHASE_SHOTS ) {
+                createToast( "Now make " + calibrator.getNumShots() + " shots" );
+            }
+            else if( calibrator.getPhase() == ThresholdCalibrator.PHASE_DONE ) {
+                applyCalibratedThresholds();
+                createToast( "Calibrated: min force " + calibrator.getMinAcclForce() + 
+                             " , peak trough " + calibrator.getMinAcclPeakTrough() );
+            }
+        }
+
+        // Apply the adapted thresholds now and then, between two peaks
+        //  (so a peak is never judged by two sets of thresholds)
+        long timestamp = batch.timestamps[ batch.size() - 1 ];
+        if( calibrator.getPhase() == ThresholdCalibrator.PHASE_DONE && 
+            ! thresholdDetector.isAcclInPeakZone() && 
+            timestamp - lastAdaptTimestamp >= ADAPT_PERIOD * NANOSEC_PER_MILLISEC ) {
+            lastAdaptTimestamp = timestamp;
+            thresholdDetector.setThresholds( calibrator.getMinAcclForce() , 
+                                             calibrator.getMinAcclPeakTrough() );
+        }
+    }
+
+    /** Uses the calibrated thresholds, and stores them for this phone model (in the processing thread). */
+    private void applyCalibratedThresholds() {
+
+        // (the gesture count and peak state of the detector are kept)
+        thresholdDetector.setThresholds( calibrator.getMinAcclForce() , 
+                                         calibrator.getMinAcclPeakTrough() );
+        storeCalibratedThresholds();
+    }
+
+    /** Stores the calibrated thresholds (and the statistics they adapt from) for this phone model (in the processing thread). */
+    private void storeCalibratedThresholds() {
+        float minAcclForce = calibrator.getMinAcclForce();
+        float minAcclPeakTrough = calibrator.getMinAcclPeakTrough();
+        getSharedPreferences( PREFS_CALIBRATION , MODE_PRIVATE ).edit()
+            .putFloat( Build.MODEL + KEY_MIN_ACCL_FORCE , minAcclForce )
+            .putFloat( Build.MODEL + KEY_MIN_ACCL_PEAK_TROUGH , minAcclPeakTrough )
+            .putFloat( Build.MODEL + KEY_NOISE_LEVEL , calibrator.getNoiseLevel() )
+            .putFloat( Build.MODEL + KEY_NOISE_MEAN , calibrator.getNoiseMean() )
+            .putFloat( Build.MODEL + KEY_NOISE_STD_DEV , calibrator.getNoiseStdDev() )
+            .putFloat( Build.MODEL + KEY_WEAK_PEAK , calibrator.getWeakPeak() )
+            .putFloat( Build.MODEL + KEY_GUIDED_MIN_ACCL_FORCE , calibrator.getGuidedMinAcclForce() )
+            .apply();
+        Log.i( TAG , "Gesture thresholds for " + Build.MODEL + ": min force " + minAcclForce + 
+               " , peak trough " + minAcclPeakTrough );
+    }
+
+    /** Starts recording the raw sensor samples into a new trace file. */
+    public void startRecording() {
+
+        // Nothing to record if the pipeline is not running
+        if( ! isRunning ) {
+            return;
+        }
+
+        // Find a folder the user can copy the file from
+        File folder = getExternalFilesDir( null );
+        if( folder == null ) {
+            folder = getFilesDir();
+        }
+        final File traceFile = new File( folder , "sensors_" + System.currentTimeMillis() + ".trace" );
+        isRecording = true;
+
+        // The trace writer is only used in the sensor thread
+        sensorHandler.post( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        closeTraceWriter();
+                        traceWriter = new SensorTraceWriter( traceFile );
+                        createToast( "Recording sensor trace to " + traceFile );
+                    }
+                    catch( IOException e ) {
+                        // Log the exception
+                        Log.e( TAG , "Unable to start recording" , e );
+                        // Tell the user
+                        createToast( "Unable to start recording, check error log" );
+                    }
+                }
+            } );
+    }
+
+    /** Stops recording the raw sensor samples. */
+    public void stopRecording() {
+
+        // Nothing to do if not recording
+        if( ! isRecording ) {
+            return;
+        }
+        isRecording = false;
+
+        // The trace writer is only used in the sensor thread
+        sensorHandler.post( new Runnable() {
+                @Override
+                public void run() {
+                    long numRecords = ( traceWriter != null ) ? traceWriter.getNumRecords() : 0L;
+                    closeTraceWriter();
+                    createToast( "Recorded " + numRecords + " sensor samples" );
+                }
+            } );
+    }
+
+    /** Closes the trace file (in the sensor thread). */
+    private void closeTraceWriter() {
+
+        try {
+            if( traceWriter != null ) {
+                traceWriter.close();
+            }
+        }
+        catch( IOException e ) {
+            // Log the exception
+            Log.e( TAG , "Unable to close sensor trace" , e );
+        }
+        finally {
+            traceWriter = null;
+        }
+    }
+
+    /** Task (run in the processing thread) that processes all buffered samples. */
+    private final Runnable drainSamplesTask = new Runnable() {
+            @Override
+            public void run() {
+
+                // Clear the flag first, so that samples arriving from now on
+                //  post the task again
+                isDrainPending.set( false );
+
+                // Process the samples in batches (the aligned accl samples
+                //  of each batch are then processed as one block)
+                while( sampleBuffer.drain( ShootingService.this , MAX_SAMPLE_BATCH_SIZE ) > 0 ) {
+                    processAcclBatch();
+                }
+            }
+        };
+
+    /** Processes one buffered sensor sample (in the processing thread). */
+    @Override
+    public void onSample( int sensorType , 
+                          long timestamp , 
+                          float x , 
+                          float y , 
+                          float z ) {
+
+        // Record the time the sample waited, and the sensor rate
+        pipelineStats.recordLatency( PipelineStats.STAGE_PROCESS , 
+                                     SystemClock.elapsedRealtimeNanos() - timestamp );
+        pipelineStats.onSensorSample( sensorType , timestamp );
+        ++numProcessedSamples;
+
+        // Case 1: Gravity sensor
+        if( sensorType == Sensor.TYPE_GRAVITY ) {
+            processGravityValues( x , y , z );
+            streamJoiner.onGravitySample( timestamp , x , y , z );
+            headingFilter.onGravitySample( x , y , z );
+
+            // Slow down or speed up the sampling, depending on how close
+            //  the phone is to face up (the sensors are re-registered
+            //  in the Main UI thread)
+            if( samplingScheduler.onGravitySample( timestamp , x , y , z ) ) {
+                samplingMode = samplingScheduler.getMode();
+                handler.post( applySamplingModeTask );
+
+                // The direction sensors were off while idle, so the heading
+                //  is stale: start again from the next magnetometer sample
+                if( samplingMode == SamplingScheduler.MODE_ACTIVE ) {
+                    headingFilter.reset();
+                }
+            }
+        }
+        // Case 2: Linear accl sensor (processed once the gravity at 
+        //  the same time is known, see onAlignedSample())
+        else if( sensorType == Sensor.TYPE_LINEAR_ACCELERATION ) {
+            streamJoiner.onAcclSample( timestamp , x , y , z );
+        }
+        // Case 3: Magnetometer and gyroscope (for the shooting direction)
+        else if( sensorType == Sensor.TYPE_MAGNETIC_FIELD ) {
+            headingFilter.onMagneticSample( x , y , z );
+        }
+        else if( sensorType == Sensor.TYPE_GYROSCOPE ) {
+            headingFilter.onGyroscopeSample( timestamp , x , y , z );
+        }
+
+        // Detect the shooting direction and region
+        detectShootingDirectionAndRegion();
+    }
+
+    /** Process the gravity sensor. */
+    private void processGravityValues( float x , 
+                                       float y , 
+                                       float z ) {
+
+        // Use the gravity sensor to detect whether the phone is 
+        //  face up and nearly parallel to the ground.
+        // When the phone is in this position, the gravity should be
+        //  (0 , 0 , g). Otherwise, it is at an angle to the ground,
+        //  which can be calculated as the angle between the sampled 
+        //  gravity vector and the (0 , 0 , 1) phone's z-axis.
+        // The check itself is done for each accl sample, with the gravity
+        //  interpolated to the accl timestamp (see onAlignedSample()).
+
+        // Update the display model (only primitive values, drawn at the 
+        //  next display frame, see DisplayRenderer)
+        displayModel.setGravity( x , y , z , faceUpDetector.isFaceUp() );
+    }
+
+    /** Detect the shooting direction and region. */
+    private void detectShootingDirectionAndRegion() {
+
+        // The shooting direction is the heading of the phone's top
+        //  (clockwise from magnetic north), estimated by fusing the 
+        //  magnetometer and gyroscope (see HeadingFilter).
+        if( ! headingFilter.hasHeading() ) {
+            return;
+        }
+        shootingDirection = headingFilter.getHeading();
+
+        // The shooting region is the sector the direction is in, with
+        //  hysteresis at the sector edges so that the gun sound does not
+        //  flip while the user's aim wobbles around an edge.
+        // The processAcclBatch() method produces the gunshot sound 
+        //  based on the value of 'shootingRegion'.
+        shootingRegion = regionTracker.onDirection( shootingDirection );
+
+        // Update the display model
+        displayModel.setShootingRegion( shootingDirection , shootingRegion );
+    }
+
+    /** Called with each linear accl sample and the gravity at its time (in the processing thread). */
+    @Override
+    public void onAlignedSample( long timestamp , 
+                                 float ax , 
+                                 float ay , 
+                                 float az , 
+                                 float gx , 
+                                 float gy , 
+                                 float gz ) {
+
+        // Collect the sample into the block processed after the drain
+        //  (or straight away if the block is full)
+        acclBatch.onAlignedSample( timestamp , ax , ay , az , gx , gy , gz );
+        if( acclBatch.isFull() ) {
+            processAcclBatch();
+        }
+    }
+
+    /** Process a block of linear accl samples (with the gravity at their times). */
+    private void processAcclBatch() {
+
+        // Nothing to do if no accl sample was aligned since the last block
+        SampleBatch batch = acclBatch;
+        int numSamples = batch.size();
+        if( numSamples == 0 ) {
+            return;
+        }
+
+        // This uses the accl to detect if a 'shooting' gesture has been made
+        //  (by moving the phone sharply upwards/downwards/forwards with large force
+        //   while face up)
+
+        // Check if the phone is face up at the time of each accl sample
+        //  (the angle itself is only calculated when the GUI is updated).
+        //  The gesture detector skips the samples that are not face up.
+        faceUpDetector.onBatch( batch );
+
+        // Calibrate the thresholds (if calibrating)
+        calibrateThresholds( batch );
+
+        // The threshold detector uses only the accl's z-axis (of the 
+        //  phone's co-ordinate system), the template recognizer uses 
+        //  all three axes.
+        // You can visualize accl data using the Sensor Kinetics app in 
+        //  the Google play store.
+
+        // NOTE: Smoothing may not be required for linear accl since it
+        //  is typically a processed sensor. If not, then a bit of smoothing
+        //  will be required to remove erroneous accl peaks. Note that smoothing
+        //  would increase the latency, so too much smoothing is also not 
+        //  advisable.
+
+        // Here we are using a simple ad-hoc technique utilizing two thresholds
+        //  for gesture detection (see ThresholdGestureDetector), or else
+        //  dynamic time warping against a few gesture templates (see 
+        //  DtwGestureRecognizer), selected from the options menu.
+        // The thresholds used should normally be based on data collected 
+        //  from different users performing the gesture, but for this assignment, 
+        //  you can manually set thresholds that work reasonably ok for your 
+        //  phone.
+        int numDetected = gestureDetector.onBatch( batch , gestureIndices );
+        int peakStart = 0;
+        for( int i = 0 ; i < numDetected ; ++i ) {
+            int index = gestureIndices[i];
+            long timestamp = batch.timestamps[ index ];
+            long detectLatency = SystemClock.elapsedRealtimeNanos() - timestamp;
+            pipelineStats.recordLatency( PipelineStats.STAGE_DETECT , detectLatency );
+
+            // Play gunshot sound according to the matched template or 
+            //  gesture class, or else the user's shooting direction (region).
+            // If there are more shooting regions than gun types, then
+            //  repeat gun types in more than one shooting region. Note
+            //  that the shootingRegions are numbered from 1, and sound
+            //  numbers are numbered from 0.
+            int soundNumber;
+            if( detectionMode == DETECTION_TEMPLATES ) {
+                soundNumber = templateRecognizer.getMatchedTemplate( i ).getSoundNumber();
+            }
+            else if( detectionMode == DETECTION_CLASSIFIER ) {
+                soundNumber = GESTURE_CLASS_SOUNDS[ gestureClassifier.getMatchedClass( i ) ];
+            }
+            else {
+                soundNumber = ( ( shootingRegion - 1 ) % soundResourceList.length );
+            }
+
+            // Peak force of the gesture (since the previous shot)
+            updateShotPeakForce( batch , peakStart , index + 1 );
+            float peakForce = (float) Math.sqrt( shotPeakForceSquared );
+            shotPeakForceSquared = 0.0F;
+            peakStart = index + 1;
+
+            // Publish the shot to its consumers (the audio first, see 
+            //  audioShotListener), with the wall clock time for the history
+            //  (the clock of the sample timestamps depends on the source)
+            shotBus.publish( shotEvent.set( timestamp , 
+                                            System.currentTimeMillis() , 
+                                            shootingRegion , 
+                                            shootingDirection , 
+                                            peakForce , 
+                                            detectLatency , 
+                                            soundNumber ) );
+        }
+        updateShotPeakForce( batch , peakStart , numSamples );
+
+        // Update the display model with the last sample of the block, if face up
+        int last = numSamples - 1;
+        if( batch.isFaceUp[ last ] ) {
+            displayModel.setAccl( batch.ax[ last ] , 
+                                  batch.ay[ last ] , 
+                                  batch.az[ last ] , 
+                                  gestureDetector.getNumGestures() );
+        }
+        batch.clear();
+    }
+
+    /** Updates the peak linear accl since the last shot with the face up samples from .. to-1 of a block. */
+    private void updateShotPeakForce( SampleBatch batch , 
+                                      int from , 
+                                      int to ) {
+        float peak = shotPeakForceSquared;
+        for( int i = from ; i < to ; ++i ) {
+            if( batch.isFaceUp[i] ) {
+                float squared = batch.ax[i] * batch.ax[i] + batch.ay[i] * batch.ay[i] + batch.az[i] * batch.az[i];
+                if( squared > peak ) {
+                    peak = squared;
+                }
+            }
+        }
+        shotPeakForceSquared = peak;
+    }
+
+    /** Plays the shots as soon as they are published (in the processing thread). */
+    private final ShotEventBus.Listener audioShotListener = new ShotEventBus.Listener() {
+            @Override
+            public void onShotPublished( ShotEventBus.Consumer consumer ) {
+                while( consumer.poll( audioShotEvent ) ) {
+                    playSound( audioShotEvent.soundNumber );
+                    ++numShots;
+                    pipelineStats.recordLatency( PipelineStats.STAGE_PLAY , 
+                                                 SystemClock.elapsedRealtimeNanos() - audioShotEvent.timestamp );
+                }
+            }
+        };
+
+    /** Wakes up the shot logging in the Main UI thread (in the processing thread). */
+    private final ShotEventBus.Listener logShotListener = new ShotEventBus.Listener() {
+            @Override
+            public void onShotPublished( ShotEventBus.Consumer consumer ) {
+                if( isShotLogPending.compareAndSet( false , true ) ) {
+                    handler.post( logShotsTask );
+                }
+            }
+        };
+
+    /** Task (run in the Main UI thread) that logs the shots published since its last run. */
+    private final Runnable logShotsTask = new Runnable() {
+            @Override
+            public void run() {
+                isShotLogPending.set( false );
+                while( logShotConsumer.poll( logShotEvent ) ) {
+                    Log.d( TAG , String.format( "Shot %d: region %d (%.1f deg) , peak force %.1f m/sec^2 , sound %d" , 
+                                                logShotEvent.sequence , 
+                                                logShotEvent.region , 
+                                                logShotEvent.direction , 
+                                                logShotEvent.peakForce , 
+                                                logShotEvent.soundNumber ) );
+                }
+            }
+        };
+
+    /** Writes the stats of each shot consumer to the log. */
+    private void logShotBusStats() {
+        Log.i( TAG , "Shots published=" + shotBus.getNumPublished() );
+        for( ShotEventBus.Consumer consumer : shotBus.getConsumers() ) {
+            Log.i( TAG , String.format( "Shot consumer %-6s consumed=%d dropped=%d lag=%d max lag=%d (limit %d)" , 
+                                        consumer.getName() , 
+                                        consumer.getNumConsumed() , 
+                                        consumer.getNumDropped() , 
+                                        consumer.getLag() , 
+                                        consumer.getMaxLagSeen() , 
+                                        consumer.getMaxLag() ) );
+        }
+    }
+
+    /** Initialises the audio engine for sound effects. */
+    private void initSound() {
+
+        // Measure the time until the first shot that is heard
+        startTime = SystemClock.elapsedRealtimeNanos();
+        numSilentShots = 0;
+        isFirstShotPending = true;
+
+        // Load the sound files (from the cache, else decoded in the background) and start playing
+        ShotAudioEngine engine = new ShotAudioEngine( this ,                 // Context
+                                                      soundResourceList ,   // Sound file resource IDs (in res/raw/ folder)
+                                                      NUM_SOUND_VOICES ,    // Max number of sounds playing at same time
+                                                      this );               // Callback after loading each sound
+        engine.start();
+        audioEngine = engine;
+    }
+
+    /** De-initialises the audio engine. */
+    private void deinitSound() {
+
+        try {
+
+            // Release all resources
+            audioEngine.release();
+        }
+        finally {
+
+            // Set the object to null
+            audioEngine = null;
+        }
+    }
+
+    /** Called when a sound file has been loaded (in a decoding thread). */
+    @Override
+    public void onSoundLoaded( int soundNumber , 
+                               boolean isLoaded ) {
+
+        // Check if the load was OK
+        if( ! isLoaded ) {
+            createToast( "Sorry, the sound effects could not be loaded" );
+        }
+    }
+
+    /** Plays a sound (sound number is in the range 0 .. soundResourceList.length-1). */
+    private void playSound( int soundNumber ) {
+
+        // NOTE: This is called in the processing thread, while the audio
+        //  engine is created and released in the main UI thread. So use
+        //  a local copy of the engine reference.
+        ShotAudioEngine engine = audioEngine;
+
+        // Check if the engine is running
+        if( engine == null ) {
+            return;
+        }
+        // Check if the sound number is valid
+        else if( soundNumber >= soundResourceList.length ||
+                 soundNumber < 0 ) {
+            createToast( "Invalid sound number passed to playSound()" );
+            return;
+        }
+
+        // Play the sound (the engine applies the cached media volume, and
+        //  ignores the shot if this sound is still loading)
+        boolean isPlayed = engine.play( soundNumber );
+
+        // Log the time from the start to the first shot heard (and the
+        //  shots that were silent because the sound was not loaded yet)
+        if( isFirstShotPending ) {
+            if( ! isPlayed ) {
+                ++numSilentShots;
+                return;
+            }
+            isFirstShotPending = false;
+            Log.i( TAG , "First audible shot " + 
+                   ( ( SystemClock.elapsedRealtimeNanos() - startTime ) / NANOSEC_PER_MILLISEC ) + 
+                   " ms after start (" + numSilentShots + " silent shots before)" );
+        }
+    }
+
+    /** Returns the source of the sensor samples (for load tests). */
+    SensorSource getSensorSource() {
+        return sensorSource;
+    }
+
+    /** Returns the number of sensor samples processed (for load tests). */
+    long getNumProcessedSamples() {
+        return numProcessedSamples;
+    }
+
+    /** Returns the number of sensor samples dropped because the processing fell behind (for load tests). */
+    long getNumDroppedSamples() {
+        return sampleBuffer.getNumDropped();
+    }
+
+    /** Returns the number of gunshot sounds triggered (for load tests). */
+    long getNumShots() {
+        return numShots;
+    }
+
+    /** Helper method to create toasts. */
+    private void createToast( final String toastMessage ) {
+
+        // Post a runnable in the Main UI thread
+        handler.post( new Runnable() {
+                @Override
+                public void run() {
+                    Toast.makeText ( getApplicationContext() , 
+                                     toastMessage , 
+                                     Toast.LENGTH_SHORT ).show();
+                }
+            } );
+    }
+
+    // Sampled Sensors
+    /** Source of the sensor samples (the phone's sensors, or simulated ones). */
+    private SensorSource sensorSource;
+    /** Flag to indicate whether there is a magnetometer. */
+    private boolean hasMagneticSensor;
+    /** Flag to indicate whether there is a gyroscope. */
+    private boolean hasGyroscope;
+    /** Intent extra selecting the sensor source (SENSOR_SOURCE_*, the phone's sensors if absent). */
+    public static final String EXTRA_SENSOR_SOURCE = "nus.cs4222.shootingapp.SENSOR_SOURCE";
+    /** Sensor source value of simulated sensors making shots (see SyntheticSensorSource). */
+    public static final String SENSOR_SOURCE_SYNTHETIC = "synthetic";
+    /** Sensor source value of simulated sensors replaying a trace file (see TraceSensorSource). */
+    public static final String SENSOR_SOURCE_TRACE = "trace";
+    /** Intent extra (float) multiplying the sampling rates of simulated sensors (default 1). */
+    public static final String EXTRA_SENSOR_RATE = "nus.cs4222.shootingapp.SENSOR_RATE";
+    /** Intent extra (long) of the time between two synthetic shots (millisec). */
+    public static final String EXTRA_SHOT_INTERVAL = "nus.cs4222.shootingapp.SHOT_INTERVAL";
+    /** Intent extra (string) of the path of the trace file to replay. */
+    public static final String EXTRA_TRACE_FILE = "nus.cs4222.shootingapp.TRACE_FILE";
+    /** Default time between two synthetic shots (millisec). */
+    private static final long DEFAULT_SYNTHETIC_SHOT_INTERVAL = 500L;
+
+    // Sensor and processing threads
+    /** Thread on which the sensor callbacks are received. */
+    private HandlerThread sensorThread;
+    /** Handler to the sensor thread. */
+    private Handler sensorHandler;
+    /** Thread on which the sensor samples are processed. */
+    private HandlerThread processingThread;
+    /** Handler to the processing thread. */
+    private Handler processingHandler;
+    /** Ring buffer of samples waiting to be processed. */
+    private SensorSampleBuffer sampleBuffer;
+    /** Flag to indicate whether the processing task has already been posted. */
+    private AtomicBoolean isDrainPending;
+    /** Number of samples the ring buffer can hold (about 1 sec at game rate for 4 sensors). */
+    private static final int SAMPLE_BUFFER_CAPACITY = 512;
+    /** Max number of samples processed in one batch. */
+    private static final int MAX_SAMPLE_BATCH_SIZE = 32;
+
+    // Sensor duty-cycling
+    /** Chooses the sampling mode from the phone's orientation (only used in the processing thread). */
+    private SamplingScheduler samplingScheduler;
+    /** Sampling mode to apply (written by the processing thread, read by the Main UI thread). */
+    private volatile int samplingMode;
+    /** Flag to indicate whether the sensors are registered (only used in the Main UI thread). */
+    private boolean isSensing;
+    /** Flag to indicate whether the sensing is suspended while the GUI is hidden (only used in the Main UI thread). */
+    private boolean isSuspended;
+    /** Max angle from face up at which the accl is kept sampled (deg, wider than the face up band). */
+    private static final float SAMPLING_APPROACH_ANGLE = 50.0F;
+    /** Time away from face up before the sampling is slowed down (millisec). */
+    private static final long SAMPLING_IDLE_DELAY = 1000L;
+    /** Gravity sampling interval in the idle mode (microsec). */
+    private static final int IDLE_GRAVITY_INTERVAL = 60000;
+    /** Max delay of the batched gravity samples in the idle mode (microsec). */
+    private static final int IDLE_GRAVITY_MAX_REPORT_LATENCY = 100000;
+    /** Sampling interval of SENSOR_DELAY_GAME (microsec, for the savings estimate). */
+    private static final int GAME_RATE_INTERVAL = 20000;
+
+    // Sensor trace recording
+    /** Writer of the trace being recorded (only used in the sensor thread, null if not recording). */
+    private SensorTraceWriter traceWriter;
+    /** Flag to indicate whether the user has started a recording (only used in the Main UI thread). */
+    private boolean isRecording;
+
+    // Latency instrumentation
+    /** Latency of each processing stage, and rate of each sensor (always recorded). */
+    private final PipelineStats pipelineStats = new PipelineStats();
+    /** Number of sensor samples processed (only modified in the processing thread). */
+    private volatile long numProcessedSamples;
+    /** Number of gunshot sounds triggered (only modified in the processing thread). */
+    private volatile long numShots;
+
+    // Gravity sensor
+    /** Face up angle error allowed in deg (since it is difficult for the user to place phone at perfect 90 deg). */
+    private static final float MAX_FACE_UP_ANGLE_ERROR = 30.0F;
+    /** Detects whether the phone is face up (and nearly parallel to the ground), at the time of each accl sample. */
+    private FaceUpDetector faceUpDetector;
+    /** Max time a linear accl sample waits for a later gravity sample to be aligned with (millisec). */
+    private static final long MAX_SENSOR_SKEW = 40L;
+    /** Number of samples per sensor buffered by the stream joiner. */
+    private static final int STREAM_JOIN_CAPACITY = 32;
+    /** Block of aligned linear accl samples waiting to be processed (only used in the processing thread). */
+    private final SampleBatch acclBatch = new SampleBatch( ACCL_BATCH_CAPACITY );
+    /** Indices of the samples of a block at which a gesture was detected. */
+    private final int[] gestureIndices = new int[ ACCL_BATCH_CAPACITY ];
+    /** Max number of linear accl samples processed as one block. */
+    private static final int ACCL_BATCH_CAPACITY = 64;
+    /** Pairs each linear accl sample with the gravity at its time. */
+    private SensorStreamJoiner streamJoiner;
+
+    // Linear accl sensor
+    /** Minimum gesture force (m/sec^2). */
+    private static final float MIN_ACCL_FORCE = 7.0F;
+    /** Minimum accl peak trough value (m/sec^2). */
+    private static final float MIN_ACCL_PEAK_TROUGH = 1.0F;
+    /** Refractory period after a gesture, during which no gesture is detected (millisec). */
+    private static final long MIN_GESTURE_INTERVAL = 150L;
+    /** Duration after which an accl peak can end without reaching the trough (millisec). */
+    private static final long MAX_ACCL_PEAK_DURATION = 400L;
+    /** Detects the gestures performed by the user (and counts them, volatile since it is replaced in the processing thread). */
+    private volatile GestureDetector gestureDetector;
+    /** Gesture detector using the (calibrated) thresholds (only used in the processing thread). */
+    private ThresholdGestureDetector thresholdDetector;
+    /** Gesture recognizer matching the gesture templates, each firing a different weapon. */
+    private DtwGestureRecognizer templateRecognizer;
+    /** Gesture classifier, each class firing a different weapon (null if its model could not be loaded). */
+    private GestureClassifier gestureClassifier;
+    /** Sound of each gesture class (none: never detected , up: handgun , down: torpedo , forward: rocket , shake: machine gun). */
+    private static final int[] GESTURE_CLASS_SOUNDS = { 0 , 2 , 4 , 5 , 3 };
+    /** Current gesture detection mode (only modified in the processing thread). */
+    private volatile int detectionMode = DETECTION_THRESHOLDS;
+    /** Detection mode using the gesture thresholds (the shooting region picks the weapon). */
+    private static final int DETECTION_THRESHOLDS = 0;
+    /** Detection mode using the gesture templates. */
+    private static final int DETECTION_TEMPLATES = 1;
+    /** Detection mode using the gesture classifier. */
+    private static final int DETECTION_CLASSIFIER = 2;
+    /** Number of detection modes. */
+    private static final int NUM_DETECTION_MODES = 3;
+    /** Name of each detection mode (for the menu). */
+    private static final String[] DETECTION_MODE_NAMES = 
+    { "thresholds" , "templates" , "classifier" };
+    /** Hint shown when switching to each detection mode. */
+    private static final String[] DETECTION_MODE_HINTS = 
+    { "Gesture thresholds: the shooting direction picks the weapon" , 
+      "Gesture templates: flick, thrust or double tap to pick the weapon" , 
+      "Gesture classifier: shoot up, down, forward or shake to pick the weapon" };
+    /** Calibrates the gesture thresholds (only used in the processing thread). */
+    private ThresholdCalibrator calibrator;
+    /** Duration the phone is held still at the start of a calibration (millisec). */
+    private static final long CALIBRATION_REST_DURATION = 3000L;
+    /** Number of shots made during a calibration. */
+    private static final int CALIBRATION_NUM_SHOTS = 5;
+    /** Name of the shared preferences storing the calibrated thresholds. */
+    private static final String PREFS_CALIBRATION = "calibration";
+    /** Key suffix (after the phone model) of the calibrated min gesture force. */
+    private static final String KEY_MIN_ACCL_FORCE = ".minAcclForce";
+    /** Key suffix (after the phone model) of the calibrated min accl peak trough. */
+    private static final String KEY_MIN_ACCL_PEAK_TROUGH = ".minAcclPeakTrough";
+    /** Key suffix (after the phone model) of the calibrated accl noise level. */
+    private static final String KEY_NOISE_LEVEL = ".noiseLevel";
+    /** Key suffix (after the phone model) of the adapted mean accl noise. */
+    private static final String KEY_NOISE_MEAN = ".noiseMean";
+    /** Key suffix (after the phone model) of the adapted accl noise deviation. */
+    private static final String KEY_NOISE_STD_DEV = ".noiseStdDev";
+    /** Key suffix (after the phone model) of the adapted height of the weakest shots. */
+    private static final String KEY_WEAK_PEAK = ".weakPeak";
+    /** Key suffix (after the phone model) of the min gesture force of the guided calibration. */
+    private static final String KEY_GUIDED_MIN_ACCL_FORCE = ".guidedMinAcclForce";
+    /** Min time between two applications of the adapted thresholds (millisec). */
+    private static final long ADAPT_PERIOD = 30000L;
+    /** Timestamp at which the adapted thresholds were last applied (nanosec, only used in the processing thread). */
+    private long lastAdaptTimestamp;
+
+    // Detected shots
+    /** Bus on which the detected shots are published (by the processing thread). */
+    private final ShotEventBus shotBus = new ShotEventBus( SHOT_BUS_CAPACITY );
+    /** Shot being published (only used in the processing thread). */
+    private final ShotEvent shotEvent = new ShotEvent();
+    /** Shot being played (only used in the processing thread). */
+    private final ShotEvent audioShotEvent = new ShotEvent();
+    /** Consumer logging the shots (in the Main UI thread). */
+    private ShotEventBus.Consumer logShotConsumer;
+    /** Shot being logged (only used in the Main UI thread). */
+    private final ShotEvent logShotEvent = new ShotEvent();
+    /** Flag to indicate whether the shot logging task has already been posted. */
+    private final AtomicBoolean isShotLogPending = new AtomicBoolean( false );
+    /** Square of the peak linear accl since the last shot (only used in the processing thread). */
+    private float shotPeakForceSquared;
+    /** Number of shots kept by the shot bus. */
+    private static final int SHOT_BUS_CAPACITY = 64;
+    /** Max number of shots waiting to be logged, beyond which the oldest are not logged. */
+    private static final int SHOT_LOG_MAX_LAG = 16;
+    /** Records the shots into the shot history (in its own thread, null with simulated sensors). */
+    private ShotHistoryRecorder shotHistory;
+    /** Name of the shot history file (in the app's private files). */
+    private static final String SHOT_HISTORY_FILE_NAME = "shots.history";
+
+    // Shooting direction and region
+    /** Number of shooting regions (in the 360 deg shooting region around the user). */
+    private static final int NUM_SHOOTING_REGIONS = 8;
+    /** Angle the direction must move past a region edge before the region changes (deg). */
+    private static final float SHOOTING_REGION_HYSTERESIS = 5.0F;
+    /** Estimates the shooting direction from the magnetometer and gyroscope. */
+    private HeadingFilter headingFilter;
+    /** Tracks the shooting region of the shooting direction. */
+    private ShootingRegionTracker regionTracker;
+    /** Shooting direction the user is pointing at (in the range 0 .. 360 degrees). */
+    private float shootingDirection;
+    /** Shooting region the user is pointing at (numbered from 1 .. NUM_SHOOTING_REGIONS). */
+    private int shootingRegion;
+
+    // GUI
+    /** Latest values to display (written by the processing thread, drawn by the activity). */
+    private final DisplayModel displayModel = new DisplayModel();
+
+    // For sound effects (gunshots)
+    // http://soundscrate.com/gun-related.html
+    // http://www.findsounds.com/ISAPI/search.dll
+    /** Audio engine for low latency sound playback (volatile since it is used by the processing thread). */
+    private volatile ShotAudioEngine audioEngine;
+    /** Max number of gun sounds playing at the same time (the oldest is cut off by a new shot). */
+    private static final int NUM_SOUND_VOICES = 4;
+    /** Time the pipeline was started (elapsed realtime nanosec). */
+    private volatile long startTime;
+    /** Flag to indicate whether no shot has been heard since the start. */
+    private volatile boolean isFirstShotPending;
+    /** Number of silent shots since the start (reset before the audio engine is created). */
+    private volatile int numSilentShots;
+    /** List of sound files resource IDs in the /res/raw resource folder. */
+    private static final int[] soundResourceList = 
+        new int[] { R.raw.rifle , 
+                    R.raw.missile1 , 
+                    R.raw.handgun , 
+                    R.raw.machinegun , 
+                    R.raw.torpedo , 
+                    R.raw.rocket1 , 
+                    R.raw.rifle2 , 
+                    R.raw.weirdmachinegun };
+
+    // Binding, DDMS Logging and Toasts
+    /** Binder returned to the clients. */
+    private final IBinder binder = new LocalBinder();
+    /** Flag to indicate whether the pipeline has started (only used in the Main UI thread). */
+    private boolean isRunning;
+    /** Handler to the main thread. */
+    private Handler handler;
+    /** Nanosec in a millisec (sensor timestamps are in nanosec). */
+    private static final long NANOSEC_PER_MILLISEC = 1000000L;
+    /** TAG used for ddms logging. */
+    private static final String TAG = "ShootingApp";
+}
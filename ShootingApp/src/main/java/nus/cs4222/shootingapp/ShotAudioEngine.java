@@ -0,0 +1,324 @@
+package nus.cs4222.shootingapp;
+
+import java.util.concurrent.locks.LockSupport;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Process;
+import android.util.Log;
+
+import nus.cs4222.shootingapp.gesture.audio.VoiceMixer;
+
+/**
+   Low latency player of the gunshot sounds.
+
+   <p> The sound files are decoded to PCM once (see PcmDecoder), at the
+   native output sample rate of the phone, and kept in the process-wide
+   SoundCache. Each sound can be played as soon as it is decoded, and
+   is played straight away after a resume if it is still cached. If
+   the cache releases the sounds (memory pressure), the engine drops
+   them too, and the next shot starts decoding them again. An audio
+   thread then mixes
+   the playing shots (see VoiceMixer) into a streaming AudioTrack, one
+   native-sized buffer at a time. So a shot starts within about one
+   buffer of the gesture, and several shots can overlap (the oldest is
+   cut off if all voices are busy). Once the last shot has ended, the
+   track is stopped and the audio thread sleeps until the next shot is
+   triggered, so the audio path can power down between shots (at the
+   cost of restarting the track for the first shot of a burst).
+
+   <p> The media volume is cached, and only read again when the system
+   broadcasts a volume change, so play() does no system calls.
+ */
+public class ShotAudioEngine {
+
+    /** Callback when a sound file has been loaded (called in a decoding thread). */
+    public interface OnSoundLoadedListener {
+        /** Called when a sound was loaded (or failed to load). */
+        public void onSoundLoaded( int soundNumber , boolean isLoaded );
+    }
+
+    /**
+       Creates the engine (call start() to load the sounds and play).
+
+       @param   context         Context to load the sounds
+       @param   soundResources  Sound file resource IDs (in the /res/raw folder)
+       @param   numVoices       Max number of sounds playing at the same time
+       @param   listener        Callback when the sounds are loaded
+     */
+    public ShotAudioEngine( Context context , 
+                            int[] soundResources , 
+                            int numVoices , 
+                            OnSoundLoadedListener listener ) {
+        this.context = context.getApplicationContext();
+        this.soundResources = soundResources.clone();
+        this.listener = listener;
+        mixer = new VoiceMixer( soundResources.length , numVoices );
+        soundCache = SoundCache.getInstance( this.context );
+        audioManager = (AudioManager) this.context.getSystemService( Context.AUDIO_SERVICE );
+        volumeReceiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive( Context context , Intent intent ) {
+                    updateVolume();
+                }
+            };
+    }
+
+    /** Starts loading the sounds and playing (called in the Main UI thread). */
+    public void start() {
+
+        // Cache the volume, and update it whenever it is changed
+        updateVolume();
+        context.registerReceiver( volumeReceiver , 
+                                  new IntentFilter( VOLUME_CHANGED_ACTION ) );
+
+        // Use the native output format, so that the track can use the fast mixer
+        sampleRate = getOutputProperty( AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE , 
+                                        DEFAULT_SAMPLE_RATE );
+        framesPerBuffer = getOutputProperty( AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER , 
+                                             DEFAULT_FRAMES_PER_BUFFER );
+
+        // Use the cached sounds, and decode the others in the background
+        //  (the listener is added first so that no sound is missed)
+        soundCache.addListener( cacheListener );
+        for( int i = 0 ; i < soundResources.length ; ++i ) {
+            short[] samples = soundCache.get( soundResources[i] , sampleRate );
+            if( samples != null ) {
+                mixer.setClip( i , samples );
+            }
+        }
+        soundCache.load( soundResources , sampleRate );
+
+        // Play in the audio thread
+        isRunning = true;
+        audioThread = new Thread( audioTask , "AudioThread" );
+        audioThread.start();
+    }
+
+    /** Stops playing and releases the audio track (called in the Main UI thread). */
+    public void release() {
+
+        // Stop following the volume and the sound cache (the decoded
+        //  sounds stay in the cache)
+        context.unregisterReceiver( volumeReceiver );
+        soundCache.removeListener( cacheListener );
+
+        // Stop the audio thread, even while it waits for a shot (it
+        //  releases the track on exit)
+        isRunning = false;
+        if( audioThread != null ) {
+            audioThread.interrupt();
+            audioThread = null;
+        }
+    }
+
+    /**
+       Plays a sound (called only in the processing thread).
+
+       @return  false if the sound is not loaded yet, or the shot was dropped
+     */
+    public boolean play( int soundNumber ) {
+        if( ! mixer.trigger( soundNumber ) ) {
+
+            // Decode the sounds again if they were released (this shot is silent)
+            if( isReloadPending ) {
+                isReloadPending = false;
+                soundCache.load( soundResources , sampleRate );
+            }
+            return false;
+        }
+
+        // Wake up the audio thread if it waits for a shot (see waitForTrigger())
+        Thread thread = audioThread;
+        if( isIdle && thread != null ) {
+            LockSupport.unpark( thread );
+        }
+        return true;
+    }
+
+    /** Checks whether a sound has been loaded. */
+    public boolean isLoaded( int soundNumber ) {
+        return mixer.isClipLoaded( soundNumber );
+    }
+
+    /** Returns the number of shots that cut off an earlier shot. */
+    public long getNumStolenVoices() {
+        return mixer.getNumStolenVoices();
+    }
+
+    /** Reads the media volume into the mixer gain. */
+    private void updateVolume() {
+        float curVolume = audioManager.getStreamVolume( AudioManager.STREAM_MUSIC );
+        float maxVolume = audioManager.getStreamMaxVolume( AudioManager.STREAM_MUSIC );
+        mixer.setGain( curVolume / maxVolume );
+    }
+
+    /** Passes each decoded sound to the mixer (called in a decoding thread). */
+    private final SoundCache.Listener cacheListener = new SoundCache.Listener() {
+            @Override
+            public void onSoundLoaded( int resourceId , short[] samples ) {
+                for( int i = 0 ; i < soundResources.length ; ++i ) {
+                    if( soundResources[i] == resourceId ) {
+                        mixer.setClip( i , samples );
+                        listener.onSoundLoaded( i , true );
+                    }
+                }
+            }
+            @Override
+            public void onSoundFailed( int resourceId ) {
+                for( int i = 0 ; i < soundResources.length ; ++i ) {
+                    if( soundResources[i] == resourceId ) {
+                        listener.onSoundLoaded( i , false );
+                    }
+                }
+            }
+            @Override
+            public void onSoundsCleared() {
+                // (a clip still playing keeps its samples until it ends)
+                for( int i = 0 ; i < soundResources.length ; ++i ) {
+                    mixer.setClip( i , null );
+                }
+                isReloadPending = true;
+            }
+        };
+
+    /** Task (run in the audio thread) that mixes the shots into the track. */
+    private final Runnable audioTask = new Runnable() {
+            @Override
+            public void run() {
+
+                // The audio thread must not be delayed by the sensor processing
+                Process.setThreadPriority( Process.THREAD_PRIORITY_URGENT_AUDIO );
+
+                // Create a small streaming track
+                int minBufferSize = AudioTrack.getMinBufferSize( sampleRate , 
+                                                                 AudioFormat.CHANNEL_OUT_MONO , 
+                                                                 AudioFormat.ENCODING_PCM_16BIT );
+                int bufferSize = Math.max( minBufferSize , 
+                                           framesPerBuffer * BYTES_PER_FRAME * NUM_TRACK_BUFFERS );
+                AudioTrack track = new AudioTrack( AudioManager.STREAM_MUSIC , 
+                                                   sampleRate , 
+                                                   AudioFormat.CHANNEL_OUT_MONO , 
+                                                   AudioFormat.ENCODING_PCM_16BIT , 
+                                                   bufferSize , 
+                                                   AudioTrack.MODE_STREAM );
+
+                // (the shots are then silent, but the app keeps running)
+                if( track.getState() != AudioTrack.STATE_INITIALIZED ) {
+                    Log.e( TAG , "Unable to create the audio track (" + sampleRate + " Hz , " + 
+                           bufferSize + " bytes)" );
+                    track.release();
+                    return;
+                }
+                try {
+
+                    short[] buffer = new short[ framesPerBuffer ];
+                    while( isRunning ) {
+
+                        // Wait (with the track stopped) until a shot is triggered
+                        waitForTrigger();
+                        if( ! isRunning ) {
+                            break;
+                        }
+
+                        // Mix one buffer at a time until the last shot has ended
+                        //  (write() blocks until there is space in the track)
+                        track.play();
+                        int numPlaying;
+                        do {
+                            numPlaying = mixer.mix( buffer , framesPerBuffer );
+                            track.write( buffer , 0 , framesPerBuffer );
+                        }
+                        while( isRunning && 
+                               ( numPlaying > 0 || mixer.hasPendingTriggers() ) );
+
+                        // (the buffers already written are still played out)
+                        track.stop();
+                    }
+                }
+                catch( IllegalStateException e ) {
+                    // Log the exception (the shots are silent from now on)
+                    Log.e( TAG , "Unable to play the audio track" , e );
+                }
+                finally {
+                    if( track.getPlayState() != AudioTrack.PLAYSTATE_STOPPED ) {
+                        track.stop();
+                    }
+                    track.release();
+                }
+            }
+        };
+
+    /** 
+       Blocks the audio thread until a shot is triggered, or the engine
+       is released (called only in the audio thread).
+     */
+    private void waitForTrigger() {
+
+        // (isIdle is set before checking the triggers, and play() checks
+        //  it after triggering, so a shot never goes unnoticed)
+        isIdle = true;
+        while( isRunning && ! mixer.hasPendingTriggers() ) {
+            LockSupport.park( this );
+        }
+        isIdle = false;
+    }
+
+    /** Reads an integer audio output property (or the default value if unknown). */
+    private int getOutputProperty( String key , 
+                                   int defaultValue ) {
+        try {
+            String value = audioManager.getProperty( key );
+            return ( value != null ) ? Integer.parseInt( value ) : defaultValue;
+        }
+        catch( NumberFormatException e ) {
+            return defaultValue;
+        }
+    }
+
+    /** Application context. */
+    private final Context context;
+    /** Sound file resource IDs. */
+    private final int[] soundResources;
+    /** Callback when the sounds are loaded. */
+    private final OnSoundLoadedListener listener;
+    /** Mixer of the playing shots. */
+    private final VoiceMixer mixer;
+    /** Cache of the decoded sounds. */
+    private final SoundCache soundCache;
+    /** Output sample rate (Hz, set before the audio thread is started). */
+    private int sampleRate;
+    /** Output buffer size (frames, set before the audio thread is started). */
+    private int framesPerBuffer;
+    /** Audio manager (to read the volume). */
+    private final AudioManager audioManager;
+    /** Receiver of the volume changes (to update the cached volume). */
+    private final BroadcastReceiver volumeReceiver;
+    /** Thread that writes to the track (volatile since play() wakes it up from the processing thread). */
+    private volatile Thread audioThread;
+    /** Flag to indicate whether the audio thread should keep running. */
+    private volatile boolean isRunning;
+    /** Flag to indicate whether the sounds were released by the cache, and must be decoded again. */
+    private volatile boolean isReloadPending;
+    /** Flag to indicate whether the audio thread waits for a shot (with the track stopped). */
+    private volatile boolean isIdle;
+
+    /** Broadcast action of a volume change (sent by AudioManager, but not part of the SDK). */
+    private static final String VOLUME_CHANGED_ACTION = "android.media.VOLUME_CHANGED_ACTION";
+
+    /** Output sample rate if the phone does not report it (Hz). */
+    private static final int DEFAULT_SAMPLE_RATE = 44100;
+    /** Output buffer size if the phone does not report it (frames). */
+    private static final int DEFAULT_FRAMES_PER_BUFFER = 256;
+    /** Number of output buffers the track holds. */
+    private static final int NUM_TRACK_BUFFERS = 2;
+    /** Bytes per mono 16-bit frame. */
+    private static final int BYTES_PER_FRAME = 2;
+    /** TAG used for ddms logging. */
+    private static final String TAG = "ShootingApp";
+}
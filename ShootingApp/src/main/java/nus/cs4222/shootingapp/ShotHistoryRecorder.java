@@ -0,0 +1,265 @@
+package nus.cs4222.shootingapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import nus.cs4222.shootingapp.gesture.event.ShotEvent;
+import nus.cs4222.shootingapp.gesture.event.ShotEventBus;
+import nus.cs4222.shootingapp.gesture.history.ShotHistory;
+import nus.cs4222.shootingapp.gesture.history.ShotHistoryReader;
+import nus.cs4222.shootingapp.gesture.history.ShotHistoryWriter;
+import nus.cs4222.shootingapp.gesture.stats.LatencyHistogram;
+
+/**
+   Consumer of the shot bus that appends every shot to the shot history
+   file (see ShotHistory), so the shots are kept across sessions.
+
+   <p> The shots are appended on a background thread, and the file is
+   only written once enough shots are pending, a few seconds after the
+   first pending shot, or when flush() is called (e.g. on pause). So
+   neither the sensor nor the processing thread ever waits for the
+   storage, and a burst of shots costs a single write.
+ */
+public class ShotHistoryRecorder
+    implements ShotEventBus.Listener {
+
+    /**
+       Starts recording the shots published on a bus.
+
+       @param   file  History file (appended to if it exists)
+       @param   bus   Bus on which the shots are published
+     */
+    public ShotHistoryRecorder( final File file ,
+                                ShotEventBus bus ) {
+        this.bus = bus;
+        historyFile = file;
+        historyThread = new HandlerThread( "ShotHistoryThread" ,
+                                           Process.THREAD_PRIORITY_BACKGROUND );
+        historyThread.start();
+        historyHandler = new Handler( historyThread.getLooper() );
+        isAppendPending = new AtomicBoolean( false );
+        consumer = bus.addConsumer( "history" , bus.getCapacity() , this );
+
+        // Open the file in the background thread
+        historyHandler.post( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        writer = new ShotHistoryWriter( file );
+                        Log.i( TAG , "Shot history " + file + " has " + writer.size() + " shots" );
+                    }
+                    catch( IOException e ) {
+                        Log.e( TAG , "Unable to open the shot history" , e );
+                    }
+                }
+            } );
+    }
+
+    /** Wakes up the background thread to append the shots (in the producer thread). */
+    @Override
+    public void onShotPublished( ShotEventBus.Consumer consumer ) {
+        if( isAppendPending.compareAndSet( false , true ) ) {
+            historyHandler.post( appendShotsTask );
+        }
+    }
+
+    /** Writes the pending shots (from any thread). */
+    public void flush() {
+        historyHandler.post( flushTask );
+    }
+
+    /** Writes the pending shots, stops recording and closes the file (from any thread). */
+    public void close() {
+        bus.removeConsumer( consumer );
+        historyHandler.post( new Runnable() {
+                @Override
+                public void run() {
+                    appendShots();
+                    if( writer != null ) {
+                        try {
+                            writer.close();
+                        }
+                        catch( IOException e ) {
+                            Log.e( TAG , "Unable to close the shot history" , e );
+                        }
+                        writer = null;
+                    }
+                }
+            } );
+        historyThread.quitSafely();
+    }
+
+    /**
+       Writes a summary of the whole history to the log (shots per
+       region, peak force distribution and latency percentiles, over
+       all time and over the last 30 days), in the background thread.
+     */
+    public void logSummary( final String tag ) {
+        historyHandler.post( new Runnable() {
+                @Override
+                public void run() {
+                    appendShots();
+                    flushShots();
+                    try {
+                        ShotHistoryReader reader = new ShotHistoryReader( historyFile );
+                        try {
+                            long now = System.currentTimeMillis();
+                            logSummary( tag , reader , "all time" , Long.MIN_VALUE , Long.MAX_VALUE );
+                            logSummary( tag , reader , "last 30 days" , now - SUMMARY_RECENT_PERIOD , Long.MAX_VALUE );
+                        }
+                        finally {
+                            reader.close();
+                        }
+                    }
+                    catch( IOException e ) {
+                        Log.e( tag , "Unable to read the shot history" , e );
+                    }
+                }
+            } );
+    }
+
+    /** Writes the summary of a time range to the log. */
+    private static void logSummary( String tag ,
+                                    ShotHistoryReader reader ,
+                                    String rangeName ,
+                                    long fromTime ,
+                                    long toTime ) {
+
+        // Query the history (timed)
+        long startTime = SystemClock.elapsedRealtimeNanos();
+        long[] regionCounts = new long[ ShotHistory.MAX_REGION + 1 ];
+        long numShots = reader.countByRegion( fromTime , toTime , regionCounts );
+        long[] forceCounts = new long[ NUM_SUMMARY_FORCE_BINS ];
+        reader.forceHistogram( fromTime , toTime , SUMMARY_FORCE_BIN_WIDTH , forceCounts );
+        LatencyHistogram latencies = new LatencyHistogram();
+        reader.latencies( fromTime , toTime , latencies );
+        double queryTime = ( SystemClock.elapsedRealtimeNanos() - startTime ) / 1.0E6;
+
+        Log.i( tag , String.format( "Shot history (%s): %d shots of %d , queried in %.2f ms" ,
+                                    rangeName , numShots , reader.size() , queryTime ) );
+        StringBuilder line = new StringBuilder( "Shots per region:" );
+        for( int r = 0 ; r < regionCounts.length ; ++r ) {
+            if( regionCounts[r] > 0L ) {
+                line.append( ' ' ).append( r ).append( '=' ).append( regionCounts[r] );
+            }
+        }
+        Log.i( tag , line.toString() );
+        line.setLength( 0 );
+        line.append( "Shots per peak force:" );
+        for( int b = 0 ; b < forceCounts.length ; ++b ) {
+            line.append( ' ' ).append( (int) ( b * SUMMARY_FORCE_BIN_WIDTH ) )
+                .append( ( b == forceCounts.length - 1 ) ? "+" : "" )
+                .append( '=' ).append( forceCounts[b] );
+        }
+        Log.i( tag , line.toString() );
+        Log.i( tag , String.format( "Detection latency p50=%.1f ms p99=%.1f ms max=%.1f ms" ,
+                                    latencies.getValueAtPercentile( 50.0 ) / 1.0E6 ,
+                                    latencies.getValueAtPercentile( 99.0 ) / 1.0E6 ,
+                                    latencies.getMax() / 1.0E6 ) );
+    }
+
+    /** Task (run in the background thread) that appends the shots published. */
+    private final Runnable appendShotsTask = new Runnable() {
+            @Override
+            public void run() {
+                appendShots();
+            }
+        };
+
+    /** Task (run in the background thread) that writes the pending shots. */
+    private final Runnable flushTask = new Runnable() {
+            @Override
+            public void run() {
+                appendShots();
+                flushShots();
+            }
+        };
+
+    /** Appends the shots published since the last call, and schedules the write. */
+    private void appendShots() {
+        isAppendPending.set( false );
+
+        // The history is in wall clock time (so it makes sense across
+        //  reboots), as recorded when each shot was published
+        try {
+            while( consumer.poll( shotEvent ) ) {
+                if( writer == null ) {
+                    continue;
+                }
+                writer.append( shotEvent.wallTime ,
+                               shotEvent.region ,
+                               shotEvent.direction ,
+                               shotEvent.peakForce ,
+                               shotEvent.latency );
+            }
+        }
+        catch( IOException e ) {
+            Log.e( TAG , "Unable to append to the shot history" , e );
+        }
+
+        // Write when enough shots are pending, else a while after the first
+        if( writer == null || writer.getNumPending() == 0 ) {
+            return;
+        }
+        else if( writer.getNumPending() >= MAX_PENDING_SHOTS ) {
+            flushShots();
+        }
+        else if( ! isFlushScheduled ) {
+            isFlushScheduled = true;
+            historyHandler.postDelayed( flushTask , MAX_FLUSH_DELAY );
+        }
+    }
+
+    /** Writes the pending shots. */
+    private void flushShots() {
+        isFlushScheduled = false;
+        historyHandler.removeCallbacks( flushTask );
+        if( writer == null ) {
+            return;
+        }
+        try {
+            writer.flush();
+        }
+        catch( IOException e ) {
+            Log.e( TAG , "Unable to write the shot history" , e );
+        }
+    }
+
+    /** Bus on which the shots are published. */
+    private final ShotEventBus bus;
+    /** Consumer of the shots on the bus. */
+    private final ShotEventBus.Consumer consumer;
+    /** History file. */
+    private final File historyFile;
+    /** Thread on which the history is written and read. */
+    private final HandlerThread historyThread;
+    /** Handler to the history thread. */
+    private final Handler historyHandler;
+    /** Flag to indicate whether the append task has already been posted. */
+    private final AtomicBoolean isAppendPending;
+    /** Writer of the history (only used in the history thread, null if it could not be opened). */
+    private ShotHistoryWriter writer;
+    /** Shot being appended (only used in the history thread). */
+    private final ShotEvent shotEvent = new ShotEvent();
+    /** Flag to indicate whether a delayed write is scheduled (only used in the history thread). */
+    private boolean isFlushScheduled;
+    /** Number of pending shots at which they are written. */
+    private static final int MAX_PENDING_SHOTS = 32;
+    /** Max time the shots wait to be written (millisec). */
+    private static final long MAX_FLUSH_DELAY = 10000L;
+    /** Time range of the recent summary (millisec, 30 days). */
+    private static final long SUMMARY_RECENT_PERIOD = 30L * 24L * 60L * 60L * 1000L;
+    /** Number of peak force bins in the summary. */
+    private static final int NUM_SUMMARY_FORCE_BINS = 6;
+    /** Width of the peak force bins in the summary (m/sec^2). */
+    private static final float SUMMARY_FORCE_BIN_WIDTH = 5.0F;
+    /** TAG used for ddms logging. */
+    private static final String TAG = "ShotHistory";
+}
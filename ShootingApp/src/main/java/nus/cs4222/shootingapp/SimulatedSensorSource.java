@@ -0,0 +1,280 @@
+package nus.cs4222.shootingapp;
+
+import android.hardware.Sensor;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.SystemClock;
+
+/**
+   Sensor source that simulates the linear accl, gravity, magnetometer
+   and gyroscope, at the registered rates times a rate multiplier (up
+   to far above what sensor hardware delivers). Subclasses generate the
+   sample values.
+
+   <p> The samples are delivered by a task on the handler's thread
+   which, like a sensor FIFO flush, delivers all the samples that have
+   become due since its last run (in timestamp order, with timestamps
+   on the elapsed realtime clock), then runs again after a millisec,
+   or straight away if it delivered a full burst. If the listener is
+   so slow that the samples fall behind by more than MAX_LAG, the
+   overdue samples are skipped (and counted), so the source does not
+   spiral behind. The delivered and skipped counts, against the rate
+   multiplier, give the throughput limit of the pipeline.
+
+   <p> The registration changes are applied on the handler's thread,
+   so the state of the simulated sensors is only used by that thread.
+ */
+public abstract class SimulatedSensorSource
+    implements SensorSource {
+
+    /**
+       Creates a source.
+
+       @param   rateMultiplier  Multiplier of the registered sampling rates (above 0)
+     */
+    protected SimulatedSensorSource( float rateMultiplier ) {
+        setRateMultiplier( rateMultiplier );
+        intervals = new long[ SENSOR_TYPES.length ];
+        nextTimestamps = new long[ SENSOR_TYPES.length ];
+        isRegistered = new boolean[ SENSOR_TYPES.length ];
+        values = new float[3];
+    }
+
+    /**
+       Generates the values of a sample (on the handler's thread).
+
+       @param   sensorType  Sensor type (one of those the source has)
+       @param   timestamp   Sample timestamp (nanosec)
+       @param   values      Receives the x, y and z values
+     */
+    protected abstract void generate( int sensorType ,
+                                      long timestamp ,
+                                      float[] values );
+
+    /** Starts (or re-times) a simulated sensor. */
+    @Override
+    public boolean register( final int sensorType ,
+                             final int samplingPeriod ,
+                             int maxReportLatency ,
+                             final Listener listener ,
+                             final Handler handler ) {
+        final int index = getIndex( sensorType );
+        if( index < 0 || ! hasSensor( sensorType ) ) {
+            return false;
+        }
+        handler.post( new Runnable() {
+                @Override
+                public void run() {
+                    SimulatedSensorSource.this.listener = listener;
+                    SimulatedSensorSource.this.handler = handler;
+                    intervals[ index ] = toNanosec( samplingPeriod );
+                    nextTimestamps[ index ] = SystemClock.elapsedRealtimeNanos();
+                    isRegistered[ index ] = true;
+                    startDelivery();
+                }
+            } );
+        return true;
+    }
+
+    /** Stops a simulated sensor. */
+    @Override
+    public void unregister( int sensorType ) {
+        final int index = getIndex( sensorType );
+        Handler currentHandler = handler;
+        if( index < 0 || currentHandler == null ) {
+            return;
+        }
+        currentHandler.post( new Runnable() {
+                @Override
+                public void run() {
+                    isRegistered[ index ] = false;
+                }
+            } );
+    }
+
+    /** Stops all the simulated sensors. */
+    @Override
+    public void unregisterAll() {
+        Handler currentHandler = handler;
+        if( currentHandler == null ) {
+            return;
+        }
+        currentHandler.post( new Runnable() {
+                @Override
+                public void run() {
+                    for( int i = 0 ; i < isRegistered.length ; ++i ) {
+                        isRegistered[i] = false;
+                    }
+                }
+            } );
+    }
+
+    /** Sets the multiplier of the registered sampling rates (from any thread, applied to the next samples). */
+    public void setRateMultiplier( float rateMultiplier ) {
+        if( ! ( rateMultiplier > 0.0F ) ) {
+            throw new IllegalArgumentException( "Rate multiplier must be above 0: " + rateMultiplier );
+        }
+        this.rateMultiplier = rateMultiplier;
+    }
+
+    /** Returns the multiplier of the registered sampling rates. */
+    public float getRateMultiplier() {
+        return rateMultiplier;
+    }
+
+    /** Returns the number of samples delivered. */
+    public long getNumDelivered() {
+        return numDelivered;
+    }
+
+    /** Returns the number of samples skipped because the listener fell too far behind. */
+    public long getNumSkipped() {
+        return numSkipped;
+    }
+
+    /** Starts delivering samples (on the handler's thread), unless already started. */
+    private void startDelivery() {
+        if( ! isDelivering ) {
+            isDelivering = true;
+            handler.post( deliverTask );
+        }
+    }
+
+    /** Task (run in the handler's thread) that delivers the samples due. */
+    private final Runnable deliverTask = new Runnable() {
+            @Override
+            public void run() {
+                deliverDueSamples();
+            }
+        };
+
+    /** Delivers the samples due (up to a burst), then schedules the next delivery. */
+    private void deliverDueSamples() {
+
+        long now = SystemClock.elapsedRealtimeNanos();
+        float multiplier = rateMultiplier;
+        int numSensors = 0;
+        for( int i = 0 ; i < SENSOR_TYPES.length ; ++i ) {
+            if( ! isRegistered[i] ) {
+                continue;
+            }
+            ++numSensors;
+
+            // Skip the samples that are too far behind
+            long lag = now - nextTimestamps[i];
+            if( lag > MAX_LAG ) {
+                long interval = getInterval( i , multiplier );
+                long numBehind = ( lag - MAX_LAG ) / interval + 1L;
+                nextTimestamps[i] += numBehind * interval;
+                numSkipped += numBehind;
+            }
+        }
+
+        // Stop when no sensor is registered (until the next registration)
+        if( numSensors == 0 ) {
+            isDelivering = false;
+            return;
+        }
+
+        // Deliver the due samples of all the sensors in timestamp order
+        int numSamples = 0;
+        while( numSamples < MAX_BURST_SIZE ) {
+            int next = -1;
+            for( int i = 0 ; i < SENSOR_TYPES.length ; ++i ) {
+                if( isRegistered[i] &&
+                    ( next < 0 || nextTimestamps[i] < nextTimestamps[ next ] ) ) {
+                    next = i;
+                }
+            }
+            long timestamp = nextTimestamps[ next ];
+            if( timestamp > now ) {
+                break;
+            }
+            generate( SENSOR_TYPES[ next ] , timestamp , values );
+            listener.onSensorSample( SENSOR_TYPES[ next ] ,
+                                     SensorManager.SENSOR_STATUS_ACCURACY_HIGH ,
+                                     timestamp ,
+                                     values );
+            nextTimestamps[ next ] = timestamp + getInterval( next , multiplier );
+            ++numSamples;
+        }
+        numDelivered += numSamples;
+
+        // Run again straight away if behind, else after the tick
+        if( numSamples == MAX_BURST_SIZE ) {
+            handler.post( deliverTask );
+        }
+        else {
+            handler.postDelayed( deliverTask , TICK_PERIOD );
+        }
+    }
+
+    /** Returns the current interval of a simulated sensor (nanosec, at least 1 microsec). */
+    private long getInterval( int index ,
+                              float multiplier ) {
+        return Math.max( MIN_INTERVAL , (long) ( intervals[ index ] / multiplier ) );
+    }
+
+    /** Returns the index of a simulated sensor type (-1 if it is not simulated). */
+    private static int getIndex( int sensorType ) {
+        for( int i = 0 ; i < SENSOR_TYPES.length ; ++i ) {
+            if( SENSOR_TYPES[i] == sensorType ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Converts a sampling period (microsec, or SENSOR_DELAY_*) to nanosec. */
+    private static long toNanosec( int samplingPeriod ) {
+        switch( samplingPeriod ) {
+        case SensorManager.SENSOR_DELAY_FASTEST:
+            return FASTEST_INTERVAL;
+        case SensorManager.SENSOR_DELAY_GAME:
+            return 20000000L;
+        case SensorManager.SENSOR_DELAY_UI:
+            return 66667000L;
+        case SensorManager.SENSOR_DELAY_NORMAL:
+            return 200000000L;
+        default:
+            return samplingPeriod * 1000L;
+        }
+    }
+
+    /** Sensor types simulated. */
+    protected static final int[] SENSOR_TYPES = { Sensor.TYPE_LINEAR_ACCELERATION ,
+                                                  Sensor.TYPE_GRAVITY ,
+                                                  Sensor.TYPE_MAGNETIC_FIELD ,
+                                                  Sensor.TYPE_GYROSCOPE };
+    /** Interval of SENSOR_DELAY_FASTEST (nanosec, a typical 200 Hz accl). */
+    private static final long FASTEST_INTERVAL = 5000000L;
+    /** Shortest interval of a simulated sensor (nanosec). */
+    private static final long MIN_INTERVAL = 1000L;
+    /** Max number of samples delivered by one run of the delivery task. */
+    private static final int MAX_BURST_SIZE = 256;
+    /** Delay between two runs of the delivery task when no sample is due (millisec). */
+    private static final long TICK_PERIOD = 1L;
+    /** Max time the samples can fall behind before the overdue ones are skipped (nanosec). */
+    private static final long MAX_LAG = 100000000L;
+
+    /** Multiplier of the registered sampling rates. */
+    private volatile float rateMultiplier;
+    /** Receives the samples (only used in the handler's thread). */
+    private Listener listener;
+    /** Handler to the thread on which the samples are delivered (set by the first registration). */
+    private volatile Handler handler;
+    /** Registered interval of each simulated sensor (nanosec, only used in the handler's thread). */
+    private final long[] intervals;
+    /** Timestamp of the next sample of each simulated sensor (nanosec, only used in the handler's thread). */
+    private final long[] nextTimestamps;
+    /** Whether each simulated sensor is registered (only used in the handler's thread). */
+    private final boolean[] isRegistered;
+    /** Flag to indicate whether the delivery task is scheduled (only used in the handler's thread). */
+    private boolean isDelivering;
+    /** Values of the sample being delivered. */
+    private final float[] values;
+    /** Number of samples delivered (only modified in the handler's thread). */
+    private volatile long numDelivered;
+    /** Number of samples skipped (only modified in the handler's thread). */
+    private volatile long numSkipped;
+}
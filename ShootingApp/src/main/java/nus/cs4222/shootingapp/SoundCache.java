@@ -0,0 +1,233 @@
+package nus.cs4222.shootingapp;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+   Process-wide cache of decoded sound files.
+
+   <p> The sounds are decoded in parallel on a small background
+   executor, and each listener is told as soon as each sound is ready
+   (so a sound can be played before the others are decoded). The
+   decoded sounds outlive the activity, so a paused and resumed (or
+   recreated) activity can play them straight away. They are only
+   released when the system asks the app to trim its memory, and the
+   listeners are then told to drop their own references to them (see
+   Listener.onSoundsCleared()), so that the memory is actually freed.
+ */
+public class SoundCache 
+    implements ComponentCallbacks2 {
+
+    /** Callback when a sound has been decoded (called in an executor thread). */
+    public interface Listener {
+        /** Called when a sound is ready. */
+        public void onSoundLoaded( int resourceId , short[] samples );
+        /** Called when a sound could not be decoded. */
+        public void onSoundFailed( int resourceId );
+        /** Called when the decoded sounds are released (the listener must not keep them either). */
+        public void onSoundsCleared();
+    }
+
+    /** Returns the cache of this process (created on the first call). */
+    public static synchronized SoundCache getInstance( Context context ) {
+        if( instance == null ) {
+            instance = new SoundCache( context.getApplicationContext() );
+        }
+        return instance;
+    }
+
+    /** Creates the cache, and registers it for the trim memory callbacks. */
+    private SoundCache( Context context ) {
+        this.context = context;
+        context.registerComponentCallbacks( this );
+
+        // Idle decoding threads are stopped after a while
+        int numThreads = Math.max( 1 , Math.min( Runtime.getRuntime().availableProcessors() , 
+                                                 MAX_DECODING_THREADS ) );
+        executor = new ThreadPoolExecutor( numThreads , numThreads , 
+                                           DECODING_THREAD_KEEP_ALIVE , TimeUnit.SECONDS , 
+                                           new LinkedBlockingQueue< Runnable >() , 
+                                           decodingThreadFactory );
+        executor.allowCoreThreadTimeOut( true );
+    }
+
+    /** Adds a listener of the decoded sounds. */
+    public void addListener( Listener listener ) {
+        listeners.add( listener );
+    }
+
+    /** Removes a listener of the decoded sounds. */
+    public void removeListener( Listener listener ) {
+        listeners.remove( listener );
+    }
+
+    /**
+       Returns a decoded sound.
+
+       @return  Mono PCM samples, or null if not decoded (at this sample rate)
+     */
+    public short[] get( int resourceId , 
+                        int sampleRate ) {
+        return ( sampleRate == this.sampleRate ) ? sounds.get( resourceId ) : null;
+    }
+
+    /**
+       Starts decoding the sounds that are not cached or being decoded
+       (the listeners are told when each is ready).
+
+       @param   resourceIds  Sound file resource IDs (in the /res/raw folder)
+       @param   sampleRate   Sample rate of the decoded samples (Hz)
+     */
+    public synchronized void load( int[] resourceIds , 
+                                   final int sampleRate ) {
+
+        // The sounds must be decoded again if the output rate has changed
+        if( sampleRate != this.sampleRate ) {
+            clear();
+            this.sampleRate = sampleRate;
+        }
+
+        // Decode the missing sounds in parallel
+        final int loadGeneration = generation;
+        for( final int resourceId : resourceIds ) {
+            if( sounds.containsKey( resourceId ) || 
+                ! loading.add( resourceId ) ) {
+                continue;
+            }
+            executor.execute( new Runnable() {
+                    @Override
+                    public void run() {
+                        decode( resourceId , sampleRate , loadGeneration );
+                    }
+                } );
+        }
+    }
+
+    /** Releases all the decoded sounds (sounds still being decoded are discarded), and tells the listeners. */
+    public synchronized void clear() {
+        ++generation;
+        sounds.clear();
+        loading.clear();
+        for( Listener listener : listeners ) {
+            listener.onSoundsCleared();
+        }
+    }
+
+    /** Called when the system asks the app to release memory. */
+    @Override
+    public void onTrimMemory( int level ) {
+
+        // Release the sounds when memory is low (either while running,
+        //  or when the app is in the background), but not just because
+        //  the GUI was hidden
+        if( level >= TRIM_MEMORY_BACKGROUND || 
+            ( level >= TRIM_MEMORY_RUNNING_LOW && level < TRIM_MEMORY_UI_HIDDEN ) ) {
+            Log.i( TAG , "Releasing decoded sounds (trim memory level " + level + ")" );
+            clear();
+        }
+    }
+
+    /** Called when the system is very low on memory. */
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    /** Called when the configuration changes. */
+    @Override
+    public void onConfigurationChanged( Configuration newConfig ) {
+        // Ignore (the decoded sounds do not depend on the configuration)
+    }
+
+    /** Decodes a sound (in an executor thread), and passes it to the listeners. */
+    private void decode( int resourceId , 
+                         int sampleRate , 
+                         int loadGeneration ) {
+
+        try {
+
+            // Decode the sound file
+            long startTime = SystemClock.elapsedRealtime();
+            short[] samples = PcmDecoder.decode( context , resourceId , sampleRate );
+            Log.d( TAG , "Decoded sound " + resourceId + " in " + 
+                   ( SystemClock.elapsedRealtime() - startTime ) + " ms" );
+
+            // Cache it (unless the cache was cleared meanwhile)
+            synchronized( this ) {
+                if( loadGeneration != generation ) {
+                    return;
+                }
+                sounds.put( resourceId , samples );
+                loading.remove( resourceId );
+            }
+            for( Listener listener : listeners ) {
+                listener.onSoundLoaded( resourceId , samples );
+            }
+        }
+        catch( Exception e ) {
+            Log.e( TAG , "Unable to decode sound " + resourceId , e );
+            synchronized( this ) {
+                if( loadGeneration == generation ) {
+                    loading.remove( resourceId );
+                }
+            }
+            for( Listener listener : listeners ) {
+                listener.onSoundFailed( resourceId );
+            }
+        }
+    }
+
+    /** Creates the decoding threads (at background priority, so that the sensing is not delayed). */
+    private static final ThreadFactory decodingThreadFactory = new ThreadFactory() {
+            @Override
+            public Thread newThread( final Runnable task ) {
+                return new Thread( new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority( Process.THREAD_PRIORITY_BACKGROUND );
+                            task.run();
+                        }
+                    } , "SoundDecodingThread" );
+            }
+        };
+
+    /** Cache of this process. */
+    private static SoundCache instance;
+    /** Application context. */
+    private final Context context;
+    /** Executor decoding the sounds. */
+    private final ThreadPoolExecutor executor;
+    /** Listeners of the decoded sounds. */
+    private final CopyOnWriteArrayList< Listener > listeners = 
+        new CopyOnWriteArrayList< Listener >();
+    /** Decoded sounds (by resource ID). */
+    private final ConcurrentHashMap< Integer , short[] > sounds = 
+        new ConcurrentHashMap< Integer , short[] >();
+    /** Resource IDs of the sounds being decoded. */
+    private final Set< Integer > loading = 
+        Collections.newSetFromMap( new ConcurrentHashMap< Integer , Boolean >() );
+    /** Sample rate of the decoded sounds (Hz). */
+    private volatile int sampleRate;
+    /** Incremented when the cache is cleared (to discard the sounds decoded before). */
+    private int generation;
+
+    /** Max number of sounds decoded at the same time. */
+    private static final int MAX_DECODING_THREADS = 4;
+    /** Time after which an idle decoding thread is stopped (sec). */
+    private static final long DECODING_THREAD_KEEP_ALIVE = 5L;
+    /** TAG used for ddms logging. */
+    private static final String TAG = "ShootingApp";
+}
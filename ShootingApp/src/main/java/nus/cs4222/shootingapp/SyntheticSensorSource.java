@@ -0,0 +1,119 @@
+package nus.cs4222.shootingapp;
+
+import android.hardware.Sensor;
+
+/**
+   Simulated sensors of a phone held face up, making a shot at a fixed
+   interval while slowly turning around.
+
+   <p> Each shot is an upward push (a half sine on the accl's z-axis,
+   well above the default min force) then the stop, so that all the
+   detection modes fire, and the turning changes the shooting region
+   every second or so. The values are a function of the timestamp (with
+   a little deterministic noise), so they stay the same shape at any
+   rate multiplier.
+ */
+public class SyntheticSensorSource
+    extends SimulatedSensorSource {
+
+    /**
+       Creates a source.
+
+       @param   rateMultiplier  Multiplier of the registered sampling rates (above 0)
+       @param   shotInterval    Time between two shots (nanosec)
+     */
+    public SyntheticSensorSource( float rateMultiplier ,
+                                  long shotInterval ) {
+        super( rateMultiplier );
+        if( shotInterval < 2L * SHOT_DURATION ) {
+            throw new IllegalArgumentException( "Shot interval is too short: " + shotInterval );
+        }
+        this.shotInterval = shotInterval;
+    }
+
+    /** Has all the simulated sensors. */
+    @Override
+    public boolean hasSensor( int sensorType ) {
+        return sensorType == Sensor.TYPE_LINEAR_ACCELERATION ||
+            sensorType == Sensor.TYPE_GRAVITY ||
+            sensorType == Sensor.TYPE_MAGNETIC_FIELD ||
+            sensorType == Sensor.TYPE_GYROSCOPE;
+    }
+
+    /** Returns the name of the source. */
+    @Override
+    public String getName() {
+        return "synthetic sensors (x" + getRateMultiplier() + ")";
+    }
+
+    /** Generates the values of a sample at the given time. */
+    @Override
+    protected void generate( int sensorType ,
+                             long timestamp ,
+                             float[] values ) {
+
+        // Heading of the phone (turning clockwise)
+        double heading = 2.0 * Math.PI * ( timestamp % TURN_PERIOD ) / TURN_PERIOD;
+
+        if( sensorType == Sensor.TYPE_LINEAR_ACCELERATION ) {
+
+            // Push up then stop, at the start of each shot interval
+            long shotTime = timestamp % shotInterval;
+            float z = 0.0F;
+            if( shotTime < SHOT_DURATION ) {
+                z = (float) ( SHOT_PEAK * Math.sin( Math.PI * shotTime / SHOT_DURATION ) );
+            }
+            else if( shotTime < 2L * SHOT_DURATION ) {
+                z = (float) ( -0.5 * SHOT_PEAK * Math.sin( Math.PI * ( shotTime - SHOT_DURATION ) / SHOT_DURATION ) );
+            }
+            values[0] = noise( timestamp , 1 );
+            values[1] = noise( timestamp , 2 );
+            values[2] = z + noise( timestamp , 3 );
+        }
+        else if( sensorType == Sensor.TYPE_GRAVITY ) {
+
+            // Face up, tilted by a few deg
+            values[0] = 0.5F + noise( timestamp , 4 ) * 0.1F;
+            values[1] = 0.3F + noise( timestamp , 5 ) * 0.1F;
+            values[2] = 9.78F;
+        }
+        else if( sensorType == Sensor.TYPE_MAGNETIC_FIELD ) {
+
+            // Horizontal field towards north (turning the other way in the
+            //  phone's frame), and the vertical field down
+            values[0] = (float) ( -MAGNETIC_HORIZONTAL * Math.sin( heading ) ) + noise( timestamp , 6 );
+            values[1] = (float) ( MAGNETIC_HORIZONTAL * Math.cos( heading ) ) + noise( timestamp , 7 );
+            values[2] = -MAGNETIC_VERTICAL + noise( timestamp , 8 );
+        }
+        else {
+
+            // Turning clockwise seen from above (negative about the z-axis)
+            values[0] = noise( timestamp , 9 ) * 0.01F;
+            values[1] = noise( timestamp , 10 ) * 0.01F;
+            values[2] = (float) ( -2.0 * Math.PI * 1.0E9 / TURN_PERIOD );
+        }
+    }
+
+    /** Returns deterministic noise in the range -0.1 .. 0.1 for a timestamp and channel. */
+    private static float noise( long timestamp ,
+                                int channel ) {
+        long hash = ( timestamp + channel * 0x9E3779B97F4A7C15L ) * 0xBF58476D1CE4E5B9L;
+        hash ^= hash >>> 31;
+        return ( (int) ( hash & 0xFFFF ) - 32768 ) * ( NOISE_AMPLITUDE / 32768.0F );
+    }
+
+    /** Time between two shots (nanosec). */
+    private final long shotInterval;
+    /** Duration of the push (and of the stop) of a shot (nanosec). */
+    private static final long SHOT_DURATION = 80000000L;
+    /** Peak accl of a shot (m/sec^2). */
+    private static final double SHOT_PEAK = 10.0;
+    /** Time for a full turn (nanosec, 8 sec so the region changes every sec). */
+    private static final long TURN_PERIOD = 8000000000L;
+    /** Horizontal magnetic field (micro Tesla). */
+    private static final double MAGNETIC_HORIZONTAL = 25.0;
+    /** Vertical magnetic field (micro Tesla). */
+    private static final float MAGNETIC_VERTICAL = 40.0F;
+    /** Amplitude of the noise. */
+    private static final float NOISE_AMPLITUDE = 0.1F;
+}
@@ -0,0 +1,103 @@
+package nus.cs4222.shootingapp;
+
+import java.io.File;
+import java.io.IOException;
+
+import nus.cs4222.shootingapp.gesture.trace.SensorTraceReader;
+
+/**
+   Simulated sensors replaying the values of a recorded trace (see
+   SensorTraceReader), over and over.
+
+   <p> Each simulated sensor steps through the trace's records of its
+   type, at the registered rate times the rate multiplier (not at the
+   recorded timestamps), so that a trace recorded at game rate can be
+   pushed through the pipeline at any rate. Only the sensor types in
+   the trace are available.
+ */
+public class TraceSensorSource
+    extends SimulatedSensorSource {
+
+    /**
+       Opens a trace file (kept memory-mapped until close()).
+
+       @param   traceFile       Recorded sensor trace
+       @param   rateMultiplier  Multiplier of the registered sampling rates (above 0)
+     */
+    public TraceSensorSource( File traceFile ,
+                              float rateMultiplier )
+        throws IOException {
+        super( rateMultiplier );
+        this.traceFile = traceFile;
+        reader = new SensorTraceReader( traceFile );
+
+        // Index the records of each sensor type
+        int numRecords = reader.size();
+        recordIndices = new int[ SENSOR_TYPES.length ][];
+        nextRecords = new int[ SENSOR_TYPES.length ];
+        for( int s = 0 ; s < SENSOR_TYPES.length ; ++s ) {
+            int count = 0;
+            for( int i = 0 ; i < numRecords ; ++i ) {
+                if( reader.getSensorType( i ) == SENSOR_TYPES[s] ) {
+                    ++count;
+                }
+            }
+            recordIndices[s] = new int[ count ];
+            count = 0;
+            for( int i = 0 ; i < numRecords ; ++i ) {
+                if( reader.getSensorType( i ) == SENSOR_TYPES[s] ) {
+                    recordIndices[s][ count++ ] = i;
+                }
+            }
+        }
+    }
+
+    /** Has the sensors with records in the trace. */
+    @Override
+    public boolean hasSensor( int sensorType ) {
+        for( int s = 0 ; s < SENSOR_TYPES.length ; ++s ) {
+            if( SENSOR_TYPES[s] == sensorType ) {
+                return recordIndices[s].length > 0;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the name of the source. */
+    @Override
+    public String getName() {
+        return "trace " + traceFile.getName() + " (x" + getRateMultiplier() + ")";
+    }
+
+    /** Closes the trace file (once all the sensors are unregistered). */
+    public void close()
+        throws IOException {
+        reader.close();
+    }
+
+    /** Copies the values of the next record of the sensor type. */
+    @Override
+    protected void generate( int sensorType ,
+                             long timestamp ,
+                             float[] values ) {
+        int s = 0;
+        while( SENSOR_TYPES[s] != sensorType ) {
+            ++s;
+        }
+        int[] indices = recordIndices[s];
+        int record = indices[ nextRecords[s] ];
+        nextRecords[s] = ( nextRecords[s] + 1 == indices.length ) ? 0 : nextRecords[s] + 1;
+        values[0] = reader.getX( record );
+        values[1] = reader.getY( record );
+        values[2] = reader.getZ( record );
+    }
+
+    /** Recorded trace file. */
+    private final File traceFile;
+    /** Reader of the trace. */
+    private final SensorTraceReader reader;
+    /** Indices of the records of each simulated sensor type. */
+    private final int[][] recordIndices;
+    /** Next record (in recordIndices) of each simulated sensor type. */
+    private final int[] nextRecords;
+}
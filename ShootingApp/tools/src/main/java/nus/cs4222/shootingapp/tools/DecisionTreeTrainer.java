@@ -0,0 +1,247 @@
+package nus.cs4222.shootingapp.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import nus.cs4222.shootingapp.gesture.classify.DecisionTree;
+
+/**
+   Trains a DecisionTree (CART, splitting on the Gini impurity).
+
+   <p> Each example is weighted by the inverse of its class frequency,
+   so that the rare shot classes are not drowned by the many windows
+   without a gesture. A node becomes a leaf (with its heaviest class)
+   at the max depth, when it is pure, when it has fewer than twice the
+   min leaf size examples, or when no split lowers the impurity.
+ */
+public class DecisionTreeTrainer {
+
+    /**
+       Creates a trainer.
+
+       @param   maxDepth     Max number of comparisons on a path
+       @param   minLeafSize  Min number of examples in a leaf
+     */
+    public DecisionTreeTrainer( int maxDepth , 
+                                int minLeafSize ) {
+        if( maxDepth < 0 || minLeafSize < 1 ) {
+            throw new IllegalArgumentException( "Invalid tree limits: " + maxDepth + " , " + minLeafSize );
+        }
+        this.maxDepth = maxDepth;
+        this.minLeafSize = minLeafSize;
+    }
+
+    /**
+       Trains a tree.
+
+       @param   examples    Feature vector of each example (all the same length)
+       @param   labels      Class of each example
+       @param   classNames  Name of each class
+     */
+    public DecisionTree train( float[][] examples , 
+                               int[] labels , 
+                               String[] classNames ) {
+        if( examples.length == 0 || examples.length != labels.length ) {
+            throw new IllegalArgumentException( "Need one label per example , and at least one example" );
+        }
+        this.examples = examples;
+        this.labels = labels;
+        numClasses = classNames.length;
+        numFeatures = examples[0].length;
+
+        // Weight each class by the inverse of its frequency
+        int[] classCounts = new int[ numClasses ];
+        for( int label : labels ) {
+            ++classCounts[ label ];
+        }
+        classWeights = new double[ numClasses ];
+        for( int c = 0 ; c < numClasses ; ++c ) {
+            classWeights[c] = ( classCounts[c] > 0 ) ? 
+                (double) examples.length / ( numClasses * classCounts[c] ) : 0.0;
+        }
+
+        // Grow the tree (depth first, so children come after their parent)
+        nodeFeatures = new ArrayList<Integer>();
+        nodeThresholds = new ArrayList<Float>();
+        nodeLess = new ArrayList<Integer>();
+        nodeGreater = new ArrayList<Integer>();
+        nodeClasses = new ArrayList<Integer>();
+        Integer[] indices = new Integer[ examples.length ];
+        for( int i = 0 ; i < indices.length ; ++i ) {
+            indices[i] = i;
+        }
+        grow( indices , 0 );
+
+        // Flatten the nodes
+        int numNodes = nodeFeatures.size();
+        int[] features = new int[ numNodes ];
+        float[] thresholds = new float[ numNodes ];
+        int[] lessChildren = new int[ numNodes ];
+        int[] greaterChildren = new int[ numNodes ];
+        int[] classes = new int[ numNodes ];
+        for( int node = 0 ; node < numNodes ; ++node ) {
+            features[node] = nodeFeatures.get( node );
+            thresholds[node] = nodeThresholds.get( node );
+            lessChildren[node] = nodeLess.get( node );
+            greaterChildren[node] = nodeGreater.get( node );
+            classes[node] = nodeClasses.get( node );
+        }
+        return new DecisionTree( numFeatures , classNames.clone() , features , thresholds , 
+                                 lessChildren , greaterChildren , classes );
+    }
+
+    /** Grows the subtree of the given examples, returning its node index. */
+    private int grow( Integer[] indices , 
+                      int depth ) {
+
+        // Add the node (as a leaf for now)
+        int node = nodeFeatures.size();
+        double[] weights = classWeights( indices );
+        nodeFeatures.add( -1 );
+        nodeThresholds.add( 0.0F );
+        nodeLess.add( -1 );
+        nodeGreater.add( -1 );
+        nodeClasses.add( heaviestClass( weights ) );
+        if( depth >= maxDepth || 
+            indices.length < 2 * minLeafSize || 
+            gini( weights ) == 0.0 ) {
+            return node;
+        }
+
+        // Find the split with the lowest weighted impurity
+        double bestImpurity = gini( weights ) * sum( weights ) - 1e-9;
+        int bestFeature = -1;
+        float bestThreshold = 0.0F;
+        for( int feature = 0 ; feature < numFeatures ; ++feature ) {
+            sortByFeature( indices , feature );
+            double[] lessWeights = new double[ numClasses ];
+            double[] greaterWeights = weights.clone();
+            for( int i = 0 ; i < indices.length - 1 ; ++i ) {
+                int example = indices[i];
+                double weight = classWeights[ labels[ example ] ];
+                lessWeights[ labels[ example ] ] += weight;
+                greaterWeights[ labels[ example ] ] -= weight;
+                float value = examples[ example ][ feature ];
+                float nextValue = examples[ indices[ i + 1 ] ][ feature ];
+                if( value == nextValue || 
+                    i + 1 < minLeafSize || 
+                    indices.length - i - 1 < minLeafSize ) {
+                    continue;
+                }
+                double impurity = gini( lessWeights ) * sum( lessWeights ) + 
+                    gini( greaterWeights ) * sum( greaterWeights );
+                if( impurity < bestImpurity ) {
+                    bestImpurity = impurity;
+                    bestFeature = feature;
+                    bestThreshold = value + ( nextValue - value ) / 2.0F;
+                    // (the midpoint may round up to the next value)
+                    if( bestThreshold >= nextValue ) {
+                        bestThreshold = value;
+                    }
+                }
+            }
+        }
+        if( bestFeature < 0 ) {
+            return node;
+        }
+
+        // Split the examples and grow the children
+        List<Integer> less = new ArrayList<Integer>();
+        List<Integer> greater = new ArrayList<Integer>();
+        for( Integer example : indices ) {
+            ( ( examples[ example ][ bestFeature ] <= bestThreshold ) ? less : greater ).add( example );
+        }
+        nodeFeatures.set( node , bestFeature );
+        nodeThresholds.set( node , bestThreshold );
+        nodeClasses.set( node , -1 );
+        int lessChild = grow( less.toArray( new Integer[ less.size() ] ) , depth + 1 );
+        int greaterChild = grow( greater.toArray( new Integer[ greater.size() ] ) , depth + 1 );
+        nodeLess.set( node , lessChild );
+        nodeGreater.set( node , greaterChild );
+        return node;
+    }
+
+    /** Sorts example indices by one feature. */
+    private void sortByFeature( Integer[] indices , 
+                                final int feature ) {
+        Arrays.sort( indices , new Comparator<Integer>() {
+                @Override
+                public int compare( Integer a , Integer b ) {
+                    return Float.compare( examples[a][ feature ] , examples[b][ feature ] );
+                }
+            } );
+    }
+
+    /** Returns the total weight of each class among some examples. */
+    private double[] classWeights( Integer[] indices ) {
+        double[] weights = new double[ numClasses ];
+        for( Integer example : indices ) {
+            weights[ labels[ example ] ] += classWeights[ labels[ example ] ];
+        }
+        return weights;
+    }
+
+    /** Gini impurity of class weights. */
+    private static double gini( double[] weights ) {
+        double total = sum( weights );
+        if( total <= 0.0 ) {
+            return 0.0;
+        }
+        double sumSquares = 0.0;
+        for( double weight : weights ) {
+            sumSquares += ( weight / total ) * ( weight / total );
+        }
+        return Math.max( 0.0 , 1.0 - sumSquares );
+    }
+
+    /** Sum of weights. */
+    private static double sum( double[] weights ) {
+        double total = 0.0;
+        for( double weight : weights ) {
+            total += weight;
+        }
+        return total;
+    }
+
+    /** Class with the largest weight. */
+    private static int heaviestClass( double[] weights ) {
+        int best = 0;
+        for( int c = 1 ; c < weights.length ; ++c ) {
+            if( weights[c] > weights[best] ) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /** Max number of comparisons on a path. */
+    private final int maxDepth;
+    /** Min number of examples in a leaf. */
+    private final int minLeafSize;
+
+    // Training state
+    /** Feature vector of each example. */
+    private float[][] examples;
+    /** Class of each example. */
+    private int[] labels;
+    /** Weight of the examples of each class. */
+    private double[] classWeights;
+    /** Number of classes. */
+    private int numClasses;
+    /** Length of the feature vectors. */
+    private int numFeatures;
+
+    // Nodes grown so far
+    /** Feature of each node. */
+    private List<Integer> nodeFeatures;
+    /** Threshold of each node. */
+    private List<Float> nodeThresholds;
+    /** Less child of each node. */
+    private List<Integer> nodeLess;
+    /** Greater child of each node. */
+    private List<Integer> nodeGreater;
+    /** Class of each node. */
+    private List<Integer> nodeClasses;
+}
@@ -0,0 +1,210 @@
+package nus.cs4222.shootingapp.tools;
+
+import nus.cs4222.shootingapp.gesture.stats.LatencyHistogram;
+
+/**
+   Detection results of one detector configuration over a set of
+   labeled traces.
+
+   <p> A detection counts for a labeled gesture if it is between the
+   gesture's start and 'lateTolerance' after its end. The first
+   detection of a gesture is a hit (its latency is measured from the
+   gesture's start, in sensor time), further detections of the same
+   gesture are repeats, and detections outside any gesture are false
+   alarms. Repeats count against the precision like false alarms (a
+   detector firing twice per gesture plays two gunshots). The gesture
+   class is not checked, since the threshold detector does not
+   classify.
+
+   <p> Each thread scores into its own instance, and the instances are
+   then merged with add(), so no locks are needed.
+ */
+public class DetectionScore {
+
+    /** Creates an empty score. */
+    public DetectionScore( long lateTolerance ) {
+        this.lateTolerance = lateTolerance;
+        latencies = new LatencyHistogram();
+    }
+
+    /**
+       Scores the detections of one trace.
+
+       @param   labels         Gestures performed during the trace
+       @param   timestamps     Timestamp of each detection (nanosec, in order)
+       @param   regions        Shooting region at each detection
+       @param   numDetections  Number of detections
+       @param   duration       Duration of the trace (nanosec)
+     */
+    public void addTrace( TraceLabels labels ,
+                          long[] timestamps ,
+                          int[] regions ,
+                          int numDetections ,
+                          long duration ) {
+
+        // Match each detection to the gesture it falls in (the gestures
+        //  of a trace are few, so a linear search is enough)
+        int numGestures = labels.size();
+        boolean[] isDetected = new boolean[ numGestures ];
+        for( int d = 0 ; d < numDetections ; ++d ) {
+            long timestamp = timestamps[d];
+            int gesture = -1;
+            for( int g = 0 ; g < numGestures ; ++g ) {
+                if( timestamp >= labels.getStart( g ) &&
+                    timestamp <= labels.getEnd( g ) + lateTolerance ) {
+                    gesture = g;
+                    break;
+                }
+            }
+            if( gesture < 0 ) {
+                ++numFalseAlarms;
+                continue;
+            }
+            else if( isDetected[ gesture ] ) {
+                ++numRepeats;
+                continue;
+            }
+
+            // First detection of the gesture
+            isDetected[ gesture ] = true;
+            ++numHits;
+            latencies.record( timestamp - labels.getStart( gesture ) );
+            int region = labels.getRegion( gesture );
+            if( region != 0 ) {
+                ++numRegionsLabeled;
+                if( regions[d] == region ) {
+                    ++numRegionsCorrect;
+                }
+            }
+        }
+
+        this.numGestures += numGestures;
+        totalDuration += duration;
+        ++numTraces;
+    }
+
+    /** Adds the time taken to replay samples through the pipeline (nanosec, wall clock). */
+    public void addProcessing( long numSamples ,
+                               long processingTime ) {
+        this.numSamples += numSamples;
+        this.processingTime += processingTime;
+    }
+
+    /** Adds the results of another score (of the same detector over other traces). */
+    public void add( DetectionScore other ) {
+        numTraces += other.numTraces;
+        numGestures += other.numGestures;
+        numHits += other.numHits;
+        numRepeats += other.numRepeats;
+        numFalseAlarms += other.numFalseAlarms;
+        numRegionsLabeled += other.numRegionsLabeled;
+        numRegionsCorrect += other.numRegionsCorrect;
+        totalDuration += other.totalDuration;
+        numSamples += other.numSamples;
+        processingTime += other.processingTime;
+        latencies.add( other.latencies );
+    }
+
+    /** Returns the fraction of the detections (including repeats) that are first detections of gestures. */
+    public double getPrecision() {
+        long numDetections = numHits + numRepeats + numFalseAlarms;
+        return ( numDetections > 0L ) ? (double) numHits / numDetections : 0.0;
+    }
+
+    /** Returns the fraction of the gestures detected. */
+    public double getRecall() {
+        return ( numGestures > 0L ) ? (double) numHits / numGestures : 0.0;
+    }
+
+    /** Returns the F1 score (harmonic mean of the precision and recall). */
+    public double getF1() {
+        double precision = getPrecision();
+        double recall = getRecall();
+        return ( precision + recall > 0.0 ) ? 2.0 * precision * recall / ( precision + recall ) : 0.0;
+    }
+
+    /** Returns the fraction of the detected gestures with a labeled region that got that region. */
+    public double getRegionAccuracy() {
+        return ( numRegionsLabeled > 0L ) ? (double) numRegionsCorrect / numRegionsLabeled : Double.NaN;
+    }
+
+    /** Returns the number of false alarms per minute of sensor data. */
+    public double getFalseAlarmsPerMinute() {
+        return ( totalDuration > 0L ) ? numFalseAlarms * 60.0e9 / totalDuration : 0.0;
+    }
+
+    /** Returns the number of repeated detections of a gesture per minute of sensor data. */
+    public double getRepeatsPerMinute() {
+        return ( totalDuration > 0L ) ? numRepeats * 60.0e9 / totalDuration : 0.0;
+    }
+
+    /** Returns the latencies of the hits (from the gesture's start to the detection, nanosec). */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /** Returns the number of samples replayed per sec of processing (of a single thread). */
+    public double getSamplesPerSecond() {
+        return ( processingTime > 0L ) ? numSamples * 1e9 / processingTime : 0.0;
+    }
+
+    /** Returns the number of traces scored. */
+    public long getNumTraces() {
+        return numTraces;
+    }
+
+    /** Returns the number of labeled gestures. */
+    public long getNumGestures() {
+        return numGestures;
+    }
+
+    /** Returns the number of gestures detected. */
+    public long getNumHits() {
+        return numHits;
+    }
+
+    /** Returns the number of repeated detections of a gesture. */
+    public long getNumRepeats() {
+        return numRepeats;
+    }
+
+    /** Returns the number of detections outside any gesture. */
+    public long getNumFalseAlarms() {
+        return numFalseAlarms;
+    }
+
+    /** Returns the number of samples replayed. */
+    public long getNumSamples() {
+        return numSamples;
+    }
+
+    /** Returns the time taken to replay the samples (nanosec, summed over the threads). */
+    public long getProcessingTime() {
+        return processingTime;
+    }
+
+    /** Time after a gesture's end within which a detection still counts for it (nanosec). */
+    private final long lateTolerance;
+    /** Latencies of the hits (nanosec). */
+    private final LatencyHistogram latencies;
+    /** Number of traces. */
+    private long numTraces;
+    /** Number of labeled gestures. */
+    private long numGestures;
+    /** Number of gestures detected. */
+    private long numHits;
+    /** Number of repeated detections of a gesture. */
+    private long numRepeats;
+    /** Number of detections outside any gesture. */
+    private long numFalseAlarms;
+    /** Number of hits of gestures with a labeled region. */
+    private long numRegionsLabeled;
+    /** Number of those hits with the labeled region. */
+    private long numRegionsCorrect;
+    /** Total duration of the traces (nanosec). */
+    private long totalDuration;
+    /** Number of samples replayed. */
+    private long numSamples;
+    /** Time taken to replay them (nanosec). */
+    private long processingTime;
+}
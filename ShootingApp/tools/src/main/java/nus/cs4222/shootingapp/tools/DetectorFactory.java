@@ -0,0 +1,19 @@
+package nus.cs4222.shootingapp.tools;
+
+import nus.cs4222.shootingapp.gesture.GestureDetector;
+
+/**
+   Creates gesture detectors with one set of parameters (one point of
+   a parameter sweep, see DetectorGrid).
+
+   <p> Detectors are not thread-safe, so each evaluation thread
+   creates its own detectors from the same factory.
+ */
+public interface DetectorFactory {
+
+    /** Creates a new detector. */
+    public GestureDetector create();
+
+    /** Returns the parameters, as printed in the results (e.g. "force 7.0 , trough 1.0"). */
+    public String getDescription();
+}
@@ -0,0 +1,138 @@
+package nus.cs4222.shootingapp.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nus.cs4222.shootingapp.gesture.GestureDetector;
+import nus.cs4222.shootingapp.gesture.ThresholdGestureDetector;
+import nus.cs4222.shootingapp.gesture.classify.DecisionTree;
+import nus.cs4222.shootingapp.gesture.classify.GestureClassifier;
+import nus.cs4222.shootingapp.gesture.dtw.DtwGestureRecognizer;
+import nus.cs4222.shootingapp.gesture.dtw.GestureTemplates;
+
+/**
+   Parameter grids of the app's gesture detectors, as lists of
+   detector factories.
+ */
+public final class DetectorGrid {
+
+    /**
+       Parses a parameter range: a single value ("7"), a list of values
+       ("5,7,9"), or from:to:step ("5:10:0.5", both ends included).
+     */
+    public static float[] parseRange( String range ) {
+        String[] bounds = range.split( ":" );
+        if( bounds.length == 3 ) {
+            float from = Float.parseFloat( bounds[0] );
+            float to = Float.parseFloat( bounds[1] );
+            float step = Float.parseFloat( bounds[2] );
+            if( ! ( step > 0.0F ) || to < from ) {
+                throw new IllegalArgumentException( "Invalid range: " + range );
+            }
+            // (computed from the index, so the steps do not accumulate rounding errors)
+            int numValues = (int) Math.floor( ( to - from ) / step + 1e-4 ) + 1;
+            float[] values = new float[ numValues ];
+            for( int i = 0 ; i < numValues ; ++i ) {
+                values[i] = from + i * step;
+            }
+            return values;
+        }
+        else if( bounds.length == 1 ) {
+            String[] items = range.split( "," );
+            float[] values = new float[ items.length ];
+            for( int i = 0 ; i < items.length ; ++i ) {
+                values[i] = Float.parseFloat( items[i] );
+            }
+            return values;
+        }
+        throw new IllegalArgumentException( "Invalid range: " + range );
+    }
+
+    /**
+       Returns the threshold detectors of all the combinations of the
+       parameters (skipping those with the trough above the force).
+
+       @param   forces             Min gesture forces (m/sec^2)
+       @param   troughs            Accl peak trough values (m/sec^2)
+       @param   refractoryPeriods  Min times between two gestures (millisec)
+     */
+    public static List<DetectorFactory> thresholds( float[] forces ,
+                                                    float[] troughs ,
+                                                    float[] refractoryPeriods ) {
+        List<DetectorFactory> grid = new ArrayList<DetectorFactory>();
+        for( final float force : forces ) {
+            for( final float trough : troughs ) {
+                if( trough > force ) {
+                    continue;
+                }
+                for( float refractoryMillisec : refractoryPeriods ) {
+                    final long refractoryPeriod = Math.round( refractoryMillisec * NANOSEC_PER_MILLISEC );
+                    final String description = String.format( "force %5.2f , trough %5.2f , refractory %4d ms" ,
+                                                              force , trough , refractoryPeriod / NANOSEC_PER_MILLISEC );
+                    grid.add( new DetectorFactory() {
+                            @Override
+                            public GestureDetector create() {
+                                return new ThresholdGestureDetector( force ,
+                                                                     trough ,
+                                                                     refractoryPeriod ,
+                                                                     ThresholdGestureDetector.DEFAULT_MAX_PEAK_DURATION );
+                            }
+                            @Override
+                            public String getDescription() {
+                                return description;
+                            }
+                        } );
+                }
+            }
+        }
+        return grid;
+    }
+
+    /** Returns the template recognizer with the app's templates and the given band widths. */
+    public static List<DetectorFactory> templates( float[] bandWidths ) {
+        List<DetectorFactory> grid = new ArrayList<DetectorFactory>();
+        for( float width : bandWidths ) {
+            final int bandWidth = Math.round( width );
+            grid.add( new DetectorFactory() {
+                    @Override
+                    public GestureDetector create() {
+                        return new DtwGestureRecognizer( GestureTemplates.defaults() ,
+                                                         bandWidth ,
+                                                         GestureTemplates.DEFAULT_REFRACTORY_PERIOD );
+                    }
+                    @Override
+                    public String getDescription() {
+                        return "templates , band " + bandWidth;
+                    }
+                } );
+        }
+        return grid;
+    }
+
+    /** Returns the classifier with the given model and refractory periods (millisec). */
+    public static List<DetectorFactory> classifier( final DecisionTree tree ,
+                                                    float[] refractoryPeriods ) {
+        List<DetectorFactory> grid = new ArrayList<DetectorFactory>();
+        for( float refractoryMillisec : refractoryPeriods ) {
+            final long refractoryPeriod = Math.round( refractoryMillisec * NANOSEC_PER_MILLISEC );
+            grid.add( new DetectorFactory() {
+                    @Override
+                    public GestureDetector create() {
+                        return new GestureClassifier( tree , refractoryPeriod );
+                    }
+                    @Override
+                    public String getDescription() {
+                        return "classifier , refractory " + refractoryPeriod / NANOSEC_PER_MILLISEC + " ms";
+                    }
+                } );
+        }
+        return grid;
+    }
+
+    /** Not instantiable. */
+    private DetectorGrid() {
+    }
+
+    /** Number of nanosec in a millisec. */
+    private static final long NANOSEC_PER_MILLISEC = 1000000L;
+}
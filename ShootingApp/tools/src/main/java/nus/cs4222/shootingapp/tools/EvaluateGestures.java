@@ -0,0 +1,319 @@
+package nus.cs4222.shootingapp.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import nus.cs4222.shootingapp.gesture.classify.DecisionTree;
+
+/**
+   Evaluates the app's gesture detection over a directory of labeled
+   sensor traces (each trace file with its '.labels' file, see
+   TraceLabels), for every point of a parameter grid.
+
+   <p> The traces are loaded into memory, then replayed through the
+   app's pipeline (see ReplayPipeline) of each configuration in
+   parallel on a fork-join pool (see EvaluationTask). The
+   configurations are printed best first (by F1 score), with the
+   precision, recall, false alarms, repeats, detection latency and shooting
+   region accuracy, followed by the replay throughput.
+
+   <p> Usage: EvaluateGestures [options] traceDir
+   <pre>
+     -detector thresholds|templates|classifier   (default thresholds)
+     -force RANGE       min accl force (m/sec^2, thresholds, default 7)
+     -trough RANGE      accl peak trough (m/sec^2, thresholds, default 1)
+     -refractory RANGE  refractory period (millisec, thresholds and classifier)
+     -band RANGE        DTW band width (samples, templates, default 1)
+     -model FILE        classifier model (classifier)
+     -late MILLISEC     time after a gesture within which it can be detected (default 200)
+     -threads N         number of threads (default: number of cores)
+     -top N             number of configurations printed (default 20)
+   </pre>
+   A RANGE is a value ("7"), a list ("5,7,9") or from:to:step ("5:10:0.5").
+ */
+public class EvaluateGestures {
+
+    /** Entry point. */
+    public static void main( String[] args )
+        throws IOException {
+
+        // Options
+        String detector = "thresholds";
+        String forces = "7" , troughs = "1" , refractoryPeriods = null , bandWidths = "1";
+        String modelFile = null;
+        long lateTolerance = DEFAULT_LATE_TOLERANCE;
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        int top = DEFAULT_TOP;
+        String traceDir = null;
+        try {
+            for( int i = 0 ; i < args.length ; ++i ) {
+                String arg = args[i];
+                if( ! arg.startsWith( "-" ) ) {
+                    traceDir = arg;
+                    continue;
+                }
+                else if( i + 1 == args.length ) {
+                    throw new IllegalArgumentException( "Missing value of " + arg );
+                }
+                String value = args[ ++i ];
+                if( arg.equals( "-detector" ) ) {
+                    detector = value;
+                }
+                else if( arg.equals( "-force" ) ) {
+                    forces = value;
+                }
+                else if( arg.equals( "-trough" ) ) {
+                    troughs = value;
+                }
+                else if( arg.equals( "-refractory" ) ) {
+                    refractoryPeriods = value;
+                }
+                else if( arg.equals( "-band" ) ) {
+                    bandWidths = value;
+                }
+                else if( arg.equals( "-model" ) ) {
+                    modelFile = value;
+                }
+                else if( arg.equals( "-late" ) ) {
+                    lateTolerance = Long.parseLong( value ) * NANOSEC_PER_MILLISEC;
+                }
+                else if( arg.equals( "-threads" ) ) {
+                    numThreads = Integer.parseInt( value );
+                }
+                else if( arg.equals( "-top" ) ) {
+                    top = Integer.parseInt( value );
+                }
+                else {
+                    throw new IllegalArgumentException( "Unknown option " + arg );
+                }
+            }
+            if( traceDir == null ) {
+                throw new IllegalArgumentException( "No trace directory" );
+            }
+        }
+        catch( IllegalArgumentException e ) {
+            System.err.println( e.getMessage() );
+            System.err.println( "Usage: EvaluateGestures [-detector thresholds|templates|classifier] " +
+                                "[-force RANGE] [-trough RANGE] [-refractory RANGE] [-band RANGE] " +
+                                "[-model FILE] [-late MILLISEC] [-threads N] [-top N] traceDir" );
+            System.exit( 1 );
+            return;
+        }
+
+        // Parameter grid
+        List<DetectorFactory> detectors;
+        if( detector.equals( "thresholds" ) ) {
+            detectors = DetectorGrid.thresholds( DetectorGrid.parseRange( forces ) ,
+                                                 DetectorGrid.parseRange( troughs ) ,
+                                                 DetectorGrid.parseRange( ( refractoryPeriods != null ) ?
+                                                                          refractoryPeriods : "150" ) );
+        }
+        else if( detector.equals( "templates" ) ) {
+            detectors = DetectorGrid.templates( DetectorGrid.parseRange( bandWidths ) );
+        }
+        else if( detector.equals( "classifier" ) && modelFile != null ) {
+            InputStream in = new FileInputStream( modelFile );
+            try {
+                detectors = DetectorGrid.classifier( DecisionTree.read( in ) ,
+                                                     DetectorGrid.parseRange( ( refractoryPeriods != null ) ?
+                                                                              refractoryPeriods : "300" ) );
+            }
+            finally {
+                in.close();
+            }
+        }
+        else {
+            System.err.println( "Unknown detector (or no -model for the classifier): " + detector );
+            System.exit( 1 );
+            return;
+        }
+        if( detectors.isEmpty() ) {
+            System.err.println( "Empty parameter grid (every trough is above every force?)" );
+            System.exit( 1 );
+            return;
+        }
+
+        // Load the traces
+        ForkJoinPool pool = new ForkJoinPool( numThreads );
+        long startTime = System.nanoTime();
+        List<RecordedTrace> traces = loadTraces( new File( traceDir ) , pool );
+        long numSamples = 0L , numGestures = 0L;
+        for( RecordedTrace trace : traces ) {
+            numSamples += trace.size();
+            numGestures += trace.getLabels().size();
+        }
+        System.out.printf( "Loaded %d traces (%d samples , %d gestures) in %.2f sec%n" ,
+                           traces.size() , numSamples , numGestures , ( System.nanoTime() - startTime ) / 1e9 );
+        if( traces.isEmpty() ) {
+            return;
+        }
+
+        // Evaluate (with about 8 leaves per thread, so that the threads
+        //  stay busy as the traces have different lengths)
+        int leafSize = Math.max( 1 , traces.size() / ( LEAVES_PER_THREAD * numThreads ) );
+        startTime = System.nanoTime();
+        DetectionScore[] scores = pool.invoke( new EvaluationTask( traces , detectors , lateTolerance , leafSize ) );
+        long elapsedTime = System.nanoTime() - startTime;
+        pool.shutdown();
+
+        // Results
+        print( detectors , scores , top , System.out );
+        double totalSamples = (double) numSamples * detectors.size();
+        System.out.printf( "%d configurations x %d traces on %d threads in %.2f sec: " +
+                           "%.2f M samples/sec (%.2f M samples/sec per thread)%n" ,
+                           detectors.size() , traces.size() , numThreads , elapsedTime / 1e9 ,
+                           totalSamples / elapsedTime * 1e3 ,
+                           getSamplesPerSecond( scores ) / 1e6 );
+    }
+
+    /** Loads the traces of a directory (the files with a labels file), sorted by name. */
+    static List<RecordedTrace> loadTraces( File dir ,
+                                           ForkJoinPool pool )
+        throws IOException {
+
+        // Find the trace files
+        File[] files = dir.listFiles();
+        if( files == null ) {
+            throw new IOException( "Not a directory: " + dir );
+        }
+        Arrays.sort( files );
+        List<File> traceFiles = new ArrayList<File>();
+        for( File file : files ) {
+            if( file.isFile() &&
+                ! file.getName().endsWith( TraceLabels.FILE_EXTENSION ) &&
+                TraceLabels.getLabelsFile( file ).isFile() ) {
+                traceFiles.add( file );
+            }
+        }
+
+        // Load them in parallel (mostly copying out of the mapped files)
+        RecordedTrace[] traces = new RecordedTrace[ traceFiles.size() ];
+        LoadTask task = new LoadTask( traceFiles , traces , 0 , traces.length );
+        pool.invoke( task );
+        if( task.error != null ) {
+            throw task.error;
+        }
+        return Arrays.asList( traces );
+    }
+
+    /** Prints the best configurations, and the total over all the configurations. */
+    static void print( List<DetectorFactory> detectors ,
+                       final DetectionScore[] scores ,
+                       int top ,
+                       PrintStream out ) {
+
+        // Sort by F1 score, then by the latency
+        Integer[] order = new Integer[ scores.length ];
+        for( int c = 0 ; c < order.length ; ++c ) {
+            order[c] = c;
+        }
+        Arrays.sort( order , new Comparator<Integer>() {
+                @Override
+                public int compare( Integer a ,
+                                    Integer b ) {
+                    int result = Double.compare( scores[b].getF1() , scores[a].getF1() );
+                    return ( result != 0 ) ? result :
+                        Double.compare( scores[a].getLatencies().getMean() , scores[b].getLatencies().getMean() );
+                }
+            } );
+
+        out.printf( "%9s %6s %6s %6s %7s %8s %8s %7s  %s%n" ,
+                    "precision" , "recall" , "F1" , "FA/min" , "rep/min" , "p50 ms" , "p95 ms" , "region" , "configuration" );
+        for( int i = 0 ; i < Math.min( top , order.length ) ; ++i ) {
+            DetectionScore score = scores[ order[i] ];
+            double regionAccuracy = score.getRegionAccuracy();
+            out.printf( "%9.3f %6.3f %6.3f %6.2f %7.2f %8.1f %8.1f %7s  %s%n" ,
+                        score.getPrecision() , score.getRecall() , score.getF1() ,
+                        score.getFalseAlarmsPerMinute() ,
+                        score.getRepeatsPerMinute() ,
+                        score.getLatencies().getValueAtPercentile( 50.0 ) / 1e6 ,
+                        score.getLatencies().getValueAtPercentile( 95.0 ) / 1e6 ,
+                        Double.isNaN( regionAccuracy ) ? "-" : String.format( "%.3f" , regionAccuracy ) ,
+                        detectors.get( order[i] ).getDescription() );
+        }
+        if( order.length > top ) {
+            out.println( "(" + ( order.length - top ) + " more configurations)" );
+        }
+    }
+
+    /** Returns the replay rate of a single thread, over all the configurations (samples/sec). */
+    private static double getSamplesPerSecond( DetectionScore[] scores ) {
+        long numSamples = 0L , processingTime = 0L;
+        for( DetectionScore score : scores ) {
+            numSamples += score.getNumSamples();
+            processingTime += score.getProcessingTime();
+        }
+        return ( processingTime > 0L ) ? numSamples * 1e9 / processingTime : 0.0;
+    }
+
+    /** Loads a range of trace files, splitting the range in halves. */
+    private static class LoadTask
+        extends RecursiveAction {
+
+        /** Creates a task loading files[from] .. files[to - 1] into traces. */
+        LoadTask( List<File> files ,
+                  RecordedTrace[] traces ,
+                  int from ,
+                  int to ) {
+            this.files = files;
+            this.traces = traces;
+            this.from = from;
+            this.to = to;
+        }
+
+        /** Loads the range (or splits it). */
+        @Override
+        protected void compute() {
+            if( to - from > 1 ) {
+                int middle = ( from + to ) >>> 1;
+                LoadTask left = new LoadTask( files , traces , from , middle );
+                LoadTask right = new LoadTask( files , traces , middle , to );
+                invokeAll( left , right );
+                error = ( left.error != null ) ? left.error : right.error;
+            }
+            else if( to > from ) {
+                try {
+                    traces[ from ] = RecordedTrace.load( files.get( from ) );
+                }
+                catch( IOException e ) {
+                    error = e;
+                }
+            }
+        }
+
+        /** Trace files. */
+        private final List<File> files;
+        /** Receives the loaded traces. */
+        private final RecordedTrace[] traces;
+        /** First file of the range. */
+        private final int from;
+        /** End of the range (exclusive). */
+        private final int to;
+        /** Version of the serialized form (the task is never serialized). */
+        private static final long serialVersionUID = 1L;
+        /** First error while loading the range (null if none). */
+        IOException error;
+    }
+
+    /** Not instantiable. */
+    private EvaluateGestures() {
+    }
+
+    /** Default time after a gesture's end within which a detection still counts for it (nanosec). */
+    private static final long DEFAULT_LATE_TOLERANCE = 200L * 1000000L;
+    /** Default number of configurations printed. */
+    private static final int DEFAULT_TOP = 20;
+    /** Number of leaf tasks per thread. */
+    private static final int LEAVES_PER_THREAD = 8;
+    /** Number of nanosec in a millisec. */
+    private static final long NANOSEC_PER_MILLISEC = 1000000L;
+}
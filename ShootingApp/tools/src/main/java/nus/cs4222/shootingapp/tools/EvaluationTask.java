@@ -0,0 +1,131 @@
+package nus.cs4222.shootingapp.tools;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+   Fork-join task that replays a range of traces through a pipeline of
+   each of a range of detector configurations, and returns one score
+   per configuration.
+
+   <p> The traces are split in halves until there are at most
+   'leafSize' of them, then the configurations, so that a large grid
+   keeps all the cores busy even over a few traces. A leaf creates one
+   pipeline and reuses it for all its traces, and the scores of the
+   two halves are merged when they join. The traces are only read,
+   and everything written belongs to the leaf, so the leaves share
+   nothing and scale with the number of cores.
+ */
+public class EvaluationTask
+    extends RecursiveTask<DetectionScore[]> {
+
+    /**
+       Creates a task.
+
+       @param   traces         All the traces
+       @param   detectors      Detector configurations
+       @param   lateTolerance  Time after a gesture's end within which a detection
+                                still counts for it (nanosec)
+       @param   leafSize       Max number of traces replayed without splitting
+     */
+    public EvaluationTask( List<RecordedTrace> traces ,
+                           List<DetectorFactory> detectors ,
+                           long lateTolerance ,
+                           int leafSize ) {
+        this( traces , detectors , lateTolerance , Math.max( 1 , leafSize ) , 
+              0 , traces.size() , 0 , detectors.size() );
+    }
+
+    /** Creates a task over a range of the traces and configurations. */
+    private EvaluationTask( List<RecordedTrace> traces ,
+                            List<DetectorFactory> detectors ,
+                            long lateTolerance ,
+                            int leafSize ,
+                            int from ,
+                            int to ,
+                            int detectorFrom ,
+                            int detectorTo ) {
+        this.traces = traces;
+        this.detectors = detectors;
+        this.lateTolerance = lateTolerance;
+        this.leafSize = leafSize;
+        this.from = from;
+        this.to = to;
+        this.detectorFrom = detectorFrom;
+        this.detectorTo = detectorTo;
+    }
+
+    /**
+       Replays the range (or splits it), and returns the score of each
+       configuration (null outside the range of configurations).
+     */
+    @Override
+    protected DetectionScore[] compute() {
+
+        // Split the traces, then the configurations, in halves
+        EvaluationTask left , right;
+        if( to - from > leafSize ) {
+            int middle = ( from + to ) >>> 1;
+            left = new EvaluationTask( traces , detectors , lateTolerance , leafSize , 
+                                       from , middle , detectorFrom , detectorTo );
+            right = new EvaluationTask( traces , detectors , lateTolerance , leafSize , 
+                                        middle , to , detectorFrom , detectorTo );
+        }
+        else if( detectorTo - detectorFrom > 1 ) {
+            int middle = ( detectorFrom + detectorTo ) >>> 1;
+            left = new EvaluationTask( traces , detectors , lateTolerance , leafSize , 
+                                       from , to , detectorFrom , middle );
+            right = new EvaluationTask( traces , detectors , lateTolerance , leafSize , 
+                                        from , to , middle , detectorTo );
+        }
+        else {
+            return replay();
+        }
+
+        // Run the halves (this thread takes the right one), and merge the scores
+        left.fork();
+        DetectionScore[] scores = right.compute();
+        DetectionScore[] leftScores = left.join();
+        for( int c = detectorFrom ; c < detectorTo ; ++c ) {
+            if( scores[c] == null ) {
+                scores[c] = leftScores[c];
+            }
+            else if( leftScores[c] != null ) {
+                scores[c].add( leftScores[c] );
+            }
+        }
+        return scores;
+    }
+
+    /** Replays the traces of the range through a pipeline of each configuration of the range. */
+    private DetectionScore[] replay() {
+        DetectionScore[] scores = new DetectionScore[ detectors.size() ];
+        for( int c = detectorFrom ; c < detectorTo ; ++c ) {
+            scores[c] = new DetectionScore( lateTolerance );
+            ReplayPipeline pipeline = new ReplayPipeline( detectors.get( c ).create() );
+            for( int t = from ; t < to ; ++t ) {
+                pipeline.run( traces.get( t ) , scores[c] );
+            }
+        }
+        return scores;
+    }
+
+    /** All the traces. */
+    private final List<RecordedTrace> traces;
+    /** Detector configurations. */
+    private final List<DetectorFactory> detectors;
+    /** Time after a gesture's end within which a detection still counts for it (nanosec). */
+    private final long lateTolerance;
+    /** Max number of traces replayed without splitting. */
+    private final int leafSize;
+    /** First trace of the range. */
+    private final int from;
+    /** End of the range of traces (exclusive). */
+    private final int to;
+    /** First configuration of the range. */
+    private final int detectorFrom;
+    /** End of the range of configurations (exclusive). */
+    private final int detectorTo;
+    /** Version of the serialized form (the task is never serialized). */
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,136 @@
+package nus.cs4222.shootingapp.tools;
+
+import java.io.File;
+import java.io.IOException;
+
+import nus.cs4222.shootingapp.gesture.AlignedSampleListener;
+import nus.cs4222.shootingapp.gesture.trace.SensorTrace;
+import nus.cs4222.shootingapp.gesture.trace.SensorTraceWriter;
+
+/**
+   Writes a corpus of synthetic labeled traces (see SyntheticGestures),
+   in the format read by EvaluateGestures, e.g. to try out a parameter
+   sweep before there are enough recordings.
+
+   <p> Each trace is a run of random movements (shots and others) one
+   after the other, written as gravity and linear accl records at the
+   game rate. There is no magnetometer, so the gestures have no
+   shooting region.
+
+   <p> Usage: GenerateGestureCorpus outDir numTraces [movementsPerTrace [seed]]
+ */
+public class GenerateGestureCorpus {
+
+    /** Entry point. */
+    public static void main( String[] args )
+        throws IOException {
+        if( args.length < 2 ) {
+            System.err.println( "Usage: GenerateGestureCorpus outDir numTraces [movementsPerTrace [seed]]" );
+            System.exit( 1 );
+        }
+        File outDir = new File( args[0] );
+        int numTraces = Integer.parseInt( args[1] );
+        int movementsPerTrace = ( args.length > 2 ) ? Integer.parseInt( args[2] ) : DEFAULT_MOVEMENTS_PER_TRACE;
+        long seed = ( args.length > 3 ) ? Long.parseLong( args[3] ) : DEFAULT_SEED;
+        if( ! outDir.isDirectory() && ! outDir.mkdirs() ) {
+            throw new IOException( "Cannot create the directory: " + outDir );
+        }
+        for( int t = 0 ; t < numTraces ; ++t ) {
+            write( new File( outDir , String.format( "synthetic-%05d.trace" , t ) ) ,
+                   new SyntheticGestures( seed + t ) ,
+                   movementsPerTrace );
+        }
+        System.out.println( "Wrote " + numTraces + " traces to " + outDir );
+    }
+
+    /** Writes a trace of random movements, and its labels file. */
+    static void write( File traceFile ,
+                       SyntheticGestures generator ,
+                       int numMovements )
+        throws IOException {
+        TraceLabels labels = new TraceLabels();
+        RecordWriter writer = new RecordWriter( traceFile );
+        try {
+            for( int m = 0 ; m < numMovements ; ++m ) {
+
+                // Append the sequence after the previous one
+                LabeledSequence sequence = generator.next();
+                long offset = writer.nextTimestamp;
+                writer.offset = offset;
+                sequence.replay( writer );
+                if( writer.error != null ) {
+                    throw writer.error;
+                }
+                for( int g = 0 ; g < sequence.getNumGestures() ; ++g ) {
+                    labels.add( offset + sequence.getTimestamp( sequence.getGestureStart( g ) ) ,
+                                offset + sequence.getTimestamp( sequence.getGestureEnd( g ) ) ,
+                                sequence.getGestureClass( g ) ,
+                                0 );
+                }
+            }
+        }
+        finally {
+            writer.traceWriter.close();
+        }
+        labels.write( TraceLabels.getLabelsFile( traceFile ) );
+    }
+
+    /** Writes each aligned sample as a gravity record then a linear accl record. */
+    private static class RecordWriter
+        implements AlignedSampleListener {
+
+        /** Creates (or overwrites) a trace file. */
+        RecordWriter( File file )
+            throws IOException {
+            traceWriter = new SensorTraceWriter( file );
+            nextTimestamp = START_TIMESTAMP;
+        }
+
+        /** Writes the two records (shifted by the offset). */
+        @Override
+        public void onAlignedSample( long timestamp ,
+                                     float ax ,
+                                     float ay ,
+                                     float az ,
+                                     float gx ,
+                                     float gy ,
+                                     float gz ) {
+            if( error != null ) {
+                return;
+            }
+            long shiftedTimestamp = offset + timestamp;
+            try {
+                traceWriter.write( SensorTrace.TYPE_GRAVITY , ACCURACY_HIGH , shiftedTimestamp , gx , gy , gz );
+                traceWriter.write( SensorTrace.TYPE_LINEAR_ACCELERATION , ACCURACY_HIGH , shiftedTimestamp , ax , ay , az );
+            }
+            catch( IOException e ) {
+                error = e;
+            }
+            nextTimestamp = shiftedTimestamp + SAMPLE_PERIOD;
+        }
+
+        /** Trace file writer. */
+        final SensorTraceWriter traceWriter;
+        /** Added to the timestamps of the current sequence (nanosec). */
+        long offset;
+        /** Timestamp after the last sample written (nanosec). */
+        long nextTimestamp;
+        /** First write error (null if none). */
+        IOException error;
+    }
+
+    /** Not instantiable. */
+    private GenerateGestureCorpus() {
+    }
+
+    /** Default number of movements per trace. */
+    private static final int DEFAULT_MOVEMENTS_PER_TRACE = 20;
+    /** Default seed of the first trace (each trace has the next seed). */
+    private static final long DEFAULT_SEED = 4222L;
+    /** Timestamp of the first sample (nanosec). */
+    private static final long START_TIMESTAMP = 1000000000L;
+    /** Sample period of the synthetic sequences (nanosec, game rate). */
+    private static final long SAMPLE_PERIOD = 20L * 1000000L;
+    /** Sensor accuracy written (SensorManager.SENSOR_STATUS_ACCURACY_HIGH). */
+    private static final int ACCURACY_HIGH = 3;
+}
@@ -0,0 +1,125 @@
+package nus.cs4222.shootingapp.tools;
+
+import java.io.PrintStream;
+
+import nus.cs4222.shootingapp.gesture.SampleBatch;
+import nus.cs4222.shootingapp.gesture.classify.GestureClasses;
+import nus.cs4222.shootingapp.gesture.classify.GestureClassifier;
+
+/**
+   Gesture-level results of a classifier replayed over labeled
+   sequences, as the app would run it.
+
+   <p> A detection counts for a gesture if it is between the gesture's
+   first sample and 'lateTolerance' after its last sample; it is
+   correct if it has the gesture's class. The first detection of a
+   gesture decides its outcome; further detections of the same gesture
+   (e.g. a long shake firing again after the refractory period) are
+   counted as repeats, and detections outside any gesture as false
+   alarms.
+ */
+public class GestureEvaluation {
+
+    /** Creates empty results. */
+    public GestureEvaluation( long lateTolerance ) {
+        this.lateTolerance = lateTolerance;
+        confusion = new int[ GestureClasses.NUM_CLASSES ][ GestureClasses.NUM_CLASSES ];
+    }
+
+    /** Replays a sequence through a classifier (reset first) and adds up the results. */
+    public void evaluate( GestureClassifier classifier , 
+                          LabeledSequence sequence ) {
+        classifier.reset();
+        int numGestures = sequence.getNumGestures();
+        boolean[] isDetected = new boolean[ numGestures ];
+        SampleBatch batch = new SampleBatch( 1 );
+        int[] gestureIndices = new int[1];
+        for( int i = 0 ; i < sequence.size() ; ++i ) {
+
+            // (through onBatch(), like the app, with every sample face up)
+            batch.clear();
+            sequence.replaySample( i , batch );
+            batch.isFaceUp[0] = true;
+            if( classifier.onBatch( batch , gestureIndices ) == 0 ) {
+                continue;
+            }
+            int detectedClass = classifier.getMatchedClass( 0 );
+            long timestamp = sequence.getTimestamp( i );
+
+            // Find the gesture it belongs to
+            int gesture = -1;
+            for( int g = 0 ; g < numGestures ; ++g ) {
+                if( timestamp >= sequence.getTimestamp( sequence.getGestureStart( g ) ) && 
+                    timestamp <= sequence.getTimestamp( sequence.getGestureEnd( g ) ) + lateTolerance ) {
+                    gesture = g;
+                    break;
+                }
+            }
+            if( gesture >= 0 && isDetected[ gesture ] ) {
+                ++numRepeats;
+                continue;
+            }
+            else if( gesture < 0 ) {
+                ++numFalseAlarms;
+                ++confusion[ GestureClasses.NONE ][ detectedClass ];
+                continue;
+            }
+            isDetected[ gesture ] = true;
+            ++confusion[ sequence.getGestureClass( gesture ) ][ detectedClass ];
+        }
+
+        // Missed gestures
+        for( int g = 0 ; g < numGestures ; ++g ) {
+            ++totalGestures;
+            if( ! isDetected[g] ) {
+                ++confusion[ sequence.getGestureClass( g ) ][ GestureClasses.NONE ];
+            }
+        }
+        totalDuration += sequence.getTimestamp( sequence.size() - 1 ) - sequence.getTimestamp( 0 );
+    }
+
+    /** Returns the fraction of gestures detected with the right class. */
+    public double getAccuracy() {
+        int numCorrect = 0;
+        for( int c = 1 ; c < GestureClasses.NUM_CLASSES ; ++c ) {
+            numCorrect += confusion[c][c];
+        }
+        return ( totalGestures > 0 ) ? (double) numCorrect / totalGestures : 0.0;
+    }
+
+    /** Returns the number of false alarms per minute of sensor data. */
+    public double getFalseAlarmsPerMinute() {
+        return ( totalDuration > 0L ) ? numFalseAlarms * 60.0e9 / totalDuration : 0.0;
+    }
+
+    /** Prints the confusion matrix (true class per row, detected class per column) and the summary. */
+    public void print( PrintStream out ) {
+        out.printf( "%-10s" , "" );
+        for( String name : GestureClasses.NAMES ) {
+            out.printf( "%9s" , name );
+        }
+        out.println();
+        for( int c = 0 ; c < GestureClasses.NUM_CLASSES ; ++c ) {
+            out.printf( "%-10s" , GestureClasses.NAMES[c] );
+            for( int d = 0 ; d < GestureClasses.NUM_CLASSES ; ++d ) {
+                out.printf( "%9d" , confusion[c][d] );
+            }
+            out.println();
+        }
+        out.printf( "Gestures: %d , accuracy %.3f , repeats %d , false alarms %d (%.2f per min)%n" , 
+                    totalGestures , getAccuracy() , numRepeats , numFalseAlarms , getFalseAlarmsPerMinute() );
+    }
+
+    /** Time after a gesture's end within which a detection still counts for it (nanosec). */
+    private final long lateTolerance;
+    /** Number of gestures of each true class detected as each class (NONE row = false alarms, NONE column = missed). */
+    private final int[][] confusion;
+    /** Number of gestures. */
+    private int totalGestures;
+    /** Number of repeated detections of a gesture. */
+    private int numRepeats;
+    /** Number of false alarms. */
+    private int numFalseAlarms;
+    /** Total duration of the sequences (nanosec). */
+    private long totalDuration;
+}
@@ -0,0 +1,174 @@
+package nus.cs4222.shootingapp.tools;
+
+import java.util.Arrays;
+
+import nus.cs4222.shootingapp.gesture.AlignedSampleListener;
+
+/**
+   Aligned accl/gravity samples with the gestures performed during
+   them (class and first/last sample of each gesture).
+
+   <p> The class of the window ending at each sample is derived from
+   the gestures (see getWindowLabel()).
+ */
+public class LabeledSequence 
+    implements AlignedSampleListener {
+
+    /** Creates an empty sequence. */
+    public LabeledSequence() {
+        timestamps = new long[ INITIAL_CAPACITY ];
+        values = new float[ 6 ][ INITIAL_CAPACITY ];
+        gestureClasses = new int[ INITIAL_CAPACITY ];
+        gestureStarts = new int[ INITIAL_CAPACITY ];
+        gestureEnds = new int[ INITIAL_CAPACITY ];
+    }
+
+    /** Appends a sample. */
+    @Override
+    public void onAlignedSample( long timestamp , 
+                                 float ax , 
+                                 float ay , 
+                                 float az , 
+                                 float gx , 
+                                 float gy , 
+                                 float gz ) {
+        if( numSamples == timestamps.length ) {
+            timestamps = Arrays.copyOf( timestamps , 2 * numSamples );
+            for( int axis = 0 ; axis < values.length ; ++axis ) {
+                values[ axis ] = Arrays.copyOf( values[ axis ] , 2 * numSamples );
+            }
+        }
+        timestamps[ numSamples ] = timestamp;
+        values[ AX ][ numSamples ] = ax;
+        values[ AY ][ numSamples ] = ay;
+        values[ AZ ][ numSamples ] = az;
+        values[ GX ][ numSamples ] = gx;
+        values[ GY ][ numSamples ] = gy;
+        values[ GZ ][ numSamples ] = gz;
+        ++numSamples;
+    }
+
+    /** Adds a gesture performed over the samples 'start' to 'end' (inclusive). */
+    public void addGesture( int gestureClass , 
+                            int start , 
+                            int end ) {
+        if( numGestures == gestureClasses.length ) {
+            gestureClasses = Arrays.copyOf( gestureClasses , 2 * numGestures );
+            gestureStarts = Arrays.copyOf( gestureStarts , 2 * numGestures );
+            gestureEnds = Arrays.copyOf( gestureEnds , 2 * numGestures );
+        }
+        gestureClasses[ numGestures ] = gestureClass;
+        gestureStarts[ numGestures ] = start;
+        gestureEnds[ numGestures ] = end;
+        ++numGestures;
+    }
+
+    /** Replays the samples to a listener. */
+    public void replay( AlignedSampleListener listener ) {
+        for( int i = 0 ; i < numSamples ; ++i ) {
+            replaySample( i , listener );
+        }
+    }
+
+    /** Replays one sample to a listener. */
+    public void replaySample( int i , 
+                              AlignedSampleListener listener ) {
+        listener.onAlignedSample( timestamps[i] , 
+                                  values[ AX ][i] , values[ AY ][i] , values[ AZ ][i] , 
+                                  values[ GX ][i] , values[ GY ][i] , values[ GZ ][i] );
+    }
+
+    /**
+       Returns the class of the window ending at a sample: the gesture's
+       class if it ends within 'tolerance' of the gesture's end (shorter
+       gestures) or anywhere from 'minDuration' after its start (longer
+       gestures), 0 (no gesture) if the window does not overlap any
+       gesture, or -1 if it is ambiguous (partly overlapping a gesture).
+
+       @param   i            Last sample of the window
+       @param   windowDuration  Duration of the window (nanosec)
+       @param   tolerance    Time around the gesture's end (nanosec)
+       @param   minDuration  Time after the gesture's start (nanosec)
+     */
+    public int getWindowLabel( int i , 
+                               long windowDuration , 
+                               long tolerance , 
+                               long minDuration ) {
+        long end = timestamps[i];
+        long start = end - windowDuration;
+        for( int g = 0 ; g < numGestures ; ++g ) {
+            long gestureStart = timestamps[ gestureStarts[g] ];
+            long gestureEnd = timestamps[ gestureEnds[g] ];
+            if( end < gestureStart || start > gestureEnd + tolerance ) {
+                continue;
+            }
+            if( Math.abs( end - gestureEnd ) <= tolerance || 
+                ( end >= gestureStart + minDuration && end <= gestureEnd ) ) {
+                return gestureClasses[g];
+            }
+            return -1;
+        }
+        return 0;
+    }
+
+    /** Returns the number of samples. */
+    public int size() {
+        return numSamples;
+    }
+
+    /** Returns the timestamp of a sample (nanosec). */
+    public long getTimestamp( int i ) {
+        return timestamps[i];
+    }
+
+    /** Returns the number of gestures. */
+    public int getNumGestures() {
+        return numGestures;
+    }
+
+    /** Returns the class of a gesture. */
+    public int getGestureClass( int g ) {
+        return gestureClasses[g];
+    }
+
+    /** Returns the first sample of a gesture. */
+    public int getGestureStart( int g ) {
+        return gestureStarts[g];
+    }
+
+    /** Returns the last sample of a gesture. */
+    public int getGestureEnd( int g ) {
+        return gestureEnds[g];
+    }
+
+    /** Timestamp of each sample (nanosec). */
+    private long[] timestamps;
+    /** Values of each axis (AX .. GZ) of each sample. */
+    private final float[][] values;
+    /** Number of samples. */
+    private int numSamples;
+    /** Class of each gesture. */
+    private int[] gestureClasses;
+    /** First sample of each gesture. */
+    private int[] gestureStarts;
+    /** Last sample of each gesture. */
+    private int[] gestureEnds;
+    /** Number of gestures. */
+    private int numGestures;
+
+    // Axes
+    /** Linear accl x-axis. */
+    private static final int AX = 0;
+    /** Linear accl y-axis. */
+    private static final int AY = 1;
+    /** Linear accl z-axis. */
+    private static final int AZ = 2;
+    /** Gravity x-axis. */
+    private static final int GX = 3;
+    /** Gravity y-axis. */
+    private static final int GY = 4;
+    /** Gravity z-axis. */
+    private static final int GZ = 5;
+    /** Initial capacity of the arrays. */
+    private static final int INITIAL_CAPACITY = 256;
+}
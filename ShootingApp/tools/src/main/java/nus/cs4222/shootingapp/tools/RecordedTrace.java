@@ -0,0 +1,117 @@
+package nus.cs4222.shootingapp.tools;
+
+import java.io.File;
+import java.io.IOException;
+
+import nus.cs4222.shootingapp.gesture.SensorSampleListener;
+import nus.cs4222.shootingapp.gesture.trace.SensorTraceReader;
+
+/**
+   Recorded sensor trace with its gesture labels, copied into memory.
+
+   <p> The records are copied out of the memory-mapped file into
+   primitive arrays when the trace is loaded, so that the file can be
+   closed straight away (a corpus can have thousands of traces), and
+   any number of threads can replay the same trace at the same time.
+ */
+public class RecordedTrace {
+
+    /** Loads a trace file and its labels file (see TraceLabels). */
+    public static RecordedTrace load( File traceFile )
+        throws IOException {
+
+        // Labels (required, a trace without them cannot be scored)
+        File labelsFile = TraceLabels.getLabelsFile( traceFile );
+        if( ! labelsFile.isFile() ) {
+            throw new IOException( "No labels file for the trace: " + labelsFile );
+        }
+        TraceLabels labels = TraceLabels.read( labelsFile );
+
+        // Records
+        SensorTraceReader reader = new SensorTraceReader( traceFile );
+        try {
+            RecordedTrace trace = new RecordedTrace( traceFile.getName() , reader.size() , labels );
+            for( int i = 0 ; i < trace.numRecords ; ++i ) {
+                int sensorType = reader.getSensorType( i );
+                trace.sensorTypes[i] = sensorType;
+                if( sensorType > 0 && sensorType < 64 ) {
+                    trace.sensorTypeMask |= 1L << sensorType;
+                }
+                trace.timestamps[i] = reader.getTimestamp( i );
+                trace.xValues[i] = reader.getX( i );
+                trace.yValues[i] = reader.getY( i );
+                trace.zValues[i] = reader.getZ( i );
+            }
+            return trace;
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /** Creates an empty trace with room for the given number of records. */
+    private RecordedTrace( String name ,
+                           int numRecords ,
+                           TraceLabels labels ) {
+        this.name = name;
+        this.numRecords = numRecords;
+        this.labels = labels;
+        sensorTypes = new int[ numRecords ];
+        timestamps = new long[ numRecords ];
+        xValues = new float[ numRecords ];
+        yValues = new float[ numRecords ];
+        zValues = new float[ numRecords ];
+    }
+
+    /** Replays all the records to the listener, in order. */
+    public void replay( SensorSampleListener listener ) {
+        for( int i = 0 ; i < numRecords ; ++i ) {
+            listener.onSample( sensorTypes[i] , timestamps[i] , xValues[i] , yValues[i] , zValues[i] );
+        }
+    }
+
+    /** Returns the name of the trace file. */
+    public String getName() {
+        return name;
+    }
+
+    /** Returns the number of records. */
+    public int size() {
+        return numRecords;
+    }
+
+    /** Returns the duration of the trace (nanosec, sensor time). */
+    public long getDuration() {
+        return ( numRecords > 0 ) ? timestamps[ numRecords - 1 ] - timestamps[0] : 0L;
+    }
+
+    /** Checks whether the trace has any samples of a sensor type (see SensorTrace.TYPE_*). */
+    public boolean hasSensor( int sensorType ) {
+        return sensorType > 0 && sensorType < 64 && 
+            ( sensorTypeMask & ( 1L << sensorType ) ) != 0L;
+    }
+
+    /** Returns the gestures performed during the trace. */
+    public TraceLabels getLabels() {
+        return labels;
+    }
+
+    /** Name of the trace file. */
+    private final String name;
+    /** Number of records. */
+    private final int numRecords;
+    /** Gestures performed during the trace. */
+    private final TraceLabels labels;
+    /** Sensor type of each record. */
+    private final int[] sensorTypes;
+    /** Timestamp of each record (nanosec). */
+    private final long[] timestamps;
+    /** X value of each record. */
+    private final float[] xValues;
+    /** Y value of each record. */
+    private final float[] yValues;
+    /** Z value of each record. */
+    private final float[] zValues;
+    /** Bit set of the sensor types of the records (types below 64). */
+    private long sensorTypeMask;
+}
@@ -0,0 +1,194 @@
+package nus.cs4222.shootingapp.tools;
+
+import java.util.Arrays;
+
+import nus.cs4222.shootingapp.gesture.AlignedSampleListener;
+import nus.cs4222.shootingapp.gesture.FaceUpDetector;
+import nus.cs4222.shootingapp.gesture.GestureDetector;
+import nus.cs4222.shootingapp.gesture.HeadingFilter;
+import nus.cs4222.shootingapp.gesture.SampleBatch;
+import nus.cs4222.shootingapp.gesture.SensorSampleListener;
+import nus.cs4222.shootingapp.gesture.SensorStreamJoiner;
+import nus.cs4222.shootingapp.gesture.ShootingRegionTracker;
+import nus.cs4222.shootingapp.gesture.trace.SensorTrace;
+
+/**
+   The app's sample processing, run on the JVM over a recorded trace:
+   the gravity and linear accl streams are joined, the aligned accl
+   samples are processed in blocks by the face up and gesture
+   detectors, and the shooting region is tracked from the heading.
+
+   <p> The constants and the order of the steps are those of
+   ShootingService (with the samples drained in the largest
+   batches the app uses), so the detections are those the app would
+   make on the same samples. Not thread-safe: each evaluation thread
+   uses its own pipelines.
+ */
+public class ReplayPipeline
+    implements SensorSampleListener , AlignedSampleListener {
+
+    /** Creates a pipeline around a detector. */
+    public ReplayPipeline( GestureDetector detector ) {
+        this.detector = detector;
+        streamJoiner = new SensorStreamJoiner( MAX_SENSOR_SKEW , STREAM_JOIN_CAPACITY , this );
+        faceUpDetector = new FaceUpDetector( MAX_FACE_UP_ANGLE_ERROR );
+        acclBatch = new SampleBatch( ACCL_BATCH_CAPACITY );
+        gestureIndices = new int[ ACCL_BATCH_CAPACITY ];
+        headingFilterWithGyroscope = new HeadingFilter( HeadingFilter.DEFAULT_MAGNETIC_GAIN_WITH_GYROSCOPE );
+        headingFilterWithoutGyroscope = new HeadingFilter( HeadingFilter.DEFAULT_MAGNETIC_GAIN_WITHOUT_GYROSCOPE );
+        regionTracker = new ShootingRegionTracker( NUM_SHOOTING_REGIONS , SHOOTING_REGION_HYSTERESIS );
+        detectionTimestamps = new long[ INITIAL_DETECTION_CAPACITY ];
+        detectionRegions = new int[ INITIAL_DETECTION_CAPACITY ];
+    }
+
+    /**
+       Replays a trace from the initial state, and adds the detections
+       and the replay time to the score.
+     */
+    public void run( RecordedTrace trace ,
+                     DetectionScore score ) {
+
+        // Reset everything (like the app when it is resumed)
+        streamJoiner.reset();
+        faceUpDetector.reset();
+        acclBatch.clear();
+        detector.reset();
+        headingFilter = trace.hasSensor( SensorTrace.TYPE_GYROSCOPE ) ?
+            headingFilterWithGyroscope : headingFilterWithoutGyroscope;
+        headingFilter.reset();
+        regionTracker.reset();
+        shootingRegion = 1;
+        numDetections = 0;
+        numBatched = 0;
+
+        // Replay the samples, then process what is left
+        long startTime = System.nanoTime();
+        trace.replay( this );
+        streamJoiner.flush();
+        processAcclBatch();
+        long processingTime = System.nanoTime() - startTime;
+
+        score.addTrace( trace.getLabels() , detectionTimestamps , detectionRegions ,
+                        numDetections , trace.getDuration() );
+        score.addProcessing( trace.size() , processingTime );
+    }
+
+    /** Processes one sensor sample (as ShootingService.onSample()). */
+    @Override
+    public void onSample( int sensorType ,
+                          long timestamp ,
+                          float x ,
+                          float y ,
+                          float z ) {
+
+        // Route the sample
+        if( sensorType == SensorTrace.TYPE_GRAVITY ) {
+            streamJoiner.onGravitySample( timestamp , x , y , z );
+            headingFilter.onGravitySample( x , y , z );
+        }
+        else if( sensorType == SensorTrace.TYPE_LINEAR_ACCELERATION ) {
+            streamJoiner.onAcclSample( timestamp , x , y , z );
+        }
+        else if( sensorType == SensorTrace.TYPE_MAGNETIC_FIELD ) {
+            headingFilter.onMagneticSample( x , y , z );
+        }
+        else if( sensorType == SensorTrace.TYPE_GYROSCOPE ) {
+            headingFilter.onGyroscopeSample( timestamp , x , y , z );
+        }
+
+        // Shooting region
+        if( headingFilter.hasHeading() ) {
+            shootingRegion = regionTracker.onDirection( headingFilter.getHeading() );
+        }
+
+        // The app processes the aligned accl samples after each drain
+        if( ++numBatched == MAX_SAMPLE_BATCH_SIZE ) {
+            numBatched = 0;
+            processAcclBatch();
+        }
+    }
+
+    /** Collects an aligned accl sample into the block. */
+    @Override
+    public void onAlignedSample( long timestamp ,
+                                 float ax ,
+                                 float ay ,
+                                 float az ,
+                                 float gx ,
+                                 float gy ,
+                                 float gz ) {
+        acclBatch.onAlignedSample( timestamp , ax , ay , az , gx , gy , gz );
+        if( acclBatch.isFull() ) {
+            processAcclBatch();
+        }
+    }
+
+    /** Processes the block of aligned accl samples (as ShootingService.processAcclBatch()). */
+    private void processAcclBatch() {
+        if( acclBatch.size() == 0 ) {
+            return;
+        }
+        faceUpDetector.onBatch( acclBatch );
+        int numDetected = detector.onBatch( acclBatch , gestureIndices );
+        for( int i = 0 ; i < numDetected ; ++i ) {
+            if( numDetections == detectionTimestamps.length ) {
+                detectionTimestamps = Arrays.copyOf( detectionTimestamps , 2 * numDetections );
+                detectionRegions = Arrays.copyOf( detectionRegions , 2 * numDetections );
+            }
+            detectionTimestamps[ numDetections ] = acclBatch.timestamps[ gestureIndices[i] ];
+            detectionRegions[ numDetections ] = shootingRegion;
+            ++numDetections;
+        }
+        acclBatch.clear();
+    }
+
+    // App constants (see ShootingService)
+    /** Max time a linear accl sample waits for a later gravity sample (nanosec). */
+    private static final long MAX_SENSOR_SKEW = 40L * 1000000L;
+    /** Number of samples per sensor buffered by the stream joiner. */
+    private static final int STREAM_JOIN_CAPACITY = 32;
+    /** Max number of linear accl samples processed as one block. */
+    private static final int ACCL_BATCH_CAPACITY = 64;
+    /** Max number of samples drained from the sample buffer at a time. */
+    private static final int MAX_SAMPLE_BATCH_SIZE = 32;
+    /** Face up angle error allowed (deg). */
+    private static final float MAX_FACE_UP_ANGLE_ERROR = 30.0F;
+    /** Number of shooting regions. */
+    private static final int NUM_SHOOTING_REGIONS = 8;
+    /** Angle past a region edge before the shooting region changes (deg). */
+    private static final float SHOOTING_REGION_HYSTERESIS = 5.0F;
+
+    // Pipeline
+    /** Gesture detector under evaluation. */
+    private final GestureDetector detector;
+    /** Pairs each linear accl sample with the gravity at its time. */
+    private final SensorStreamJoiner streamJoiner;
+    /** Detects whether the phone is face up at each accl sample. */
+    private final FaceUpDetector faceUpDetector;
+    /** Block of aligned linear accl samples waiting to be processed. */
+    private final SampleBatch acclBatch;
+    /** Indices of the samples of a block at which a gesture was detected. */
+    private final int[] gestureIndices;
+    /** Heading filter for traces with a gyroscope. */
+    private final HeadingFilter headingFilterWithGyroscope;
+    /** Heading filter for traces without a gyroscope. */
+    private final HeadingFilter headingFilterWithoutGyroscope;
+    /** Heading filter of the current trace. */
+    private HeadingFilter headingFilter;
+    /** Tracks the shooting region from the heading. */
+    private final ShootingRegionTracker regionTracker;
+    /** Current shooting region. */
+    private int shootingRegion;
+    /** Number of samples since the last (simulated) drain. */
+    private int numBatched;
+
+    // Detections of the current trace
+    /** Timestamp of each detection (nanosec). */
+    private long[] detectionTimestamps;
+    /** Shooting region at each detection. */
+    private int[] detectionRegions;
+    /** Number of detections. */
+    private int numDetections;
+    /** Initial capacity of the detection arrays. */
+    private static final int INITIAL_DETECTION_CAPACITY = 64;
+}
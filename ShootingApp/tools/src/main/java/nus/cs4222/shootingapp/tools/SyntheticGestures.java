@@ -0,0 +1,249 @@
+package nus.cs4222.shootingapp.tools;
+
+import java.util.Random;
+
+import nus.cs4222.shootingapp.gesture.classify.GestureClasses;
+
+/**
+   Generates labeled sensor sequences (game rate, phone face up) of the
+   shot gestures and of movements that are not shots.
+
+   <p> Each sequence is the phone at rest, then one movement, then the
+   phone at rest again. The movements, with random strength, duration
+   and cross-talk between the axes:
+   <ul>
+     <li> up / down: a push along +z / -z then the stop (one period of
+          a sine, with a random asymmetry between the two lobes)
+     <li> forward: the same along +y
+     <li> shake: a few periods of a 4-7 Hz sine along x
+     <li> walking: a few seconds of steps (vertical bounce with sway)
+     <li> set down: a slow lowering, then a sharp landing impact
+     <li> tilt: the phone tilted away from face up and back
+     <li> bump: a single-sample knock
+   </ul>
+   Only the first four are gestures; the others are labeled NONE.
+ */
+public class SyntheticGestures {
+
+    /** Creates a generator (the same seed gives the same sequences). */
+    public SyntheticGestures( long seed ) {
+        random = new Random( seed );
+    }
+
+    /** Generates a sequence with a random movement (shots in half of the sequences). */
+    public LabeledSequence next() {
+        int movement = random.nextInt( NUM_MOVEMENTS );
+        return generate( movement );
+    }
+
+    /** Generates a sequence with a given movement (MOVEMENT_*). */
+    public LabeledSequence generate( int movement ) {
+        LabeledSequence sequence = new LabeledSequence();
+        timestamp = 0L;
+        rest( sequence , 40 + random.nextInt( 40 ) );
+        int start = sequence.size();
+        switch( movement ) {
+        case MOVEMENT_UP:
+            push( sequence , AXIS_Z , 1.0F );
+            break;
+        case MOVEMENT_DOWN:
+            push( sequence , AXIS_Z , -1.0F );
+            break;
+        case MOVEMENT_FORWARD:
+            push( sequence , AXIS_Y , 1.0F );
+            break;
+        case MOVEMENT_SHAKE:
+            shake( sequence );
+            break;
+        case MOVEMENT_WALKING:
+            walk( sequence );
+            break;
+        case MOVEMENT_SET_DOWN:
+            setDown( sequence );
+            break;
+        case MOVEMENT_TILT:
+            tilt( sequence );
+            break;
+        default:
+            bump( sequence );
+            break;
+        }
+        int end = sequence.size() - 1;
+        if( movement < GestureClasses.NUM_CLASSES - 1 ) {
+            // (the shot movements are numbered like their classes, minus 1)
+            sequence.addGesture( movement + 1 , start , end );
+        }
+        rest( sequence , 40 + random.nextInt( 40 ) );
+        return sequence;
+    }
+
+    /** Phone at rest (sensor noise only). */
+    private void rest( LabeledSequence sequence , 
+                       int numSamples ) {
+        for( int i = 0 ; i < numSamples ; ++i ) {
+            add( sequence , 0.0F , 0.0F , 0.0F , 0.0F );
+        }
+    }
+
+    /** Push along an axis then stop (one sine period, positive lobe first in the given direction). */
+    private void push( LabeledSequence sequence , 
+                       int axis , 
+                       float direction ) {
+        int numSamples = 8 + random.nextInt( 9 );
+        float strength = 8.0F + random.nextFloat() * 10.0F;
+        float pushFraction = 0.4F + random.nextFloat() * 0.2F;
+        float[] crossTalk = crossTalk();
+        int pushSamples = Math.max( 2 , Math.round( numSamples * pushFraction ) );
+        for( int i = 0 ; i < numSamples ; ++i ) {
+            double lobe = ( i < pushSamples ) ? 
+                Math.sin( Math.PI * ( i + 0.5 ) / pushSamples ) : 
+                -Math.sin( Math.PI * ( i - pushSamples + 0.5 ) / ( numSamples - pushSamples ) ) * 
+                pushSamples / (double) ( numSamples - pushSamples );
+            float a = (float) ( direction * strength * lobe );
+            addOnAxis( sequence , axis , a , crossTalk , 0.0F );
+        }
+    }
+
+    /** Shake along x. */
+    private void shake( LabeledSequence sequence ) {
+        double frequency = 4.0 + random.nextDouble() * 3.0;
+        int numSamples = (int) Math.round( ( 2 + random.nextInt( 3 ) ) / frequency / SAMPLE_PERIOD );
+        float strength = 6.0F + random.nextFloat() * 8.0F;
+        float[] crossTalk = crossTalk();
+        for( int i = 0 ; i < numSamples ; ++i ) {
+            float a = (float) ( strength * Math.sin( 2.0 * Math.PI * frequency * i * SAMPLE_PERIOD ) );
+            addOnAxis( sequence , AXIS_X , a , crossTalk , 0.0F );
+        }
+    }
+
+    /** Walking while holding the phone face up. */
+    private void walk( LabeledSequence sequence ) {
+        double stepFrequency = 1.6 + random.nextDouble() * 0.6;
+        float strength = 1.5F + random.nextFloat() * 3.0F;
+        int numSamples = 100 + random.nextInt( 100 );
+        double phase = random.nextDouble() * 2.0 * Math.PI;
+        for( int i = 0 ; i < numSamples ; ++i ) {
+            double t = 2.0 * Math.PI * stepFrequency * i * SAMPLE_PERIOD + phase;
+            add( sequence , 
+                 (float) ( 0.3 * strength * Math.sin( t / 2.0 ) ) , 
+                 (float) ( 0.4 * strength * Math.sin( t + 1.0 ) ) , 
+                 (float) ( strength * ( Math.sin( t ) + 0.3 * Math.sin( 2.0 * t ) ) ) , 
+                 (float) ( 3.0 * Math.sin( t / 2.0 ) ) );
+        }
+    }
+
+    /** Lowering the phone onto a table, then the landing impact. */
+    private void setDown( LabeledSequence sequence ) {
+        int numSamples = 20 + random.nextInt( 15 );
+        float strength = 1.0F + random.nextFloat() * 2.0F;
+        for( int i = 0 ; i < numSamples ; ++i ) {
+            float a = (float) ( -strength * Math.sin( 2.0 * Math.PI * ( i + 0.5 ) / numSamples ) );
+            add( sequence , 0.0F , 0.0F , a , 0.0F );
+        }
+        float impact = 5.0F + random.nextFloat() * 12.0F;
+        add( sequence , 0.0F , 0.0F , impact , 0.0F );
+        add( sequence , 0.0F , 0.0F , -impact * 0.4F , 0.0F );
+        add( sequence , 0.0F , 0.0F , impact * 0.15F , 0.0F );
+    }
+
+    /** Tilting the phone away from face up and back. */
+    private void tilt( LabeledSequence sequence ) {
+        int numSamples = 30 + random.nextInt( 30 );
+        float maxAngle = 20.0F + random.nextFloat() * 40.0F;
+        for( int i = 0 ; i < numSamples ; ++i ) {
+            double s = Math.sin( Math.PI * i / ( numSamples - 1 ) );
+            float a = (float) ( 1.5 * Math.cos( Math.PI * 2.0 * i / ( numSamples - 1 ) ) );
+            add( sequence , 0.0F , a , 0.0F , (float) ( maxAngle * s ) );
+        }
+    }
+
+    /** A single knock on the phone. */
+    private void bump( LabeledSequence sequence ) {
+        float impact = ( random.nextBoolean() ? 1.0F : -1.0F ) * ( 5.0F + random.nextFloat() * 12.0F );
+        float[] crossTalk = crossTalk();
+        addOnAxis( sequence , random.nextInt( 3 ) , impact , crossTalk , 0.0F );
+        addOnAxis( sequence , random.nextInt( 3 ) , -impact * 0.3F , crossTalk , 0.0F );
+    }
+
+    /** Random cross-talk of a movement onto each axis. */
+    private float[] crossTalk() {
+        return new float[] { 
+            ( random.nextFloat() - 0.5F ) * 0.4F , 
+            ( random.nextFloat() - 0.5F ) * 0.4F , 
+            ( random.nextFloat() - 0.5F ) * 0.4F };
+    }
+
+    /** Adds a sample with the accl along one axis (and cross-talk on the others). */
+    private void addOnAxis( LabeledSequence sequence , 
+                            int axis , 
+                            float a , 
+                            float[] crossTalk , 
+                            float tiltAngle ) {
+        float ax = ( axis == AXIS_X ) ? a : a * crossTalk[ AXIS_X ];
+        float ay = ( axis == AXIS_Y ) ? a : a * crossTalk[ AXIS_Y ];
+        float az = ( axis == AXIS_Z ) ? a : a * crossTalk[ AXIS_Z ];
+        add( sequence , ax , ay , az , tiltAngle );
+    }
+
+    /** Adds a sample (with sensor noise), the phone tilted about its x-axis by the given angle (deg). */
+    private void add( LabeledSequence sequence , 
+                      float ax , 
+                      float ay , 
+                      float az , 
+                      float tiltAngle ) {
+        double angle = Math.toRadians( tiltAngle + random.nextGaussian() * 2.0 );
+        timestamp += SAMPLE_INTERVAL + (long) ( random.nextGaussian() * SAMPLE_JITTER );
+        sequence.onAlignedSample( timestamp , 
+                                  ax + noise() , 
+                                  ay + noise() , 
+                                  az + noise() , 
+                                  (float) ( random.nextGaussian() * 0.05 ) , 
+                                  (float) ( GRAVITY * Math.sin( angle ) ) , 
+                                  (float) ( GRAVITY * Math.cos( angle ) ) );
+    }
+
+    /** Linear accl sensor noise (m/sec^2). */
+    private float noise() {
+        return (float) random.nextGaussian() * 0.3F;
+    }
+
+    /** Random number generator. */
+    private final Random random;
+    /** Timestamp of the last sample (nanosec). */
+    private long timestamp;
+
+    // Movements
+    /** Upward shot. */
+    public static final int MOVEMENT_UP = 0;
+    /** Downward shot. */
+    public static final int MOVEMENT_DOWN = 1;
+    /** Forward shot. */
+    public static final int MOVEMENT_FORWARD = 2;
+    /** Shake. */
+    public static final int MOVEMENT_SHAKE = 3;
+    /** Walking (not a shot). */
+    public static final int MOVEMENT_WALKING = 4;
+    /** Setting the phone down (not a shot). */
+    public static final int MOVEMENT_SET_DOWN = 5;
+    /** Tilting the phone (not a shot). */
+    public static final int MOVEMENT_TILT = 6;
+    /** Knock on the phone (not a shot). */
+    public static final int MOVEMENT_BUMP = 7;
+    /** Number of movements. */
+    public static final int NUM_MOVEMENTS = 8;
+
+    /** Phone's x-axis. */
+    private static final int AXIS_X = 0;
+    /** Phone's y-axis. */
+    private static final int AXIS_Y = 1;
+    /** Phone's z-axis. */
+    private static final int AXIS_Z = 2;
+    /** Interval between samples at game rate (nanosec). */
+    private static final long SAMPLE_INTERVAL = 20000000L;
+    /** Std dev of the interval between samples (nanosec). */
+    private static final double SAMPLE_JITTER = 1000000.0;
+    /** Interval between samples at game rate (sec). */
+    private static final double SAMPLE_PERIOD = 0.02;
+    /** Gravity (m/sec^2). */
+    private static final float GRAVITY = 9.81F;
+}
@@ -0,0 +1,184 @@
+package nus.cs4222.shootingapp.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+import nus.cs4222.shootingapp.gesture.classify.GestureClasses;
+
+/**
+   Gestures performed during a recorded sensor trace, read from the
+   '.labels' file next to the trace file.
+
+   <p> A labels file is text, with one gesture per line:
+
+   <pre>
+   # start (nanosec)   end (nanosec)   class   [region]
+   1204000000          1380000000      up      3
+   </pre>
+
+   <p> The times are sensor timestamps (as in the trace records), the
+   class is one of GestureClasses.NAMES (except "none"), and the
+   shooting region (1 .. number of regions) is optional. Blank lines
+   and lines starting with '#' are ignored.
+ */
+public class TraceLabels {
+
+    /** Creates an empty list of gestures. */
+    public TraceLabels() {
+        starts = new long[ INITIAL_CAPACITY ];
+        ends = new long[ INITIAL_CAPACITY ];
+        classes = new int[ INITIAL_CAPACITY ];
+        regions = new int[ INITIAL_CAPACITY ];
+    }
+
+    /**
+       Adds a gesture.
+
+       @param   start         Timestamp of its first sample (nanosec)
+       @param   end           Timestamp of its last sample (nanosec)
+       @param   gestureClass  Class (see GestureClasses)
+       @param   region        Shooting region (0 if unknown)
+     */
+    public void add( long start ,
+                     long end ,
+                     int gestureClass ,
+                     int region ) {
+        if( end < start ) {
+            throw new IllegalArgumentException( "Gesture ends before it starts: " + start + " , " + end );
+        }
+        else if( gestureClass <= GestureClasses.NONE || gestureClass >= GestureClasses.NUM_CLASSES ) {
+            throw new IllegalArgumentException( "Invalid gesture class: " + gestureClass );
+        }
+        else if( region < 0 ) {
+            throw new IllegalArgumentException( "Invalid shooting region: " + region );
+        }
+        if( size == starts.length ) {
+            starts = Arrays.copyOf( starts , 2 * size );
+            ends = Arrays.copyOf( ends , 2 * size );
+            classes = Arrays.copyOf( classes , 2 * size );
+            regions = Arrays.copyOf( regions , 2 * size );
+        }
+        starts[ size ] = start;
+        ends[ size ] = end;
+        classes[ size ] = gestureClass;
+        regions[ size ] = region;
+        ++size;
+    }
+
+    /** Returns the number of gestures. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns the timestamp of a gesture's first sample (nanosec). */
+    public long getStart( int g ) {
+        return starts[g];
+    }
+
+    /** Returns the timestamp of a gesture's last sample (nanosec). */
+    public long getEnd( int g ) {
+        return ends[g];
+    }
+
+    /** Returns the class of a gesture. */
+    public int getGestureClass( int g ) {
+        return classes[g];
+    }
+
+    /** Returns the shooting region of a gesture (0 if unknown). */
+    public int getRegion( int g ) {
+        return regions[g];
+    }
+
+    /** Returns the labels file of a trace file. */
+    public static File getLabelsFile( File traceFile ) {
+        return new File( traceFile.getPath() + FILE_EXTENSION );
+    }
+
+    /** Reads a labels file (see above for the format). */
+    public static TraceLabels read( File file )
+        throws IOException {
+        TraceLabels labels = new TraceLabels();
+        BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ) , "UTF-8" ) );
+        try {
+            String line;
+            int lineNumber = 0;
+            while( ( line = reader.readLine() ) != null ) {
+                ++lineNumber;
+                line = line.trim();
+                if( line.isEmpty() || line.startsWith( "#" ) ) {
+                    continue;
+                }
+                String[] fields = line.split( "\\s+" );
+                try {
+                    if( fields.length < 3 || fields.length > 4 ) {
+                        throw new IllegalArgumentException( "Expected: start end class [region]" );
+                    }
+                    labels.add( Long.parseLong( fields[0] ) ,
+                                Long.parseLong( fields[1] ) ,
+                                parseClass( fields[2] ) ,
+                                ( fields.length > 3 ) ? Integer.parseInt( fields[3] ) : 0 );
+                }
+                catch( IllegalArgumentException e ) {
+                    throw new IOException( file + ":" + lineNumber + ": " + e.getMessage() , e );
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return labels;
+    }
+
+    /** Writes the gestures into a labels file. */
+    public void write( File file )
+        throws IOException {
+        PrintWriter writer = new PrintWriter( new OutputStreamWriter( new FileOutputStream( file ) , "UTF-8" ) );
+        try {
+            writer.println( "# start (nanosec)   end (nanosec)   class   [region]" );
+            for( int g = 0 ; g < size ; ++g ) {
+                writer.print( starts[g] + " " + ends[g] + " " + GestureClasses.NAMES[ classes[g] ] );
+                writer.println( ( regions[g] != 0 ) ? " " + regions[g] : "" );
+            }
+        }
+        finally {
+            writer.close();
+        }
+        if( writer.checkError() ) {
+            throw new IOException( "Cannot write the labels file: " + file );
+        }
+    }
+
+    /** Returns the class with the given name. */
+    private static int parseClass( String name ) {
+        for( int c = GestureClasses.NONE + 1 ; c < GestureClasses.NUM_CLASSES ; ++c ) {
+            if( GestureClasses.NAMES[c].equalsIgnoreCase( name ) ) {
+                return c;
+            }
+        }
+        throw new IllegalArgumentException( "Unknown gesture class: " + name );
+    }
+
+    /** Extension added to a trace file's name to get its labels file. */
+    public static final String FILE_EXTENSION = ".labels";
+
+    /** First sample timestamp of each gesture (nanosec). */
+    private long[] starts;
+    /** Last sample timestamp of each gesture (nanosec). */
+    private long[] ends;
+    /** Class of each gesture. */
+    private int[] classes;
+    /** Shooting region of each gesture (0 if unknown). */
+    private int[] regions;
+    /** Number of gestures. */
+    private int size;
+    /** Initial capacity of the arrays. */
+    private static final int INITIAL_CAPACITY = 16;
+}
@@ -0,0 +1,133 @@
+package nus.cs4222.shootingapp.tools;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import nus.cs4222.shootingapp.gesture.classify.DecisionTree;
+import nus.cs4222.shootingapp.gesture.classify.GestureClasses;
+import nus.cs4222.shootingapp.gesture.classify.GestureClassifier;
+import nus.cs4222.shootingapp.gesture.classify.GestureFeatures;
+
+/**
+   Trains the app's gesture classifier on synthetic sequences (see
+   SyntheticGestures), evaluates it on other synthetic sequences, and
+   writes the model file.
+
+   <p> Usage: TrainGestureModel modelFile [numSequences [maxDepth [minLeafSize [seed]]]]
+ */
+public class TrainGestureModel {
+
+    /** Entry point. */
+    public static void main( String[] args ) 
+        throws IOException {
+        if( args.length < 1 ) {
+            System.err.println( "Usage: TrainGestureModel modelFile [numSequences [maxDepth [minLeafSize [seed]]]]" );
+            System.exit( 1 );
+        }
+        String modelFile = args[0];
+        int numSequences = ( args.length > 1 ) ? Integer.parseInt( args[1] ) : DEFAULT_NUM_SEQUENCES;
+        int maxDepth = ( args.length > 2 ) ? Integer.parseInt( args[2] ) : DEFAULT_MAX_DEPTH;
+        int minLeafSize = ( args.length > 3 ) ? Integer.parseInt( args[3] ) : DEFAULT_MIN_LEAF_SIZE;
+        long seed = ( args.length > 4 ) ? Long.parseLong( args[4] ) : DEFAULT_SEED;
+
+        // Training windows
+        SyntheticGestures generator = new SyntheticGestures( seed );
+        List<float[]> examples = new ArrayList<float[]>();
+        List<Integer> labels = new ArrayList<Integer>();
+        Random sampling = new Random( seed );
+        for( int s = 0 ; s < numSequences ; ++s ) {
+            addWindows( generator.next() , examples , labels , sampling );
+        }
+        System.out.println( "Training windows: " + examples.size() );
+
+        // Train
+        long startTime = System.nanoTime();
+        DecisionTree tree = train( examples , labels , maxDepth , minLeafSize );
+        System.out.printf( "Trained in %.1f sec: %d nodes , depth %d%n" , 
+                           ( System.nanoTime() - startTime ) / 1e9 , tree.getNumNodes() , tree.getDepth() );
+
+        // Evaluate on other sequences, as the app runs the classifier
+        SyntheticGestures testGenerator = new SyntheticGestures( seed + 1L );
+        GestureClassifier classifier = new GestureClassifier( tree , GestureClassifier.DEFAULT_REFRACTORY_PERIOD );
+        GestureEvaluation evaluation = new GestureEvaluation( LATE_TOLERANCE );
+        for( int s = 0 ; s < numSequences / 2 ; ++s ) {
+            evaluation.evaluate( classifier , testGenerator.next() );
+        }
+        evaluation.print( System.out );
+
+        // Write the model
+        OutputStream out = new FileOutputStream( modelFile );
+        try {
+            tree.write( out );
+        }
+        finally {
+            out.close();
+        }
+        System.out.println( "Model written to " + modelFile );
+    }
+
+    /**
+       Adds the labeled windows of a sequence as training examples
+       (keeping only some of the windows without a gesture, which are
+       very similar to each other).
+     */
+    static void addWindows( LabeledSequence sequence , 
+                            List<float[]> examples , 
+                            List<Integer> labels , 
+                            Random sampling ) {
+        GestureFeatures features = new GestureFeatures();
+        for( int i = 0 ; i < sequence.size() ; ++i ) {
+            sequence.replaySample( i , features );
+            int label = sequence.getWindowLabel( i , 
+                                                 GestureFeatures.LONG_WINDOW_DURATION , 
+                                                 LABEL_TOLERANCE , 
+                                                 MIN_LONG_GESTURE_DURATION );
+            if( label < 0 || 
+                ( label == GestureClasses.NONE && sampling.nextFloat() >= NONE_SAMPLING ) ) {
+                continue;
+            }
+            float[] featureVector = new float[ GestureFeatures.NUM_FEATURES ];
+            features.getFeatureVector( featureVector );
+            examples.add( featureVector );
+            labels.add( label );
+        }
+    }
+
+    /** Trains a tree on the examples. */
+    static DecisionTree train( List<float[]> examples , 
+                               List<Integer> labels , 
+                               int maxDepth , 
+                               int minLeafSize ) {
+        int[] labelArray = new int[ labels.size() ];
+        for( int i = 0 ; i < labelArray.length ; ++i ) {
+            labelArray[i] = labels.get( i );
+        }
+        return new DecisionTreeTrainer( maxDepth , minLeafSize )
+            .train( examples.toArray( new float[ examples.size() ][] ) , labelArray , GestureClasses.NAMES );
+    }
+
+    /** Not instantiable. */
+    private TrainGestureModel() {
+    }
+
+    /** Default number of training sequences (half as many are used for testing). */
+    private static final int DEFAULT_NUM_SEQUENCES = 2000;
+    /** Default max depth of the tree. */
+    private static final int DEFAULT_MAX_DEPTH = 10;
+    /** Default min number of examples per leaf. */
+    private static final int DEFAULT_MIN_LEAF_SIZE = 5;
+    /** Default seed of the synthetic sequences. */
+    private static final long DEFAULT_SEED = 4222L;
+    /** Time around a gesture's end at which a window is labeled with the gesture (nanosec). */
+    static final long LABEL_TOLERANCE = 40L * 1000000L;
+    /** Time after the start of a longer gesture (a shake) from which a window is labeled with it (nanosec). */
+    static final long MIN_LONG_GESTURE_DURATION = 300L * 1000000L;
+    /** Time after a gesture's end within which a detection still counts for it (nanosec). */
+    static final long LATE_TOLERANCE = 200L * 1000000L;
+    /** Fraction of the windows without a gesture used for training. */
+    private static final float NONE_SAMPLING = 0.2F;
+}
@@ -0,0 +1,67 @@
+package nus.cs4222.shootingapp.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import nus.cs4222.shootingapp.gesture.classify.DecisionTree;
+
+import org.junit.Test;
+
+/**
+ * Tests the CART trainer on separable and noisy data.
+ */
+public class DecisionTreeTrainerTest {
+
+    private static final String[] CLASSES = {"none", "a", "b"};
+
+    @Test
+    public void separatesClassesOnOneFeature() {
+        // Class by feature 1 (feature 0 is noise)
+        Random random = new Random(1);
+        float[][] examples = new float[300][];
+        int[] labels = new int[300];
+        for (int i = 0; i < examples.length; ++i) {
+            labels[i] = i % 3;
+            examples[i] = new float[] {random.nextFloat(), labels[i] * 10.0F + random.nextFloat()};
+        }
+        DecisionTree tree = new DecisionTreeTrainer(5, 1).train(examples, labels, CLASSES);
+
+        assertEquals(2, tree.getDepth());
+        assertEquals(0, tree.classify(new float[] {0.5F, 0.5F}));
+        assertEquals(1, tree.classify(new float[] {0.5F, 10.5F}));
+        assertEquals(2, tree.classify(new float[] {0.5F, 20.5F}));
+    }
+
+    @Test
+    public void weightsRareClassesUp() {
+        // 1 'a' for 20 'none', overlapping: the weighted tree still finds the 'a' region
+        Random random = new Random(2);
+        float[][] examples = new float[2100][];
+        int[] labels = new int[2100];
+        for (int i = 0; i < examples.length; ++i) {
+            labels[i] = (i < 100) ? 1 : 0;
+            examples[i] = new float[] {(labels[i] == 1 ? 2.0F : 0.0F) + (float) random.nextGaussian()};
+        }
+        DecisionTree tree = new DecisionTreeTrainer(3, 10).train(examples, labels, CLASSES);
+
+        assertEquals(1, tree.classify(new float[] {2.5F}));
+        assertEquals(0, tree.classify(new float[] {-0.5F}));
+    }
+
+    @Test
+    public void respectsLimits() {
+        Random random = new Random(3);
+        float[][] examples = new float[500][];
+        int[] labels = new int[500];
+        for (int i = 0; i < examples.length; ++i) {
+            labels[i] = random.nextInt(3);
+            examples[i] = new float[] {random.nextFloat(), random.nextFloat()};
+        }
+        DecisionTree tree = new DecisionTreeTrainer(4, 20).train(examples, labels, CLASSES);
+
+        assertTrue(tree.getDepth() <= 4);
+        assertTrue(tree.getNumNodes() <= 31);
+    }
+}
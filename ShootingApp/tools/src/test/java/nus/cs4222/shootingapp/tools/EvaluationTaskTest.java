@@ -0,0 +1,85 @@
+package nus.cs4222.shootingapp.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import nus.cs4222.shootingapp.gesture.classify.GestureClasses;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the scoring of detections, and that the parallel evaluation
+ * gives the same scores as a sequential one.
+ */
+public class EvaluationTaskTest {
+
+    private static final long MS = 1000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void scoresHitsRepeatsAndFalseAlarms() {
+        TraceLabels labels = new TraceLabels();
+        labels.add(1000 * MS, 1200 * MS, GestureClasses.UP, 2);
+        labels.add(3000 * MS, 3200 * MS, GestureClasses.DOWN, 5);
+        labels.add(6000 * MS, 6200 * MS, GestureClasses.UP, 0);
+        // Hit (right region), repeat, false alarm, late hit (wrong region); the last gesture is missed
+        long[] timestamps = {1100 * MS, 1150 * MS, 2000 * MS, 3350 * MS};
+        int[] regions = {2, 2, 1, 4};
+        DetectionScore score = new DetectionScore(200 * MS);
+
+        score.addTrace(labels, timestamps, regions, timestamps.length, 60000 * MS);
+
+        assertEquals(2L, score.getNumHits());
+        assertEquals(1L, score.getNumRepeats());
+        assertEquals(1L, score.getNumFalseAlarms());
+        // (the repeat counts against the precision, like the false alarm)
+        assertEquals(2.0 / 4.0, score.getPrecision(), 1e-9);
+        assertEquals(2.0 / 3.0, score.getRecall(), 1e-9);
+        assertEquals(0.5, score.getRegionAccuracy(), 1e-9);
+        assertEquals(1.0, score.getFalseAlarmsPerMinute(), 1e-9);
+        assertEquals(1.0, score.getRepeatsPerMinute(), 1e-9);
+        assertEquals(350 * MS, score.getLatencies().getMax());
+    }
+
+    @Test
+    public void parallelScoresMatchSequentialScores() throws IOException {
+        File dir = folder.newFolder("corpus");
+        for (int t = 0; t < 6; ++t) {
+            GenerateGestureCorpus.write(new File(dir, "t" + t + ".trace"), new SyntheticGestures(t), 10);
+        }
+        List<DetectorFactory> detectors = DetectorGrid.thresholds(DetectorGrid.parseRange("6:8:1"),
+                                                                  DetectorGrid.parseRange("1"),
+                                                                  DetectorGrid.parseRange("150"));
+
+        ForkJoinPool sequentialPool = new ForkJoinPool(1);
+        ForkJoinPool parallelPool = new ForkJoinPool(4);
+        List<RecordedTrace> traces = EvaluateGestures.loadTraces(dir, parallelPool);
+        DetectionScore[] sequential =
+            sequentialPool.invoke(new EvaluationTask(traces, detectors, 200 * MS, traces.size()));
+        DetectionScore[] parallel =
+            parallelPool.invoke(new EvaluationTask(traces, detectors, 200 * MS, 1));
+
+        assertEquals(6, traces.size());
+        assertEquals(3, parallel.length);
+        for (int c = 0; c < detectors.size(); ++c) {
+            assertEquals(6L, parallel[c].getNumTraces());
+            assertEquals(sequential[c].getNumGestures(), parallel[c].getNumGestures());
+            assertEquals(sequential[c].getNumHits(), parallel[c].getNumHits());
+            assertEquals(sequential[c].getNumRepeats(), parallel[c].getNumRepeats());
+            assertEquals(sequential[c].getNumFalseAlarms(), parallel[c].getNumFalseAlarms());
+            assertEquals(sequential[c].getNumSamples(), parallel[c].getNumSamples());
+        }
+        // (a lower min force detects at least as many gestures)
+        assertTrue(parallel[0].getNumHits() > 0);
+        assertTrue(parallel[0].getNumHits() >= parallel[2].getNumHits());
+    }
+}
@@ -0,0 +1,60 @@
+package nus.cs4222.shootingapp.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import nus.cs4222.shootingapp.gesture.classify.GestureClasses;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests reading and writing the labels files of traces.
+ */
+public class TraceLabelsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writtenLabelsAreReadBack() throws IOException {
+        TraceLabels labels = new TraceLabels();
+        labels.add(1000000000L, 1200000000L, GestureClasses.UP, 3);
+        labels.add(5000000000L, 5600000000L, GestureClasses.SHAKE, 0);
+        File file = folder.newFile("a.trace.labels");
+
+        labels.write(file);
+        TraceLabels read = TraceLabels.read(file);
+
+        assertEquals(2, read.size());
+        assertEquals(1000000000L, read.getStart(0));
+        assertEquals(1200000000L, read.getEnd(0));
+        assertEquals(GestureClasses.UP, read.getGestureClass(0));
+        assertEquals(3, read.getRegion(0));
+        assertEquals(GestureClasses.SHAKE, read.getGestureClass(1));
+        assertEquals(0, read.getRegion(1));
+        assertEquals(new File(folder.getRoot(), "a.trace.labels"),
+                     TraceLabels.getLabelsFile(new File(folder.getRoot(), "a.trace")));
+    }
+
+    @Test
+    public void invalidLineGivesItsLineNumber() throws IOException {
+        File file = folder.newFile("b.trace.labels");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("# comment\n\n100 200 Forward\n300 400 jump\n".getBytes("UTF-8"));
+        out.close();
+
+        try {
+            TraceLabels.read(file);
+            fail("Unknown class accepted");
+        }
+        catch (IOException e) {
+            assertEquals(file + ":4: Unknown gesture class: jump", e.getMessage());
+        }
+    }
+}